@@ -0,0 +1,158 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * BenchEnvironment.java  0.01
+ */
+
+package mmj.bench;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import mmj.lang.*;
+import mmj.pa.ProofAsst;
+import mmj.pa.ProofAsstPreferences;
+import mmj.svc.SvcCallback;
+import mmj.tl.TheoremLoader;
+import mmj.tl.TlPreferences;
+import mmj.util.BatchMMJ2;
+import mmj.util.OutputBoss;
+import mmj.verify.Grammar;
+import mmj.verify.VerifyProofs;
+
+/**
+ * BenchEnvironment loads a Metamath file the way a BatchMMJ2 run does and
+ * keeps the resulting mmj2 objects for use by the benchmarks.
+ * <p>
+ * The file is loaded by running BatchMMJ2 in "caller" mode (see
+ * {@link SvcCallback}) with a generated RunParm file: MacrosEnabled,no,
+ * LoadFile, SetParser (if a parser is given), VerifyProof, Parse and SvcCall.
+ * The callback just stores its arguments.
+ * <p>
+ * Metamath files are looked up in the directory named by the system property
+ * {@code mmj2.bench.dir}, default {@code data/mm}.
+ */
+public class BenchEnvironment implements SvcCallback {
+
+    /** System property naming the directory of the Metamath files. */
+    public static final String BENCH_DIR_PROPERTY = "mmj2.bench.dir";
+
+    /** Default directory of the Metamath files. */
+    public static final String BENCH_DIR_DEFAULT = "data/mm";
+
+    public Messages messages;
+    public LogicalSystem logicalSystem;
+    public VerifyProofs verifyProofs;
+    public Grammar grammar;
+    public WorkVarManager workVarManager;
+    public ProofAsstPreferences proofAsstPreferences;
+    public ProofAsst proofAsst;
+
+    /**
+     * Returns a Metamath file in the benchmark directory.
+     *
+     * @param mmFile file name, relative to the benchmark directory.
+     * @return the file.
+     */
+    public static File getMMFile(final String mmFile) {
+        return new File(
+            System.getProperty(BENCH_DIR_PROPERTY, BENCH_DIR_DEFAULT), mmFile);
+    }
+
+    /**
+     * Loads, verifies and parses a Metamath file.
+     *
+     * @param mmFile file name, relative to the benchmark directory.
+     * @param parser fully qualified GrammaticalParser class name, or null for
+     *            the default parser.
+     * @return the loaded environment.
+     * @throws IOException if the RunParm file cannot be written.
+     * @throws IllegalStateException if BatchMMJ2 fails or the file has errors.
+     */
+    public static BenchEnvironment load(final String mmFile,
+        final String parser) throws IOException
+    {
+        final File file = getMMFile(mmFile).getAbsoluteFile();
+        if (!file.isFile())
+            throw new FileNotFoundException(file.getPath());
+
+        final List<String> runParms = new ArrayList<>();
+        // no macros: the JavaScript engine may be missing from the JDK
+        runParms.add("MacrosEnabled,no");
+        runParms.add("LoadFile," + file.getName());
+        if (parser != null)
+            runParms.add("SetParser," + parser);
+        runParms.add("VerifyProof,*");
+        runParms.add("Parse,*");
+        runParms.add("SvcCall");
+
+        final File runParmFile = File.createTempFile("mmj2bench", ".txt");
+        try {
+            Files.write(runParmFile.toPath(), runParms,
+                StandardCharsets.UTF_8);
+            final String dir = file.getParent();
+            final BenchEnvironment env = new BenchEnvironment();
+            final int retCd = new BatchMMJ2().generateSvcCallback(
+                new String[]{runParmFile.getPath(), "n", dir, dir, dir}, env);
+            if (retCd != 0 || env.logicalSystem == null)
+                throw new IllegalStateException(
+                    "BatchMMJ2 failed loading " + file + ", return code "
+                        + retCd);
+            if (env.messages.getErrorMessageCnt() != 0)
+                throw new IllegalStateException(
+                    "Errors found loading " + file);
+            return env;
+        } finally {
+            runParmFile.delete();
+        }
+    }
+
+    public void go(final Messages messages, final OutputBoss outputBoss,
+        final LogicalSystem logicalSystem, final VerifyProofs verifyProofs,
+        final Grammar grammar, final WorkVarManager workVarManager,
+        final ProofAsstPreferences proofAsstPreferences,
+        final ProofAsst proofAsst, final TlPreferences tlPreferences,
+        final TheoremLoader theoremLoader, final File svcFolder,
+        final Map<String, String> svcArgs)
+    {
+        this.messages = messages;
+        this.logicalSystem = logicalSystem;
+        this.verifyProofs = verifyProofs;
+        this.grammar = grammar;
+        this.workVarManager = workVarManager;
+        this.proofAsstPreferences = proofAsstPreferences;
+        this.proofAsst = proofAsst;
+    }
+
+    /**
+     * @return the Theorems of the LogicalSystem, in database order.
+     */
+    public List<Theorem> getTheorems() {
+        final List<Theorem> list = new ArrayList<>();
+        for (final Stmt stmt : logicalSystem.getStmtTbl().values())
+            if (stmt instanceof Theorem)
+                list.add((Theorem)stmt);
+        list.sort(MObj.SEQ);
+        return list;
+    }
+
+    /**
+     * @return the Assrts of the LogicalSystem which have a parse tree, in
+     *         database order.
+     */
+    public List<Assrt> getParsedAssrts() {
+        final List<Assrt> list = new ArrayList<>();
+        for (final Stmt stmt : logicalSystem.getStmtTbl().values())
+            if (stmt instanceof Assrt && stmt.getExprParseTree() != null)
+                list.add((Assrt)stmt);
+        list.sort(MObj.SEQ);
+        return list;
+    }
+}
@@ -0,0 +1,62 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * ParseFormulaBenchmark.java  0.01
+ */
+
+package mmj.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mmj.lang.*;
+
+/**
+ * Parses the formula of every logical statement (everything but the VarHyps
+ * and syntax axioms) of a Metamath file with each GrammaticalParser.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ParseFormulaBenchmark {
+
+    @Param({"setFirst100.mm"})
+    public String mmFile;
+
+    @Param({"mmj.verify.EarleyParser", "mmj.verify.BottomUpParser",
+            "mmj.verify.LRParser"})
+    public String parser;
+
+    private BenchEnvironment env;
+    private List<Stmt> stmts;
+
+    @Setup
+    public void setup() throws IOException {
+        env = BenchEnvironment.load(mmFile, parser);
+        stmts = new ArrayList<>();
+        for (final Stmt stmt : env.logicalSystem.getStmtTbl().values())
+            if (!(stmt instanceof VarHyp || stmt instanceof Axiom
+                && ((Axiom)stmt).getIsSyntaxAxiom()))
+                stmts.add(stmt);
+        stmts.sort(MObj.SEQ);
+    }
+
+    @Benchmark
+    public void parseFormula(final Blackhole bh) {
+        for (final Stmt stmt : stmts)
+            bh.consume(env.grammar.parseFormula(env.messages,
+                env.logicalSystem.getSymTbl(), env.logicalSystem.getStmtTbl(),
+                stmt.getFormula(), stmt.getMandVarHypArray(), stmt.getSeq(),
+                stmt));
+    }
+}
@@ -0,0 +1,107 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * ProofCompressionBenchmark.java  0.01
+ */
+
+package mmj.bench;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mmj.lang.*;
+import mmj.lang.ParseTree.RPNStep;
+import mmj.mmio.BlockList;
+
+/**
+ * ProofCompression.compress() and decompress() of the proof of every theorem
+ * of a Metamath file. The compressed proofs used by decompress() are made by
+ * compress() during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ProofCompressionBenchmark {
+
+    /** Width of the compressed proof lines. */
+    private static final int WIDTH = 79;
+
+    @Param({"setFirst100.mm", "big-unifier.mm"})
+    public String mmFile;
+
+    private final ProofCompression proofCompression = new ProofCompression();
+    private final List<Proof> proofs = new ArrayList<>();
+
+    private static class Proof {
+        Theorem theorem;
+        List<Hyp> mandHypList;
+        List<VarHyp> optHypList;
+        RPNStep[] rpnProof;
+        Stmt[] otherRefs;
+        String letters;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        final BenchEnvironment env = BenchEnvironment.load(mmFile, null);
+        for (final Theorem theorem : env.getTheorems()) {
+            final Proof p = new Proof();
+            p.theorem = theorem;
+            p.mandHypList = Arrays.asList(theorem.getMandFrame().hypArray);
+            p.rpnProof = theorem.getProof();
+            if (!hasOtherRef(p))
+                continue;
+            p.optHypList = new ArrayList<>();
+            for (final Hyp hyp : theorem.getOptFrame().hypArray)
+                if (hyp instanceof VarHyp)
+                    p.optHypList.add((VarHyp)hyp);
+            final StringBuilder letters = new StringBuilder();
+            final List<Stmt> otherRefs = proofCompression.compress(
+                theorem.getLabel(), WIDTH, p.mandHypList, p.optHypList,
+                p.rpnProof, letters);
+            p.otherRefs = otherRefs.toArray(new Stmt[otherRefs.size()]);
+            p.letters = letters.toString().replaceAll("\\s", "");
+            proofs.add(p);
+        }
+    }
+
+    /**
+     * compress() expects at least one proof step which is not a mandatory
+     * hypothesis; proofs consisting only of those (such as the proof of
+     * dummylink) are left out.
+     */
+    private static boolean hasOtherRef(final Proof p) {
+        for (final RPNStep s : p.rpnProof)
+            if (s != null && s.backRef <= 0 && s.stmt != null
+                && !p.mandHypList.contains(s.stmt))
+                return true;
+        return false;
+    }
+
+    @Benchmark
+    public void compress(final Blackhole bh) {
+        for (final Proof p : proofs)
+            bh.consume(proofCompression.compress(p.theorem.getLabel(), WIDTH,
+                p.mandHypList, p.optHypList, p.rpnProof, new StringBuilder()));
+    }
+
+    @Benchmark
+    public void decompress(final Blackhole bh) throws LangException {
+        for (final Proof p : proofs) {
+            final BlockList blockList = new BlockList();
+            blockList.addBlock(p.letters);
+            bh.consume(proofCompression.decompress(p.theorem.getLabel(),
+                p.theorem.getMandFrame().hypArray,
+                p.theorem.getOptFrame().hypArray, p.otherRefs, blockList));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * StatementizerBenchmark.java  0.01
+ */
+
+package mmj.bench;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import mmj.mmio.*;
+
+/**
+ * Tokenizer/Statementizer throughput: reads every statement of a Metamath
+ * file held in memory, either through a Reader or from a ByteBuffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class StatementizerBenchmark {
+
+    @Param({"setFirst100.mm", "big-unifier.mm"})
+    public String mmFile;
+
+    private byte[] bytes;
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        bytes = Files.readAllBytes(BenchEnvironment.getMMFile(mmFile)
+            .toPath());
+        text = new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    @Benchmark
+    public int reader() throws IOException, MMIOException {
+        return countStmts(new Tokenizer(new StringReader(text), mmFile));
+    }
+
+    @Benchmark
+    public int byteBuffer() throws IOException, MMIOException {
+        return countStmts(new Tokenizer(ByteBuffer.wrap(bytes), mmFile));
+    }
+
+    private static int countStmts(final Tokenizer tokenizer)
+        throws IOException, MMIOException
+    {
+        final Statementizer statementizer = new Statementizer(tokenizer);
+        int cnt = 0;
+        while (statementizer.getStmt() != null)
+            cnt++;
+        return cnt;
+    }
+}
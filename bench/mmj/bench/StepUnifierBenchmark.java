@@ -0,0 +1,66 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * StepUnifierBenchmark.java  0.01
+ */
+
+package mmj.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import mmj.lang.*;
+import mmj.pa.StepUnifier;
+import mmj.verify.VerifyException;
+
+/**
+ * StepUnifier.unifyAndMergeStepFormula() of each theorem's conclusion against
+ * every assertion, as the StepSelectorSearch does for a derivation step:
+ * uncommitted, with the substitutions backed out after each success.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class StepUnifierBenchmark {
+
+    @Param({"setFirst100.mm"})
+    public String mmFile;
+
+    private BenchEnvironment env;
+    private List<Theorem> theorems;
+    private List<Assrt> assrts;
+    private StepUnifier stepUnifier;
+
+    @Setup
+    public void setup() throws IOException {
+        env = BenchEnvironment.load(mmFile, null);
+        theorems = env.getTheorems();
+        assrts = env.proofAsst.getSortedAssrtSearchList();
+        stepUnifier = env.proofAsstPreferences.getStepUnifier();
+    }
+
+    @Benchmark
+    public int unifyAndMergeStepFormula() throws VerifyException {
+        stepUnifier.startProofWorksheet();
+        int cnt = 0;
+        for (final Theorem theorem : theorems) {
+            final ParseNode stepRoot = theorem.getExprParseTree().getRoot();
+            for (final Assrt assrt : assrts)
+                if (stepUnifier.unifyAndMergeStepFormula(false, assrt,
+                    stepRoot))
+                {
+                    stepUnifier.backoutFLevelApplieds();
+                    cnt++;
+                }
+        }
+        return cnt;
+    }
+}
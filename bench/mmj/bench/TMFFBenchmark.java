@@ -0,0 +1,63 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * TMFFBenchmark.java  0.01
+ */
+
+package mmj.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import mmj.lang.Assrt;
+import mmj.tmff.TMFFPreferences;
+import mmj.tmff.TMFFStateParams;
+
+/**
+ * TMFF formatting (TMFFMethod.renderFormula() of the selected format) of the
+ * formula of every assertion of a Metamath file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TMFFBenchmark {
+
+    @Param({"setFirst100.mm"})
+    public String mmFile;
+
+    /** TMFF format number, see TMFFConstants. */
+    @Param({"13"})
+    public int formatNbr;
+
+    private List<Assrt> assrts;
+    private TMFFPreferences tmffPreferences;
+    private final StringBuilder sb = new StringBuilder();
+
+    @Setup
+    public void setup() throws IOException {
+        final BenchEnvironment env = BenchEnvironment.load(mmFile, null);
+        assrts = env.getParsedAssrts();
+        tmffPreferences = env.proofAsstPreferences.tmffPreferences;
+        tmffPreferences.currFormatNbr.set(formatNbr);
+    }
+
+    @Benchmark
+    public int renderFormula() {
+        int nbrLines = 0;
+        for (final Assrt assrt : assrts) {
+            sb.setLength(0);
+            nbrLines += tmffPreferences.renderFormula(
+                new TMFFStateParams(sb, 0, tmffPreferences),
+                assrt.getExprParseTree(), assrt.getFormula());
+        }
+        return nbrLines;
+    }
+}
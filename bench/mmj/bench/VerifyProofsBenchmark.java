@@ -0,0 +1,48 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * VerifyProofsBenchmark.java  0.01
+ */
+
+package mmj.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mmj.lang.Theorem;
+
+/**
+ * VerifyProofs.verifyOneProof() on every theorem of a Metamath file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class VerifyProofsBenchmark {
+
+    @Param({"setFirst100.mm", "big-unifier.mm"})
+    public String mmFile;
+
+    private BenchEnvironment env;
+    private List<Theorem> theorems;
+
+    @Setup
+    public void setup() throws IOException {
+        env = BenchEnvironment.load(mmFile, null);
+        theorems = env.getTheorems();
+    }
+
+    @Benchmark
+    public void verifyOneProof(final Blackhole bh) {
+        for (final Theorem theorem : theorems)
+            bh.consume(env.verifyProofs.verifyOneProof(theorem));
+    }
+}
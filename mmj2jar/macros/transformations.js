@@ -389,18 +389,23 @@ proofAsst.proofUnifier.postUnifyHook = function(d, assrt, assrtSubst) {
         else
             max.add(hypArray[i].getExprParseTree().getRoot());
     if (max.el == null) return;
+    var bindings = proofAsstPreferences.getWorkVarManager().getBindings();
     var i = vars[max.el.base.stmt.getVar().getId()];
     var hyp = assrtSubst[i].stmt;
-    if (hyp instanceof mmj.lang.WorkVarHyp)
-        assrtSubst[i] = hyp.paSubst = activeStructure.base;
+    if (hyp instanceof mmj.lang.WorkVarHyp) {
+        assrtSubst[i] = activeStructure.base;
+        bindings.setWorkVarSubst(hyp, assrtSubst[i]);
+    }
     else return;
     for (var key in max.el.groups) {
         var o = max.el.groups[key];
         i = vars[o.val.stmt.getVar().getId()];
         hyp = assrtSubst[i].stmt;
-        if (hyp instanceof mmj.lang.WorkVarHyp)
-            assrtSubst[i] = hyp.paSubst = key in activeStructure.groups ?
+        if (hyp instanceof mmj.lang.WorkVarHyp) {
+            assrtSubst[i] = key in activeStructure.groups ?
                 activeStructure.groups[key].val : o.fv;
+            bindings.setWorkVarSubst(hyp, assrtSubst[i]);
+        }
     }
 };
 
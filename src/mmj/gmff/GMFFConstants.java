@@ -100,6 +100,13 @@ public class GMFFConstants {
 
     public static final int PROOF_WORKSHEET_BUFFER_SIZE = 8192;
 
+    // GMFFExportThreads RunParm: 1 = export theorems one at a time
+    public static final int EXPORT_THREADS_DEFAULT = 1;
+    public static final int EXPORT_THREADS_MAXIMUM = 256;
+
+    // bulk exports: rendered theorems per thread waiting to be written
+    public static final int EXPORT_PENDING_PER_THREAD = 4;
+
     public static final char APPEND_FILE_NAME_ERR_CHAR_1 = '/';
     public static final char APPEND_FILE_NAME_ERR_CHAR_2 = '\\';
     public static final char APPEND_FILE_NAME_ERR_CHAR_3 = ':';
@@ -253,6 +260,21 @@ public class GMFFConstants {
     // Constants For ModelAExporter
     // ==================================================
 
+    // Model A Files preloaded into the Model File cache at
+    // GMFFInitialize time
+    public static final String[] MODEL_A_FILE_NAMES = {MODEL_A_FILE0_NAME,
+            MODEL_A_FILE2_NAME, MODEL_A_STEP0_NAME, MODEL_A_STEP1X_NAME,
+            MODEL_A_STEP2_NAME, MODEL_A_STEP3X_NAME, MODEL_A_STEP4_NAME,
+            MODEL_A_HEADER0_NAME, MODEL_A_HEADER1X_NAME, MODEL_A_HEADER2_NAME,
+            MODEL_A_HEADER3X_NAME, MODEL_A_HEADER4_NAME, MODEL_A_HEADER5X_NAME,
+            MODEL_A_HEADER6_NAME, MODEL_A_HEADER7_NAME, MODEL_A_COMMENT0_NAME,
+            MODEL_A_COMMENT1X_NAME, MODEL_A_COMMENT2_NAME,
+            MODEL_A_DISTINCTVAR0_NAME, MODEL_A_DISTINCTVAR1X_NAME,
+            MODEL_A_DISTINCTVAR2_NAME, MODEL_A_DISTINCTVAR3X_NAME,
+            MODEL_A_DISTINCTVAR4_NAME, MODEL_A_GENPROOF0_NAME,
+            MODEL_A_GENPROOF1X_NAME, MODEL_A_GENPROOF2_NAME,
+            MODEL_A_FOOTER0_NAME};
+
     // ==================================================
     // Messages for MinProofWorksheet:
     // ==================================================
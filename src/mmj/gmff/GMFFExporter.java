@@ -17,6 +17,7 @@ package mmj.gmff;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import mmj.lang.*;
 
@@ -43,6 +44,12 @@ import mmj.lang.*;
  * {@code modelFileCacheMap} for the given Export Type. The purpose is to avoid
  * re-reading the model files over and over again.
  * <p>
+ * At GMFF initialization time each Exporter is compiled (see
+ * {@code compile()}): the Model Files are preloaded into the cache and the
+ * typesetting definitions, along with the escaped text of the symbols that
+ * have none, are converted into ready-to-append {@code char[]} fragments so
+ * that typesetting a formula is just a sequence of lookups and bulk appends.
+ * <p>
  * {@code GMFFExporter} also contains a number of utility functions which are
  * common to the different model exporters, such as {@code ModelAExporter},
  * which is an extension of {@code GMFFExporter}.
@@ -54,7 +61,24 @@ public abstract class GMFFExporter {
     GMFFUserTextEscapes gmffUserTextEscapes;
     GMFFExporterTypesetDefs gmffExporterTypesetDefs;
     char[][] escapeSubstitutions;
+    boolean[] escapeNeeded;
     Map<String, String> modelFileCacheMap;
+    Map<String, TypesetFragment> typesetFragmentMap;
+
+    /**
+     * The compiled typesetting of one token: the text appended to the export
+     * buffer and whether the typesetting definition is missing, in which case
+     * an error message is sent each time the token is typeset.
+     */
+    private static final class TypesetFragment {
+        final char[] text;
+        final boolean typesetDefMissing;
+
+        TypesetFragment(final String text, final boolean typesetDefMissing) {
+            this.text = text.toCharArray();
+            this.typesetDefMissing = typesetDefMissing;
+        }
+    }
 
     /**
      * A factory for generating GMFFExporters according to Model Id.
@@ -109,6 +133,7 @@ public abstract class GMFFExporter {
         this.gmffExportParms = gmffExportParms;
         this.gmffUserTextEscapes = gmffUserTextEscapes;
         escapeSubstitutions = new char[256][];
+        escapeNeeded = new boolean[256];
         for (int i = 0; i < escapeSubstitutions.length; i++) {
             escapeSubstitutions[i] = new char[1];
             escapeSubstitutions[i][0] = (char)i;
@@ -116,15 +141,83 @@ public abstract class GMFFExporter {
 
         for (final EscapePair pair : gmffUserTextEscapes.escapePairList) {
 
+            escapeNeeded[pair.num] = true;
             escapeSubstitutions[pair.num] = new char[pair.replacement.length()];
 
             for (int i = 0; i < pair.replacement.length(); i++)
                 escapeSubstitutions[pair.num][i] = pair.replacement.charAt(i);
         }
 
-        modelFileCacheMap = new HashMap<>(
+        modelFileCacheMap = new ConcurrentHashMap<>(
             GMFFConstants.EXPORTER_MODEL_CACHE_INIT_SIZE);
 
+        typesetFragmentMap = new HashMap<>();
+    }
+
+    /**
+     * Compiles the Exporter for the current typesetting definitions and
+     * Symbol Table.
+     * <p>
+     * Called by {@code GMFFManager} at GMFF initialization time, after the
+     * Metamath $t typesetting definitions have been loaded, and before any
+     * export -- so the compiled data is never updated while exports, possibly
+     * on several threads, read it.
+     * <p>
+     * Builds the {@code typesetFragmentMap}: each typesetting definition
+     * becomes a fragment holding the replacement text, and each Symbol
+     * without a typesetting definition becomes a fragment holding its escaped
+     * text, flagged as missing its definition unless it is a Work Variable.
+     * Then preloads the Model Files (see {@code preloadModelFiles()}).
+     */
+    public void compile() {
+
+        final Map<String, String> typesetDefMap = gmffExporterTypesetDefs
+            .typesetDefMap;
+        final Map<String, Sym> symTbl = gmffManager.getSymTbl();
+
+        final Map<String, TypesetFragment> map = new HashMap<>(
+            (typesetDefMap.size() + symTbl.size()) * 4 / 3 + 1);
+
+        for (final Map.Entry<String, String> e : typesetDefMap.entrySet())
+            map.put(e.getKey(), new TypesetFragment(e.getValue(), false));
+
+        final StringBuilder sb = new StringBuilder();
+        for (final Sym sym : symTbl.values()) {
+            final String token = sym.getId();
+            if (map.containsKey(token))
+                continue;
+            sb.setLength(0);
+            escapeAndAppendProofText(sb, " " + token + " ");
+            map.put(token,
+                new TypesetFragment(sb.toString(), !(sym instanceof WorkVar)));
+        }
+
+        typesetFragmentMap = map;
+
+        preloadModelFiles();
+    }
+
+    /**
+     * Reads the Model's Model Files into the Model File cache so that exports
+     * do not go to disk.
+     * <p>
+     * Model Files which cannot be read are skipped: they are read again, and
+     * the errors reported, when an export needs them. In particular a missing
+     * Mandatory Model File can still be copied into the Models Directory
+     * without restarting mmj2.
+     */
+    protected abstract void preloadModelFiles();
+
+    /**
+     * Reads a Model File into the Model File cache if it can be read.
+     *
+     * @param modelFileName the File Name of the Model File within the Models
+     *            Directory for this Export Type.
+     */
+    protected void preloadModelFile(final String modelFileName) {
+        try {
+            readModelFile(modelFileName);
+        } catch (final GMFFException e) {}
     }
 
     /**
@@ -144,6 +237,24 @@ public abstract class GMFFExporter {
     public abstract GMFFException exportProofWorksheet(
         ProofWorksheetCache proofWorksheetCache, String appendFileName);
 
+    /**
+     * Abstract method to build the export text of a loaded
+     * {@code MinProofWorksheet} according to the pattern of a Model, without
+     * writing it out.
+     * <p>
+     * Used by bulk exports, which build the export text on worker threads and
+     * write it out with {@code outputToExportFile()} afterwards. Missing
+     * typesetting definition messages go to the {@code MinProofWorksheet}'s
+     * {@code Messages} object.
+     *
+     * @param w {@code MinProofWorksheet} loaded without structural errors.
+     * @return {@code StringBuilder} containing the export text.
+     * @throws GMFFException if the worksheet is empty or a Model File cannot
+     *             be read.
+     */
+    public abstract StringBuilder buildExportText(MinProofWorksheet w)
+        throws GMFFException;
+
     /**
      * Get function to return the {@code Messages} object.
      *
@@ -218,12 +329,41 @@ public abstract class GMFFExporter {
     public void typesetAndAppendToken(final StringBuilder exportBuffer,
         final String token, final String theoremLabel)
     {
+        typesetAndAppendToken(exportBuffer, token, theoremLabel,
+            getMessages());
+    }
+
+    /**
+     * Typesets a token and appends it to the export buffer, sending the
+     * missing typesetting table entry message, if any, to the given
+     * {@code Messages} object.
+     * <p>
+     * Used by bulk exports, where each worker thread has its own
+     * {@code Messages} (see {@code GMFFManager.exportTheorem()}).
+     * <p>
+     * The token is looked up in the {@code typesetFragmentMap} built by
+     * {@code compile()}; only tokens which were not Symbols at GMFF
+     * initialization time are typeset the long way.
+     *
+     * @param exportBuffer {@code StringBuilder} containing the contents of the
+     *            export file.
+     * @param token the Metamath token to be typeset.
+     * @param theoremLabel provided for use in error messages.
+     * @param messages The {@code Messages} object for error messages.
+     */
+    public void typesetAndAppendToken(final StringBuilder exportBuffer,
+        final String token, final String theoremLabel, final Messages messages)
+    {
 
-        final String typesetString = gmffExporterTypesetDefs.typesetDefMap
-            .get(token);
+        final TypesetFragment fragment = typesetFragmentMap.get(token);
 
-        if (typesetString != null) {
-            exportBuffer.append(typesetString);
+        if (fragment != null) {
+            exportBuffer.append(fragment.text);
+            if (fragment.typesetDefMissing)
+                messages.accumMessage(
+                    GMFFConstants.ERRMSG_TYPESET_DEF_NOT_FOUND_ERROR,
+                    theoremLabel, token,
+                    gmffExporterTypesetDefs.typesetDefKeyword);
             return;
         }
 
@@ -234,13 +374,15 @@ public abstract class GMFFExporter {
         if (sym == null || sym instanceof WorkVar)
             return;
 
-        gmffManager.getMessages().accumMessage(
+        messages.accumMessage(
             GMFFConstants.ERRMSG_TYPESET_DEF_NOT_FOUND_ERROR, theoremLabel,
             token, gmffExporterTypesetDefs.typesetDefKeyword);
     }
 
     /**
      * Appends non-typeset text to the output buffer after escaping the text.
+     * <p>
+     * Runs of characters which need no escaping are appended in bulk.
      *
      * @param exportBuffer {@code StringBuilder} containing the contents of the
      *            export file.
@@ -250,8 +392,17 @@ public abstract class GMFFExporter {
     public void escapeAndAppendProofText(final StringBuilder exportBuffer,
         final String proofText)
     {
-        for (int i = 0; i < proofText.length(); i++)
-            exportBuffer.append(escapeSubstitutions[proofText.charAt(i)]);
+        int runStart = 0;
+        char c;
+        for (int i = 0; i < proofText.length(); i++) {
+            c = proofText.charAt(i);
+            if (escapeNeeded[c]) {
+                exportBuffer.append(proofText, runStart, i)
+                    .append(escapeSubstitutions[c]);
+                runStart = i + 1;
+            }
+        }
+        exportBuffer.append(proofText, runStart, proofText.length());
     }
 
     /**
@@ -17,11 +17,13 @@ package mmj.gmff;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.*;
 
 import mmj.lang.*;
 import mmj.mmio.MMIOConstants;
-import mmj.pa.ProofAsst;
-import mmj.pa.ProofAsstException;
+import mmj.pa.*;
+import mmj.util.ParallelIndexWork;
+import mmj.verify.VerifyException;
 
 /**
  * Serves as a central data store for GMFF work in progress and as the primary
@@ -93,6 +95,10 @@ public class GMFFManager {
     // to inputGMFFUserExportChoice
     private GMFFExporter[] selectedExporters;
 
+    // number of threads used by bulk exports, via RunParm
+    // GMFFExportThreads
+    private int exportThreads = GMFFConstants.EXPORT_THREADS_DEFAULT;
+
     /**
      * Standard constructor.
      * <p>
@@ -215,6 +221,15 @@ public class GMFFManager {
         forceReinitialization();
     }
 
+    /**
+     * Returns the cached Metamath $t typesetting comments.
+     *
+     * @return List of typesetting comments in input order.
+     */
+    public List<String> getTypesetDefinitionsCache() {
+        return typesetDefinitionsCache;
+    }
+
     /**
      * Stores the contents of the {@code GMFFUserExportChoice} from one RunParm
      * for later validation and use.
@@ -276,6 +291,28 @@ public class GMFFManager {
         return messages;
     }
 
+    /**
+     * Sets the number of threads used to export a range of theorems.
+     * <p>
+     * This function implements the {@code GMFFExportThreads} RunParm. One
+     * thread means that theorems are exported one at a time (see
+     * {@code exportTheorem()}).
+     *
+     * @param exportThreads number of threads, at least 1.
+     */
+    public void setExportThreads(final int exportThreads) {
+        this.exportThreads = exportThreads;
+    }
+
+    /**
+     * Returns the number of threads used to export a range of theorems.
+     *
+     * @return the number of threads.
+     */
+    public int getExportThreads() {
+        return exportThreads;
+    }
+
     /**
      * Returns the {@code gmffInitialized} boolean variable.
      *
@@ -406,6 +443,7 @@ public class GMFFManager {
      * @param proofAsst The {@code ProofAsst} object, used to format Proof
      *            Worksheets from Metamath (RPN) proofs.
      * @throws GMFFException is errors encountered.
+     * @see #exportTheoremsParallel
      */
     public void exportTheorem(final String theoremLabelOrAsterisk,
         final String maxNumberToExport, final String appendFileNameIn,
@@ -440,11 +478,23 @@ public class GMFFManager {
             }
 
             int i = 0;
-            for (final Theorem theorem : iterable) {
-                if (i++ >= max)
-                    break;
-                gmffExportOneTheorem(theorem, appendFileName, proofAsst);
+            if (exportThreads > 1 && proofAsst.getInitializedOK()) {
+                final List<Theorem> theoremList = new ArrayList<>();
+                for (final Theorem theorem : iterable) {
+                    if (i++ >= max)
+                        break;
+                    theoremList.add(theorem);
+                }
+                if (!theoremList.isEmpty())
+                    exportTheoremsParallel(theoremList, appendFileName,
+                        proofAsst);
             }
+            else
+                for (final Theorem theorem : iterable) {
+                    if (i++ >= max)
+                        break;
+                    gmffExportOneTheorem(theorem, appendFileName, proofAsst);
+                }
             if (i == 0) {
                 messages.accumMessage(
                     GMFFConstants.ERRMSG_NO_THEOREMS_SELECTED_ERROR,
@@ -456,6 +506,254 @@ public class GMFFManager {
             gmffExportOneTheorem(labelOrAsterisk, appendFileName, proofAsst);
 
     }
+    /**
+     * Exports a range of theorems on worker threads: the bulk export done by
+     * {@code exportTheorem()} when {@code GMFFExportThreads} is greater than
+     * one.
+     * <p>
+     * Each worker has its own Proof Assistant session (see
+     * {@code ProofAsst.newSession()}) and {@code Messages}. Workers claim the
+     * next theorem from a shared counter, build its Proof Worksheet, load the
+     * {@code MinProofWorksheet} directly from the worksheet's statements (the
+     * worksheet text is never generated and parsed again) and build the
+     * export text of every selected exporter. The export files are written by
+     * a single writer thread, in theorem order, so append files get the same
+     * contents as with a sequential export.
+     * <p>
+     * The calling thread takes the rendered theorems in order, hands their
+     * export text to the writer and outputs their messages and the write
+     * confirmations in the order of the sequential export. At most
+     * {@code GMFFConstants.EXPORT_PENDING_PER_THREAD} rendered theorems per
+     * worker wait to be written, so memory use does not depend on the number
+     * of theorems exported.
+     *
+     * @param theoremList the theorems to export.
+     * @param appendFileName append-mode file name or {@code null}.
+     * @param proofAsst The {@code ProofAsst} object, whose lookup tables are
+     *            initialized.
+     * @throws GMFFException if no export types are selected.
+     */
+    private void exportTheoremsParallel(final List<Theorem> theoremList,
+        final String appendFileName, final ProofAsst proofAsst)
+            throws GMFFException
+    {
+
+        if (selectedExporters.length == 0)
+            throw new GMFFException(
+                GMFFConstants.ERRMSG_NO_EXPORT_TYPES_SELECTED_ERROR);
+
+        final int numberToProcess = theoremList.size();
+        final int nbrWorkers = Math.min(exportThreads, numberToProcess);
+
+        final List<ProofAsst> sessions = new ArrayList<>(nbrWorkers);
+        final List<Messages> sessionMessages = new ArrayList<>(nbrWorkers);
+        try {
+            for (int w = 0; w < nbrWorkers; w++) {
+                final Messages m = new Messages(messages.getMaxErrorMessages(),
+                    messages.getInfoMessageArray().length);
+                sessions.add(proofAsst.newSession(m));
+                sessionMessages.add(m);
+            }
+        } catch (final VerifyException e) {
+            messages.accumException(e);
+            return;
+        }
+
+        // one permit per rendered theorem not yet written
+        final int maxPending = nbrWorkers
+            * GMFFConstants.EXPORT_PENDING_PER_THREAD;
+        final Semaphore pendingPermits = new Semaphore(maxPending);
+        final Deque<RenderedTheorem> pending = new ArrayDeque<>(maxPending);
+
+        final ExecutorService writer = Executors.newSingleThreadExecutor();
+        try (ParallelIndexWork<RenderedTheorem> work = new ParallelIndexWork<>(
+            null, nbrWorkers, numberToProcess, () -> {
+                pendingPermits.acquire();
+                return true;
+            }, w -> {
+                final ProofAsst session = sessions.get(w);
+                final Messages m = sessionMessages.get(w);
+                return i -> renderTheorem(theoremList.get(i), session, m);
+            }))
+        {
+            for (int i = 0; i < numberToProcess; i++) {
+                // make room for the next theorem
+                while (pending.size() >= maxPending) {
+                    finishRenderedTheorem(pending.removeFirst());
+                    pendingPermits.release();
+                }
+
+                final RenderedTheorem r = work.take(i);
+
+                for (int e = 0; e < selectedExporters.length; e++) {
+                    final StringBuilder exportText = r.exportText[e];
+                    if (exportText == null)
+                        continue;
+                    final GMFFExporter exporter = selectedExporters[e];
+                    final String theoremLabel = r.theoremLabel;
+                    r.written.set(e, writer
+                        .submit(() -> exporter.outputToExportFile(exportText,
+                            appendFileName, theoremLabel)));
+                    r.exportText[e] = null;
+                }
+                pending.addLast(r);
+
+                while (!pending.isEmpty() && pending.peekFirst().isWritten()) {
+                    finishRenderedTheorem(pending.removeFirst());
+                    pendingPermits.release();
+                }
+            }
+            while (!pending.isEmpty()) {
+                finishRenderedTheorem(pending.removeFirst());
+                pendingPermits.release();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (final ExecutionException e) {
+            throw ParallelIndexWork.unwrap(e);
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the export text of one theorem for every selected exporter, for
+     * exportTheoremsParallel().
+     * <p>
+     * The messages are taken out of the worker's {@code Messages} object after
+     * the Proof Worksheet is loaded and after each exporter is done, so that
+     * they can be output in the same order as by a sequential export.
+     *
+     * @param theorem the theorem to export.
+     * @param session the worker's Proof Assistant session.
+     * @param m the worker's {@code Messages} object, used by the session.
+     * @return the rendered theorem.
+     */
+    private RenderedTheorem renderTheorem(final Theorem theorem,
+        final ProofAsst session, final Messages m)
+    {
+        final RenderedTheorem r = new RenderedTheorem(
+            selectedExporters.length);
+        m.clearMessages();
+
+        MinProofWorksheet w = null;
+        try {
+            final ProofWorksheet proofWorksheet = session
+                .getExportedProofWorksheet(theorem);
+            if (proofWorksheet == null)
+                m.accumMessage(
+                    GMFFConstants.ERRMSG_GMFF_THEOREM_EXPORT_PA_ERROR,
+                    theorem.getLabel());
+            else {
+                w = new MinProofWorksheet(m);
+                w.load(proofWorksheet);
+                r.theoremLabel = w.getTheoremLabel();
+            }
+        } catch (final IllegalArgumentException e) {
+            m.accumException(new GMFFException(e,
+                GMFFConstants.ERRMSG_GMFF_THEOREM_EXPORT_PA_ERROR,
+                theorem.getLabel(), e.getMessage()));
+        }
+        r.takeMessages(0, m);
+
+        for (int e = 0; e < selectedExporters.length; e++) {
+            if (w != null && !w.getStructuralErrors())
+                try {
+                    r.exportText[e] = selectedExporters[e].buildExportText(w);
+                } catch (final GMFFException x) {
+                    m.accumException(x);
+                }
+            r.takeMessages(e + 1, m);
+        }
+        return r;
+    }
+
+    /**
+     * Outputs the messages of a rendered theorem and waits for its export
+     * files to be written, outputting the error message of each failed write
+     * and then the confirmation messages, like exportProofWorksheet(), for
+     * exportTheoremsParallel().
+     *
+     * @param r the rendered theorem.
+     * @throws InterruptedException if interrupted.
+     * @throws ExecutionException if a write failed with an unexpected
+     *             exception.
+     */
+    private void finishRenderedTheorem(final RenderedTheorem r)
+        throws InterruptedException, ExecutionException
+    {
+        final List<GMFFException> confirmationMessage = new ArrayList<>(0);
+
+        accumMessages(r, 0);
+        for (int e = 0; e < selectedExporters.length; e++) {
+            accumMessages(r, e + 1);
+            final Future<GMFFException> written = r.written.get(e);
+            if (written != null)
+                try {
+                    confirmationMessage.add(written.get());
+                } catch (final ExecutionException x) {
+                    if (!(x.getCause() instanceof GMFFException))
+                        throw x;
+                    messages.accumException((GMFFException)x.getCause());
+                }
+        }
+
+        for (final GMFFException confirm : confirmationMessage)
+            messages.accumException(confirm);
+    }
+
+    private void accumMessages(final RenderedTheorem r, final int k) {
+        for (final String m : r.errorMessages[k])
+            messages.accumErrorMessage(m);
+        for (final String m : r.infoMessages[k])
+            messages.accumInfoMessage(m);
+    }
+
+    /**
+     * A theorem whose export text has been built by exportTheoremsParallel().
+     */
+    private static class RenderedTheorem {
+        String theoremLabel;
+
+        /**
+         * Messages produced while loading the Proof Worksheet (index 0) and
+         * while building the export text of each selected exporter (index 1
+         * and up).
+         */
+        final String[][] errorMessages;
+        final String[][] infoMessages;
+
+        /** Export text by selected exporter, null once handed to the writer */
+        final StringBuilder[] exportText;
+
+        /** Pending writes by selected exporter, null if nothing to write */
+        final List<Future<GMFFException>> written;
+
+        RenderedTheorem(final int nbrExporters) {
+            errorMessages = new String[nbrExporters + 1][];
+            infoMessages = new String[nbrExporters + 1][];
+            exportText = new StringBuilder[nbrExporters];
+            written = new ArrayList<>(
+                Collections.nCopies(nbrExporters, (Future<GMFFException>)null));
+        }
+
+        void takeMessages(final int k, final Messages m) {
+            errorMessages[k] = Arrays.copyOf(m.getErrorMessageArray(),
+                m.getErrorMessageCnt());
+            infoMessages[k] = Arrays.copyOf(m.getInfoMessageArray(),
+                m.getInfoMessageCnt());
+            m.clearMessages();
+        }
+
+        boolean isWritten() {
+            for (final Future<GMFFException> f : written)
+                if (f != null && !f.isDone())
+                    return false;
+            return true;
+        }
+    }
+
     /**
      * Exports one {@code Theorem} from the {@code LogicalSystem}. loaded
      * <p>
@@ -727,6 +1025,7 @@ public class GMFFManager {
      * <li>validate and load the User Export Choice (either a particular Export
      * Type or "ALL")
      * <li>load final list of Selected (chosen) {@code Exporter}s.
+     * <li>compile the Selected {@code Exporter}s' typesetting and Model Files.
      * <li>set {@code gmffInitialized = true}
      * </ol>
      *
@@ -749,6 +1048,9 @@ public class GMFFManager {
 
         selectedExporters = loadSelectedExportersArray();
 
+        for (final GMFFExporter e : selectedExporters)
+            e.compile();
+
         gmffInitialized = true;
     }
 
@@ -17,7 +17,7 @@ package mmj.gmff;
 
 import java.util.List;
 
-import mmj.pa.PaConstants;
+import mmj.pa.*;
 
 /**
  * General object representing a statement in a MinProofWorksheet.
@@ -128,6 +128,57 @@ public abstract class MinProofWorkStmt {
         return null;
     }
 
+    /**
+     * {@code constructStmt} builds a {@code MinProofWorkStmt} for a statement
+     * of a {@code ProofWorksheet}, given the chunks of the statement's text.
+     * <p>
+     * The type of {@code MinProofWorkStmt} is that of the
+     * {@code ProofWorkStmt}, so the start of the first line is not looked up;
+     * statements of other types are left to
+     * {@link #constructStmt(MinProofWorksheet, List)}. Errors are handled as
+     * in that function.
+     *
+     * @param minProofWorksheet GMFF version of {@code ProofWorksheet}
+     * @param proofWorkStmt the {@code ProofWorksheet} statement.
+     * @param lineList List of List of String chunks representing the text of
+     *            {@code proofWorkStmt} broken into Metamath whitespace and
+     *            tokens grouped by line.
+     * @return MinProofWorkStmt of the type matching {@code proofWorkStmt}, or
+     *         null if an error occurred.
+     */
+    public static MinProofWorkStmt constructStmt(
+        final MinProofWorksheet minProofWorksheet,
+        final ProofWorkStmt proofWorkStmt, final List<List<String>> lineList)
+    {
+
+        final String[][] slc = new String[lineList.size()][];
+        int row = 0;
+        for (final List<String> line : lineList)
+            slc[row++] = line.toArray(new String[line.size()]);
+
+        try {
+            if (proofWorkStmt instanceof DerivationStep)
+                return new MinDerivationStep(minProofWorksheet, slc);
+            if (proofWorkStmt instanceof HypothesisStep)
+                return new MinHypothesisStep(minProofWorksheet, slc);
+            if (proofWorkStmt instanceof CommentStmt)
+                return new MinCommentStmt(minProofWorksheet, slc);
+            if (proofWorkStmt instanceof HeaderStmt)
+                return new MinHeaderStmt(minProofWorksheet, slc);
+            if (proofWorkStmt instanceof DistinctVariablesStmt)
+                return new MinDistinctVariablesStmt(minProofWorksheet, slc);
+            if (proofWorkStmt instanceof GeneratedProofStmt)
+                return new MinGeneratedProofStmt(minProofWorksheet, slc);
+            if (proofWorkStmt instanceof FooterStmt)
+                return new MinFooterStmt(minProofWorksheet, slc);
+        } catch (final IllegalArgumentException e) {
+            minProofWorksheet.triggerConstructorError(e,
+                minProofWorksheet.getLineCnt() - lineList.size() + 1);
+            return null;
+        }
+        return constructStmt(minProofWorksheet, lineList);
+    }
+
     /**
      * Formats export data for the Proof Worksheet statement according to the
      * {@code Model A} specifications and loads the data into a specified
@@ -196,7 +247,7 @@ public abstract class MinProofWorkStmt {
 
             if (!isChunkWhitespace(chunk)) {
                 gmffExporter.typesetAndAppendToken(exportBuffer, chunk,
-                    w.getTheoremLabel());
+                    w.getTheoremLabel(), w.getMessages());
                 continue;
             }
 
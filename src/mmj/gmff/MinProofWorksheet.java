@@ -21,7 +21,7 @@ import java.util.List;
 
 import mmj.lang.Messages;
 import mmj.mmio.Tokenizer;
-import mmj.pa.PaConstants;
+import mmj.pa.*;
 
 /**
  * {@code MinProofWorksheet} is a minimalist {@code ProofWorksheet} containing
@@ -155,6 +155,83 @@ public class MinProofWorksheet {
 
     }
 
+    /**
+     * Loads the statements of a {@code ProofWorksheet} into the
+     * MinProofWorksheet without going through the text of the whole
+     * worksheet.
+     * <p>
+     * The result is the same as loading the worksheet's output proof text,
+     * but each {@code ProofWorkStmt} is turned directly into the matching
+     * type of {@code MinProofWorkStmt} (see
+     * {@code MinProofWorkStmt.constructStmt()}): only the lines of the
+     * statement's own text are tokenized, and the statement boundaries and
+     * types come from the {@code ProofWorksheet}. Used by bulk exports of the
+     * theorems of the loaded database.
+     *
+     * @param proofWorksheet {@code ProofWorksheet} without structural errors,
+     *            such as one built by
+     *            {@code ProofAsst.getExportedProofWorksheet()}.
+     */
+    public void load(final ProofWorksheet proofWorksheet) {
+        setStructuralErrors(false);
+
+        final List<List<String>> lineList = new ArrayList<>();
+        final StringBuilder stmtText = new StringBuilder();
+
+        for (final ProofWorkStmt x : proofWorksheet.getProofWorkStmtList()) {
+            stmtText.setLength(0);
+            x.appendToProofText(stmtText);
+
+            // break the text into lines the way readLine() does
+            final int len = stmtText.length();
+            int start = 0;
+            while (start < len) {
+                int end = start;
+                char c = 0;
+                while (end < len && (c = stmtText.charAt(end)) != '\n'
+                    && c != '\r')
+                    end++;
+                final String line = stmtText.substring(start, end);
+                if (lineCnt == 0
+                    && (line.length() == 0 || line.charAt(0) == ' '))
+                {
+                    triggerBogusLine1Error();
+                    return;
+                }
+                final List<String> tokenList = tokenize(line);
+                if (structuralErrors)
+                    return;
+                lineList.add(tokenList);
+                lineCnt++;
+                start = c == '\r' && end + 1 < len
+                    && stmtText.charAt(end + 1) == '\n' ? end + 2 : end + 1;
+            }
+            if (lineList.isEmpty())
+                continue;
+
+            final MinProofWorkStmt minProofWorkStmt = MinProofWorkStmt
+                .constructStmt(this, x, lineList);
+            if (minProofWorkStmt == null) {
+                setStructuralErrors(true);
+                return;
+            }
+            minProofWorkStmtList.add(minProofWorkStmt);
+            lineList.clear();
+        }
+
+        if (lineCnt == 0)
+            triggerEmptyProofError();
+    }
+
+    /**
+     * Returns the {@code Messages} object used for error messages.
+     *
+     * @return messages.
+     */
+    public Messages getMessages() {
+        return messages;
+    }
+
     /**
      * Returns the list of Proof Worksheet statements.
      *
@@ -68,12 +68,7 @@ public class ModelAExporter extends GMFFExporter {
                 .loadMinProofWorksheet(gmffManager.getMessages());
 
             if (!w.getStructuralErrors()) {
-                if (w.getMinProofWorkStmtList().isEmpty())
-                    throw new GMFFException(
-                        GMFFConstants.ERRMSG_BUILD_EMPTY_OR_INVALID_WORKSHEET_ERROR,
-                        w.getTheoremLabel());
-
-                final StringBuilder exportText = buildModelAExportText(w);
+                final StringBuilder exportText = buildExportText(w);
 
                 return outputToExportFile(exportText, appendFileName,
                     w.getTheoremLabel());
@@ -84,10 +79,24 @@ public class ModelAExporter extends GMFFExporter {
         return null;
     }
 
-    private StringBuilder buildModelAExportText(final MinProofWorksheet w)
+    /**
+     * Builds the Model A export text of a loaded {@code MinProofWorksheet}.
+     *
+     * @param w {@code MinProofWorksheet} loaded without structural errors.
+     * @return {@code StringBuilder} containing the export text.
+     * @throws GMFFException if the worksheet is empty or a Model File cannot
+     *             be read.
+     */
+    @Override
+    public StringBuilder buildExportText(final MinProofWorksheet w)
         throws GMFFException
     {
 
+        if (w.getMinProofWorkStmtList().isEmpty())
+            throw new GMFFException(
+                GMFFConstants.ERRMSG_BUILD_EMPTY_OR_INVALID_WORKSHEET_ERROR,
+                w.getTheoremLabel());
+
         final StringBuilder exportBuffer = new StringBuilder(
             GMFFConstants.EXPORT_BUFFER_DEFAULT_SIZE);
 
@@ -103,4 +112,12 @@ public class ModelAExporter extends GMFFExporter {
         return exportBuffer;
     }
 
+    /**
+     * Preloads the Model A Model Files.
+     */
+    @Override
+    protected void preloadModelFiles() {
+        for (final String modelFileName : GMFFConstants.MODEL_A_FILE_NAMES)
+            preloadModelFile(modelFileName);
+    }
 }
@@ -64,6 +64,7 @@ import mmj.verify.VerifyProofs;
  *      Entity-Relationship Notes</a>
  */
 public abstract class Assrt extends Stmt {
+    private static final long serialVersionUID = 1L;
 
     /**
      * varHypArray contains *exactly* the Assrt's Formula's VarHyp's, in
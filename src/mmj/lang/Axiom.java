@@ -87,6 +87,7 @@ import java.util.Map;
  *      Entity-Relationship Notes</a>
  */
 public class Axiom extends Assrt {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Array of indexes for resequencing a Syntax Axiom's VarHyp's from order of
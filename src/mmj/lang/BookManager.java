@@ -15,6 +15,7 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
 import java.util.*;
 
 import mmj.lang.ParseTree.RPNStep;
@@ -66,7 +67,10 @@ import mmj.tl.*;
  * numbers are assigned across Chapter boundaries -- meaning that Section
  * numbers do not reset to 1 at the beginning of each chapter.
  */
-public class BookManager implements TheoremLoaderCommitListener {
+public class BookManager
+    implements TheoremLoaderCommitListener, Serializable
+{
+    private static final long serialVersionUID = 1L;
 
     private final boolean enabled;
     private final String provableLogicStmtTypeParm;
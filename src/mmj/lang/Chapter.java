@@ -15,6 +15,8 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
+
 import mmj.pa.ErrorCode;
 
 /**
@@ -23,7 +25,8 @@ import mmj.pa.ErrorCode;
  * <p>
  * See BookManager for more details.
  */
-public class Chapter {
+public class Chapter implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     private final int chapterNbr;
     private final String chapterTitle;
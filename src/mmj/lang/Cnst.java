@@ -46,6 +46,7 @@ import mmj.verify.*;
  *      Entity-Relationship Notes</a>
  */
 public class Cnst extends Sym {
+    private static final long serialVersionUID = 1L;
 
     /**
      * workVarTypIndex is an array index into tables ordered by Type Code inside
@@ -141,6 +142,9 @@ public class Cnst extends Sym {
      * This whole "grammar rule forest" concept doesn't see much use in
      * mmj.verify.EarleyParser, but was used in mmj.verify.BottomUpParser, and
      * it is still used for detecting duplicate NotationRule expressions.
+     * <p>
+     * The grammar fields are transient: a {@code LogicalSystemSnapshot} does
+     * not store them, they are rebuilt when the Grammar is initialized.
      *
      * @see mmj.verify.GRForest
      * @see mmj.verify.GRNode
@@ -148,7 +152,7 @@ public class Cnst extends Sym {
      * @see mmj.verify.NotationRule
      * @see mmj.verify.BottomUpParser
      */
-    private GRNode gRRoot;
+    private transient GRNode gRRoot;
 
     /**
      * convFromTypGRArray - Array of Type Conversion GrammarRules, one for each
@@ -156,14 +160,14 @@ public class Cnst extends Sym {
      * Type Conversions exist for the Cnst object (which may or may not be a
      * Type Code.)
      */
-    private TypeConversionRule[] convFromTypGRArray;
+    private transient TypeConversionRule[] convFromTypGRArray;
 
     /**
      * nullsPermittedGR - set to Nulls Permitted GrammarRule if null values are
      * permitted for variables/expressions with this Type Code, otherwise, if
      * nulls are not permitted, nullsPermittedGR is set to null :0)
      */
-    private NullsPermittedRule nullsPermittedGR;
+    private transient NullsPermittedRule nullsPermittedGR;
 
     /**
      * len1CnstNotationRule -- Notation Rule for Syntax Axiom with Formula
@@ -171,13 +175,13 @@ public class Cnst extends Sym {
      * set.mm would have a reference to c0's NotationRule in the "c0" Cnst,
      * here.)
      */
-    private NotationRule len1CnstNotationRule;
+    private transient NotationRule len1CnstNotationRule;
 
     /**
      * earleyRules -- a list of the Grammar Rules with Type Code equal to this
      * Cnst, sorted by GrammarRule.MAX_SEQ_NBR for mmj.verify.earleyParser.
      */
-    private List<NotationRule> earleyRules;
+    private transient List<NotationRule> earleyRules;
 
     /**
      * earleyFIRST -- a Set of {@code Cnst}s that can possibly begin a
@@ -189,7 +193,7 @@ public class Cnst extends Sym {
      * <p>
      * Used by mmj.verify.earleyParser for Prediction Lookahead.
      */
-    private Set<Cnst> earleyFIRST;
+    private transient Set<Cnst> earleyFIRST;
 
     /**
      * Construct using sequence number and id string.
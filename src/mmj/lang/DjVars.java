@@ -29,6 +29,7 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
 import java.util.*;
 
 import mmj.mmio.MMIOConstants;
@@ -56,7 +57,8 @@ import mmj.pa.DistinctVariablesStmt;
  * @see <a href="../../MetamathERNotes.html"> Nomenclature and
  *      Entity-Relationship Notes</a>
  */
-public class DjVars implements Comparable<DjVars> {
+public class DjVars implements Comparable<DjVars>, Serializable {
+    private static final long serialVersionUID = 1L;
 
     /**
      * varLo and varHi refer to the pair of DjVars after being switched from
@@ -43,6 +43,7 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
 import java.util.*;
 
 import mmj.mmio.SrcStmt;
@@ -71,7 +72,8 @@ import mmj.mmio.SrcStmt;
  * @see <a href="../../MetamathERNotes.html"> Nomenclature and
  *      Entity-Relationship Notes</a>
  */
-public class Formula {
+public class Formula implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Count of number of symbols in the formula.
@@ -88,12 +90,18 @@ public class Formula {
     /**
      * The sorted list of all constants in this formula.
      */
-    private Cnst[] constList = null;
+    private transient Cnst[] constList = null;
 
     /**
      * The comparator for the sorted list of all constants in this formula.
      */
-    private Comparator<Cnst> constComp = null;
+    private transient Comparator<Cnst> constComp = null;
+
+    /**
+     * Cached structural hash code, computed lazily by {@code hashCode()}. Zero
+     * means "not yet computed" (as in {@code String}).
+     */
+    private int hash;
 
     /**
      * Construct a temporary dummy Formula for transient use. This is useful in
@@ -311,6 +319,7 @@ public class Formula {
      */
     public void setTyp(final Cnst typ) {
         sym[0] = typ;
+        hash = 0;
     }
 
     /** @return Formula's Expression (sym[1]...sym[cnt - 1]). */
@@ -357,6 +366,7 @@ public class Formula {
         if (!(typC instanceof Cnst))
             throw new LangException(
                 LangConstants.ERRMSG_STMT_TYP_NOT_DEF_AS_CNST, typS);
+        hash = 0;
         return sym[0] = typC;
     }
 
@@ -509,12 +519,23 @@ public class Formula {
 
     /**
      * Computes hashcode for this Formula.
+     * <p>
+     * The hash is computed from the Sym references in sym[0]...sym[cnt - 1],
+     * consistent with {@code equals()}, and is cached after the first call.
+     * (Code that modifies sym[] directly, such as VarHyp construction, must do
+     * so before the Formula is hashed.)
      *
      * @return hashcode for the Formula
      */
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        int h = hash;
+        if (h == 0) {
+            for (int i = 0; i < cnt; i++)
+                h = 31 * h + sym[i].hashCode();
+            hash = h;
+        }
+        return h;
     }
 
     /**
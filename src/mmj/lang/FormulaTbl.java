@@ -0,0 +1,70 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * FormulaTbl.java  0.01
+ */
+
+package mmj.lang;
+
+import java.util.*;
+
+/**
+ * FormulaTbl is a hash-consing ("interning") table for Formulas.
+ * <p>
+ * LogicalSystem passes the Formula of each LogHyp, Axiom and Theorem loaded by
+ * Systemizer through {@code intern()}, so that duplicate hypothesis and
+ * conclusion formulas (e.g. the many "|- ( ph -> ps )" hypotheses) share a
+ * single Formula instance. Two interned Formulas are {@code equals()} if and
+ * only if they are the same object, so they can be compared by reference.
+ * <p>
+ * Note: a shared Formula must never be modified after it is interned; in mmj2
+ * only freshly generated (work) Formulas are modified via {@code setTyp()}.
+ */
+public class FormulaTbl {
+
+    private final Map<Formula, Formula> tbl;
+
+    /**
+     * Construct with initial capacity.
+     *
+     * @param initialSize initial capacity of the table.
+     */
+    public FormulaTbl(final int initialSize) {
+        tbl = new HashMap<>(initialSize);
+    }
+
+    /**
+     * Returns the canonical instance of a Formula.
+     * <p>
+     * If an equal Formula is already in the table it is returned, otherwise
+     * the input Formula is added to the table and returned.
+     *
+     * @param formula the Formula to intern.
+     * @return the canonical Formula equal to the input Formula.
+     */
+    public Formula intern(final Formula formula) {
+        final Formula canonical = tbl.putIfAbsent(formula, formula);
+        return canonical == null ? formula : canonical;
+    }
+
+    /**
+     * Returns the canonical instance of a Formula, if there is one.
+     *
+     * @param formula the Formula to look up.
+     * @return the canonical Formula equal to the input Formula, or null if not
+     *         found.
+     */
+    public Formula get(final Formula formula) {
+        return tbl.get(formula);
+    }
+
+    /** @return number of distinct Formulas in the table. */
+    public int size() {
+        return tbl.size();
+    }
+}
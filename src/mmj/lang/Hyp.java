@@ -44,6 +44,7 @@ import java.util.Map;
  *      Entity-Relationship Notes</a>
  */
 public abstract class Hyp extends Stmt {
+    private static final long serialVersionUID = 1L;
 
     /**
      * "active", true or false?
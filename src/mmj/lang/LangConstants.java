@@ -354,6 +354,30 @@ public class LangConstants {
      */
     public final static boolean BOOK_MANAGER_ENABLED_DEFAULT = true;
 
+    /**
+     * Compressed proofs are decompressed when loaded by default. With "lazy"
+     * proofs they are kept compressed until used (see Theorem.getProof()).
+     */
+    public static final boolean LAZY_PROOFS_DEFAULT = false;
+
+    /**
+     * First int in a LogicalSystemSnapshot file ("MMJS").
+     */
+    public static final int SNAPSHOT_MAGIC = 0x4D4D4A53;
+
+    /**
+     * Version of the LogicalSystemSnapshot file format. Increase it whenever
+     * the header or the layout of the serialized objects changes; the
+     * serialVersionUIDs of the serialized mmj.lang classes are left at 1L.
+     */
+    public static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * MessageDigest algorithm used to hash the source .mm file of a
+     * LogicalSystemSnapshot.
+     */
+    public static final String SNAPSHOT_HASH_ALGORITHM = "SHA-256";
+
     /**
      * This sets the initial size of the ArrayList used to store Chapters in the
      * BookManager.
@@ -774,8 +798,8 @@ public class LangConstants {
 
     public static final ErrorCode ERRMSG_NULL_TARGET_VAR_HYP_PA_SUBST = of(
         "A-LA-0501" + " Severe bug encountered! cloneTargetToSourceVars"
-            + " tried to clone a target VarHyp with a"
-            + " null 'paSubst' value -- the target Var Hyps"
+            + " tried to clone a target VarHyp with no"
+            + " assigned substitution -- the target Var Hyps"
             + " should already have been assigned to Work Var Hyps!");
 
     // =======================================================
@@ -858,4 +882,27 @@ public class LangConstants {
             + " variables found even though they were previously"
             + " consolidated to eliminate duplicates!"
             + " Original error message follows: %s");
+
+    // =======================================================
+
+    /**
+     * Messages for LogicalSystemSnapshot.java
+     */
+
+    public static final ErrorCode ERRMSG_SNAPSHOT_WRITE_ERROR = of("E-LA-1001",
+        "Unable to write snapshot file %s. Message = %s");
+
+    public static final ErrorCode ERRMSG_SNAPSHOT_READ_ERROR = of("E-LA-1002",
+        "Unable to read snapshot file %s. Message = %s");
+
+    public static final ErrorCode ERRMSG_SNAPSHOT_BAD_VERSION = of("E-LA-1003",
+        "File %s is not a snapshot written by this version of mmj2"
+            + " (snapshot format version %d, expected %d).");
+
+    public static final ErrorCode ERRMSG_SNAPSHOT_HASH_ERROR = of("E-LA-1004",
+        "Unable to compute the hash of file %s. Message = %s");
+
+    public static final ErrorCode ERRMSG_SNAPSHOT_CLASS_MISMATCH = of(
+        "E-LA-1005", "Snapshot file %s was written by an incompatible build"
+            + " of mmj2 and must be saved again. Message = %s");
 }
@@ -51,6 +51,7 @@ import java.util.*;
  *      Entity-Relationship Notes</a>
  */
 public class LogHyp extends Hyp {
+    private static final long serialVersionUID = 1L;
 
     /**
      * varHypArray contains *exactly* the LogHyp's Formula's VarHyps, in
@@ -100,6 +100,10 @@ public class LogicalSystem implements SystemLoader {
     private SyntaxVerifier syntaxVerifier;
     private ProofCompression proofCompression;
 
+    // keep compressed proofs compressed until used, see Theorem
+    private boolean lazyProofs = LangConstants.LAZY_PROOFS_DEFAULT;
+    private boolean softProofCache;
+
     // Sym table (was sorted, asc order by Sym.id, but HashMap is
     // faster...)
     private final Map<String, Sym> symTbl;
@@ -108,6 +112,13 @@ public class LogicalSystem implements SystemLoader {
     // faster...)
     private final Map<String, Stmt> stmtTbl;
 
+    // interning table for LogHyp and Assrt Formulas, so that
+    // duplicate formulas share one instance.
+    private final FormulaTbl formulaTbl;
+
+    // reverse index of proof references, built on first use
+    private ProofDependencyGraph proofDependencyGraph;
+
     /**
      * Construct with full set of parameters.
      *
@@ -169,6 +180,7 @@ public class LogicalSystem implements SystemLoader {
 
         symTbl = new HashMap<>(symTblInitialSize);
         stmtTbl = new HashMap<>(stmtTblInitialSize);
+        formulaTbl = new FormulaTbl(stmtTblInitialSize);
 
         this.syntaxVerifier = syntaxVerifier;
         this.proofVerifier = proofVerifier;
@@ -386,6 +398,8 @@ public class LogicalSystem implements SystemLoader {
         final LogHyp logHyp = new LogHyp(seqAssigner.nextSeq(), symTbl, stmtTbl,
             symList, labelS, typS);
 
+        logHyp.internFormula(formulaTbl);
+
         final Stmt existingStmt = stmtTbl.put(labelS, logHyp);
 
         dupCheckStmtAdd(existingStmt);
@@ -461,6 +475,8 @@ public class LogicalSystem implements SystemLoader {
         final Axiom axiom = new Axiom(seqAssigner.nextSeq(), scopeDefList,
             symTbl, stmtTbl, labelS, typS, symList);
 
+        axiom.internFormula(formulaTbl);
+
         final Stmt existingStmt = stmtTbl.put(labelS, axiom);
 
         dupCheckStmtAdd(existingStmt);
@@ -518,6 +534,8 @@ public class LogicalSystem implements SystemLoader {
             symTbl, stmtTbl, labelS, column, typS, symList, proofList,
             messages);
 
+        theorem.internFormula(formulaTbl);
+
         final Stmt existingStmt = stmtTbl.put(labelS, theorem);
 
         dupCheckStmtAdd(existingStmt);
@@ -589,7 +607,10 @@ public class LogicalSystem implements SystemLoader {
 
         final Theorem theorem = new Theorem(seqAssigner.nextSeq(), scopeDefList,
             symTbl, stmtTbl, labelS, column, typS, symList, proofList,
-            proofBlockList, getProofCompression(), messages);
+            proofBlockList, getProofCompression(), messages, lazyProofs,
+            softProofCache);
+
+        theorem.internFormula(formulaTbl);
 
         final Stmt existingStmt = stmtTbl.put(labelS, theorem);
 
@@ -666,6 +687,29 @@ public class LogicalSystem implements SystemLoader {
         currScopeDef = scopeDefList.get(scopeLvl);
     }
 
+    /**
+     * Fills this (new, empty) LogicalSystem with the contents of a
+     * LogicalSystemSnapshot.
+     *
+     * @param mObjs all Syms and Stmts of the snapshot.
+     * @param globalScopeDef the global ScopeDef of the snapshot.
+     */
+    void restoreSnapshot(final MObj[] mObjs, final ScopeDef globalScopeDef) {
+        for (final MObj mObj : mObjs)
+            if (mObj instanceof Sym)
+                symTbl.put(((Sym)mObj).getId(), (Sym)mObj);
+            else {
+                final Stmt stmt = (Stmt)mObj;
+                stmtTbl.put(stmt.getLabel(), stmt);
+                if (stmt instanceof LogHyp || stmt instanceof Assrt)
+                    formulaTbl.intern(stmt.getFormula());
+            }
+        scopeDefList.clear();
+        currScopeDef = globalScopeDef;
+        scopeDefList.add(currScopeDef);
+        scopeLvl = 0;
+    }
+
     /**
      * EOF processing for Logical System after file loaded.
      * <p>
@@ -830,6 +874,16 @@ public class LogicalSystem implements SystemLoader {
         return symTbl;
     }
 
+    /**
+     * Returns the Formula interning table used when loading LogHyps and
+     * Assrts.
+     *
+     * @return formulaTbl the Formula interning table.
+     */
+    public FormulaTbl getFormulaTbl() {
+        return formulaTbl;
+    }
+
     /**
      * Returns the current stmtTbl, a Map containing all {@code Hyp}s and
      * {@code Assrt}s.
@@ -867,6 +921,35 @@ public class LogicalSystem implements SystemLoader {
         this.proofCompression = proofCompression;
     }
 
+    /**
+     * Sets "lazy" proof loading for theorems with compressed proofs.
+     * <p>
+     * With lazy proofs a Theorem keeps its compressed proof as a compact
+     * byte array and decompresses it when {@code Theorem.getProof()} is first
+     * called, which greatly reduces memory use when only a few proofs are
+     * needed (e.g. Proof Assistant GUI sessions.)
+     *
+     * @param lazyProofs true to keep compressed proofs compressed until used.
+     * @param softProofCache if true (and lazyProofs) the decompressed proofs
+     *            are only kept while memory permits and decompressed again
+     *            when needed, otherwise they are kept once decompressed.
+     */
+    public void setLazyProofs(final boolean lazyProofs,
+        final boolean softProofCache)
+    {
+        this.lazyProofs = lazyProofs;
+        this.softProofCache = lazyProofs && softProofCache;
+    }
+
+    /**
+     * Returns true if compressed proofs are kept compressed until used.
+     *
+     * @return true if lazy proofs are in effect.
+     */
+    public boolean getLazyProofs() {
+        return lazyProofs;
+    }
+
     /**
      * Returns the provable logic stmt type code string value.
      * <p>
@@ -952,6 +1035,20 @@ public class LogicalSystem implements SystemLoader {
         return bookManager.isEnabled();
     }
 
+    /**
+     * Returns the ProofDependencyGraph of the LogicalSystem, building it from
+     * the stmtTbl if this is the first request.
+     * <p>
+     * Once built the graph is maintained by theoremLoaderCommit().
+     *
+     * @return ProofDependencyGraph object.
+     */
+    public ProofDependencyGraph getProofDependencyGraph() {
+        if (proofDependencyGraph == null)
+            proofDependencyGraph = new ProofDependencyGraph(stmtTbl);
+        return proofDependencyGraph;
+    }
+
     /**
      * Empties the TheoremLoaderCommitListener list.
      */
@@ -1044,6 +1141,8 @@ public class LogicalSystem implements SystemLoader {
      * <p>
      * Commits BookManager updates.
      * <p>
+     * Commits ProofDependencyGraph updates, if the graph has been built.
+     * <p>
      * Sends commit() request to every TheoremLoaderCommitListener.
      * <p>
      *
@@ -1060,6 +1159,9 @@ public class LogicalSystem implements SystemLoader {
             if (bookManager != null)
                 bookManager.commit(mmtTheoremSet);
 
+            if (proofDependencyGraph != null)
+                proofDependencyGraph.commit(mmtTheoremSet);
+
             for (final TheoremLoaderCommitListener l : theoremLoaderCommitListeners)
                 l.commit(mmtTheoremSet);
         } catch (final Exception e) {
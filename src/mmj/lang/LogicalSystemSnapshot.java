@@ -0,0 +1,273 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * LogicalSystemSnapshot.java  0.01
+ */
+
+package mmj.lang;
+
+import java.io.*;
+import java.security.*;
+import java.util.*;
+
+import mmj.gmff.GMFFManager;
+
+/**
+ * LogicalSystemSnapshot is a binary image of a loaded LogicalSystem, used to
+ * skip reading, verifying and parsing the Metamath source file in later runs.
+ * <p>
+ * The snapshot holds every Sym and Stmt (with their sequence numbers, scope
+ * frames, proofs and parse trees), the global ScopeDef, the SeqAssigner and
+ * BookManager state and the $t typesetting comments for GMFF. Grammar rules
+ * are not stored: they are derived from the syntax axioms and are rebuilt when
+ * the Grammar is initialized.
+ * <p>
+ * File layout:
+ * <ul>
+ * <li>int {@code SNAPSHOT_MAGIC}, int {@code SNAPSHOT_VERSION}
+ * <li>source file name (UTF), length and bytes of the source file hash
+ * <li>booleans: proofs verified, grammar initialized, all statements parsed
+ * <li>a Java serialization stream holding the Type Code parameters, the
+ * SeqAssigner, the BookManager, all MObjs in SEQ order, the global ScopeDef and
+ * the typesetting comments.
+ * </ul>
+ * The MObjs are written in SEQ order so that every reference from a statement
+ * (proof steps, parse tree nodes, hypotheses) is to an object that has already
+ * been written; this keeps the recursion of the serialization shallow.
+ * <p>
+ * A snapshot written by a different build of mmj2 may fail to read because the
+ * serialized classes changed; the caller should then load the source file.
+ */
+public class LogicalSystemSnapshot {
+
+    private final String sourceFileName;
+    private final byte[] sourceHash;
+    private final boolean proofsVerified;
+    private final boolean grammarInitialized;
+    private final boolean allStatementsParsed;
+
+    private String provableLogicStmtTypeParm;
+    private String logicStmtTypeParm;
+    private SeqAssigner seqAssigner;
+    private BookManager bookManager;
+    private MObj[] mObjs;
+    private ScopeDef globalScopeDef;
+    private List<String> typesetDefinitions;
+
+    /**
+     * Construct a snapshot header for writing.
+     *
+     * @param sourceFileName name of the Metamath file that was loaded.
+     * @param sourceHash hash of the Metamath file (see {@code hashFile()}).
+     * @param proofsVerified true if all proofs were verified without error.
+     * @param grammarInitialized true if the Grammar was initialized.
+     * @param allStatementsParsed true if all statements were parsed without
+     *            error.
+     */
+    public LogicalSystemSnapshot(final String sourceFileName,
+        final byte[] sourceHash, final boolean proofsVerified,
+        final boolean grammarInitialized, final boolean allStatementsParsed)
+    {
+        this.sourceFileName = sourceFileName;
+        this.sourceHash = sourceHash;
+        this.proofsVerified = proofsVerified;
+        this.grammarInitialized = grammarInitialized;
+        this.allStatementsParsed = allStatementsParsed;
+    }
+
+    /**
+     * Computes the hash of a file, used to detect a snapshot whose source file
+     * has changed since the snapshot was written.
+     *
+     * @param file the file to hash.
+     * @return hash of the file contents.
+     * @throws LangException if the file cannot be read.
+     */
+    public static byte[] hashFile(final File file) throws LangException {
+        try (InputStream in = new FileInputStream(file)) {
+            final MessageDigest digest = MessageDigest
+                .getInstance(LangConstants.SNAPSHOT_HASH_ALGORITHM);
+            final byte[] buf = new byte[1 << 16];
+            int n;
+            while ((n = in.read(buf)) != -1)
+                digest.update(buf, 0, n);
+            return digest.digest();
+        } catch (final IOException | NoSuchAlgorithmException e) {
+            throw new LangException(e,
+                LangConstants.ERRMSG_SNAPSHOT_HASH_ERROR,
+                file.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a snapshot of a LogicalSystem.
+     *
+     * @param file the snapshot file to write.
+     * @param logicalSystem the loaded LogicalSystem.
+     * @throws LangException if an I/O error occurs.
+     */
+    public void write(final File file, final LogicalSystem logicalSystem)
+        throws LangException
+    {
+        final Map<String, Sym> symTbl = logicalSystem.getSymTbl();
+        final Map<String, Stmt> stmtTbl = logicalSystem.getStmtTbl();
+        final MObj[] all = new MObj[symTbl.size() + stmtTbl.size()];
+        int i = 0;
+        for (final Sym sym : symTbl.values())
+            all[i++] = sym;
+        for (final Stmt stmt : stmtTbl.values())
+            all[i++] = stmt;
+        Arrays.sort(all, MObj.SEQ);
+
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file), 1 << 16)))
+        {
+            out.writeInt(LangConstants.SNAPSHOT_MAGIC);
+            out.writeInt(LangConstants.SNAPSHOT_VERSION);
+            out.writeUTF(sourceFileName);
+            out.writeInt(sourceHash.length);
+            out.write(sourceHash);
+            out.writeBoolean(proofsVerified);
+            out.writeBoolean(grammarInitialized);
+            out.writeBoolean(allStatementsParsed);
+
+            final ObjectOutputStream objOut = new ObjectOutputStream(out);
+            objOut.writeObject(logicalSystem.getProvableLogicStmtTypeParm());
+            objOut.writeObject(logicalSystem.getLogicStmtTypeParm());
+            objOut.writeObject(logicalSystem.seqAssigner);
+            objOut.writeObject(logicalSystem.bookManager);
+            objOut.writeObject(all);
+            objOut.writeObject(logicalSystem.getScopeDefList().get(0));
+            objOut.writeObject(new ArrayList<>(logicalSystem.getGMFFManager()
+                .getTypesetDefinitionsCache()));
+            objOut.flush();
+        } catch (final IOException e) {
+            throw new LangException(e,
+                LangConstants.ERRMSG_SNAPSHOT_WRITE_ERROR,
+                file.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a snapshot file.
+     *
+     * @param file the snapshot file.
+     * @return the snapshot, ready for {@code newLogicalSystem()}.
+     * @throws LangException if the file is not a snapshot of this version or
+     *             cannot be read.
+     */
+    public static LogicalSystemSnapshot read(final File file)
+        throws LangException
+    {
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(file), 1 << 16)))
+        {
+            final int magic = in.readInt();
+            final int version = in.readInt();
+            if (magic != LangConstants.SNAPSHOT_MAGIC
+                || version != LangConstants.SNAPSHOT_VERSION)
+                throw new LangException(
+                    LangConstants.ERRMSG_SNAPSHOT_BAD_VERSION,
+                    file.getAbsolutePath(),
+                    magic == LangConstants.SNAPSHOT_MAGIC ? version : -1,
+                    LangConstants.SNAPSHOT_VERSION);
+            final String sourceFileName = in.readUTF();
+            final byte[] sourceHash = new byte[in.readInt()];
+            in.readFully(sourceHash);
+            final LogicalSystemSnapshot snapshot = new LogicalSystemSnapshot(
+                sourceFileName, sourceHash, in.readBoolean(), in.readBoolean(),
+                in.readBoolean());
+
+            final ObjectInputStream objIn = new ObjectInputStream(in);
+            snapshot.provableLogicStmtTypeParm = (String)objIn.readObject();
+            snapshot.logicStmtTypeParm = (String)objIn.readObject();
+            snapshot.seqAssigner = (SeqAssigner)objIn.readObject();
+            snapshot.bookManager = (BookManager)objIn.readObject();
+            snapshot.mObjs = (MObj[])objIn.readObject();
+            snapshot.globalScopeDef = (ScopeDef)objIn.readObject();
+            @SuppressWarnings("unchecked")
+            final List<String> typesetDefinitions = (List<String>)objIn
+                .readObject();
+            snapshot.typesetDefinitions = typesetDefinitions;
+            return snapshot;
+        } catch (final InvalidClassException e) {
+            throw new LangException(e,
+                LangConstants.ERRMSG_SNAPSHOT_CLASS_MISMATCH,
+                file.getAbsolutePath(), e.getMessage());
+        } catch (final IOException | ClassNotFoundException
+            | ClassCastException e)
+        {
+            throw new LangException(e,
+                LangConstants.ERRMSG_SNAPSHOT_READ_ERROR,
+                file.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Builds a new LogicalSystem from a snapshot that was read by
+     * {@code read()}.
+     * <p>
+     * The LogicalSystem is in the state it was in after the source file was
+     * loaded (and, if the flags say so, verified and parsed). It has no
+     * ProofVerifier or SyntaxVerifier; the caller attaches them as after a
+     * normal load.
+     *
+     * @param gmffManager GMFFManager to receive the typesetting comments.
+     * @return the restored LogicalSystem.
+     */
+    public LogicalSystem newLogicalSystem(final GMFFManager gmffManager) {
+        int nbrSyms = 0;
+        for (final MObj mObj : mObjs)
+            if (mObj instanceof Sym)
+                nbrSyms++;
+        final int nbrStmts = mObjs.length - nbrSyms;
+
+        final LogicalSystem logicalSystem = new LogicalSystem(
+            provableLogicStmtTypeParm, logicStmtTypeParm, gmffManager,
+            bookManager, seqAssigner,
+            Math.max(nbrSyms * 4 / 3 + 1,
+                LangConstants.SYM_TBL_INITIAL_SIZE_MINIMUM),
+            Math.max(nbrStmts * 4 / 3 + 1,
+                LangConstants.STMT_TBL_INITIAL_SIZE_MINIMUM),
+            null, null);
+
+        logicalSystem.restoreSnapshot(mObjs, globalScopeDef);
+
+        for (final String comment : typesetDefinitions)
+            logicalSystem.cacheTypesettingCommentForGMFF(comment);
+
+        return logicalSystem;
+    }
+
+    /** @return name of the Metamath file the snapshot was made from. */
+    public String getSourceFileName() {
+        return sourceFileName;
+    }
+
+    /** @return hash of the Metamath file the snapshot was made from. */
+    public byte[] getSourceHash() {
+        return sourceHash;
+    }
+
+    /** @return true if all proofs were verified when the snapshot was made. */
+    public boolean getProofsVerified() {
+        return proofsVerified;
+    }
+
+    /** @return true if the Grammar was initialized when the snapshot was made. */
+    public boolean getGrammarInitialized() {
+        return grammarInitialized;
+    }
+
+    /**
+     * @return true if all statements were parsed when the snapshot was made.
+     */
+    public boolean getAllStatementsParsed() {
+        return allStatementsParsed;
+    }
+}
@@ -26,6 +26,7 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
 import java.util.Comparator;
 
 /**
@@ -40,7 +41,8 @@ import java.util.Comparator;
  * @see <a href="../../MetamathERNotes.html"> Nomenclature and
  *      Entity-Relationship Notes</a>
  */
-public abstract class MObj {
+public abstract class MObj implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Provides an ordering of Metamath objects.
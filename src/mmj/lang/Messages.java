@@ -164,7 +164,7 @@ public class Messages {
      * @param args formatting arguments.
      * @return true if message stored, false if no room left.
      */
-    public boolean accumErrorMessage(final String errorMessage,
+    public synchronized boolean accumErrorMessage(final String errorMessage,
         final Object... args)
     {
         if (errorMessageCnt < errorMessageArray.length) {
@@ -184,7 +184,7 @@ public class Messages {
      * @param args formatting arguments.
      * @return true if message stored, false if no room left.
      */
-    public boolean accumInfoMessage(final String infoMessage,
+    public synchronized boolean accumInfoMessage(final String infoMessage,
         final Object... args)
     {
         if (infoMessageCnt < infoMessageArray.length) {
@@ -204,6 +204,15 @@ public class Messages {
         return errorMessageCnt;
     }
 
+    /**
+     * Return the maximum number of error messages that can be stored.
+     *
+     * @return error message capacity.
+     */
+    public int getMaxErrorMessages() {
+        return errorMessageArray.length;
+    }
+
     /**
      * Check max error messages (table full).
      *
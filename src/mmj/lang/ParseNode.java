@@ -47,6 +47,7 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
 import java.util.*;
 
 import mmj.lang.ParseTree.RPNStep;
@@ -102,7 +103,8 @@ import mmj.verify.VerifyProofs;
  * the "wi" statement has its own VarHyp's.)</li>
  */
 
-public class ParseNode {
+public class ParseNode implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Stmt object reference, either a Hyp or an Assrt.
@@ -766,14 +768,15 @@ public class ParseNode {
      * variables, and furthermore, we expect all of them to have assigned
      * values.
      *
+     * @param bindings the substitutions assigned during unification.
      * @return ParseNode sub-tree converted to use WorkVarHyps.
      */
-    public ParseNode cloneTargetToSourceVars() {
+    public ParseNode cloneTargetToSourceVars(final UnifyBindings bindings) {
 
         final ParseNode out = new ParseNode();
 
         if (stmt instanceof VarHyp) {
-            final ParseNode vHNode = ((VarHyp)stmt).paSubst;
+            final ParseNode vHNode = bindings.get((VarHyp)stmt);
             if (vHNode == null)
                 throw new IllegalArgumentException(new LangException(
                     LangConstants.ERRMSG_NULL_TARGET_VAR_HYP_PA_SUBST));
@@ -784,18 +787,18 @@ public class ParseNode {
             out.stmt = stmt;
             out.child = new ParseNode[child.length];
             for (int i = 0; i < child.length; i++)
-                out.child[i] = child[i].cloneTargetToSourceVars();
+                out.child[i] = child[i].cloneTargetToSourceVars(bindings);
         }
         return out;
     }
 
     /**
      * Check to see if or how the input searchWorkVarHyp occurs within the
-     * current ParseNode stmt and its subtree and any substitutions made to
-     * VarHyps via paSubst.
+     * current ParseNode stmt and its subtree and any substitutions assigned to
+     * Work Variables in the input bindings.
      * <p>
-     * Note that this function is only called if the searchWorkVarHyp.paSubst ==
-     * null (which means we are considering assigning a substitution). to it.
+     * Note that this function is only called if the searchWorkVarHyp is
+     * unbound (which means we are considering assigning a substitution). to it.
      * AND note that it is called only if the currentNode.stmt is a WorkVarHyp.
      * <p>
      * The reason for this hokeyness is that set.mm contains loops of renames,
@@ -804,15 +807,18 @@ public class ParseNode {
      * &W2 -> &W1 ).
      *
      * @param searchWorkVarHyp the object of the search.
+     * @param bindings the substitutions assigned during unification.
      * @return occurs Type: 0 = no occurrences, 1 = occurs in error (invalid
      *         loop) -1 = valid rename
      */
-    public int checkWorkVarHasOccursIn(final WorkVarHyp searchWorkVarHyp) {
+    public int checkWorkVarHasOccursIn(final WorkVarHyp searchWorkVarHyp,
+        final UnifyBindings bindings)
+    {
 
         if (stmt instanceof WorkVarHyp) {
 
             final Stmt targetStmt = checkWorkVarHasOccursInValidRename(
-                searchWorkVarHyp);
+                searchWorkVarHyp, bindings);
 
             if (targetStmt == null)
                 return LangConstants.WV_OCCURS_IN_NOT_AT_ALL;
@@ -823,24 +829,25 @@ public class ParseNode {
             // else...found a "->" or "ph" or other non-WorkVarHyp
 
         }
-        if (hasOccursIn(searchWorkVarHyp))
+        if (hasOccursIn(searchWorkVarHyp, bindings))
             return LangConstants.WV_OCCURS_IN_ERROR;
         else
             return LangConstants.WV_OCCURS_IN_NOT_AT_ALL;
     }
 
     private Stmt checkWorkVarHasOccursInValidRename(
-        final WorkVarHyp searchWorkVarHyp)
+        final WorkVarHyp searchWorkVarHyp, final UnifyBindings bindings)
     {
         if (stmt == searchWorkVarHyp // valid rename
             || !(stmt instanceof WorkVarHyp))
             return stmt;
 
-        if (((VarHyp)stmt).paSubst == null)
+        final ParseNode subst = bindings.get((VarHyp)stmt);
+        if (subst == null)
             return null; // found nothing
 
-        return ((VarHyp)stmt).paSubst
-            .checkWorkVarHasOccursInValidRename(searchWorkVarHyp);
+        return subst.checkWorkVarHasOccursInValidRename(searchWorkVarHyp,
+            bindings);
     }
 
     /**
@@ -850,16 +857,21 @@ public class ParseNode {
      * Robinson's unification algorithm.
      *
      * @param searchWorkVarHyp is what we are looking for.
+     * @param bindings the substitutions assigned during unification.
      * @return true iff input searchStmt found in subtree.
      */
-    private boolean hasOccursIn(final WorkVarHyp searchWorkVarHyp) {
+    private boolean hasOccursIn(final WorkVarHyp searchWorkVarHyp,
+        final UnifyBindings bindings)
+    {
         if (searchWorkVarHyp == stmt)
             return true;
-        if (stmt instanceof WorkVarHyp)
-            return ((VarHyp)stmt).paSubst != null
-                && ((VarHyp)stmt).paSubst.hasOccursIn(searchWorkVarHyp);
+        if (stmt instanceof WorkVarHyp) {
+            final ParseNode subst = bindings.get((VarHyp)stmt);
+            return subst != null && subst.hasOccursIn(searchWorkVarHyp,
+                bindings);
+        }
         for (final ParseNode element : child)
-            if (element.hasOccursIn(searchWorkVarHyp))
+            if (element.hasOccursIn(searchWorkVarHyp, bindings))
                 return true;
         return false;
     }
@@ -868,13 +880,14 @@ public class ParseNode {
      * Returns true if subtree contains a WorkVar which has a non-null assigned
      * substitution update.
      *
+     * @param bindings the substitutions assigned to the Work Vars.
      * @return true if subtree contains an updated WorkVar.
      */
-    public boolean hasUpdatedWorkVar() {
-        if (stmt instanceof WorkVarHyp && ((VarHyp)stmt).paSubst != null)
+    public boolean hasUpdatedWorkVar(final UnifyBindings bindings) {
+        if (stmt instanceof WorkVarHyp && bindings.get((VarHyp)stmt) != null)
             return true;
         for (final ParseNode element : child)
-            if (element.hasUpdatedWorkVar())
+            if (element.hasUpdatedWorkVar(bindings))
                 return true;
         return false;
     }
@@ -883,15 +896,20 @@ public class ParseNode {
      * Clone subtree replacing any updated Work Vars with clones of their
      * updating subtrees.
      *
+     * @param bindings the substitutions assigned to the Work Vars.
      * @return cloned subtree containing no Work Vars which have updates.
      */
-    public ParseNode cloneResolvingUpdatedWorkVars() {
-        if (stmt instanceof WorkVarHyp)
-            return ((VarHyp)stmt).paSubst == null ? new ParseNode((VarHyp)stmt)
-                : ((VarHyp)stmt).paSubst.cloneResolvingUpdatedWorkVars();
+    public ParseNode cloneResolvingUpdatedWorkVars(
+        final UnifyBindings bindings)
+    {
+        if (stmt instanceof WorkVarHyp) {
+            final ParseNode subst = bindings.get((VarHyp)stmt);
+            return subst == null ? new ParseNode((VarHyp)stmt)
+                : subst.cloneResolvingUpdatedWorkVars(bindings);
+        }
         final ParseNode out = new ParseNode(stmt, new ParseNode[child.length]);
         for (int i = 0; i < child.length; i++)
-            out.child[i] = child[i].cloneResolvingUpdatedWorkVars();
+            out.child[i] = child[i].cloneResolvingUpdatedWorkVars(bindings);
         return out;
     }
 
@@ -982,16 +1000,22 @@ public class ParseNode {
      * This function is a helper for mmj.pa.ProofUnifier and its friend
      * mmj.pa.ProofWorksheet.
      *
+     * @param bindings the substitutions assigned to the Work Vars.
      * @return new ParseNode subtree.
      */
-    public ParseNode deepCloneApplyingWorkVarUpdates() {
+    public ParseNode deepCloneApplyingWorkVarUpdates(
+        final UnifyBindings bindings)
+    {
 
-        if (stmt instanceof WorkVarHyp && ((VarHyp)stmt).paSubst != null)
-            return ((VarHyp)stmt).paSubst;
+        if (stmt instanceof WorkVarHyp) {
+            final ParseNode subst = bindings.get((VarHyp)stmt);
+            if (subst != null)
+                return subst;
+        }
 
         final ParseNode out = new ParseNode(stmt, new ParseNode[child.length]);
         for (int i = 0; i < child.length; i++)
-            out.child[i] = child[i].deepCloneApplyingWorkVarUpdates();
+            out.child[i] = child[i].deepCloneApplyingWorkVarUpdates(bindings);
         return out;
     }
 
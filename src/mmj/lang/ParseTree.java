@@ -27,6 +27,7 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
 import java.util.*;
 
 import mmj.pa.Serializer;
@@ -34,7 +35,8 @@ import mmj.pa.Serializer;
 /**
  * A simple tree structure to hold a ParseNode root.
  */
-public class ParseTree {
+public class ParseTree implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     private ParseNode root;
 
@@ -200,10 +202,13 @@ public class ParseTree {
      * <p>
      * This function is a helper for mmj.pa.ProofUnifier.
      *
+     * @param bindings the substitutions assigned to the Work Vars.
      * @return new ParseTree.
      */
-    public ParseTree deepCloneApplyingWorkVarUpdates() {
-        return new ParseTree(root.deepCloneApplyingWorkVarUpdates());
+    public ParseTree deepCloneApplyingWorkVarUpdates(
+        final UnifyBindings bindings)
+    {
+        return new ParseTree(root.deepCloneApplyingWorkVarUpdates(bindings));
     }
 
     /**
@@ -334,7 +339,9 @@ public class ParseTree {
      * steps: in this case {@code stmt} is {@code null} and {@code backRef = 0}
      * .)
      */
-    public static class RPNStep {
+    public static class RPNStep implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         public Stmt stmt;
         public int backRef;
 
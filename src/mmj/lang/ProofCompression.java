@@ -54,6 +54,8 @@ public class ProofCompression {
      */
     private List<RPNStep> step;
 
+    private final StepReader stepReader = new StepReader();
+
     // *******************************************
 
     /**
@@ -104,6 +106,101 @@ public class ProofCompression {
         return constructProofArray();
     }
 
+    /**
+     * Validate and look up the labels in the parenthesized portion of a
+     * compressed proof, for decompression later on with
+     * {@link #decompress(String, Hyp[], Hyp[], Stmt[], BlockList)}.
+     * <p>
+     * The checks are those made by {@code decompress()}, which must be done
+     * while the source file is being loaded (see "active" hypotheses.)
+     *
+     * @param theoremLabel Theorem's label, used in error messages.
+     * @param seq the sequence number of the theorem
+     * @param stmtTbl Stmt lookup map for translating labels into Stmt object
+     *            references.
+     * @param mandHypArray The theorem's MandFrame.hypArray.
+     * @param optHypArray The theorem's OptFrame.optHypArray.
+     * @param otherRefList List of String containing labels of Stmt's provided
+     *            in the parenthesized portion of a compressed proof.
+     * @return the Stmt's of the parenthesized portion of the proof.
+     * @throws LangException if an error occurred
+     */
+    public Stmt[] resolveOtherRefs(final String theoremLabel, final int seq,
+        final Map<String, Stmt> stmtTbl, final Hyp[] mandHypArray,
+        final Hyp[] optHypArray, final List<String> otherRefList)
+            throws LangException
+    {
+        this.theoremLabel = theoremLabel; // for error msgs
+
+        if (!usedYet) {
+            initArrays();
+            usedYet = true;
+        }
+
+        mandHyp = mandHypArray;
+        optHyp = optHypArray;
+
+        loadOtherRefArrays(stmtTbl, otherRefList, seq);
+
+        return otherStmt.toArray(new Stmt[otherStmt.size()]);
+    }
+
+    /**
+     * Decompress a single proof whose parenthesized labels have already been
+     * looked up by {@code resolveOtherRefs()}.
+     *
+     * @param theoremLabel Theorem's label, used in error messages.
+     * @param mandHypArray The theorem's MandFrame.hypArray.
+     * @param optHypArray The theorem's OptFrame.optHypArray.
+     * @param otherRefs the Stmt's of the parenthesized portion of the proof.
+     * @param proofBlockList the compressed portion of the proof.
+     * @return RPNStep array containing decompressed (but still "packed")
+     *         Metamath RPN proof.
+     * @throws LangException if an error occurred
+     */
+    public RPNStep[] decompress(final String theoremLabel,
+        final Hyp[] mandHypArray, final Hyp[] optHypArray,
+        final Stmt[] otherRefs, final BlockList proofBlockList)
+            throws LangException
+    {
+        this.theoremLabel = theoremLabel; // for error msgs
+
+        if (!usedYet) {
+            initArrays();
+            usedYet = true;
+        }
+
+        mandHyp = mandHypArray;
+        optHyp = optHypArray;
+
+        otherStmt.clear();
+        Collections.addAll(otherStmt, otherRefs);
+
+        loadSteps(proofBlockList);
+
+        return constructProofArray();
+    }
+
+    /**
+     * Reads the compressed portion of a proof through to the end without
+     * building the decompressed proof, so that a proof kept compressed
+     * reports at load time the errors that {@code decompress()} would.
+     *
+     * @param theoremLabel Theorem's label, used in error messages.
+     * @param mandHypArray The theorem's MandFrame.hypArray.
+     * @param otherRefs the Stmt's of the parenthesized portion of the proof.
+     * @param proofBlockList the compressed portion of the proof.
+     * @throws LangException if the compressed proof is invalid
+     */
+    public void checkSteps(final String theoremLabel, final Hyp[] mandHypArray,
+        final Stmt[] otherRefs, final BlockList proofBlockList)
+            throws LangException
+    {
+        stepReader.init(theoremLabel, mandHypArray, Arrays.asList(otherRefs),
+            proofBlockList);
+        while (stepReader.next()) {}
+    }
+
     private void loadOtherRefArrays(final Map<String, Stmt> stmtTbl,
         final List<String> otherRefList, final int seq) throws LangException
     {
@@ -175,8 +272,65 @@ public class ProofCompression {
     private void loadSteps(final BlockList blockList) throws LangException {
         step.clear();
 
-        int backrefs = 0;
-        while (true) {
+        stepReader.init(theoremLabel, mandHyp, otherStmt, blockList);
+        while (stepReader.next()) {
+            final RPNStep s = new RPNStep(stepReader.stmt);
+            s.backRef = stepReader.backRef;
+            step.add(s);
+        }
+    }
+
+    /**
+     * Reads the steps of a compressed proof one at a time, so that a proof
+     * can be verified without building its RPNStep array (see
+     * {@code Theorem.readCompressedProof()}). After each call to
+     * {@link #next()} the {@code stmt} and {@code backRef} fields hold what
+     * the RPNStep of the decompressed proof would hold.
+     */
+    public static class StepReader {
+        /** The step's Stmt, or null for a '?' step or a backreference. */
+        public Stmt stmt;
+
+        /**
+         * Negative for a step marked for later reference (the number of the
+         * mark), a positive mark number for a backreference, else zero.
+         */
+        public int backRef;
+
+        private String theoremLabel;
+        private Hyp[] mandHyp;
+        private List<Stmt> otherStmt;
+        private BlockList blockList;
+        private int backrefs;
+
+        /**
+         * Starts reading a compressed proof.
+         *
+         * @param theoremLabel Theorem's label, used in error messages.
+         * @param mandHypArray The theorem's MandFrame.hypArray.
+         * @param otherRefs the Stmt's of the parenthesized portion of the
+         *            proof.
+         * @param proofBlockList the compressed portion of the proof.
+         */
+        public void init(final String theoremLabel, final Hyp[] mandHypArray,
+            final List<Stmt> otherRefs, final BlockList proofBlockList)
+        {
+            this.theoremLabel = theoremLabel;
+            mandHyp = mandHypArray;
+            otherStmt = otherRefs;
+            blockList = proofBlockList;
+            backrefs = 0;
+            stmt = null;
+            backRef = 0;
+        }
+
+        /**
+         * Reads the next step.
+         *
+         * @return false at the end of the proof.
+         * @throws LangException if the compressed proof is invalid
+         */
+        public boolean next() throws LangException {
             int decompressNbr = blockList.getNext(theoremLabel);
 
             /*
@@ -196,40 +350,34 @@ public class ProofCompression {
              */
 
             if (decompressNbr < 0)
-                break; // run out of chars
-            else if (decompressNbr == 0) { // unknown (?) step
-                final RPNStep s = new RPNStep(null);
+                return false; // run out of chars
+            stmt = null;
+            backRef = 0;
+            if (decompressNbr == 0) { // unknown (?) step
                 if (blockList.marked)
-                    s.backRef = -++backrefs;
-                step.add(s);
-                continue;
+                    backRef = -++backrefs;
+                return true;
             }
 
             decompressNbr--;
 
             // ok, do we have a mandHyp array entry?
-            // if so, just put it in the proof step array!
             if (decompressNbr < mandHyp.length) {
-                final RPNStep s = new RPNStep(mandHyp[decompressNbr]);
+                stmt = mandHyp[decompressNbr];
                 if (blockList.marked)
-                    s.backRef = -++backrefs;
-                step.add(s);
-                continue;
+                    backRef = -++backrefs;
+                return true;
             }
 
             // ok, adjust workNbr down into otherHyp range
             decompressNbr -= mandHyp.length;
 
             // ok, do we have a otherStmt array entry?
-            // if so, put it in the proof step array, but
-            // this time we need to compute subproofLength!
-            // an Assrt has Hyps in its subproof tree/stack.
             if (decompressNbr < otherStmt.size()) {
-                final RPNStep s = new RPNStep(otherStmt.get(decompressNbr));
+                stmt = otherStmt.get(decompressNbr);
                 if (blockList.marked)
-                    s.backRef = -++backrefs;
-                step.add(s);
-                continue;
+                    backRef = -++backrefs;
+                return true;
             }
 
             decompressNbr -= otherStmt.size();
@@ -238,11 +386,11 @@ public class ProofCompression {
                 throw new LangException(LangConstants.ERRMSG_COMPRESS_BAD_RPT3,
                     theoremLabel, blockList.getIndex());
 
-            final RPNStep s = new RPNStep(null);
-            s.backRef = decompressNbr + 1;
-            step.add(s);
+            backRef = decompressNbr + 1;
+            return true;
         }
     }
+
     private RPNStep[] constructProofArray() {
         return step.toArray(new RPNStep[step.size()]);
     }
@@ -252,141 +400,283 @@ public class ProofCompression {
         step = new ArrayList<>(LangConstants.COMPRESS_STEP_INIT_LEN);
     }
 
+    /**
+     * Compress a single proof.
+     * <p>
+     * The statements used by the proof, other than the mandatory hypotheses,
+     * are numbered by descending use count (hypotheses first), and within
+     * each block of statements that share a letter length they are listed
+     * in proof order, packed into lines of {@code width} characters so that
+     * the parenthesized portion wastes as little space as possible.
+     * <p>
+     * Statements are looked up in hash tables and the line packing only
+     * considers the statements that could change the best fit of a line, so
+     * the time taken grows linearly with the length of the proof.
+     *
+     * @param theoremLabel Theorem's label, used in error messages.
+     * @param width the width of the lines of the parenthesized portion.
+     * @param mandHypArray The theorem's mandatory hypotheses.
+     * @param optHypArray The theorem's optional hypotheses.
+     * @param rpnProof the proof, with backreferences.
+     * @param letters output: the compressed portion of the proof.
+     * @return the Stmt's of the parenthesized portion of the proof.
+     */
     public List<Stmt> compress(final String theoremLabel, final int width,
         final List<Hyp> mandHypArray, final List<VarHyp> optHypArray,
         final RPNStep[] rpnProof, final StringBuilder letters)
     {
         this.theoremLabel = theoremLabel;
-        final List<Stmt> parenStmt = new ArrayList<>();
-        int linePos = 2;
-        final List<Stmt> proofOrdered = new ArrayList<>();
-        final List<Integer> proofOrdBackrefs = new ArrayList<>();
+        final int nbrMandHyps = mandHypArray.size();
+        final Map<Stmt, Integer> mandIndex = new HashMap<>(nbrMandHyps * 2);
+        for (int i = nbrMandHyps - 1; i >= 0; i--)
+            mandIndex.put(mandHypArray.get(i), i);
+
+        // the other statements, in order of first use, with use counts
+        final Map<Stmt, Integer> firstUse = new HashMap<>();
+        final List<Stmt> used = new ArrayList<>();
+        int[] useCount = new int[LangConstants.COMPRESS_OTHER_STMT_INIT_LEN];
         for (final RPNStep s : rpnProof)
             if (s != null && s.backRef <= 0 && s.stmt != null
-                && !mandHypArray.contains(s.stmt))
+                && !mandIndex.containsKey(s.stmt))
             {
-                final int i = proofOrdered.indexOf(s.stmt);
-                if (i >= 0)
-                    proofOrdBackrefs.set(i, proofOrdBackrefs.get(i) + 1);
+                final Integer i = firstUse.putIfAbsent(s.stmt, used.size());
+                if (i != null)
+                    useCount[i]++;
                 else {
-                    proofOrdered.add(s.stmt);
-                    proofOrdBackrefs.add(1);
+                    if (used.size() == useCount.length)
+                        useCount = Arrays.copyOf(useCount, 2 * used.size());
+                    useCount[used.size()] = 1;
+                    used.add(s.stmt);
                 }
             }
-        int hyps = 0;
-        for (int i = 0; i < proofOrdered.size(); i++)
-            if (proofOrdered.get(i) instanceof Hyp) {
-                proofOrdered.add(hyps, proofOrdered.remove(i));
-                proofOrdBackrefs.add(hyps++, proofOrdBackrefs.remove(i));
-            }
-        final int[] values = new int[proofOrdered.size()];
-        for (int i = 0; i < values.length; i++)
-            values[i] = proofOrdered.get(i).getLabel().length() + 1;
-        final PriorityQueue<Integer> sortedByBackrefs = new PriorityQueue<>(
-            proofOrdered.size(), new Comparator<Integer>()
-        {
-                public int compare(final Integer a, final Integer b) {
-                    final int i = proofOrdBackrefs.get(b)
-                        - proofOrdBackrefs.get(a);
-                    return i == 0 ? a - b : i;
+
+        // hypotheses first, otherwise in proof order
+        final int n = used.size();
+        final Stmt[] proofOrdered = new Stmt[n];
+        final int[] backrefs = new int[n];
+        int k = 0;
+        for (int pass = 0; pass < 2; pass++)
+            for (int i = 0; i < n; i++)
+                if (used.get(i) instanceof Hyp == (pass == 0)) {
+                    proofOrdered[k] = used.get(i);
+                    backrefs[k++] = useCount[i];
                 }
-            });
-        for (int i = 0; i < proofOrdered.size(); i++)
-            sortedByBackrefs.add(i);
-        int i = mandHypArray.size();
+        final int[] values = new int[n];
+        for (int i = 0; i < n; i++)
+            values[i] = proofOrdered[i].getLabel().length() + 1;
+
+        // by descending use count, then in proof order
+        final long[] sortedByBackrefs = new long[n];
+        for (int i = 0; i < n; i++)
+            sortedByBackrefs[i] = (long)(Integer.MAX_VALUE
+                - backrefs[i]) << 32 | i;
+        Arrays.sort(sortedByBackrefs);
+
+        final List<Stmt> parenStmt = new ArrayList<>(n);
+        final LinePacker packer = new LinePacker(values, width);
+        int i = nbrMandHyps;
         int cutoff = LangConstants.COMPRESS_LOW_BASE;
         while (cutoff <= i) {
             i -= cutoff;
             cutoff *= LangConstants.COMPRESS_HIGH_BASE;
         }
-        Integer pos;
-        final List<Integer> lengthBlock = new LinkedList<>();
-        while ((pos = sortedByBackrefs.poll()) != null) {
+        final int[] lengthBlock = new int[n];
+        int blockSize = 0;
+        for (final long sortKey : sortedByBackrefs) {
             if (i++ == cutoff) {
                 i = 1;
                 cutoff *= LangConstants.COMPRESS_HIGH_BASE;
-                linePos = processBlock(parenStmt, proofOrdered, values,
-                    lengthBlock, width, linePos);
+                packer.packBlock(lengthBlock, blockSize, proofOrdered,
+                    parenStmt);
+                blockSize = 0;
             }
-            lengthBlock.add(pos);
+            lengthBlock[blockSize++] = (int)sortKey;
         }
-        processBlock(parenStmt, proofOrdered, values, lengthBlock, width,
-            linePos);
+        packer.packBlock(lengthBlock, blockSize, proofOrdered, parenStmt);
+
+        final Map<Stmt, Integer> parenIndex = new HashMap<>(n * 2);
+        for (int j = n - 1; j >= 0; j--)
+            parenIndex.put(parenStmt.get(j), j);
+
+        final char[] code = new char[16];
         for (final RPNStep s : rpnProof) {
             if (s == null) {
                 letters.append((char)LangConstants.COMPRESS_UNKNOWN_CHAR);
                 continue;
             }
-            int letter = 0;
+            int letter;
             if (s.backRef > 0)
-                letter = mandHypArray.size() + parenStmt.size() + s.backRef;
+                letter = nbrMandHyps + n + s.backRef;
             else {
-                int index = mandHypArray.indexOf(s.stmt);
-                if (index != -1)
+                Integer index = mandIndex.get(s.stmt);
+                if (index != null)
                     letter = index + 1;
                 else {
-                    index = parenStmt.indexOf(s.stmt);
-                    if (index == -1)
+                    index = parenIndex.get(s.stmt);
+                    if (index == null)
                         throw new RuntimeException("shouldn't happen");
-                    letter = mandHypArray.size() + index + 1;
+                    letter = nbrMandHyps + index + 1;
                 }
             }
-            String code = ""
-                + (char)LangConstants.COMPRESS_LOW_DIGIT_CHARS[(letter - 1)
-                    % LangConstants.COMPRESS_LOW_BASE];
+            int c = code.length;
+            code[--c] = (char)LangConstants.COMPRESS_LOW_DIGIT_CHARS[(letter
+                - 1) % LangConstants.COMPRESS_LOW_BASE];
             letter = (letter - 1) / LangConstants.COMPRESS_LOW_BASE;
             while (letter > 0) {
-                code = (char)LangConstants.COMPRESS_HIGH_DIGIT_CHARS[(letter
-                    - 1) % LangConstants.COMPRESS_HIGH_BASE] + code;
+                code[--c] = (char)LangConstants.COMPRESS_HIGH_DIGIT_CHARS[(letter
+                    - 1) % LangConstants.COMPRESS_HIGH_BASE];
                 letter = (letter - 1) / LangConstants.COMPRESS_HIGH_BASE;
             }
+            letters.append(code, c, code.length - c);
             if (s.backRef < 0)
-                code += (char)LangConstants.COMPRESS_REPEAT_CHAR;
-            letters.append(code);
+                letters.append((char)LangConstants.COMPRESS_REPEAT_CHAR);
         }
         return parenStmt;
     }
 
-    private int processBlock(final List<Stmt> parenStmt,
-        final List<Stmt> proofOrdered, final int[] values,
-        final List<Integer> list, final int width, int linePos)
-    {
-        Collections.sort(list); // restart with proof order
-        while (!list.isEmpty()) {
-            boolean noSpace = true;
-            for (final Integer p : knapsackFit(list, values, width - linePos)) {
-                noSpace = false;
-                final Stmt s = proofOrdered.get(p);
-                final int l = s.getLabel().length() + 1;
-                linePos += l;
-                list.remove(p);
-                parenStmt.add(s);
-            }
-            if (noSpace || linePos >= width - 1)
-                linePos = 0;
+    /**
+     * Packs the labels of the parenthesized portion of a compressed proof
+     * into lines.
+     * <p>
+     * Each line is filled with the subset of the remaining labels (taken in
+     * proof order) whose total length fits the line best, as computed by a
+     * 0/1 knapsack. Only the first {@code room / value} labels of each value
+     * can change the knapsack table: one more label of the same value is
+     * never part of a better fit. So only those labels are given to the
+     * knapsack, which then makes the same choice as it would for all of the
+     * labels, and a line costs the same whatever the number of labels.
+     */
+    private static class LinePacker {
+        private final int[] values;
+        private final int width;
+        private int linePos = 2;
+
+        /** The remaining labels of each value, in proof order */
+        private final int[] head;
+        private final int[] next;
+        private final int[] prev;
+
+        private final int[] candidate;
+        private final int[] included;
+        private int[] worth = new int[0];
+
+        LinePacker(final int[] values, final int width) {
+            this.values = values;
+            this.width = width;
+            int maxValue = 0;
+            for (final int value : values)
+                maxValue = Math.max(maxValue, value);
+            head = new int[maxValue + 1];
+            Arrays.fill(head, -1);
+            next = new int[values.length];
+            prev = new int[values.length];
+            candidate = new int[values.length];
+            included = new int[values.length];
         }
-        return linePos;
-    }
 
-    private Deque<Integer> knapsackFit(final List<Integer> items,
-        final int[] values, final int size)
-    {
-        final int[][] worth = new int[items.size() + 1][size + 1];
-        for (int i = 0; i < items.size(); i++) {
-            final int value = values[items.get(i)];
-            for (int s = 0; s <= size; s++)
-                worth[i + 1][s] = s >= value
-                    ? Math.max(worth[i][s], value + worth[i][s - value])
-                    : worth[i][s];
+        /**
+         * Packs one block of labels, continuing the current line.
+         *
+         * @param block the indexes of the block's statements
+         * @param size the number of statements in the block
+         * @param proofOrdered the statements
+         * @param parenStmt output: the parenthesized portion
+         */
+        void packBlock(final int[] block, final int size,
+            final Stmt[] proofOrdered, final List<Stmt> parenStmt)
+        {
+            Arrays.sort(block, 0, size); // restart with proof order
+            final int[] blockValues = new int[size];
+            int nbrValues = 0;
+            for (int j = size - 1; j >= 0; j--) {
+                final int p = block[j];
+                final int v = values[p];
+                if (head[v] < 0)
+                    blockValues[nbrValues++] = v;
+                else
+                    prev[head[v]] = p;
+                next[p] = head[v];
+                prev[p] = -1;
+                head[v] = p;
+            }
+
+            int remaining = size;
+            while (remaining > 0) {
+                final int room = width - linePos;
+                int m = 0;
+                for (int j = 0; j < nbrValues; j++) {
+                    final int v = blockValues[j];
+                    for (int p = head[v], quota = room / v; p >= 0
+                        && quota > 0; p = next[p], quota--)
+                        candidate[m++] = p;
+                }
+                Arrays.sort(candidate, 0, m);
+
+                int nbrIncluded = knapsackFit(m, room);
+                if (nbrIncluded == 0 && linePos == 0) {
+                    // longer than a line: give it a line of its own
+                    int first = Integer.MAX_VALUE;
+                    for (int j = 0; j < nbrValues; j++)
+                        if (head[blockValues[j]] >= 0)
+                            first = Math.min(first, head[blockValues[j]]);
+                    included[nbrIncluded++] = first;
+                }
+                for (int j = nbrIncluded - 1; j >= 0; j--) {
+                    final int p = included[j];
+                    linePos += values[p];
+                    unlink(p);
+                    parenStmt.add(proofOrdered[p]);
+                    remaining--;
+                }
+                if (nbrIncluded == 0 || linePos >= width - 1)
+                    linePos = 0;
+            }
         }
-        final Deque<Integer> included = new ArrayDeque<>();
-        int s = size;
-        for (int i = items.size() - 1; i >= 0; i--)
-            if (worth[i + 1][s] != worth[i][s]) {
-                included.push(items.get(i));
-                if ((s -= values[items.get(i)]) == 0)
-                    break;
+
+        /**
+         * Chooses the candidates that fill {@code size} best, preferring
+         * earlier candidates among equally good fits.
+         *
+         * @param m the number of candidates
+         * @param size the room left on the line
+         * @return the number of candidates chosen, stored in
+         *         {@code included} in descending proof order.
+         */
+        private int knapsackFit(final int m, final int size) {
+            if (m == 0)
+                return 0;
+            final int cols = size + 1;
+            if (worth.length < (m + 1) * cols)
+                worth = new int[(m + 1) * cols];
+            Arrays.fill(worth, 0, cols, 0);
+            for (int i = 0; i < m; i++) {
+                final int value = values[candidate[i]];
+                final int row = i * cols;
+                final int nextRow = row + cols;
+                for (int s = 0; s <= size; s++)
+                    worth[nextRow + s] = s >= value
+                        ? Math.max(worth[row + s],
+                            value + worth[row + s - value])
+                        : worth[row + s];
             }
-        return included;
+            int nbrIncluded = 0;
+            int s = size;
+            for (int i = m - 1; i >= 0; i--)
+                if (worth[(i + 1) * cols + s] != worth[i * cols + s]) {
+                    included[nbrIncluded++] = candidate[i];
+                    if ((s -= values[candidate[i]]) == 0)
+                        break;
+                }
+            return nbrIncluded;
+        }
+
+        private void unlink(final int p) {
+            if (prev[p] < 0)
+                head[values[p]] = next[p];
+            else
+                next[prev[p]] = next[p];
+            if (next[p] >= 0)
+                prev[next[p]] = prev[p];
+        }
     }
 }
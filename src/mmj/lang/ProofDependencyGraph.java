@@ -0,0 +1,124 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * ProofDependencyGraph.java  0.01
+ */
+
+package mmj.lang;
+
+import java.util.*;
+
+import mmj.lang.ParseTree.RPNStep;
+import mmj.tl.MMTTheoremSet;
+import mmj.tl.TheoremStmtGroup;
+
+/**
+ * ProofDependencyGraph is a reverse index of proof references: for each Assrt
+ * it holds the Theorems whose proofs use the Assrt.
+ * <p>
+ * It is built from the LogicalSystem stmtTbl the first time it is needed (see
+ * {@code LogicalSystem.getProofDependencyGraph()}) and afterwards kept up to
+ * date by {@code LogicalSystem.theoremLoaderCommit()}, so that the Theorem
+ * Loader can find the proofs affected by an update without scanning every
+ * proof in the database.
+ * <p>
+ * Building the graph does not decompress proofs which are kept compressed
+ * (see {@code Theorem.getProofAssrtRefs()}).
+ */
+public class ProofDependencyGraph {
+
+    private final Map<Assrt, Set<Theorem>> usedByTbl;
+
+    /**
+     * Construct the graph from the proofs of every Theorem in a statement
+     * table.
+     *
+     * @param stmtTbl the LogicalSystem stmtTbl.
+     */
+    public ProofDependencyGraph(final Map<String, Stmt> stmtTbl) {
+        usedByTbl = new HashMap<>(stmtTbl.size());
+        for (final Stmt stmt : stmtTbl.values())
+            if (stmt instanceof Theorem)
+                addRefs((Theorem)stmt, ((Theorem)stmt).getProofAssrtRefs());
+    }
+
+    /**
+     * Applies the adds and updates made by the Theorem Loader to the graph.
+     * <p>
+     * The references of an updated theorem's previous proof are removed and
+     * those of its new proof added.
+     *
+     * @param mmtTheoremSet the set of TheoremStmtGroups added or updated by
+     *            TheoremLoader.
+     */
+    public void commit(final MMTTheoremSet mmtTheoremSet) {
+        for (final TheoremStmtGroup g : mmtTheoremSet) {
+            final Theorem theorem = g.getTheorem();
+            if (theorem == null)
+                continue;
+            if (g.getWasTheoremUpdated()) {
+                final RPNStep[] oldProof = g.getOldProof();
+                if (oldProof != null)
+                    for (final RPNStep step : oldProof)
+                        if (step != null && step.stmt instanceof Assrt) {
+                            final Set<Theorem> usedBy = usedByTbl
+                                .get(step.stmt);
+                            if (usedBy != null)
+                                usedBy.remove(theorem);
+                        }
+            }
+            addRefs(theorem, theorem.getProofAssrtRefs());
+        }
+    }
+
+    /**
+     * Returns the Theorems whose proofs refer directly to an Assrt.
+     *
+     * @param assrt the Assrt.
+     * @return unmodifiable Set of Theorems, empty if the Assrt is unused.
+     */
+    public Set<Theorem> getDirectDependents(final Assrt assrt) {
+        final Set<Theorem> usedBy = usedByTbl.get(assrt);
+        return usedBy == null ? Collections.emptySet()
+            : Collections.unmodifiableSet(usedBy);
+    }
+
+    /**
+     * Returns the Theorems whose proofs refer to any of the input Assrts,
+     * directly or, if requested, through other dependent Theorems.
+     * <p>
+     * The input Assrts themselves are not included in the output unless one
+     * of them depends on another.
+     *
+     * @param assrts the Assrts whose dependents are wanted.
+     * @param transitive if true, include the dependents of dependents.
+     * @return List of dependent Theorems sorted by MObj.seq.
+     */
+    public List<Theorem> getDependents(
+        final Collection<? extends Assrt> assrts, final boolean transitive)
+    {
+        final Set<Theorem> found = new HashSet<>();
+        final Deque<Assrt> queue = new ArrayDeque<>(assrts);
+        while (!queue.isEmpty()) {
+            final Set<Theorem> usedBy = usedByTbl.get(queue.removeFirst());
+            if (usedBy == null)
+                continue;
+            for (final Theorem t : usedBy)
+                if (found.add(t) && transitive)
+                    queue.addLast(t);
+        }
+        final List<Theorem> outList = new ArrayList<>(found);
+        Collections.sort(outList, MObj.SEQ);
+        return outList;
+    }
+
+    private void addRefs(final Theorem theorem, final Set<Assrt> refs) {
+        for (final Assrt ref : refs)
+            usedByTbl.computeIfAbsent(ref, k -> new HashSet<>()).add(theorem);
+    }
+}
@@ -11,6 +11,7 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,7 +20,9 @@ import java.util.List;
  * "scope" level in Metamath. Scopes can be nested to any depth.
  * mmj.lang.LogicalSystem maintains a stack (List) of ScopeDefs.
  */
-public class ScopeDef {
+public class ScopeDef implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * List of "active" Var's within a scope level.
      */
@@ -11,6 +11,7 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
 import java.util.*;
 
 import mmj.pa.DistinctVariablesStmt;
@@ -26,7 +27,8 @@ import mmj.pa.DistinctVariablesStmt;
  * @see <a href="../../MetamathERNotes.html"> Nomenclature and
  *      Entity-Relationship Notes</a>
  */
-public class ScopeFrame {
+public class ScopeFrame implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     /**
      * These are the "mandatories" that are referenced in an assertion, in order
@@ -51,6 +53,13 @@ public class ScopeFrame {
      */
     public DjVars[] djVarsArray;
 
+    /**
+     * Hash table of the pairs in {@code djVarsArray}, built on first use by
+     * {@code isDjVarsPair()} and rebuilt when a different array is assigned to
+     * {@code djVarsArray}.
+     */
+    private transient volatile DjVarsPairTable djVarsPairTable;
+
     /**
      * Default Constructor.
      */
@@ -60,31 +69,83 @@ public class ScopeFrame {
      * Checks to see if a certain pair of variables is mentioned in a OptFrame's
      * DjVars array.
      * <p>
-     * Note: vLo and vHi are automatically switched if vLo is not low.
-     * <p>
-     * Note: this function is the reason that DjVars vars are stored as "lo" and
-     * "hi". Low and High are irrelevant to the mathematics of this situation.
-     * But if the vars were stored randomly or arbitrarily, then twice as many
-     * comparisons would be needed here.
+     * Note: the order of vLo and vHi does not matter.
      *
      * @param frame Scope Frame to inspect.
      * @param vLo the "low" variable in the pair.
      * @param vHi the "high" variable in the pair.
      * @return true if param var pair in OptFrame DjVars array.
      */
-    public static boolean isVarPairInDjArray(final ScopeFrame frame, Var vLo,
-        Var vHi)
+    public static boolean isVarPairInDjArray(final ScopeFrame frame,
+        final Var vLo, final Var vHi)
     {
-        Var vSwap;
-        if (DjVars.DV_LEX.compare(vLo, vHi) > 0) {
-            vSwap = vHi;
-            vHi = vLo;
-            vLo = vSwap;
+        return frame.isDjVarsPair(vLo, vHi);
+    }
+
+    /**
+     * Checks to see if a certain pair of variables is mentioned in this
+     * frame's DjVars array.
+     * <p>
+     * The lookup uses a hash table of the pairs, keyed on the identity of the
+     * two Vars, so it takes constant time however many $d restrictions the
+     * frame has. The table is built the first time the frame is checked, and
+     * again if {@code djVarsArray} has been replaced since (the Proof
+     * Assistant does that when it adds $d statements to a worksheet's frame).
+     *
+     * @param v1 one variable of the pair.
+     * @param v2 the other variable of the pair.
+     * @return true if the pair is in djVarsArray.
+     */
+    public boolean isDjVarsPair(final Var v1, final Var v2) {
+        final DjVars[] array = djVarsArray;
+        if (array.length == 0)
+            return false;
+        DjVarsPairTable table = djVarsPairTable;
+        if (table == null || table.source != array)
+            djVarsPairTable = table = new DjVarsPairTable(array);
+        return table.contains(v1, v2);
+    }
+
+    /**
+     * Open addressing hash set of the DjVars pairs in a djVarsArray.
+     */
+    private static class DjVarsPairTable {
+        final DjVars[] source;
+        final DjVars[] slots;
+        final int mask;
+
+        DjVarsPairTable(final DjVars[] source) {
+            this.source = source;
+            slots = new DjVars[Integer.highestOneBit(source.length * 2 - 1) << 1];
+            mask = slots.length - 1;
+            for (final DjVars djVars : source) {
+                if (contains(djVars.getVarLo(), djVars.getVarHi()))
+                    continue;
+                int i = hash(djVars.getVarLo(), djVars.getVarHi()) & mask;
+                while (slots[i] != null)
+                    i = i + 1 & mask;
+                slots[i] = djVars;
+            }
+        }
+
+        /** Symmetric in v1 and v2, so the pair can be looked up either way. */
+        private static int hash(final Var v1, final Var v2) {
+            final int h = (System.identityHashCode(v1)
+                + System.identityHashCode(v2)) * 0x9E3779B9;
+            return h ^ h >>> 16;
+        }
+
+        boolean contains(final Var v1, final Var v2) {
+            for (int i = hash(v1, v2) & mask; slots[i] != null; i = i + 1
+                & mask)
+            {
+                final DjVars djVars = slots[i];
+                if (djVars.getVarLo() == v1 && djVars.getVarHi() == v2
+                    || djVars.getVarLo() == v2 && djVars.getVarHi() == v1)
+                    return true;
+            }
+            return false;
         }
-        for (final DjVars element : frame.djVarsArray)
-            if (element.getVarLo() == vLo && element.getVarHi() == vHi)
-                return true;
-        return false;
     }
 
     /**
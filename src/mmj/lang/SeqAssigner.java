@@ -15,6 +15,7 @@
 
 package mmj.lang;
 
+import java.io.Serializable;
 import java.util.*;
 
 import mmj.tl.*;
@@ -60,7 +61,10 @@ import mmj.tl.*;
  * size of 100 would be suitable for almost every purpose -- the exception being
  * automated updates from an external system via the new "mmj2 Service" feature.
  */
-public class SeqAssigner implements TheoremLoaderCommitListener {
+public class SeqAssigner
+    implements TheoremLoaderCommitListener, Serializable
+{
+    private static final long serialVersionUID = 1L;
 
     private int mObjCount;
     private int nbrIntervals;
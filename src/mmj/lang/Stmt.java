@@ -86,6 +86,8 @@ import mmj.lang.ParseTree.RPNStep;
  *      Entity-Relationship Notes</a>
  */
 public abstract class Stmt extends MObj implements JSONString {
+    private static final long serialVersionUID = 1L;
+
     /**
      * note: label must NOT be changed after Stmt added to stmtTbl because
      * stmtTbl is a Map (map behavior undefined)
@@ -289,6 +291,18 @@ public abstract class Stmt extends MObj implements JSONString {
         return formula.getTyp();
     }
 
+    /**
+     * Replace the Stmt Formula with its canonical (interned) instance.
+     * <p>
+     * Used by LogicalSystem during the initial load so that Stmts with equal
+     * Formulas share one Formula object.
+     *
+     * @param formulaTbl the Formula interning table.
+     */
+    void internFormula(final FormulaTbl formulaTbl) {
+        formula = formulaTbl.intern(formula);
+    }
+
     // note: this one looks a little too dangerous to
     // implement w/out a pressing need and further
     // thought. LogHyp and Assrt both have type-specific
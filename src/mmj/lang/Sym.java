@@ -31,6 +31,8 @@ import java.util.Map;
  *      Entity-Relationship Notes</a>
  */
 public abstract class Sym extends MObj {
+    private static final long serialVersionUID = 1L;
+
     /**
      * "id" is the character string that uniquely identifies the Sym.
      * <p>
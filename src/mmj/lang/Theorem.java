@@ -26,13 +26,22 @@
  *
  * Version 0.08 - Nov-01-2011:  comment update.
  *     --> Add stmt label to ERRMSG_BAD_PARSE_STMT_1
+ *
+ * Version 0.09:
+ *     --> Compressed proofs can be kept compressed until
+ *         getProof() is called ("lazy" proofs.)
+ *     --> Added getProofAssrtRefs() for ProofDependencyGraph.
+ *     --> Added readCompressedProof() so VerifyProofs can verify a
+ *         lazy proof without decompressing it.
  */
 
 package mmj.lang;
 
+import java.lang.ref.SoftReference;
 import java.util.*;
 
 import mmj.lang.ParseTree.RPNStep;
+import mmj.lang.ProofCompression.StepReader;
 import mmj.mmio.BlockList;
 
 /**
@@ -71,7 +80,28 @@ import mmj.mmio.BlockList;
  *      Entity-Relationship Notes</a>
  */
 public class Theorem extends Assrt {
-    private RPNStep[] proof;
+    private static final long serialVersionUID = 1L;
+
+    private volatile RPNStep[] proof;
+
+    /**
+     * A "lazy" compressed proof: the Stmt's of the parenthesized portion and
+     * the compressed proof characters, decompressed by getProof(). Null
+     * unless the Theorem was loaded with lazy proofs.
+     */
+    private Stmt[] compressedProofRefs;
+    private byte[] compressedProofBlocks;
+
+    /**
+     * If true the decompressed lazy proof is only cached through
+     * proofCacheRef (and decompressed again if the garbage collector needs
+     * the memory), otherwise it is stored in proof.
+     */
+    private boolean softProofCache;
+    private transient SoftReference<RPNStep[]> proofCacheRef;
+
+    private static final ThreadLocal<ProofCompression> lazyProofCompression = ThreadLocal
+        .withInitial(ProofCompression::new);
     private final ScopeFrame optFrame;
     private final int column;
 
@@ -140,6 +170,50 @@ public class Theorem extends Assrt {
         final List<String> symList, final List<String> proofList,
         final BlockList proofBlockList, final ProofCompression proofCompression,
         final Messages messages) throws LangException
+    {
+        this(seq, scopeDefList, symTbl, stmtTbl, labelS, column, typS, symList,
+            proofList, proofBlockList, proofCompression, messages, false,
+            false);
+    }
+
+    /**
+     * Construct Theorem using the entire enchilada from mmj.mmio.SrcStmt.java
+     * including compressed proof blocks, optionally keeping the proof
+     * compressed until it is needed.
+     * <p>
+     * With {@code lazyProof} the labels in the parenthesized portion of the
+     * proof are looked up and the compressed proof characters are read
+     * through once, without building the proof, so errors are reported now
+     * just as when the proof is decompressed here. The characters are stored
+     * as a byte array and decompressed the first time {@link #getProof()} is
+     * called.
+     *
+     * @param seq MObj.seq sequence number
+     * @param scopeDefList Scope info in effect at the time
+     * @param symTbl Symbol Table (Map)
+     * @param stmtTbl Statement Table (Map)
+     * @param labelS Theorem label String
+     * @param column Starting column
+     * @param typS Theorem Formula Type Code String
+     * @param symList Theorem Expression Sym String List
+     * @param proofList Theorem Proof Stmt String List.
+     * @param proofBlockList list containing one or more blocks of compressed
+     *            proof symbols.
+     * @param proofCompression instance of ProofCompression.java used to
+     *            decompress proof.
+     * @param messages for error reporting
+     * @param lazyProof keep the proof compressed until it is used.
+     * @param softProofCache with lazyProof, hold the decompressed proof only
+     *            through a soft reference.
+     * @throws LangException if there was a decompression error
+     */
+    public Theorem(final int seq, final List<ScopeDef> scopeDefList,
+        final Map<String, Sym> symTbl, final Map<String, Stmt> stmtTbl,
+        final String labelS, final int column, final String typS,
+        final List<String> symList, final List<String> proofList,
+        final BlockList proofBlockList, final ProofCompression proofCompression,
+        final Messages messages, final boolean lazyProof,
+        final boolean softProofCache) throws LangException
     {
         super(seq, scopeDefList, symTbl, stmtTbl, labelS, typS, symList);
 
@@ -147,9 +221,21 @@ public class Theorem extends Assrt {
         this.column = column;
 
         try {
-            proof = proofCompression.decompress(labelS, seq, stmtTbl,
-                mandFrame.hypArray, optFrame.hypArray, proofList,
-                proofBlockList);
+            if (lazyProof) {
+                final Stmt[] refs = proofCompression.resolveOtherRefs(labelS,
+                    seq, stmtTbl, mandFrame.hypArray, optFrame.hypArray,
+                    proofList);
+                final byte[] blocks = proofBlockList.toBytes();
+                proofCompression.checkSteps(labelS, mandFrame.hypArray, refs,
+                    new BlockList(blocks));
+                compressedProofRefs = refs;
+                compressedProofBlocks = blocks;
+                this.softProofCache = softProofCache;
+            }
+            else
+                proof = proofCompression.decompress(labelS, seq, stmtTbl,
+                    mandFrame.hypArray, optFrame.hypArray, proofList,
+                    proofBlockList);
         } catch (final LangException e) {
             proof = new RPNStep[]{new RPNStep(null)};
             messages.accumInfoMessage(e.getMessage());
@@ -163,7 +249,94 @@ public class Theorem extends Assrt {
      * @return Theorem's proof.
      */
     public RPNStep[] getProof() {
-        return proof;
+        final RPNStep[] p = proof;
+        if (p != null || compressedProofBlocks == null)
+            return p;
+        return decompressLazyProof();
+    }
+
+    /**
+     * Returns true if the Theorem's proof is kept compressed until used and
+     * is not currently decompressed.
+     *
+     * @return true if getProof() would decompress the proof.
+     */
+    public boolean isProofCompressed() {
+        if (proof != null || compressedProofBlocks == null)
+            return false;
+        final SoftReference<RPNStep[]> ref = proofCacheRef;
+        return ref == null || ref.get() == null;
+    }
+
+    /**
+     * Sets up a StepReader to read the Theorem's proof straight from its
+     * compressed form, if it is kept compressed and not currently
+     * decompressed, so that the proof can be verified without building (and
+     * keeping) its RPNStep array.
+     *
+     * @param reader the StepReader to initialize.
+     * @return true if the reader was set up, false if the proof must be
+     *         obtained with getProof().
+     */
+    public boolean readCompressedProof(final StepReader reader) {
+        final Stmt[] refs = compressedProofRefs;
+        final byte[] blocks = compressedProofBlocks;
+        if (refs == null || blocks == null || !isProofCompressed())
+            return false;
+        reader.init(getLabel(), mandFrame.hypArray, Arrays.asList(refs),
+            new BlockList(blocks));
+        return true;
+    }
+
+    /**
+     * Returns the distinct Assrts referenced by the Theorem's proof.
+     * <p>
+     * A proof kept compressed is not decompressed: every Assrt used by a
+     * compressed proof is listed in its parenthesized portion.
+     *
+     * @return Set of Assrts used in the proof, in order of first use.
+     */
+    public Set<Assrt> getProofAssrtRefs() {
+        final Set<Assrt> refs = new LinkedHashSet<>();
+        final Stmt[] lazyRefs = compressedProofRefs;
+        if (proof == null && lazyRefs != null) {
+            for (final Stmt s : lazyRefs)
+                if (s instanceof Assrt)
+                    refs.add((Assrt)s);
+            return refs;
+        }
+        final RPNStep[] p = getProof();
+        if (p != null)
+            for (final RPNStep step : p)
+                if (step != null && step.stmt instanceof Assrt)
+                    refs.add((Assrt)step.stmt);
+        return refs;
+    }
+
+    private synchronized RPNStep[] decompressLazyProof() {
+        RPNStep[] p = proof;
+        if (p != null)
+            return p;
+        if (proofCacheRef != null && (p = proofCacheRef.get()) != null)
+            return p;
+        try {
+            p = lazyProofCompression.get().decompress(getLabel(),
+                mandFrame.hypArray, optFrame.hypArray, compressedProofRefs,
+                new BlockList(compressedProofBlocks));
+        } catch (final LangException e) {
+            p = new RPNStep[]{new RPNStep(null)};
+        }
+        if (softProofCache)
+            proofCacheRef = new SoftReference<>(p);
+        else
+            proof = p;
+        return p;
+    }
+
+    private void clearLazyProof() {
+        compressedProofRefs = null;
+        compressedProofBlocks = null;
+        proofCacheRef = null;
     }
 
     /**
@@ -180,8 +353,10 @@ public class Theorem extends Assrt {
     public RPNStep[] setProof(final Map<String, Stmt> stmtTbl,
         final List<String> proofList) throws LangException
     {
-        proof = editProofListDefAndActive(stmtTbl, proofList);
-        return proof;
+        final RPNStep[] p = editProofListDefAndActive(stmtTbl, proofList);
+        clearLazyProof();
+        proof = p;
+        return p;
     }
 
     /**
@@ -367,6 +542,7 @@ public class Theorem extends Assrt {
         final DjVars[] newDjVarsArray, final DjVars[] newOptDjVarsArray)
     {
 
+        clearLazyProof();
         proof = newProof;
         mandFrame.djVarsArray = newDjVarsArray;
         optFrame.djVarsArray = newOptDjVarsArray;
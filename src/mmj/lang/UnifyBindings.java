@@ -0,0 +1,267 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * UnifyBindings.java  0.01
+ */
+
+package mmj.lang;
+
+import java.util.Arrays;
+
+/**
+ * UnifyBindings holds the variable substitutions made by Proof Assistant
+ * unification (see {@code mmj.pa.StepUnifier}).
+ * <p>
+ * Every variable which can be bound has a dense index: the Work Variables of
+ * the owning WorkVarManager come first, numbered when they are declared,
+ * followed by the mandatory hypotheses of the assertion being unified,
+ * numbered by their position in the assertion's MandFrame hypArray. The
+ * substitutions are stored in an array by that index instead of in the
+ * VarHyps themselves, which are shared by every user of the LogicalSystem.
+ * Each WorkVarManager has its own UnifyBindings, so unifications using
+ * different WorkVarManagers (e.g. different Proof Assistant sessions) do not
+ * interfere with each other.
+ * <p>
+ * Every binding made with {@link #bind} is recorded on a trail, and
+ * {@link #undo} erases the bindings made since a {@link #mark}, most recent
+ * first, deallocating the Work Variables whose allocation was recorded with
+ * {@link #recordAlloc}. A variable is never bound twice during a
+ * unification, so erasing a binding just means null-ing it out.
+ * <p>
+ * Work Variable substitutions outlive a single unification: they are read
+ * when the Proof Worksheet is updated and are cleared when the Work Variable
+ * is allocated again.
+ */
+public class UnifyBindings {
+
+    private static final int SLOTS_MIN = 16;
+
+    private final WorkVarManager workVarManager;
+
+    /** The Work Variables' hyps, by index */
+    private final WorkVarHyp[] workVarHyp;
+
+    private final int nbrWorkVars;
+
+    /**
+     * Open addressing table of the mandatory VarHyps of the assertion being
+     * unified, built by startUnification(): slotHyp holds the VarHyps,
+     * hashed by seq, and slotIndex their indexes in the hypArray.
+     */
+    private VarHyp[] slotHyp;
+    private int[] slotIndex;
+    private int slotMask;
+
+    /** The substitutions, by index */
+    private ParseNode[] subst;
+
+    /**
+     * The indexes of the bindings made, in order; a negative entry {@code ~i}
+     * records the allocation of Work Variable i.
+     */
+    private int[] trail;
+    private int trailCnt;
+
+    /**
+     * Construct UnifyBindings for the Work Variables of a WorkVarManager.
+     *
+     * @param workVarManager the WorkVarManager which owns the Work Variables.
+     * @param workVarHyp the WorkVarHyps, by bindingIndex.
+     */
+    UnifyBindings(final WorkVarManager workVarManager,
+        final WorkVarHyp[] workVarHyp)
+    {
+        this.workVarManager = workVarManager;
+        this.workVarHyp = workVarHyp;
+        nbrWorkVars = workVarHyp.length;
+        slotHyp = new VarHyp[SLOTS_MIN];
+        slotIndex = new int[SLOTS_MIN];
+        slotMask = SLOTS_MIN - 1;
+        subst = new ParseNode[nbrWorkVars];
+        trail = new int[16];
+    }
+
+    /**
+     * Construct UnifyBindings for a copy of a WorkVarManager, with a copy of
+     * another UnifyBindings' Work Variable substitutions.
+     *
+     * @param workVarManager the copy of the WorkVarManager.
+     * @param source the UnifyBindings of the original WorkVarManager.
+     */
+    UnifyBindings(final WorkVarManager workVarManager,
+        final UnifyBindings source)
+    {
+        this.workVarManager = workVarManager;
+        workVarHyp = source.workVarHyp;
+        nbrWorkVars = source.nbrWorkVars;
+        slotHyp = new VarHyp[SLOTS_MIN];
+        slotIndex = new int[SLOTS_MIN];
+        slotMask = SLOTS_MIN - 1;
+        subst = Arrays.copyOf(source.subst, nbrWorkVars);
+        trail = new int[16];
+    }
+
+    /**
+     * Start the unification of a proof step with an assertion.
+     * <p>
+     * The assertion's mandatory VarHyps become unbound and the trail is
+     * emptied. Work Variable substitutions are kept.
+     *
+     * @param hypArray the assertion's MandFrame hypArray.
+     */
+    public void startUnification(final Hyp[] hypArray) {
+        final int n = nbrWorkVars + hypArray.length;
+        if (subst.length < n)
+            subst = Arrays.copyOf(subst, n);
+        Arrays.fill(subst, nbrWorkVars, n, null);
+        trailCnt = 0;
+
+        int nbrSlots = SLOTS_MIN;
+        while (nbrSlots < 2 * hypArray.length)
+            nbrSlots *= 2;
+        if (slotHyp.length < nbrSlots) {
+            slotHyp = new VarHyp[nbrSlots];
+            slotIndex = new int[nbrSlots];
+        }
+        else
+            Arrays.fill(slotHyp, 0, nbrSlots, null);
+        slotMask = nbrSlots - 1;
+        for (int i = 0; i < hypArray.length; i++)
+            if (hypArray[i] instanceof VarHyp) {
+                int slot = slotOf(hypArray[i]);
+                while (slotHyp[slot] != null)
+                    slot = (slot + 1) & slotMask;
+                slotHyp[slot] = (VarHyp)hypArray[i];
+                slotIndex[slot] = i;
+            }
+    }
+
+    /**
+     * Returns the substitution bound to a variable.
+     *
+     * @param varHyp a Work Variable of the owning WorkVarManager, or a
+     *            mandatory VarHyp of the assertion being unified.
+     * @return the substitution or null if the variable is unbound.
+     */
+    public ParseNode get(final VarHyp varHyp) {
+        final int i = indexOf(varHyp);
+        return i < 0 ? null : subst[i];
+    }
+
+    /**
+     * Returns the substitution bound to a mandatory hypothesis of the
+     * assertion being unified.
+     *
+     * @param hypIndex index in the assertion's MandFrame hypArray.
+     * @return the substitution or null if the variable is unbound.
+     */
+    public ParseNode getTarget(final int hypIndex) {
+        return subst[nbrWorkVars + hypIndex];
+    }
+
+    /**
+     * Bind a variable, recording the binding on the trail.
+     *
+     * @param varHyp a Work Variable of the owning WorkVarManager, or a
+     *            mandatory VarHyp of the assertion being unified.
+     * @param toNode the substitution.
+     */
+    public void bind(final VarHyp varHyp, final ParseNode toNode) {
+        final int i = indexOf(varHyp);
+        if (i < 0)
+            throw new IllegalArgumentException(varHyp.getLabel());
+        subst[i] = toNode;
+        push(i);
+    }
+
+    /**
+     * Record on the trail that a Work Variable was allocated during
+     * unification, so that undo() deallocates it.
+     *
+     * @param allocated the WorkVarHyp of the allocated Work Variable.
+     */
+    public void recordAlloc(final WorkVarHyp allocated) {
+        push(~allocated.bindingIndex);
+    }
+
+    /**
+     * Set a Work Variable's substitution without recording it on the trail.
+     * <p>
+     * This is used for Work Variable updates made outside of unification,
+     * e.g. converting the remaining Work Variables to dummy variables.
+     *
+     * @param wvHyp the WorkVarHyp of a Work Variable of the owning
+     *            WorkVarManager.
+     * @param toNode the substitution, or null.
+     */
+    public void setWorkVarSubst(final WorkVarHyp wvHyp,
+        final ParseNode toNode)
+    {
+        subst[wvHyp.bindingIndex] = toNode;
+    }
+
+    /**
+     * Returns the current position of the trail.
+     *
+     * @return the number of entries on the trail.
+     */
+    public int mark() {
+        return trailCnt;
+    }
+
+    /**
+     * Erase the bindings and Work Variable allocations recorded since a mark,
+     * most recent first.
+     *
+     * @param mark a value returned by mark().
+     */
+    public void undo(final int mark) {
+        while (trailCnt > mark) {
+            final int i = trail[--trailCnt];
+            if (i < 0) {
+                subst[~i] = null;
+                workVarManager.dealloc(workVarHyp[~i]);
+            }
+            else
+                subst[i] = null;
+        }
+    }
+
+    /**
+     * Clear a Work Variable's substitution, see WorkVarManager.alloc().
+     *
+     * @param wvHyp the WorkVarHyp.
+     */
+    void clear(final WorkVarHyp wvHyp) {
+        subst[wvHyp.bindingIndex] = null;
+    }
+
+    private int indexOf(final VarHyp varHyp) {
+        if (varHyp instanceof WorkVarHyp) {
+            final int i = ((WorkVarHyp)varHyp).bindingIndex;
+            return i < nbrWorkVars && workVarHyp[i] == varHyp ? i : -1;
+        }
+        int slot = slotOf(varHyp);
+        while (slotHyp[slot] != null) {
+            if (slotHyp[slot] == varHyp)
+                return nbrWorkVars + slotIndex[slot];
+            slot = (slot + 1) & slotMask;
+        }
+        return -1;
+    }
+
+    private int slotOf(final Hyp hyp) {
+        return (hyp.getSeq() * 0x9E3779B9 >>> 16) & slotMask;
+    }
+
+    private void push(final int entry) {
+        if (trailCnt >= trail.length)
+            trail = Arrays.copyOf(trail, trail.length * 2);
+        trail[trailCnt++] = entry;
+    }
+}
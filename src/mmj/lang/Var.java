@@ -31,8 +31,11 @@
 
 package mmj.lang;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Var holds a declared Metamath variable symbol.
@@ -62,9 +65,20 @@ import java.util.Map;
  *      Entity-Relationship Notes</a>
  */
 public class Var extends Sym {
+    private static final long serialVersionUID = 1L;
+
+    private static final AtomicInteger varNbrCounter = new AtomicInteger();
+
     private boolean active;
     private VarHyp activeVarHyp;
 
+    /**
+     * Dense number assigned to each Var object at construction, starting at
+     * zero. Unlike {@code seq} the numbers have no gaps, so they can be used
+     * to index work arrays (see mmj.verify.VerifyProofs).
+     */
+    private final int varNbr = varNbrCounter.getAndIncrement();
+
     /**
      * Adds a new "active" Var to LogicalSystem.
      * <p>
@@ -149,6 +163,40 @@ public class Var extends Sym {
 
     }
 
+    /**
+     * Return the Var's dense number, suitable for indexing arrays.
+     *
+     * @return the Var's number, 0 through {@code getVarNbrCnt() - 1}.
+     */
+    public int getVarNbr() {
+        return varNbr;
+    }
+
+    /**
+     * Return the number of Var numbers handed out so far.
+     *
+     * @return one more than the highest Var number assigned.
+     */
+    public static int getVarNbrCnt() {
+        return varNbrCounter.get();
+    }
+
+    /**
+     * Restores a Var from a LogicalSystemSnapshot, keeping its varNbr, and
+     * advances the varNbr counter past it so that Vars created afterwards
+     * (e.g. Work Variables) do not reuse its number.
+     *
+     * @param in the stream.
+     * @throws IOException if an I/O error occurs.
+     * @throws ClassNotFoundException if a class of the stream is unknown.
+     */
+    private void readObject(final ObjectInputStream in)
+        throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        varNbrCounter.accumulateAndGet(varNbr + 1, Math::max);
+    }
+
     /**
      * Marks a Var as "active" or "inactive".
      *
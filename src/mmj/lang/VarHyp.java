@@ -7,7 +7,7 @@
 //*4567890123456 (71-character line to adjust editor window) 23456789*/
 
 /*
- * VarHyp.java  0.06 08/01/2007
+ * VarHyp.java  0.07
  *
  * Sep-30-2005: change getMandHypArray() to
  *              getMandHypArrayLength().
@@ -28,6 +28,10 @@
  *                -- removed dummy var hyp stuff
  *                -- added containedInVarListBySeq()
  *                -- added accumVarHypListBySeq()
+ *
+ * Version 0.07 :
+ *              - removed paSubst: unification substitutions are
+ *                held in mmj.lang.UnifyBindings.
  */
 
 package mmj.lang;
@@ -71,16 +75,7 @@ import java.util.Map;
  *      Entity-Relationship Notes</a>
  */
 public class VarHyp extends Hyp {
-
-    /**
-     * paSubst is used in Proof Assistant unification and holds the root node of
-     * a subtree which is the assigned substitution value for the VarHyp in a
-     * single ProofStep.
-     * <p>
-     * Yes, this is a hokey scratchpad. In theory an array of paSubst could be
-     * devised, with one entry for each thread :-) Or not.
-     */
-    public ParseNode paSubst;
+    private static final long serialVersionUID = 1L;
 
     /**
      * Construct VarHyp using sequence number plus label, Type Code and Var
@@ -16,6 +16,7 @@
 package mmj.lang;
 
 public class WorkVar extends Var {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Index into WorkVarManager index of Work Variables for a given Type Code.
@@ -16,6 +16,7 @@
 package mmj.lang;
 
 public class WorkVarHyp extends VarHyp {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Index into WorkVarManager index of Work Variables for a given Type Code.
@@ -23,6 +24,12 @@ public class WorkVarHyp extends VarHyp {
      */
     int workVarIndex;
 
+    /**
+     * Index of the Work Variable's substitution in its WorkVarManager's
+     * UnifyBindings, unique among all of the WorkVarManager's Work Variables.
+     */
+    int bindingIndex;
+
     /**
      * Construct WorkVarHyp using precomputed values and doing no validation.
      *
@@ -43,6 +43,10 @@ public class WorkVarManager {
     private WorkVar[][] declaredWorkVar;
     private WorkVarHyp[][] declaredWorkVarHyp;
 
+    // substitutions assigned to the Work Variables during
+    // unification, see getBindings().
+    private UnifyBindings bindings;
+
     // allocated = "in use" / "active". the purpose
     // is to avoid unnecessary initializations, so
     // only allocated Work Variables get initialized.
@@ -78,6 +82,51 @@ public class WorkVarManager {
         definedNbrWorkVarsList = new ArrayList<>(len);
     }
 
+    /**
+     * Construct a WorkVarManager with the Work Variable definitions of another
+     * WorkVarManager.
+     * <p>
+     * This is used for Proof Assistant sessions: after declareWorkVars() the
+     * new WorkVarManager has its own WorkVar and WorkVarHyp objects, so its
+     * allocations and substitutions are independent of the other one's.
+     *
+     * @param definitions WorkVarManager whose definitions are copied.
+     */
+    public WorkVarManager(final WorkVarManager definitions) {
+        definedTypCdList = new ArrayList<>(definitions.definedTypCdList);
+        definedWorkVarPrefixList = new ArrayList<>(
+            definitions.definedWorkVarPrefixList);
+        definedNbrWorkVarsList = new ArrayList<>(
+            definitions.definedNbrWorkVarsList);
+    }
+
+    /**
+     * Returns a copy of this WorkVarManager for a worker thread of a search.
+     * <p>
+     * The copy shares this WorkVarManager's declared WorkVar and WorkVarHyp
+     * objects, so it can unify formulas containing them, but has its own copy
+     * of their current allocations and substitutions: unifications done with
+     * the copy neither see nor disturb those done with the original.
+     *
+     * @return the copy.
+     */
+    public WorkVarManager newWorkerCopy() {
+        final WorkVarManager copy = new WorkVarManager(this);
+        copy.declaredTypCd = declaredTypCd;
+        copy.declaredWorkVarPrefix = declaredWorkVarPrefix;
+        copy.declaredNbrWorkVars = declaredNbrWorkVars;
+        copy.declaredWorkVar = declaredWorkVar;
+        copy.declaredWorkVarHyp = declaredWorkVarHyp;
+        copy.allocated = new boolean[allocated.length][];
+        for (int i = 0; i < allocated.length; i++)
+            copy.allocated[i] = allocated[i].clone();
+        copy.prevAllocIndex = prevAllocIndex.clone();
+        copy.seqNbrForMObj = seqNbrForMObj;
+        copy.bindings = new UnifyBindings(copy, bindings);
+        copy.areWorkVarsDeclared = areWorkVarsDeclared;
+        return copy;
+    }
+
     /**
      * Returns true if the Work Variables have been declared.
      * <p>
@@ -171,6 +220,7 @@ public class WorkVarManager {
         allocated = new boolean[len][];
 
         final Sym[] symArray = new Sym[2]; // for formula
+        final List<WorkVarHyp> bindingList = new ArrayList<>();
         int i = 0;
         for (final Cnst defTyp : grammar.getVarHypTypSet()) {
             // WARNING: updating the Cnst here...
@@ -210,11 +260,17 @@ public class WorkVarManager {
 
                 declaredWorkVarHyp[i][j] = new WorkVarHyp(seqNbrForMObj++,
                     labelId, new Formula(2, symArray), j);
+
+                declaredWorkVarHyp[i][j].bindingIndex = bindingList.size();
+                bindingList.add(declaredWorkVarHyp[i][j]);
             }
 
             i++;
         }
 
+        bindings = new UnifyBindings(this,
+            bindingList.toArray(new WorkVarHyp[bindingList.size()]));
+
         checkForDuplicateWorkVarPrefixes();
         checkWorkVarNamespaceUniqueness(logicalSystem);
 
@@ -300,6 +356,16 @@ public class WorkVarManager {
         return Integer.valueOf(nbrWorkVarsIn);
     }
 
+    /**
+     * Returns the substitutions assigned to this WorkVarManager's Work
+     * Variables, which unification also uses for the assertion's variables.
+     *
+     * @return the UnifyBindings of the declared Work Variables.
+     */
+    public UnifyBindings getBindings() {
+        return bindings;
+    }
+
     /**
      * Returns true if input Work Var is allocated.
      * <p>
@@ -326,8 +392,8 @@ public class WorkVarManager {
      * Type Code so that subsequent alloc() calls begin with the lowest
      * deallocated Work Var numbers.
      * <p>
-     * Example: WorkVar "A" where = B and B = C results in update clone of
-     * A.paSubst: A = C.
+     * Example: WorkVar "A" where = B and B = C results in update clone of A's
+     * substitution: A = C.
      */
     public void resolveWorkVarUpdates() {
 
@@ -339,12 +405,13 @@ public class WorkVarManager {
                 if (!allocated[i][j])
                     continue;
 
-                if ((holdParseNode = declaredWorkVarHyp[i][j].paSubst) == null)
+                if ((holdParseNode = bindings
+                    .get(declaredWorkVarHyp[i][j])) == null)
                     continue;
 
-                if (holdParseNode.hasUpdatedWorkVar())
-                    declaredWorkVarHyp[i][j].paSubst = holdParseNode
-                        .cloneResolvingUpdatedWorkVars();
+                if (holdParseNode.hasUpdatedWorkVar(bindings))
+                    bindings.setWorkVarSubst(declaredWorkVarHyp[i][j],
+                        holdParseNode.cloneResolvingUpdatedWorkVars(bindings));
 
                 dealloc(i, j);
             }
@@ -454,7 +521,7 @@ public class WorkVarManager {
 
         if (!allocated[i][j]) {
             allocated[i][j] = true;
-            declaredWorkVar[i][j].getActiveVarHyp().paSubst = null;
+            bindings.clear(declaredWorkVarHyp[i][j]);
         }
         prevAllocIndex[i] = j;
         return declaredWorkVar[i][j];
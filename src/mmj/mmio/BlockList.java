@@ -1,26 +1,72 @@
 package mmj.mmio;
 
+import java.nio.charset.StandardCharsets;
+
 import mmj.lang.LangConstants;
 import mmj.lang.LangException;
 
 public class BlockList {
     private final StringBuilder blocks = new StringBuilder();
+    /** The characters, if constructed from bytes and not appended to */
+    private byte[] bytes;
     public boolean marked = false;
     private int index = 0;
 
+    public BlockList() {}
+
+    /**
+     * Construct a BlockList from the compressed proof characters previously
+     * obtained with {@link #toBytes()}.
+     * <p>
+     * The array is read in place, not copied, so it must not be modified.
+     *
+     * @param bytes the compressed proof characters, one byte each.
+     */
+    public BlockList(final byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Returns the compressed proof characters, which are ASCII, one byte
+     * each.
+     *
+     * @return the characters of all blocks.
+     */
+    public byte[] toBytes() {
+        if (bytes != null)
+            return bytes.clone();
+        final byte[] out = new byte[blocks.length()];
+        for (int i = 0; i < out.length; i++)
+            out[i] = (byte)blocks.charAt(i);
+        return out;
+    }
+
     public int getIndex() {
         return index;
     }
 
     public void addBlock(final String block) {
+        if (bytes != null) {
+            for (final byte b : bytes)
+                blocks.append((char)(b & 0xff));
+            bytes = null;
+        }
         blocks.append(block);
     }
 
+    private int length() {
+        return bytes != null ? bytes.length : blocks.length();
+    }
+
+    private char charAt(final int i) {
+        return bytes != null ? (char)(bytes[i] & 0xff) : blocks.charAt(i);
+    }
+
     public int getNext(final String theoremLabel) throws LangException {
-        if (index == blocks.length())
-            return -1;
+        final int blockLen = length();
 
-        final int blockLen = blocks.length();
+        if (index == blockLen)
+            return -1;
 
         int decompressNbr = 0;
 
@@ -29,7 +75,7 @@ public class BlockList {
                 throw new LangException(
                     LangConstants.ERRMSG_COMPRESS_PREMATURE_END, theoremLabel);
 
-            final char nextChar = blocks.charAt(index++);
+            final char nextChar = charAt(index++);
             if (nextChar >= LangConstants.COMPRESS_VALID_CHARS.length)
                 throw new LangException(LangConstants.ERRMSG_COMPRESS_NOT_ASCII,
                     theoremLabel, index, nextChar);
@@ -64,18 +110,20 @@ public class BlockList {
             decompressNbr += nextCharCode + 1; // 'A' = 1 etc
 
             if (marked = index < blockLen
-                && blocks.charAt(index) == LangConstants.COMPRESS_REPEAT_CHAR)
+                && charAt(index) == LangConstants.COMPRESS_REPEAT_CHAR)
                 index++;
             return decompressNbr;
         }
     }
 
     public boolean isEmpty() {
-        return blocks.length() == 0;
+        return length() == 0;
     }
 
     @Override
     public String toString() {
+        if (bytes != null)
+            return new String(bytes, StandardCharsets.ISO_8859_1);
         return blocks.toString();
     }
 }
@@ -79,10 +79,7 @@ public class IncludeFile {
         i.fileObject = f;
         i.fileName = fileName;
         i.restartCharsToBypass = 0;
-        i.tokenizer = new Tokenizer(
-            new BufferedReader(new InputStreamReader(new FileInputStream(f)),
-                MMIOConstants.READER_BUFFER_SIZE),
-            fileName);
+        i.tokenizer = new Tokenizer(f, fileName);
         i.prevTokenizer = statementizer.setTokenizer(i.tokenizer);
         fileList.push(i);
 
@@ -132,12 +129,8 @@ public class IncludeFile {
              */
             currI = fileList.peek();
 
-            currI.tokenizer = new Tokenizer(
-                new BufferedReader(
-                    new InputStreamReader(
-                        new FileInputStream(currI.fileObject)),
-                    MMIOConstants.READER_BUFFER_SIZE),
-                currI.fileName, currI.restartCharsToBypass);
+            currI.tokenizer = new Tokenizer(currI.fileObject, currI.fileName,
+                currI.restartCharsToBypass);
 
             currI.restartCharsToBypass = 0;
             retTokenizer = currI.tokenizer;
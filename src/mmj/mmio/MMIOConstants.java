@@ -281,6 +281,25 @@ public class MMIOConstants {
      */
     public static final boolean LOAD_PROOFS_DEFAULT = true;
 
+    /**
+     * Default for Systemizer "load pipeline" mode: if true the input file is
+     * read and split into statements on a separate thread while the previous
+     * statements are being loaded into the SystemLoader.
+     */
+    public static final boolean LOAD_PIPELINE_DEFAULT = false;
+
+    /**
+     * Number of statements passed at a time from the reading thread to the
+     * loading thread of a pipelined load.
+     */
+    public static final int LOAD_PIPELINE_BATCH_SIZE = 256;
+
+    /**
+     * Maximum number of statement batches queued between the reading thread
+     * and the loading thread of a pipelined load.
+     */
+    public static final int LOAD_PIPELINE_QUEUE_SIZE = 16;
+
     public static class FileContext extends FormatContext {
         public final String sourceId;
 
@@ -50,6 +50,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 
 import mmj.pa.ErrorCode;
+import mmj.util.Metrics;
 
 /**
  * Load input MetaMath tokens for a single Metamath statement into a "work"
@@ -472,7 +473,10 @@ public class Statementizer implements Closeable {
 
     private int getNextToken() throws IOException {
         nextToken.setLength(0);
-        return tokenizer.getToken(nextToken, offset);
+        final int len = tokenizer.getToken(nextToken, offset);
+        if (len > 0)
+            Metrics.LOAD_TOKENS.inc();
+        return len;
     }
 
     private String validateNextTokenLabel() throws MMIOException, IOException {
@@ -48,16 +48,23 @@
  *     -> Modified loadComment() to grab $t comments for GMFF.
  *     -> Modified for mmj2 Paths Enhancement:
  *        -> add "path" argument to all load() methods.
+ *
+ * Version 0.09:
+ *     -> Added pipelined load (see setLoadPipeline()).
  */
 
 package mmj.mmio;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 import mmj.lang.*;
 import mmj.mmio.MMIOConstants.FileContext;
+import mmj.mmio.MMIOConstants.LineColumnContext;
 import mmj.pa.MMJException;
+import mmj.util.Metrics;
 
 /**
  * Feed {@code SystemLoader} interface with {@code SrcStmt} objects from
@@ -71,6 +78,9 @@ import mmj.pa.MMJException;
  * condition.
  * <li>Has no concept of comment statements that are embedded inside other
  * statements -- if comments are ever to be used, this needs a redesign!
+ * <li>Optionally runs the Statementizer on a separate thread (see
+ * {@code setLoadPipeline()}), so that reading and tokenizing the input overlaps
+ * with loading the statements into the {@code SystemLoader}.
  * </ul>
  *
  * @see <a href="../../MetamathERNotes.html"> Nomenclature and
@@ -100,6 +110,12 @@ public class Systemizer {
     private final List<String> defaultProofList = new ArrayList<>(
         Arrays.asList(MMIOConstants.MISSING_PROOF_STEP));
 
+    private boolean loadPipeline = MMIOConstants.LOAD_PIPELINE_DEFAULT;
+
+    // pipelined load: the statement being loaded, with its input position
+    private PipelineItem currPipelineItem = null;
+    private volatile boolean pipelineStopped;
+
     /**
      * Initialize (or re-initialize) a {@code Systemizer} from a
      * {@code Messages} object and a {@code SystemLoader} object.
@@ -130,6 +146,31 @@ public class Systemizer {
         this.loadProofs = loadProofs;
     }
 
+    /**
+     * Set "load pipeline" mode.
+     * <p>
+     * In this mode {@code load()} reads the input and splits it into
+     * statements (including the switching of include files and the load limit
+     * checks) on a separate thread, which passes the statements to the
+     * calling thread in batches through a bounded queue. The calling thread
+     * loads them into the {@code SystemLoader} and accumulates all messages,
+     * in input order, so the results are the same as for a normal load.
+     *
+     * @param loadPipeline true to use a separate reading thread.
+     */
+    public void setLoadPipeline(final boolean loadPipeline) {
+        this.loadPipeline = loadPipeline;
+    }
+
+    /**
+     * Get "load pipeline" mode.
+     *
+     * @return true if a separate reading thread is used.
+     */
+    public boolean getLoadPipeline() {
+        return loadPipeline;
+    }
+
     /**
      * Get SystemLoader, as-is.
      *
@@ -170,12 +211,47 @@ public class Systemizer {
         final String sourceId) throws IOException
     {
 
-        tokenizer = new Tokenizer(readerIn, sourceId);
+        return load(filePath, new Tokenizer(readerIn, sourceId));
+    }
+
+    /**
+     * Loads MetaMath source file from a Tokenizer.
+     *
+     * @param filePath -- File object holding directory path for the input.
+     *            Used to look up Metamath include files. May be null, or
+     *            absolute path, or relative.
+     * @param tokenizerIn -- Tokenizer for the input. Will be closed at EOF.
+     * @return {@code Messages} object, which can be tested to see if any error
+     *         messages were generated
+     * @throws IOException if I/O error
+     */
+    private Messages load(final File filePath, final Tokenizer tokenizerIn)
+        throws IOException
+    {
+        final long start = Metrics.LOAD_FILE.start();
+        try {
+            return loadTokens(filePath, tokenizerIn);
+        } finally {
+            Metrics.LOAD_FILE.stop(start);
+        }
+    }
+
+    private Messages loadTokens(final File filePath,
+        final Tokenizer tokenizerIn) throws IOException
+    {
+
+        tokenizer = tokenizerIn;
         statementizer = new Statementizer(tokenizer);
 
         // init stack of include files
         fileList = new ArrayDeque<>();
 
+        if (loadPipeline) {
+            loadPipelined(filePath);
+            tokenizer.close();
+            return messages;
+        }
+
         eofReached = false;
         getNextStmt();
         if (eofReached && messages.getErrorMessageCnt() == 0)
@@ -215,7 +291,7 @@ public class Systemizer {
     public Messages load(final File filePath, final String fileNameIn,
         final String sourceId) throws MMIOException
     {
-        Reader readerIn;
+        Tokenizer tokenizerIn;
         File f = new File(fileNameIn);
         try {
             f = isInFilesAlreadyLoaded(filesAlreadyLoaded, filePath,
@@ -224,16 +300,18 @@ public class Systemizer {
                 throw new MMIOException(MMIOConstants.ERRMSG_LOAD_REQ_FILE_DUP,
                     fileNameIn);
 
-            readerIn = new BufferedReader(
-                new InputStreamReader(new FileInputStream(f)),
-                MMIOConstants.READER_BUFFER_SIZE);
+            // memory-mapped, see Tokenizer
+            tokenizerIn = new Tokenizer(f, sourceId);
         } catch (final FileNotFoundException e) {
             throw new MMIOException(MMIOConstants.ERRMSG_LOAD_REQ_FILE_NOTFND,
                 f.getAbsolutePath());
+        } catch (final IOException e) {
+            throw new MMIOException(e, MMIOConstants.ERRMSG_LOAD_MISC_IO,
+                f.getAbsolutePath(), e.getMessage());
         }
 
         try {
-            return load(filePath, readerIn, sourceId);
+            return load(filePath, tokenizerIn);
         } catch (final IOException e) {
             throw new MMIOException(e, MMIOConstants.ERRMSG_LOAD_MISC_IO,
                 f.getAbsolutePath(), e.getMessage());
@@ -260,6 +338,241 @@ public class Systemizer {
 
     // =========================================================
 
+    /**
+     * A statement, or a parse error, passed from the reading thread to the
+     * loading thread of a pipelined load.
+     * <p>
+     * The input position at the end of the statement is saved for messages,
+     * since the reading thread's Tokenizer has moved on by the time the
+     * statement is loaded.
+     */
+    private static class PipelineItem {
+        SrcStmt srcStmt;
+        MMIOException parseException;
+        MMIOException includeException;
+        List<MMJException> endpointMessages;
+        boolean endpointReached;
+        boolean eof;
+        Throwable failure;
+
+        String sourceId;
+        long lineNbr;
+        long columnNbr;
+        long charNbr;
+
+        void savePosition(final Tokenizer t) {
+            sourceId = t.getSourceId();
+            lineNbr = t.getCurrentLineNbr();
+            columnNbr = t.getCurrentColumnNbr();
+            charNbr = t.getCurrentCharNbr();
+        }
+
+        /** Equivalent of Tokenizer.addContext() at the saved position. */
+        <T extends MMJException> T addContext(final T e) {
+            if (sourceId != null)
+                e.addContext(new FileContext(sourceId));
+            return MMJException.addContext(
+                new LineColumnContext(lineNbr, columnNbr, charNbr), e);
+        }
+    }
+
+    /**
+     * Pipelined version of the load loop in {@code load()}: a reader thread
+     * runs {@code readPipelined()} while this thread loads the statements.
+     * <p>
+     * The steps here are those of the sequential loop (and
+     * {@code getNextStmt()}) in the same order, so the messages and the end
+     * of load processing are unchanged.
+     *
+     * @param filePath the path to the .mm file
+     * @throws IOException if an error occurred
+     */
+    private void loadPipelined(final File filePath) throws IOException {
+
+        final BlockingQueue<List<PipelineItem>> queue = new ArrayBlockingQueue<>(
+            MMIOConstants.LOAD_PIPELINE_QUEUE_SIZE);
+        pipelineStopped = false;
+        final Thread reader = new Thread(() -> readPipelined(filePath, queue),
+            "Systemizer-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        eofReached = false;
+        boolean firstStmt = true;
+        try {
+            load: while (true) {
+                final List<PipelineItem> batch = takePipelined(queue);
+                for (final PipelineItem item : batch) {
+                    if (item.failure != null)
+                        rethrowPipelined(item.failure);
+                    if (item.parseException != null) {
+                        handleParseException(item.parseException);
+                        if (messages.maxErrorMessagesReached()) {
+                            eofReached = true;
+                            break load;
+                        }
+                        continue;
+                    }
+                    if (item.eof) {
+                        eofReached = true;
+                        break load;
+                    }
+                    if (item.endpointMessages != null)
+                        for (final MMJException e : item.endpointMessages)
+                            messages.accumException(e);
+                    if (messages.maxErrorMessagesReached()) {
+                        firstStmt = false;
+                        break load;
+                    }
+                    firstStmt = false;
+
+                    currSrcStmt = item.srcStmt;
+                    currPipelineItem = item;
+                    // the reader has already switched to an include file
+                    if (item.includeException != null)
+                        handleParseException(item.includeException);
+                    else if (!currSrcStmt.keyword
+                        .equals(MMIOConstants.MM_BEGIN_FILE_KEYWORD))
+                        loadStmt(filePath);
+                    currPipelineItem = null;
+
+                    if (item.endpointReached) {
+                        stopPipelined(reader);
+                        finalizePrematureEOF();
+                        return;
+                    }
+                }
+            }
+        } finally {
+            currPipelineItem = null;
+            stopPipelined(reader);
+        }
+
+        if (firstStmt && eofReached && messages.getErrorMessageCnt() == 0)
+            handleParseException(
+                new MMIOException(MMIOConstants.ERRMSG_INPUT_FILE_EMPTY));
+        else if (eofReached)
+            finalizeEOF();
+    }
+
+    /**
+     * The reader thread of a pipelined load: the equivalent of
+     * {@code getNextStmt()} plus the include file switching done by
+     * {@code loadStmt()}, with the results passed on in batches instead of
+     * being loaded.
+     *
+     * @param filePath the path to the .mm file
+     * @param queue the queue of statement batches.
+     */
+    private void readPipelined(final File filePath,
+        final BlockingQueue<List<PipelineItem>> queue)
+    {
+        List<PipelineItem> batch = new ArrayList<>(
+            MMIOConstants.LOAD_PIPELINE_BATCH_SIZE);
+        try {
+            while (!pipelineStopped) {
+                final PipelineItem item = new PipelineItem();
+                batch.add(item);
+                try {
+                    final SrcStmt srcStmt = statementizer.getStmt();
+                    if (srcStmt == null) {
+                        if (fileList.isEmpty()) {
+                            item.eof = true;
+                            break;
+                        }
+                        batch.remove(batch.size() - 1);
+                        termIncludeFile();
+                        continue;
+                    }
+                    item.srcStmt = srcStmt;
+                    item.savePosition(tokenizer);
+                    if (loadLimit.loadEndpointStmtNbr > 0
+                        || loadLimit.loadEndpointStmtLabel != null)
+                    {
+                        item.endpointMessages = new ArrayList<>(2);
+                        item.endpointReached = loadLimit.checkEndpointReached(
+                            srcStmt, item.endpointMessages::add);
+                    }
+                    if (srcStmt.keyword
+                        .equals(MMIOConstants.MM_BEGIN_FILE_KEYWORD))
+                        try {
+                            initIncludeFile(filePath, srcStmt);
+                        } catch (final MMIOException e) {
+                            item.includeException = e;
+                        }
+                    if (item.endpointReached)
+                        break;
+                } catch (final MMIOException e) {
+                    item.parseException = e;
+                    statementizer.bypassErrorStmt();
+                }
+                if (batch.size() >= MMIOConstants.LOAD_PIPELINE_BATCH_SIZE) {
+                    putPipelined(queue, batch);
+                    batch = new ArrayList<>(
+                        MMIOConstants.LOAD_PIPELINE_BATCH_SIZE);
+                }
+            }
+        } catch (final IOException | RuntimeException | Error e) {
+            final PipelineItem item = new PipelineItem();
+            item.failure = e;
+            batch.add(item);
+        }
+        putPipelined(queue, batch);
+    }
+
+    private void putPipelined(final BlockingQueue<List<PipelineItem>> queue,
+        final List<PipelineItem> batch)
+    {
+        try {
+            while (!pipelineStopped)
+                if (queue.offer(batch, 100, TimeUnit.MILLISECONDS))
+                    return;
+        } catch (final InterruptedException e) {
+            pipelineStopped = true;
+        }
+    }
+
+    private List<PipelineItem> takePipelined(
+        final BlockingQueue<List<PipelineItem>> queue)
+    {
+        try {
+            return queue.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stops the reader thread of a pipelined load and waits for it to finish,
+     * so that the Tokenizer and include file list can be used again by this
+     * thread.
+     *
+     * @param reader the reader thread.
+     */
+    private void stopPipelined(final Thread reader) {
+        pipelineStopped = true;
+        boolean interrupted = false;
+        while (reader.isAlive())
+            try {
+                reader.join();
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static void rethrowPipelined(final Throwable t)
+        throws IOException
+    {
+        if (t instanceof IOException)
+            throw (IOException)t;
+        if (t instanceof RuntimeException)
+            throw (RuntimeException)t;
+        throw (Error)t;
+    }
+
     /**
      * Get next SrcStmt from Statementizer. This is a weird little routine
      * because it must check to see if end of file (eof -- indicated by a null
@@ -309,6 +622,7 @@ public class Systemizer {
      * @throws IOException if an error occurred
      */
     private void loadStmt(final File filePath) throws IOException {
+        Metrics.LOAD_STATEMENTS.inc();
         try {
             switch (currSrcStmt.keyword) {
 
@@ -356,7 +670,7 @@ public class Systemizer {
                     break;
 
                 case MMIOConstants.MM_BEGIN_FILE_KEYWORD:
-                    initIncludeFile(filePath);
+                    initIncludeFile(filePath, currSrcStmt);
                     break;
 
                 default:
@@ -550,23 +864,24 @@ public class Systemizer {
      * tokenizer reference for use in error reporting.
      *
      * @param filePath the path to this .mm file (not the include)
+     * @param srcStmt the include statement
      * @throws MMIOException if an error occurred
      * @throws IOException if an error occurred
      */
-    private void initIncludeFile(final File filePath)
+    private void initIncludeFile(final File filePath, final SrcStmt srcStmt)
         throws MMIOException, IOException
     {
 
-        File f = new File(currSrcStmt.includeFileName);
+        File f = new File(srcStmt.includeFileName);
         try {
             f = isInFilesAlreadyLoaded(filesAlreadyLoaded, filePath,
-                currSrcStmt.includeFileName);
+                srcStmt.includeFileName);
             if (f == null)
                 raiseParseException(
                     new MMIOException(MMIOConstants.ERRMSG_INCL_FILE_DUP,
-                        currSrcStmt.includeFileName));
+                        srcStmt.includeFileName));
             tokenizer = IncludeFile.initIncludeFile(fileList, f,
-                currSrcStmt.includeFileName, statementizer);
+                srcStmt.includeFileName, statementizer);
         } catch (final FileNotFoundException e) {
             raiseParseException(new MMIOException(
                 MMIOConstants.ERRMSG_INCL_FILE_NOTFND, f.getAbsolutePath()));
@@ -634,7 +949,8 @@ public class Systemizer {
     }
 
     private void handleLangException(final MMJException e) {
-        messages.accumException(tokenizer.addContext(e));
+        messages.accumException(currPipelineItem != null
+            ? currPipelineItem.addContext(e) : tokenizer.addContext(e));
     }
 
     private void handleLangEOFException(final MMJException e) {
@@ -658,9 +974,15 @@ public class Systemizer {
         public boolean endpointReached = false;
 
         public boolean checkEndpointReached(final SrcStmt srcStmt) {
+            return checkEndpointReached(srcStmt, messages::accumException);
+        }
+
+        public boolean checkEndpointReached(final SrcStmt srcStmt,
+            final Consumer<MMJException> msgOut)
+        {
             if (loadEndpointStmtNbr > 0 && srcStmt.seq >= loadEndpointStmtNbr) {
                 endpointReached = true;
-                messages.accumException(new MMJException(
+                msgOut.accept(new MMJException(
                     MMIOConstants.ERRMSG_LOAD_LIMIT_STMT_NBR_REACHED,
                     loadEndpointStmtNbr));
             }
@@ -668,7 +990,7 @@ public class Systemizer {
                 && srcStmt.label.equals(loadEndpointStmtLabel))
             {
                 endpointReached = true;
-                messages.accumException(new MMJException(
+                msgOut.accept(new MMJException(
                     MMIOConstants.ERRMSG_LOAD_LIMIT_STMT_LABEL_REACHED,
                     loadEndpointStmtLabel));
             }
@@ -14,6 +14,10 @@
  *
  * Version 0.03 -- 08/01/2008
  * --> Modified close() to mask IOException for ease of use.
+ *
+ * Version 0.04
+ * --> Added memory-mapped file input, scanned directly from
+ *     the buffer.
  */
 
 package mmj.mmio;
@@ -21,6 +25,9 @@ package mmj.mmio;
 import static mmj.mmio.MMIOConstants.*;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 
 import mmj.mmio.MMIOConstants.FileContext;
 import mmj.mmio.MMIOConstants.LineColumnContext;
@@ -64,6 +71,14 @@ import mmj.pa.MMJException;
  * different file name:
  * <p>
  * {@code metamath.exe "r myset.mm" "v proof *" "sa p *" "w s expmyset.mm" "exit" >> expmyset.txt}
+ * <p>
+ * A Tokenizer constructed from a File (or a ByteBuffer) reads the file as
+ * bytes through a memory-mapped buffer instead of a Reader. Whitespace and
+ * tokens are then found by scanning the buffer directly and each token is
+ * copied into the caller's {@code StringBuilder} in one piece, which makes
+ * loading a large .mm file I/O-bound instead of being dominated by per
+ * character Reader calls. Since .mm files are 7-bit ASCII the results are the
+ * same as for a Reader.
  *
  * @see <a href="../../MetamathERNotes.html"> Nomenclature and
  *      Entity-Relationship Notes</a>
@@ -81,6 +96,13 @@ public class Tokenizer implements Closeable {
     private int currChar = -1;
     private int nextChar = -1;
 
+    // buffer input: buf is null when reading from reader, otherwise
+    // the next character is at bufPos (and nextChar is not used.)
+    private ByteBuffer buf = null;
+    private int bufPos;
+    private int bufLimit;
+    private char[] tokenChars;
+
     /**
      * Constructs Tokenizer from a Reader.
      *
@@ -132,6 +154,81 @@ public class Tokenizer implements Closeable {
         return;
     }
 
+    /**
+     * Constructs Tokenizer from a ByteBuffer holding the contents of a
+     * Metamath file, one byte per character.
+     *
+     * @param b ByteBuffer; the characters between its current position and
+     *            limit are tokenized.
+     * @param s Source Id Text, such as filename or test ID. May be empty string
+     *            if N/A. Used solely for diagnostic messages.
+     */
+    public Tokenizer(final ByteBuffer b, final String s) {
+
+        buf = b;
+        sourceId = s;
+
+        bufPos = b.position();
+        bufLimit = b.limit();
+        tokenChars = new char[64];
+        if (bufPos == bufLimit)
+            lineNbr = 0;
+    }
+
+    /**
+     * Constructs Tokenizer from a File, which is memory-mapped.
+     *
+     * @param f the Metamath file.
+     * @param s Source Id Text, such as filename or test ID. May be empty string
+     *            if N/A. Used solely for diagnostic messages.
+     * @throws FileNotFoundException if the file does not exist.
+     * @throws IOException if I/O error
+     */
+    public Tokenizer(final File f, final String s) throws IOException {
+        this(mapFile(f), s);
+    }
+
+    /**
+     * Constructs Tokenizer from a File, which is memory-mapped, with
+     * "skipahead n", where n = nbrCharsToBypass.
+     *
+     * @param f the Metamath file.
+     * @param s Source Id Text, such as filename or test ID. May be empty string
+     *            if N/A. Used solely for diagnostic messages.
+     * @param nbrCharsToBypass Used to reposition reader with previously
+     *            returned charNbr from {@code getCurrentCharNbr} method.
+     * @throws IOException if I/O error
+     * @throws MMIOException if I/O error
+     * @throws IllegalArgumentException if {@code nbrCharsToBypass} is less than
+     *             zero.
+     */
+    public Tokenizer(final File f, final String s, final long nbrCharsToBypass)
+        throws IOException, MMIOException
+    {
+        this(f, s);
+        if (nbrCharsToBypass < 0)
+            throw new IllegalArgumentException();
+
+        advance((int)Math.min(bufLimit, bufPos + nbrCharsToBypass));
+
+        if (nbrCharsToBypass != charNbr)
+            throw addContext(
+                new MMIOException(ERRMSG_SKIP_AHEAD_FAILED, charNbr));
+    }
+
+    private static ByteBuffer mapFile(final File f) throws IOException {
+        try (FileInputStream in = new FileInputStream(f);
+            FileChannel channel = in.getChannel())
+        {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(
+                    "File too large to map: " + f.getAbsolutePath());
+            // the mapping stays valid after the channel is closed
+            return channel.map(MapMode.READ_ONLY, 0, size);
+        }
+    }
+
     /**
      * <p>
      * Gets next MetaMath token from the input file and stores it in
@@ -148,6 +245,8 @@ public class Tokenizer implements Closeable {
     public int getToken(final StringBuilder strBuf, int offset)
         throws IOException
     {
+        if (buf != null)
+            return getBufferToken(strBuf, offset);
 
         int x;
         int len = 0;
@@ -192,6 +291,8 @@ public class Tokenizer implements Closeable {
     public int getWhiteSpace(final StringBuilder strBuf, int offset)
         throws IOException
     {
+        if (buf != null)
+            return getBufferWhiteSpace(strBuf, offset);
 
         int x;
         int len = 0;
@@ -207,6 +308,92 @@ public class Tokenizer implements Closeable {
             return len;
     }
 
+    /**
+     * getToken for buffer input: the whitespace and the token are found with
+     * a scan of the buffer and the token is inserted into strBuf in one
+     * piece.
+     */
+    private int getBufferToken(final StringBuilder strBuf, final int offset) {
+
+        int end = bufPos;
+        while (end < bufLimit
+            && (VALID_CHAR_ARRAY[buf.get(end) & 0x00ff] & WHITE_SPACE) != 0)
+            end++;
+        advance(end);
+
+        if (bufPos == bufLimit)
+            return -1;
+
+        // the first character is taken even if invalid, like getToken().
+        end = bufPos + 1;
+        while (end < bufLimit
+            && (VALID_CHAR_ARRAY[buf.get(end) & 0x00ff] & PRINTABLE) != 0)
+            end++;
+
+        final int len = end - bufPos;
+        if (len > tokenChars.length)
+            tokenChars = new char[Math.max(len, 2 * tokenChars.length)];
+        for (int i = 0; i < len; i++)
+            tokenChars[i] = (char)(buf.get(bufPos + i) & 0x00ff);
+        strBuf.insert(offset, tokenChars, 0, len);
+
+        // a token contains no line terminators, so after the first
+        // character only the column and character numbers change.
+        advance(bufPos + 1);
+        if (len > 1) {
+            columnNbr += len - 1;
+            charNbr += len - 1;
+            prevChar = tokenChars[len - 2];
+            currChar = tokenChars[len - 1];
+            bufPos = end;
+        }
+        return len;
+    }
+
+    /**
+     * getWhiteSpace for buffer input.
+     */
+    private int getBufferWhiteSpace(final StringBuilder strBuf, int offset) {
+
+        final int start = bufPos;
+        int end = start;
+        while (end < bufLimit
+            && (VALID_CHAR_ARRAY[buf.get(end) & 0x00ff] & WHITE_SPACE) != 0)
+            end++;
+        if (end == start)
+            return end == bufLimit ? -1 : 0;
+
+        for (int i = start; i < end; i++)
+            strBuf.insert(offset++, (char)(buf.get(i) & 0x00ff));
+        advance(end);
+        return end - start;
+    }
+
+    /**
+     * Consumes the buffer characters up to (not including) end, keeping track
+     * of the line and column number exactly as getChar() does.
+     *
+     * @param end buffer index of the next character after the advance.
+     */
+    private void advance(final int end) {
+        for (; bufPos < end; bufPos++) {
+            prevChar = currChar;
+            currChar = buf.get(bufPos) & 0x00ff;
+
+            columnNbr++;
+            charNbr++;
+
+            if (prevChar == '\n') {
+                lineNbr++;
+                columnNbr = 1;
+            }
+            else if (prevChar == '\r' && currChar != '\n') {
+                lineNbr++;
+                columnNbr = 1;
+            }
+        }
+    }
+
     /**
      * Return current line number in the file.
      * <p>
@@ -268,6 +455,8 @@ public class Tokenizer implements Closeable {
     public void close() throws IOException {
         if (reader != null)
             reader.close();
+        buf = null;
+        bufPos = bufLimit = 0;
     }
 
     /**
@@ -307,6 +496,14 @@ public class Tokenizer implements Closeable {
      * @throws IOException if I/O error
      */
     private int getChar() throws IOException {
+        if (buf != null) {
+            if (bufPos == bufLimit) {
+                prevChar = currChar;
+                return -1;
+            }
+            advance(bufPos + 1);
+            return currChar;
+        }
         prevChar = currChar;
         if (nextChar == -1)
             return -1;
@@ -336,6 +533,8 @@ public class Tokenizer implements Closeable {
      * @return next character, valid or not.
      */
     private int peekNextChar() {
+        if (buf != null)
+            return bufPos < bufLimit ? buf.get(bufPos) & 0x00ff : -1;
         return nextChar;
     }
 
@@ -0,0 +1,217 @@
+//********************************************************************/
+//* Copyright (C) 2008                                               */
+//* MEL O'CAT  mmj2 (via) planetmath (dot) org                       */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * DiscriminationTree.java  0.01
+ *
+ * Version 0.01:
+ * ==> New.
+ */
+
+package mmj.pa;
+
+import java.util.*;
+
+import mmj.lang.*;
+
+/**
+ * DiscriminationTree is an index of assertions keyed on the ParseNode structure
+ * of their conclusions.
+ * <p>
+ * Each assertion's conclusion parse tree is flattened in prefix order into a
+ * path of keys: a syntax axiom node contributes the syntax axiom itself and a
+ * variable hypothesis node contributes a "wildcard" key, its Type Code. The
+ * paths are stored in a trie so that common prefixes are shared.
+ * <p>
+ * Given the parse tree of a derivation step, {@code retrieve()} returns the
+ * assertions whose conclusions could possibly unify with it, either by the
+ * one-way matching used by ProofUnifier's {@code unifyStepWithoutWorkVars()}
+ * or by StepUnifier, where Work Variables in the step also match any subtree
+ * of the same type. The answer is a superset of the unifying assertions:
+ * repeated variables and Work Variable "occurs in" conditions are left to the
+ * unifiers. Assertions without a parse tree are always returned.
+ * <p>
+ * The tree is built by ProofUnifier from the unifySearchList and updated
+ * incrementally as TheoremLoader adds theorems (see
+ * {@code ProofUnifier.mergeListOfAssrtAddsSortedBySeq()}).
+ */
+public class DiscriminationTree {
+
+    /**
+     * A trie node. The edge leading to a node is either a syntax axiom (with
+     * {@code arity} child subtrees following it in the path) or a wildcard
+     * Type Code (arity 0).
+     */
+    private static class Node {
+        final Cnst typ;
+        final int arity;
+        Map<Object, Node> next;
+        List<Assrt> assrtList;
+
+        Node(final Cnst typ, final int arity) {
+            this.typ = typ;
+            this.arity = arity;
+        }
+
+        Node getOrAddNext(final Object key, final Cnst typ, final int arity) {
+            if (next == null)
+                next = new HashMap<>(4);
+            Node n = next.get(key);
+            if (n == null) {
+                n = new Node(typ, arity);
+                next.put(key, n);
+            }
+            return n;
+        }
+    }
+
+    private final Node root = new Node(null, 1);
+
+    private final List<Assrt> unindexedList = new ArrayList<>();
+
+    private int size;
+
+    /**
+     * Construct DiscriminationTree from a list of assertions.
+     *
+     * @param assrtList the assertions to index.
+     */
+    public DiscriminationTree(final Collection<? extends Assrt> assrtList) {
+        addAll(assrtList);
+    }
+
+    /**
+     * Add assertions to the index.
+     *
+     * @param assrtList the assertions to index.
+     */
+    public void addAll(final Collection<? extends Assrt> assrtList) {
+        for (final Assrt assrt : assrtList)
+            add(assrt);
+    }
+
+    /**
+     * Add an assertion to the index.
+     *
+     * @param assrt the assertion to index.
+     */
+    public void add(final Assrt assrt) {
+        size++;
+        final ParseTree tree = assrt.getExprParseTree();
+        if (tree == null || tree.getRoot() == null) {
+            unindexedList.add(assrt);
+            return;
+        }
+        final Deque<ParseNode> stack = new ArrayDeque<>();
+        stack.push(tree.getRoot());
+        Node n = root;
+        while (!stack.isEmpty()) {
+            final ParseNode p = stack.pop();
+            final Cnst typ = p.stmt.getTyp();
+            if (p.stmt instanceof VarHyp)
+                n = n.getOrAddNext(typ, typ, 0);
+            else {
+                n = n.getOrAddNext(p.stmt, typ, p.child.length);
+                for (int i = p.child.length - 1; i >= 0; i--)
+                    stack.push(p.child[i]);
+            }
+        }
+        if (n.assrtList == null)
+            n.assrtList = new ArrayList<>(1);
+        n.assrtList.add(assrt);
+    }
+
+    /** @return number of assertions in the index. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the assertions whose conclusions may unify with a step's formula.
+     *
+     * @param stepRoot root of the derivation step's formula parse tree, or
+     *            null.
+     * @return Set of candidate assertions, or null if stepRoot is null (no
+     *         filtering possible).
+     */
+    public Set<Assrt> retrieve(final ParseNode stepRoot) {
+        if (stepRoot == null)
+            return null;
+
+        final List<ParseNode> nodeList = new ArrayList<>();
+        final List<Integer> endList = new ArrayList<>();
+        flatten(stepRoot, nodeList, endList);
+
+        final ParseNode[] query = nodeList.toArray(
+            new ParseNode[nodeList.size()]);
+        final int[] end = new int[query.length];
+        for (int i = 0; i < end.length; i++)
+            end[i] = endList.get(i);
+
+        final Set<Assrt> out = new HashSet<>(unindexedList);
+        retrieve(root, query, end, 0, out);
+        return out;
+    }
+
+    private static void flatten(final ParseNode p,
+        final List<ParseNode> nodeList, final List<Integer> endList)
+    {
+        final int i = nodeList.size();
+        nodeList.add(p);
+        endList.add(null);
+        if (!(p.stmt instanceof VarHyp))
+            for (final ParseNode c : p.child)
+                flatten(c, nodeList, endList);
+        endList.set(i, nodeList.size());
+    }
+
+    private static void retrieve(final Node n, final ParseNode[] query,
+        final int[] end, final int pos, final Set<Assrt> out)
+    {
+        if (pos == query.length) {
+            if (n.assrtList != null)
+                out.addAll(n.assrtList);
+            return;
+        }
+        if (n.next == null)
+            return;
+
+        final Stmt stmt = query[pos].stmt;
+        final Cnst typ = stmt.getTyp();
+
+        if (stmt instanceof WorkVarHyp) {
+            // a Work Variable matches any assertion subtree of its type
+            for (final Node c : n.next.values())
+                if (c.typ == typ)
+                    skip(c, c.arity, query, end, pos + 1, out);
+            return;
+        }
+
+        Node c;
+        if (!(stmt instanceof VarHyp)
+            && (c = n.next.get(stmt)) != null)
+            retrieve(c, query, end, pos + 1, out);
+
+        // an assertion variable matches the entire step subtree
+        if ((c = n.next.get(typ)) != null)
+            retrieve(c, query, end, end[pos], out);
+    }
+
+    private static void skip(final Node n, final int remaining,
+        final ParseNode[] query, final int[] end, final int pos,
+        final Set<Assrt> out)
+    {
+        if (remaining == 0) {
+            retrieve(n, query, end, pos, out);
+            return;
+        }
+        if (n.next != null)
+            for (final Node c : n.next.values())
+                skip(c, remaining - 1 + c.arity, query, end, pos, out);
+    }
+}
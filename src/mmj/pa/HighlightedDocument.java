@@ -10,7 +10,7 @@ import javax.swing.text.*;
 
 public class HighlightedDocument extends DefaultStyledDocument {
     private DocumentReader reader;
-    private final ColorThread colorer;
+    private final SyntaxColorer colorer;
     private final WorksheetTokenizer tokenizer;
     private boolean programmatic;
     private boolean changed;
@@ -22,7 +22,7 @@ public class HighlightedDocument extends DefaultStyledDocument {
     {
         programmatic = changed = false;
         if (prefs.highlightingEnabled.get()) {
-            colorer = new ColorThread(this, prefs);
+            colorer = new SyntaxColorer(this, prefs);
             reader = new DocumentReader();
             tokenizer = new WorksheetTokenizer(proofAsst, reader);
         }
@@ -60,7 +60,8 @@ public class HighlightedDocument extends DefaultStyledDocument {
      * Color or recolor the entire document
      */
     public void colorAll() {
-        color(0, getLength());
+        if (colorer != null)
+            colorer.colorAll();
     }
 
     /**
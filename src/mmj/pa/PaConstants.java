@@ -253,6 +253,22 @@ public class PaConstants {
      * ProofAsstBatchTest testing.
      */
     public static final int PA_TESTMSG_THEOREM_TIME_TOP_NUMBER = 10;
+
+    /**
+     * Default value for ProofAsstBatchTestThreads RunParm.
+     * <p>
+     * One thread means the original, sequential batch test.
+     * <p>
+     * BATCH_TEST_THREADS_DEFAULT = 1
+     */
+    public static final int BATCH_TEST_THREADS_DEFAULT = 1;
+
+    /**
+     * Maximum value for ProofAsstBatchTestThreads RunParm.
+     * <p>
+     * BATCH_TEST_THREADS_MAXIMUM = 256
+     */
+    public static final int BATCH_TEST_THREADS_MAXIMUM = 256;
     // ----------------------------------------------------------
     // Constants for ProofAsstCursor.java
     // ----------------------------------------------------------
@@ -534,6 +550,22 @@ public class PaConstants {
      */
     public static final String PROOF_ASST_STYLE_DEFAULT = "default";
 
+    /**
+     * HIGHLIGHT_COALESCE_DELAY = 40
+     * <p>
+     * Milliseconds without edits after which the syntax highlighter recolors
+     * the damaged part of the worksheet.
+     */
+    public static final int HIGHLIGHT_COALESCE_DELAY = 40;
+
+    /**
+     * HIGHLIGHT_TOKENS_PER_SLICE = 2000
+     * <p>
+     * Maximum number of tokens the syntax highlighter colors before yielding
+     * the Event Dispatch Thread.
+     */
+    public static final int HIGHLIGHT_TOKENS_PER_SLICE = 2000;
+
     /**
      * Sets default syntax highlighting styles.
      *
@@ -757,6 +789,46 @@ public class PaConstants {
      */
     public static final int STEP_SELECTOR_MAX_RESULTS_MAXIMUM = 9999;
 
+    /**
+     * Default value for StepSelectorThreads RunParm.
+     * <p>
+     * One thread means the original, sequential search.
+     * <p>
+     * STEP_SELECTOR_THREADS_DEFAULT = 1
+     */
+    public static final int STEP_SELECTOR_THREADS_DEFAULT = 1;
+
+    /**
+     * Maximum value for StepSelectorThreads RunParm.
+     * <p>
+     * STEP_SELECTOR_THREADS_MAXIMUM = 256
+     */
+    public static final int STEP_SELECTOR_THREADS_MAXIMUM = 256;
+
+    /**
+     * Number of candidate assertions searched per task by the parallel
+     * StepSelectorSearch.
+     * <p>
+     * STEP_SELECTOR_SEARCH_CHUNK_SIZE = 64
+     */
+    public static final int STEP_SELECTOR_SEARCH_CHUNK_SIZE = 64;
+
+    /**
+     * Default value for SearchThreads RunParm.
+     * <p>
+     * One thread means the original, sequential search.
+     * <p>
+     * SEARCH_THREADS_DEFAULT = 1
+     */
+    public static final int SEARCH_THREADS_DEFAULT = 1;
+
+    /**
+     * Maximum value for SearchThreads RunParm.
+     * <p>
+     * SEARCH_THREADS_MAXIMUM = 256
+     */
+    public static final int SEARCH_THREADS_MAXIMUM = 256;
+
     /**
      * Default value for StepSelectorShowSubstitutions RunParm.
      * <p>
@@ -2073,14 +2145,7 @@ public class PaConstants {
     // ----------------------------------------------------------
 
     /**
-     * Applied array init size.
-     * <p>
-     * Used for backout of unification updates.
-     */
-    public static final int STEP_UNIFIER_APPLIED_ARRAY_LEN_INIT = 1000;
-
-    /**
-     * Applied array max size.
+     * Maximum number of unification updates on the UnifyBindings trail.
      * <p>
      * Used for backout of unification updates.
      */
@@ -2994,7 +3059,7 @@ public class PaConstants {
             + " operation. Specific error message follows: %s");
 
     // ----------------------------------------------------------
-    // Messages from ColorThread.java
+    // Messages from SyntaxColorer.java
     // ----------------------------------------------------------
 
     public static final ErrorCode ERRMSG_TOKENIZER_FAIL = of("E-PA-1101",
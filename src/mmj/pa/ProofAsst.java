@@ -77,6 +77,8 @@ import static mmj.pa.ProofWorksheet.addLabelContext;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import mmj.gmff.GMFFException;
 import mmj.lang.*;
@@ -89,6 +91,7 @@ import mmj.pa.StepRequest.StepRequestType;
 import mmj.tl.*;
 import mmj.transforms.TransformationManager;
 import mmj.util.OutputBoss;
+import mmj.util.ParallelIndexWork;
 import mmj.util.StopWatch;
 import mmj.verify.*;
 import mmj.verify.GrammarConstants.LabelContext;
@@ -118,6 +121,11 @@ public class ProofAsst implements TheoremLoaderCommitListener {
     private final TheoremLoader theoremLoader;
     public final MacroManager macroManager;
 
+    // guards the LogicalSystem and lookup tables shared by every session:
+    // unifications read them, Theorem Loader updates write them.
+    // See newSession()
+    private final ReadWriteLock sharedStateLock;
+
     // -----------------------------------------------------------------
     // -------------------------LOCAL CLASSES---------------------------
     // -----------------------------------------------------------------
@@ -150,6 +158,19 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         public int nbrTestProvedDifferently = 0;
     }
 
+    /**
+     * The outcome of one theorem of a parallel batch test, with the messages
+     * its session produced, to be output later in theorem order.
+     */
+    private static class BatchTestResult {
+        public TheoremTestResult testResult;
+        public String updatedProofText;
+        public String[] errorMessages;
+        public String[] infoMessages;
+        public String[] retestErrorMessages;
+        public String[] retestInfoMessages;
+    }
+
     // -----------------------------------------------------------------
     // ----------------------------METHODS------------------------------
     // -----------------------------------------------------------------
@@ -183,6 +204,80 @@ public class ProofAsst implements TheoremLoaderCommitListener {
 
         initializedOK = false;
 
+        sharedStateLock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Session constructor, see newSession().
+     *
+     * @param shared the ProofAsst whose LogicalSystem and lookup tables are
+     *            shared
+     * @param messages the session's Messages object
+     * @throws VerifyException if the session's Work Variables cannot be
+     *             declared.
+     */
+    private ProofAsst(final ProofAsst shared, final Messages messages)
+        throws VerifyException
+    {
+        logicalSystem = shared.logicalSystem;
+        grammar = shared.grammar;
+        theoremLoader = shared.theoremLoader;
+        macroManager = shared.macroManager;
+        sharedStateLock = shared.sharedStateLock;
+
+        final WorkVarManager workVarManager = new WorkVarManager(
+            shared.proofAsstPreferences.getWorkVarManager());
+        workVarManager.declareWorkVars(grammar, logicalSystem);
+        proofAsstPreferences = shared.proofAsstPreferences
+            .newSessionPreferences(workVarManager, grammar.newWorkerParser());
+
+        verifyProofs = new VerifyProofs();
+
+        proofUnifier = new ProofUnifier(this, shared.proofUnifier);
+
+        this.messages = messages;
+
+        // the session searches with its own StepUnifier and VerifyProofs
+        proofAsstPreferences.getSearchMgr().initOtherEnvAreas(this,
+            logicalSystem, grammar, verifyProofs, messages);
+
+        initializedOK = shared.initializedOK;
+    }
+
+    /**
+     * Creates a Proof Assistant session over this ProofAsst's LogicalSystem
+     * and Grammar.
+     * <p>
+     * A session has its own ProofUnifier, StepUnifier, WorkVarManager,
+     * VerifyProofs, formula parser, SearchMgr and Messages, so several
+     * worksheets can be unified (or step-searched) through separate sessions
+     * without their work areas, work variables or messages being mixed up.
+     * The LogicalSystem, the Grammar, the unification lookup tables, the
+     * SearchIndex and the preference Settings are shared with this ProofAsst,
+     * not copied, so a session costs little memory.
+     * <p>
+     * Sessions run unify() and tmffReformat() concurrently. Theorem Loader
+     * updates made through any session wait for the unifications in progress
+     * and are then seen by all sessions, because the lookup tables are shared.
+     * (If the Grammar's parser cannot be run on several threads, worksheet
+     * formulas are parsed by it one at a time.) A session is meant to be used
+     * by one thread at a time.
+     * <p>
+     * This ProofAsst must be initialized (see initializeLookupTables()) before
+     * sessions are created.
+     *
+     * @param messages the Messages object for the session.
+     * @return new ProofAsst session.
+     * @throws VerifyException if the session's Work Variables cannot be
+     *             declared.
+     */
+    public ProofAsst newSession(final Messages messages)
+        throws VerifyException
+    {
+        if (!getInitializedOK())
+            throw new IllegalStateException(new ProofAsstException(
+                PaConstants.ERRMSG_UNIFY_TABLES_NOT_INIT));
+        return new ProofAsst(this, messages);
     }
 
     /**
@@ -281,8 +376,16 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         if (listOfAssrtAddsSortedBySeq.isEmpty())
             return;
 
-        proofUnifier
-            .mergeListOfAssrtAddsSortedBySeq(listOfAssrtAddsSortedBySeq);
+        sharedStateLock.writeLock().lock();
+        try {
+            proofUnifier
+                .mergeListOfAssrtAddsSortedBySeq(listOfAssrtAddsSortedBySeq);
+
+            proofAsstPreferences.getSearchMgr().addToSearchIndex(
+                listOfAssrtAddsSortedBySeq);
+        } finally {
+            sharedStateLock.writeLock().unlock();
+        }
     }
 
     /**
@@ -307,10 +410,13 @@ public class ProofAsst implements TheoremLoaderCommitListener {
      * @return Messages object.
      */
     public Messages loadTheoremsFromMMTFolder() {
+        sharedStateLock.writeLock().lock();
         try {
             theoremLoader.loadTheoremsFromMMTFolder(logicalSystem, messages);
         } catch (final TheoremLoaderException e) {
             messages.accumException(e);
+        } finally {
+            sharedStateLock.writeLock().unlock();
         }
         return messages;
     }
@@ -626,6 +732,42 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         final StepRequest stepRequest, final TLRequest tlRequest,
         final int inputCursorPos, final boolean printOkMessages)
     {
+        final ProofWorksheet proofWorksheet;
+        sharedStateLock.readLock().lock();
+        try {
+            proofWorksheet = unifyProofText(renumReq, noConvertWV, proofText,
+                preprocessRequest, stepRequest, inputCursorPos,
+                printOkMessages);
+        } finally {
+            sharedStateLock.readLock().unlock();
+        }
+
+        if (tlRequest != null && proofWorksheet.getGeneratedProofStmt() != null)
+        {
+            sharedStateLock.writeLock().lock();
+            try {
+                tlRequest.doIt(theoremLoader, proofWorksheet, logicalSystem,
+                    messages, this);
+            } catch (final TheoremLoaderException e) {
+                messages.accumErrorMessage(e.getMessage());
+            } finally {
+                sharedStateLock.writeLock().unlock();
+            }
+        }
+
+        proofWorksheet.outputCursorInstrumentationIfEnabled();
+
+        proofWorksheet.runCallback(CallbackType.AFTER_UNIFY);
+
+        return proofWorksheet;
+    }
+
+    private ProofWorksheet unifyProofText(final boolean renumReq,
+        final boolean noConvertWV, final String proofText,
+        final PreprocessRequest preprocessRequest,
+        final StepRequest stepRequest, final int inputCursorPos,
+        final boolean printOkMessages)
+    {
 
         String proofTextEdited;
         if (preprocessRequest == null)
@@ -638,11 +780,12 @@ public class ProofAsst implements TheoremLoaderCommitListener {
                 return updateWorksheetWithException(null, null);
             }
 
-        if (macroManager != null) {
-            macroManager.set("proofText", proofTextEdited);
-            macroManager.runCallback(CallbackType.PREPROCESS);
-            proofTextEdited = (String)macroManager.get("proofText");
-        }
+        if (macroManager != null)
+            synchronized (macroManager) { // sessions share the macro engine
+                macroManager.set("proofText", proofTextEdited);
+                macroManager.runCallback(CallbackType.PREPROCESS);
+                proofTextEdited = (String)macroManager.get("proofText");
+            }
 
         final boolean[] errorFound = new boolean[1];
         final ProofWorksheet proofWorksheet = getParsedProofWorksheet(
@@ -660,20 +803,7 @@ public class ProofAsst implements TheoremLoaderCommitListener {
             unifyProofWorksheet(proofWorksheet, noConvertWV, printOkMessages);
         }
 
-        if (tlRequest != null && proofWorksheet.getGeneratedProofStmt() != null)
-            try {
-                tlRequest.doIt(theoremLoader, proofWorksheet, logicalSystem,
-                    messages, this);
-            } catch (final TheoremLoaderException e) {
-                messages.accumErrorMessage(e.getMessage());
-            }
-
-        proofWorksheet.outputCursorInstrumentationIfEnabled();
-
-        proofWorksheet.runCallback(CallbackType.AFTER_UNIFY);
-
         return proofWorksheet;
-
     }
 
     /**
@@ -698,12 +828,18 @@ public class ProofAsst implements TheoremLoaderCommitListener {
 
         final boolean[] errorFound = new boolean[1];
 
-        final ProofWorksheet proofWorksheet = getParsedProofWorksheet(proofText,
-            errorFound, inputCursorPos, null);
+        final ProofWorksheet proofWorksheet;
+        sharedStateLock.readLock().lock();
+        try {
+            proofWorksheet = getParsedProofWorksheet(proofText, errorFound,
+                inputCursorPos, null);
 
-        if (errorFound[0] == false) {
-            proofWorksheet.setProofCursor(proofWorksheet.proofInputCursor);
-            proofWorksheet.tmffReformat(inputCursorStep);
+            if (errorFound[0] == false) {
+                proofWorksheet.setProofCursor(proofWorksheet.proofInputCursor);
+                proofWorksheet.tmffReformat(inputCursorStep);
+            }
+        } finally {
+            sharedStateLock.readLock().unlock();
         }
 
         proofWorksheet.outputCursorInstrumentationIfEnabled();
@@ -823,6 +959,13 @@ public class ProofAsst implements TheoremLoaderCommitListener {
     public void importFromMemoryAndUnifyManyTheorems(final int selectorCount,
         final OutputBoss outputBoss, final boolean asciiRetest)
     {
+        final int nbrThreads = proofAsstPreferences.batchTestThreads.get();
+        if (nbrThreads > 1 && !proofAsstPreferences.importUpdateDJs.get()) {
+            importFromMemoryAndUnifyManyTheoremsParallel(nbrThreads,
+                selectorCount, outputBoss, asciiRetest);
+            return;
+        }
+
         final boolean unifiedFormat = proofAsstPreferences.exportFormatUnified
             .get();
         final HypsOrder hypsOrder = proofAsstPreferences.exportHypsOrder.get();
@@ -915,6 +1058,189 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         printVolumeTestStats(stats, wholeTestSuiteTime, timeTop);
     }
 
+    /**
+     * Parallel version of importFromMemoryAndUnifyManyTheorems().
+     * <p>
+     * Each worker thread has its own session (see newSession()), and so its
+     * own ProofUnifier, StepUnifier, WorkVarManager and Messages. Workers
+     * claim the next theorem from a shared counter, then export, unify and
+     * (if requested) retest it. The calling thread takes the results in
+     * theorem order and does everything that writes to this ProofAsst's
+     * Messages or to outputBoss, so the output matches the sequential loop
+     * apart from the times.
+     *
+     * @param nbrThreads number of worker threads.
+     * @param selectorCount use to restrict the number of theorems present.
+     * @param outputBoss mmj.util.OutputBoss object, if not null means, please
+     *            print the proof test.
+     * @param asciiRetest instructs program to re-unify the output Proof
+     *            Worksheet text after unification.
+     */
+    private void importFromMemoryAndUnifyManyTheoremsParallel(
+        final int nbrThreads, final int selectorCount,
+        final OutputBoss outputBoss, final boolean asciiRetest)
+    {
+        final boolean unifiedFormat = proofAsstPreferences.exportFormatUnified
+            .get();
+        final HypsOrder hypsOrder = proofAsstPreferences.exportHypsOrder.get();
+        final boolean deriveFormulas = proofAsstPreferences.exportDeriveFormulas
+            .get();
+
+        final VolumeTestStats stats = new VolumeTestStats();
+
+        final List<Theorem> theoremList = getSortedTheoremList(0);
+
+        final int numberToProcess = Math.min(selectorCount, theoremList.size());
+
+        final boolean smallTest = numberToProcess < PaConstants.PA_TESTMSG_THEOREM_NUMBER_THRESHOLD;
+
+        final TheoremTestResult[] timeTop = smallTest ? null
+            : new TheoremTestResult[PaConstants.PA_TESTMSG_THEOREM_TIME_TOP_NUMBER];
+
+        final int nbrWorkers = Math.max(1,
+            Math.min(nbrThreads, numberToProcess));
+        final List<ProofAsst> sessions = new ArrayList<>(nbrWorkers);
+        try {
+            for (int w = 0; w < nbrWorkers; w++)
+                sessions.add(newSession(
+                    new Messages(messages.getMaxErrorMessages(),
+                        messages.getInfoMessageArray().length)));
+        } catch (final VerifyException e) {
+            messages.accumException(e);
+            return;
+        }
+
+        final StopWatch wholeTestSuiteTime = new StopWatch(true);
+        try (ParallelIndexWork<BatchTestResult> work = new ParallelIndexWork<>(
+            null, nbrWorkers, numberToProcess, null, w -> {
+                final ProofAsst session = sessions.get(w);
+                return i -> session.batchTestOneTheorem(theoremList.get(i),
+                    unifiedFormat, hypsOrder, deriveFormulas, asciiRetest,
+                    smallTest);
+            }))
+        {
+            for (int i = 0; i < numberToProcess; i++) {
+                if (messages.maxErrorMessagesReached())
+                    break;
+
+                final Theorem theorem = theoremList.get(i);
+                if (outputBoss != null)
+                    try {
+                        outputBoss.printException(new ProofAsstException(
+                            PaConstants.ERRMSG_PA_TESTMSG_PROGRESS, i + 1,
+                            numberToProcess, theorem.getLabel()));
+                    } catch (final IOException e) {}
+
+                final BatchTestResult r = work.take(i);
+
+                stats.nbrTestTheoremsProcessed++;
+                accumMessages(r.errorMessages, r.infoMessages);
+                if (r.testResult == null)
+                    continue;
+
+                addResultToVolumeTestTimeTop(timeTop, r.testResult);
+
+                volumeTestOutputRoutine(r.testResult, stats, smallTest);
+
+                accumMessages(r.retestErrorMessages, r.retestInfoMessages);
+
+                if (r.updatedProofText != null) {
+                    printProof(outputBoss, r.testResult.proofWorksheet,
+                        r.updatedProofText);
+                    checkAndCompareUpdateDJs(r.testResult.proofWorksheet);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        wholeTestSuiteTime.stop();
+
+        printVolumeTestStats(stats, wholeTestSuiteTime, timeTop);
+    }
+
+    /**
+     * Exports, unifies and optionally retests one theorem in this session,
+     * for importFromMemoryAndUnifyManyTheoremsParallel().
+     * <p>
+     * The recheck setting is shared by every session, so the first
+     * unification skips the recheck through this session's ProofUnifier
+     * instead of switching the setting off.
+     *
+     * @param theorem the theorem to test.
+     * @param unifiedFormat export in unified format.
+     * @param hypsOrder order of the exported hypotheses.
+     * @param deriveFormulas export with blank formulas.
+     * @param asciiRetest re-unify the output Proof Worksheet text.
+     * @param printOkMessages print messages for successful unifications.
+     * @return the test result and the messages produced.
+     */
+    private BatchTestResult batchTestOneTheorem(final Theorem theorem,
+        final boolean unifiedFormat, final HypsOrder hypsOrder,
+        final boolean deriveFormulas, final boolean asciiRetest,
+        final boolean printOkMessages)
+    {
+        final BatchTestResult r = new BatchTestResult();
+        messages.clearMessages();
+
+        final String proofText = exportOneTheorem(null, theorem,
+            unifiedFormat, hypsOrder, deriveFormulas);
+        if (proofText != null) {
+            if (asciiRetest)
+                proofUnifier.setVerifierRecheckSuppressed(true);
+
+            final StopWatch testStopWatch = new StopWatch(true);
+            final ProofWorksheet proofWorksheet = unify(false, // no renum
+                true, // don't convert work vars
+                proofText, null, // no preprocess
+                null, // no step request
+                null, // no TL request
+                -1, // inputCursorPos
+                printOkMessages);
+            testStopWatch.stop();
+
+            if (asciiRetest)
+                proofUnifier.setVerifierRecheckSuppressed(false);
+
+            r.testResult = new TheoremTestResult(testStopWatch,
+                proofWorksheet, theorem);
+            r.updatedProofText = proofWorksheet.getOutputProofText();
+        }
+        r.errorMessages = Arrays.copyOf(messages.getErrorMessageArray(),
+            messages.getErrorMessageCnt());
+        r.infoMessages = Arrays.copyOf(messages.getInfoMessageArray(),
+            messages.getInfoMessageCnt());
+        messages.clearMessages();
+
+        // retest
+        if (r.updatedProofText != null && asciiRetest) {
+            unify(false, // no renum
+                true, // don't convert work vars
+                r.updatedProofText, null, // no preprocess request
+                null, // no step request
+                null, // no TL request
+                -1, // inputCursorPos
+                printOkMessages);
+            r.retestErrorMessages = Arrays.copyOf(
+                messages.getErrorMessageArray(), messages.getErrorMessageCnt());
+            r.retestInfoMessages = Arrays.copyOf(
+                messages.getInfoMessageArray(), messages.getInfoMessageCnt());
+            messages.clearMessages();
+        }
+        return r;
+    }
+
+    private void accumMessages(final String[] errorMessages,
+        final String[] infoMessages)
+    {
+        if (errorMessages != null)
+            for (final String m : errorMessages)
+                messages.accumErrorMessage(m);
+        if (infoMessages != null)
+            for (final String m : infoMessages)
+                messages.accumInfoMessage(m);
+    }
+
     /**
      * Perform the optimizations for theorem search during "parallel"
      * unification
@@ -1625,6 +1951,31 @@ public class ProofAsst implements TheoremLoaderCommitListener {
             false); // deriveFormulas
     }
 
+    /**
+     * Builds the Proof Worksheet which exportOneTheorem(Theorem) would
+     * export, without generating its text.
+     * <p>
+     * Used by GMFF bulk exports, which load the worksheet's statements
+     * directly (see {@code mmj.gmff.MinProofWorksheet}).
+     *
+     * @param theorem the theorem to export.
+     * @return the ProofWorksheet, or null if the proof could not be converted
+     *         (the error messages are accumed in Messages).
+     * @throws IllegalArgumentException if the ProofWorksheet has structural
+     *             errors.
+     */
+    public ProofWorksheet getExportedProofWorksheet(final Theorem theorem) {
+        final ProofWorksheet proofWorksheet = getExportedProofWorksheet(
+            theorem, true, // exportFormatUnified
+            HypsOrder.Correct, // hypsRandomized
+            false); // deriveFormulas
+
+        if (proofWorksheet != null && proofWorksheet.hasStructuralErrors())
+            throw new IllegalArgumentException(addLabelContext(proofWorksheet,
+                PaConstants.ERRMSG_PA_EXPORT_STRUCT_ERROR));
+        return proofWorksheet;
+    }
+
     private String exportOneTheorem(final Writer exportWriter, // already open
         final Theorem theorem, final boolean exportFormatUnified,
         final HypsOrder hypsOrder, final boolean deriveFormulas)
@@ -66,13 +66,14 @@ import mmj.lang.WorkVarManager;
 import mmj.pa.PaConstants.*;
 import mmj.search.SearchMgr;
 import mmj.tmff.TMFFPreferences;
+import mmj.verify.GrammaticalParser;
 import mmj.verify.HypsOrder;
 import mmj.verify.VerifyProofs;
 
 /**
  * Holds user settings/preferences used by the Proof Assistant.
  */
-public class ProofAsstPreferences {
+public class ProofAsstPreferences implements Cloneable {
     private static final String PFX = "ProofAsst.";
 
     private final SessionStore store;
@@ -209,6 +210,9 @@ public class ProofAsstPreferences {
     public Setting<Boolean> excludeDiscouraged;
 
     public Setting<Integer> stepSelectorMaxResults;
+    public Setting<Integer> stepSelectorThreads;
+    public Setting<Integer> searchThreads;
+    public Setting<Integer> batchTestThreads;
     public Setting<Boolean> stepSelectorShowSubstitutions;
     public Setting<Integer> stepSelectorDialogPaneWidth;
     public Setting<Integer> stepSelectorDialogPaneHeight;
@@ -257,6 +261,9 @@ public class ProofAsstPreferences {
 
     private StepUnifier stepUnifier;
 
+    // a session's own parser, null = the Grammar's (see newSession())
+    private GrammaticalParser formulaParser;
+
     private SearchMgr searchMgr;
 
     /**
@@ -358,6 +365,18 @@ public class ProofAsstPreferences {
             store.addSetting(PFX + "stepSelectorMaxResults",
                 PaConstants.STEP_SELECTOR_MAX_RESULTS_DEFAULT),
             1, PaConstants.STEP_SELECTOR_MAX_RESULTS_MAXIMUM);
+        stepSelectorThreads = setIntBound(
+            store.addSetting(PFX + "stepSelectorThreads",
+                PaConstants.STEP_SELECTOR_THREADS_DEFAULT),
+            1, PaConstants.STEP_SELECTOR_THREADS_MAXIMUM);
+        searchThreads = setIntBound(
+            store.addSetting(PFX + "searchThreads",
+                PaConstants.SEARCH_THREADS_DEFAULT),
+            1, PaConstants.SEARCH_THREADS_MAXIMUM);
+        batchTestThreads = setIntBound(
+            store.addSetting(PFX + "batchTestThreads",
+                PaConstants.BATCH_TEST_THREADS_DEFAULT),
+            1, PaConstants.BATCH_TEST_THREADS_MAXIMUM);
         stepSelectorShowSubstitutions = store.addSetting(
             PFX + "stepSelectorShowSubstitutions",
             PaConstants.STEP_SELECTOR_SHOW_SUBSTITUTIONS_DEFAULT);
@@ -509,6 +528,47 @@ public class ProofAsstPreferences {
         return stepUnifier;
     }
 
+    /**
+     * Get the parser to be used for Proof Worksheet formulas.
+     *
+     * @return the session's parser, or null if formulas are parsed by the
+     *         Grammar's own parser.
+     */
+    public GrammaticalParser getFormulaParser() {
+        return formulaParser;
+    }
+
+    /**
+     * Returns a copy of these ProofAsstPreferences for a Proof Assistant
+     * session (see ProofAsst.newSession()).
+     * <p>
+     * The copy shares every Setting and the SessionStore with this object, so
+     * a preference change is seen by all sessions, but it has its own
+     * WorkVarManager, StepUnifier, formula parser and SearchMgr (which shares
+     * this object's SearchIndex).
+     *
+     * @param sessionWorkVarManager the session's WorkVarManager.
+     * @param sessionFormulaParser the session's parser, or null to use the
+     *            Grammar's own parser.
+     * @return ProofAsstPreferences for the session.
+     */
+    public ProofAsstPreferences newSessionPreferences(
+        final WorkVarManager sessionWorkVarManager,
+        final GrammaticalParser sessionFormulaParser)
+    {
+        final ProofAsstPreferences p;
+        try {
+            p = (ProofAsstPreferences)clone();
+        } catch (final CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        p.workVarManager = sessionWorkVarManager;
+        p.stepUnifier = null;
+        p.formulaParser = sessionFormulaParser;
+        p.searchMgr = new SearchMgr(getSearchMgr(), p);
+        return p;
+    }
+
     /**
      * Get StepUnifier Instance.
      *
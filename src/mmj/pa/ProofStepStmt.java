@@ -271,10 +271,11 @@ public abstract class ProofStepStmt extends ProofWorkStmt {
      *
      * @param verifyProofs instance of VerifyProofs for use converting an RPN
      *            list to a formula.
+     * @param bindings the substitutions assigned to the work variables.
      * @return true if stmtText updated successfully.
      */
     public boolean updateStmtTextWithWorkVarUpdates(
-        final VerifyProofs verifyProofs)
+        final VerifyProofs verifyProofs, final UnifyBindings bindings)
     {
 
         // 0) BSTF - Better Safe Than Sorry
@@ -294,7 +295,7 @@ public abstract class ProofStepStmt extends ProofWorkStmt {
         int wvCnt = 0;
         for (int i = 0; i < workVarList.size(); i++) {
             workVar = workVarList.get(i);
-            substNode = ((WorkVarHyp)workVar.getActiveVarHyp()).paSubst;
+            substNode = bindings.get(workVar.getActiveVarHyp());
             if (substNode == null)
                 continue;
             wvArray[wvCnt] = workVar.getId();
@@ -624,7 +625,8 @@ public abstract class ProofStepStmt extends ProofWorkStmt {
 
     // on existing formulas we retrieve parse tree from Stmt
     protected void getNewFormulaStepParseTree() throws ProofAsstException {
-        formulaParseTree = w.grammar.parseFormulaWithoutSafetyNet(formula,
+        formulaParseTree = w.grammar.parseFormulaWithoutSafetyNet(
+            w.proofAsstPreferences.getFormulaParser(), formula,
             w.comboFrame.hypArray, // is array, confusingly...
             w.getMaxSeq());
         if (formulaParseTree == null)
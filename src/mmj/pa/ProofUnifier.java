@@ -74,6 +74,8 @@ import mmj.pa.MacroManager.CallbackType;
 import mmj.pa.PaConstants.*;
 import mmj.pa.StepRequest.StepRequestType;
 import mmj.transforms.TransformationManager;
+import mmj.util.MergeSortedArrayLists;
+import mmj.util.Metrics;
 import mmj.verify.*;
 
 /**
@@ -152,7 +154,11 @@ public class ProofUnifier {
     private Cnst provableLogicStmtTyp;
 
     // only one lookup table for now - sorted by MObj.seq
-    private List<Assrt> unifySearchList = null;
+    private ArrayList<Assrt> unifySearchList = null;
+
+    // index of unifySearchList by conclusion parse tree, used to
+    // select candidate assertions for a derivation step
+    private DiscriminationTree unifySearchIndex = null;
 
     public List<Assrt> getUnifySearchListByMObjSeq() {
         return unifySearchList;
@@ -176,6 +182,23 @@ public class ProofUnifier {
 
     public PostUnifyHook postUnifyHook;
 
+    // set by a session to skip recheckProofAsstUsingProofVerifier, which
+    // is a Setting shared by every session
+    private boolean verifierRecheckSuppressed;
+
+    /**
+     * Skips, or no longer skips, the recheck of derivation steps by the proof
+     * verifier in this ProofUnifier's unifications, whatever the
+     * recheckProofAsstUsingProofVerifier setting.
+     *
+     * @param verifierRecheckSuppressed true to skip the recheck.
+     */
+    public void setVerifierRecheckSuppressed(
+        final boolean verifierRecheckSuppressed)
+    {
+        this.verifierRecheckSuppressed = verifierRecheckSuppressed;
+    }
+
     /*
      * Global "work" areas for processing a single
      * theorem:
@@ -243,6 +266,31 @@ public class ProofUnifier {
 
     }
 
+    /**
+     * Constructor for a Proof Assistant session (see ProofAsst.newSession()).
+     * <p>
+     * The lookup tables built by initializeLookupTables() and the
+     * TransformationManager are shared with another ProofUnifier; the
+     * StepUnifier, the StepSelectorSearch work areas and the per-worksheet
+     * work areas belong to the session.
+     *
+     * @param proofAsst the session's ProofAsst object
+     * @param shared the ProofUnifier whose lookup tables are shared
+     */
+    public ProofUnifier(final ProofAsst proofAsst, final ProofUnifier shared) {
+        this(proofAsst);
+
+        provableLogicStmtTyp = shared.provableLogicStmtTyp;
+        unifySearchList = shared.unifySearchList;
+        unifySearchIndex = shared.unifySearchIndex;
+        trManager = shared.trManager;
+        postUnifyHook = shared.postUnifyHook;
+        if (shared.stepSelectorSearch != null)
+            stepSelectorSearch = new StepSelectorSearch(
+                shared.stepSelectorSearch, proofAsstPreferences, verifyProofs);
+        tablesInitialized = shared.tablesInitialized;
+    }
+
     /**
      * Initialize lookup tables to be used across multiple executions of the
      * GUI.
@@ -304,8 +352,11 @@ public class ProofUnifier {
 
         Collections.sort(unifySearchList, MObj.SEQ);
 
+        unifySearchIndex = new DiscriminationTree(unifySearchList);
+
         stepSelectorSearch = new StepSelectorSearch(proofAsstPreferences,
-            verifyProofs, provableLogicStmtTyp, unifySearchList);
+            verifyProofs, provableLogicStmtTyp, unifySearchList,
+            unifySearchIndex);
 
         return tablesInitialized = true;
     }
@@ -315,8 +366,8 @@ public class ProofUnifier {
 
     /**
      * Merges a list of added Assrt objects sorted by MObj seq into the
-     * unifySearchList and passes the list on to the StepSelectorSearch for its
-     * updates.
+     * unifySearchList and its DiscriminationTree index, and passes the list on
+     * to the StepSelectorSearch for its updates.
      *
      * @param listOfAssrtAddsSortedBySeq List of Assrt sorted by MObj.seq
      *            representing new assertions which were added to the
@@ -326,9 +377,10 @@ public class ProofUnifier {
         final List<Theorem> listOfAssrtAddsSortedBySeq)
     {
 
-        // new MergeSortedArrayLists(
-        // unifySearchList, listOfAssrtAddsSortedBySeq, MObj.SEQ, true); //
-        // abortIfDupsFound
+        new MergeSortedArrayLists<Assrt>(unifySearchList,
+            listOfAssrtAddsSortedBySeq, MObj.SEQ, true); // abortIfDupsFound
+
+        unifySearchIndex.addAll(listOfAssrtAddsSortedBySeq);
 
         stepSelectorSearch
             .mergeListOfAssrtAddsSortedBySeq(listOfAssrtAddsSortedBySeq);
@@ -629,7 +681,11 @@ public class ProofUnifier {
 
         final Map<DerivationStep, UnifyResult> autoBestResults = new HashMap<>();
 
-        for (final Assrt a : unifySearchList) {
+        final Map<DerivationStep, Set<Assrt>> candidates = new HashMap<>();
+        final List<Assrt> searchList = getCandidateSearchList(autoDerivSteps,
+            autoDerivStepsCount, candidates);
+
+        for (final Assrt a : searchList) {
             if (a.getSeq() >= maxSeq)
                 // halt the scan -- the list is sorted!!!
                 break;
@@ -649,6 +705,9 @@ public class ProofUnifier {
                     if (assrt != derivStep.getRef())
                         continue;
 
+                if (!isCandidate(candidates, derivStep))
+                    continue;
+
                 // TODO: use derivStep.getHypNumber() <= assrtNbrLogHyps
 
                 final UnifyResult res = unifyStepWithoutWorkVars();
@@ -742,7 +801,11 @@ public class ProofUnifier {
         final int maxSeq = proofWorksheet.getMaxSeq();
         int nbrCompleted = 0;
 
-        for (final Assrt a : unifySearchList) {
+        final Map<DerivationStep, Set<Assrt>> candidates = new HashMap<>();
+        final List<Assrt> searchList = getCandidateSearchList(
+            derivStepsWithEmptyRef, derivStepsWithEmptyRefCount, candidates);
+
+        for (final Assrt a : searchList) {
             if (a.getSeq() >= maxSeq)
                 // halt the scan -- the list is sorted!!!
                 break;
@@ -758,7 +821,9 @@ public class ProofUnifier {
                 derivStep = derivStepsWithEmptyRef[i];
                 assert !derivStep.isAutoStep();
 
-                if (derivStep.getHypNumber() == assrtNbrLogHyps) {
+                if (derivStep.getHypNumber() == assrtNbrLogHyps
+                    && isCandidate(candidates, derivStep))
+                {
                     // this property could be changed after the next call, so
                     // save it
                     final UnifyResult res = unifyStepWithoutWorkVars();
@@ -785,6 +850,61 @@ public class ProofUnifier {
             break;
         }
     }
+    /**
+     * Looks up the candidate assertions for each of the given steps in the
+     * unifySearchIndex.
+     * <p>
+     * The candidate set of each step is stored in the {@code candidates} map.
+     * A step whose formula cannot be looked up (e.g. it is to be derived) gets
+     * no entry, and in that case the entire unifySearchList is returned.
+     *
+     * @param steps array of derivation steps
+     * @param stepsCount number of used elements of steps
+     * @param candidates map from step to its candidate assertion set, loaded
+     *            here.
+     * @return the union of the candidate sets, sorted by MObj.seq.
+     */
+    private List<Assrt> getCandidateSearchList(final DerivationStep[] steps,
+        final int stepsCount, final Map<DerivationStep, Set<Assrt>> candidates)
+    {
+        final Set<Assrt> union = new HashSet<>();
+        boolean all = false;
+        for (int i = 0; i < stepsCount; i++) {
+            final DerivationStep d = steps[i];
+            final Set<Assrt> set = d.hasDeriveStepFormula()
+                || d.formulaParseTree == null ? null
+                    : unifySearchIndex
+                        .retrieve(d.formulaParseTree.getRoot());
+            if (set == null)
+                all = true;
+            else {
+                candidates.put(d, set);
+                if (!all)
+                    union.addAll(set);
+            }
+        }
+        if (all)
+            return unifySearchList;
+        final List<Assrt> list = new ArrayList<>(union);
+        Collections.sort(list, MObj.SEQ);
+        return list;
+    }
+
+    /**
+     * Checks the current assrt against a step's candidate set.
+     *
+     * @param candidates map from step to its candidate assertion set
+     * @param d the derivation step
+     * @return true if assrt may unify with the step.
+     */
+    private boolean isCandidate(
+        final Map<DerivationStep, Set<Assrt>> candidates,
+        final DerivationStep d)
+    {
+        final Set<Assrt> set = candidates.get(d);
+        return set == null || set.contains(assrt);
+    }
+
     private boolean buildProofsAndErrorUnUnifiedSteps() {
         // ok, finish: error un-unified steps and
         // build proofs for the unified steps!
@@ -945,7 +1065,8 @@ public class ProofUnifier {
 
         derivStep.setProofTree(new ParseTree(proofRoot));
 
-        if (proofAsstPreferences.recheckProofAsstUsingProofVerifier.get())
+        if (!verifierRecheckSuppressed
+            && proofAsstPreferences.recheckProofAsstUsingProofVerifier.get())
             if (!checkDerivStepProofUsingVerify()) {
                 messages.accumException(addStepContext(new ProofAsstException(
                     PaConstants.ERRMSG_VERIFY_RECHECK_ERR)));
@@ -1098,8 +1219,12 @@ public class ProofUnifier {
         if (derivStep.hasDeriveStepFormula())
             assrtFormulaSubst = new ParseNode[assrtVarHypArray.length];
         else {
+            Metrics.UNIFY_ATTEMPTS.inc();
             if (!assrt.getFormula().preunificationCheck(derivStep.getFormula()))
+            {
+                Metrics.UNIFY_PREUNIFY_REJECTS.inc();
                 return badUnification;
+            }
 
             assrtFormulaSubst = assrtParseTree.getRoot().unifyWithSubtree(
                 derivStep.formulaParseTree.getRoot(), assrtVarHypArray,
@@ -1800,9 +1925,13 @@ public class ProofUnifier {
         if (derivHyp == null)
             assrtLogHypSubstArray[assrtLogHypIndex] = new ParseNode[assrtLogHypVarHypArray.length];
         else {
+            Metrics.UNIFY_ATTEMPTS.inc();
             if (!assrtLogHypArray[assrtLogHypIndex].getFormula()
                 .preunificationCheck(derivHyp.getFormula()))
+            {
+                Metrics.UNIFY_PREUNIFY_REJECTS.inc();
                 return false;
+            }
 
             assrtLogHypSubstArray[assrtLogHypIndex] = assrtLogHypArray[assrtLogHypIndex]
                 .getExprParseTree().getRoot()
@@ -2536,7 +2665,8 @@ public class ProofUnifier {
         ParseNode substNode;
         for (int i = 0; i < updatedWorkVarList.size(); i++) {
             workVar = updatedWorkVarList.get(i);
-            substNode = ((WorkVarHyp)workVar.getActiveVarHyp()).paSubst;
+            substNode = workVarManager.getBindings()
+                .get(workVar.getActiveVarHyp());
             if (substNode == null)
                 throw new IllegalArgumentException(getException(
                     PaConstants.ERRMSG_UPD_WV_ASSIGNED_NULL_VALUE));
@@ -2563,8 +2693,11 @@ public class ProofUnifier {
         final List<WorkVar> newWorkVarList)
     {
 
+        final UnifyBindings bindings = proofAsstPreferences.getWorkVarManager()
+            .getBindings();
+
         final ParseTree newFormulaParseTree = d.formulaParseTree
-            .deepCloneApplyingWorkVarUpdates();
+            .deepCloneApplyingWorkVarUpdates(bindings);
 
         final Formula newFormula = verifyProofs
             .convertRPNToFormula(newFormulaParseTree.convertToRPN(), " "); // abend
@@ -2579,7 +2712,7 @@ public class ProofUnifier {
         boolean stmtTextAlreadyUpdated = false;
         if (!proofAsstPreferences.autoReformat.get())
             stmtTextAlreadyUpdated = d
-                .updateStmtTextWithWorkVarUpdates(verifyProofs);
+                .updateStmtTextWithWorkVarUpdates(verifyProofs, bindings);
 
         d.updateWorkVarList(newWorkVarList);
 
@@ -2592,12 +2725,15 @@ public class ProofUnifier {
         if (d.getAssrtSubstList() == null)
             return;
 
+        final UnifyBindings bindings = proofAsstPreferences.getWorkVarManager()
+            .getBindings();
         for (int i = 0; i < d.getAssrtSubstNumber(); i++)
             // note: log hyp array entries will be null at
             // this point (prior to proof construction).
             if (d.getAssrtSubst(i) != null)
                 d.setAssrtSubst(i,
-                    d.getAssrtSubst(i).deepCloneApplyingWorkVarUpdates());
+                    d.getAssrtSubst(i)
+                        .deepCloneApplyingWorkVarUpdates(bindings));
     }
 
     private void doUpdateWorkVarUnificationStatus(final DerivationStep d) {
@@ -2755,10 +2891,12 @@ public class ProofUnifier {
         // - start at index 0 in unusedOptionalVarHypsList
         // - assign next unusedOptionalVarHypList element
         // of the current Type to the corresponding
-        // VarHyp.paSubst;
+        // Work Var's substitution;
         // --> if not enough unusedOptionalVarHyp entries,
         // kick out an error message and quit.
         //
+        final UnifyBindings bindings = proofAsstPreferences.getWorkVarManager()
+            .getBindings();
         for (final List<VarHyp> workVarHypList : disjointWorkVarHypList) {
             final Iterator<List<Hyp>> iterator = unusedOptionalVarHypsByTypList
                 .iterator();
@@ -2774,9 +2912,9 @@ public class ProofUnifier {
                             proofWorksheet.getTheorem().getLabel(), typ,
                             typUnusedOptionalVarHyps.size());
 
-                    vH.paSubst = // this is a really key step :-)
-                        new ParseNode(
-                            (VarHyp)typUnusedOptionalVarHyps.get(next++));
+                    // this is a really key step :-)
+                    bindings.setWorkVarSubst((WorkVarHyp)vH, new ParseNode(
+                        (VarHyp)typUnusedOptionalVarHyps.get(next++)));
                 }
             }
         }
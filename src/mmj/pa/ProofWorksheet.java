@@ -2034,7 +2034,8 @@ public class ProofWorksheet {
 
             if (e.formulaParseTree == null)
                 e.formulaParseTree = grammar.parseFormulaWithoutSafetyNet(
-                    e.formula, comboFrame.hypArray, getMaxSeq());
+                    proofAsstPreferences.getFormulaParser(), e.formula,
+                    comboFrame.hypArray, getMaxSeq());
 
             if (e.isHyp) {
                 hypStepCnt++;
@@ -2137,9 +2138,10 @@ public class ProofWorksheet {
      * @param c The type of callback (event trigger)
      */
     public void runCallback(final CallbackType c) {
-        if (macroManager != null) {
-            macroManager.set("proofWorksheet", this);
-            macroManager.runCallback(c);
-        }
+        if (macroManager != null)
+            synchronized (macroManager) { // sessions share the macro engine
+                macroManager.set("proofWorksheet", this);
+                macroManager.runCallback(c);
+            }
     }
 }
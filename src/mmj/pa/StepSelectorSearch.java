@@ -24,9 +24,12 @@
 package mmj.pa;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import mmj.lang.*;
 import mmj.util.MergeSortedArrayLists;
+import mmj.util.ParallelIndexWork;
 import mmj.verify.VerifyException;
 import mmj.verify.VerifyProofs;
 
@@ -36,6 +39,15 @@ import mmj.verify.VerifyProofs;
  */
 public class StepSelectorSearch {
 
+    /**
+     * Runs the workers of parallel searches. Its daemon threads are kept
+     * between searches (and shared by all sessions); the number of threads a
+     * search uses is the number of workers it submits.
+     */
+    private static final ExecutorService searchExecutor = Executors
+        .newCachedThreadPool(
+            ParallelIndexWork.daemonThreadFactory("mmj2-step-selector"));
+
     private final ProofAsstPreferences proofAsstPreferences;
     private final VerifyProofs verifyProofs;
     private final Cnst provableLogicStmtTyp;
@@ -47,6 +59,11 @@ public class StepSelectorSearch {
 //  private Assrt[]                assrtArray;
     private final ArrayList<Assrt> assrtAList;
 
+    /*
+     * index of the assertions by conclusion, shared with ProofUnifier
+     */
+    private final DiscriminationTree unifySearchIndex;
+
     /*
      * these instance variables are "global" work items
      * stored here for convenience.
@@ -67,15 +84,18 @@ public class StepSelectorSearch {
      * @param verifyProofs the VerifyProofs object
      * @param provableLogicStmtTyp a Provable Logic Stmt Type Code
      * @param unifySearchList the unification search list
+     * @param unifySearchIndex the DiscriminationTree index of unifySearchList
      */
     public StepSelectorSearch(final ProofAsstPreferences proofAsstPreferences,
         final VerifyProofs verifyProofs, final Cnst provableLogicStmtTyp,
-        final List<Assrt> unifySearchList)
+        final List<Assrt> unifySearchList,
+        final DiscriminationTree unifySearchIndex)
     {
 
         this.proofAsstPreferences = proofAsstPreferences;
         this.verifyProofs = verifyProofs;
         this.provableLogicStmtTyp = provableLogicStmtTyp;
+        this.unifySearchIndex = unifySearchIndex;
 
         stepUnifier = proofAsstPreferences.getStepUnifier();
 
@@ -95,6 +115,52 @@ public class StepSelectorSearch {
         Collections.sort(assrtAList, Assrt.NBR_LOG_HYP_SEQ);
     }
 
+    /**
+     * Constructor for a Proof Assistant session's StepSelectorSearch.
+     * <p>
+     * The sorted assertion list and the DiscriminationTree index are shared
+     * with another StepSelectorSearch (so that Theorem Loader adds merged into
+     * it are seen by both); the StepUnifier and work areas are the session's
+     * own.
+     *
+     * @param shared the StepSelectorSearch whose lists are shared
+     * @param proofAsstPreferences the session's ProofAsstPreferences object
+     * @param verifyProofs the session's VerifyProofs object
+     */
+    public StepSelectorSearch(final StepSelectorSearch shared,
+        final ProofAsstPreferences proofAsstPreferences,
+        final VerifyProofs verifyProofs)
+    {
+        this.proofAsstPreferences = proofAsstPreferences;
+        this.verifyProofs = verifyProofs;
+        provableLogicStmtTyp = shared.provableLogicStmtTyp;
+        unifySearchIndex = shared.unifySearchIndex;
+        assrtAList = shared.assrtAList;
+
+        stepUnifier = proofAsstPreferences.getStepUnifier();
+    }
+
+    /**
+     * Constructor for a worker of the parallel search, sharing everything
+     * but the StepUnifier and work areas with the searching
+     * StepSelectorSearch.
+     *
+     * @param owner the searching StepSelectorSearch
+     * @param workVarManager the worker's copy of the WorkVarManager
+     */
+    private StepSelectorSearch(final StepSelectorSearch owner,
+        final WorkVarManager workVarManager)
+    {
+        proofAsstPreferences = owner.proofAsstPreferences;
+        verifyProofs = owner.verifyProofs;
+        provableLogicStmtTyp = owner.provableLogicStmtTyp;
+        unifySearchIndex = owner.unifySearchIndex;
+        assrtAList = owner.assrtAList;
+        derivStep = owner.derivStep;
+
+        stepUnifier = new StepUnifier(workVarManager);
+    }
+
     public void mergeListOfAssrtAddsSortedBySeq(
         final List<Theorem> listOfAssrtAddsSortedBySeq)
     {
@@ -170,6 +236,18 @@ public class StepSelectorSearch {
            and if there are "wildcards" (e.g. "2,?,1" or "2,,1")
            then we search assertions with n->9999999 log hyps
          */
+        /* Candidate assertions for the step's formula (null = all).
+         */
+        final Set<Assrt> candidates = derivStep.formulaParseTree == null
+            ? null
+            : unifySearchIndex.retrieve(derivStep.formulaParseTree.getRoot());
+
+        final int nbrThreads = proofAsstPreferences.stepSelectorThreads.get();
+        if (nbrThreads > 1)
+            return loadStepSelectorResultsParallel(store, nbrThreads, maxSeq,
+                nbrDerivStepHyps, derivStepSortedHypArray, assrtIndex, maxHyps,
+                candidates);
+
         int hypIndex = nbrDerivStepHyps;
         hypLoop: while (hypIndex <= maxHyps) {
             /* Copy sorted array to new array whose size matches
@@ -189,7 +267,8 @@ public class StepSelectorSearch {
                         hypIndex++;
                         continue hypLoop;
                     }
-                    if (isAssrtUnifiable())
+                    if ((candidates == null || candidates.contains(assrt))
+                        && isAssrtUnifiable())
                         if (addAssrtToStore(store)) { // isFull()
                             storeOverflow = true;
                             break hypLoop;
@@ -210,6 +289,203 @@ public class StepSelectorSearch {
             storeOverflow);
     }
 
+    /**
+     * Parallel version of the search loop in loadStepSelectorResults().
+     * <p>
+     * The candidate assertions are listed in search order and split into
+     * chunks which are searched by {@code nbrThreads} workers, which claim
+     * chunks in order. A worker first screens each assertion with
+     * {@code couldUnify()}, a read-only test that rejects most assertions
+     * which cannot unify with the step, then unifies the rest with its own
+     * StepUnifier and a copy of the session's WorkVarManager (see
+     * WorkVarManager.newWorkerCopy()), so its unifications do not disturb
+     * the session's or another worker's. The calling thread adds the
+     * unifiable assertions to the store chunk by chunk in search order and
+     * stops, cancelling the remaining chunks, as soon as the store is full.
+     * The results are therefore the same as those of the sequential loop.
+     *
+     * @param store the StepSelectorStore to load
+     * @param nbrThreads number of worker threads
+     * @param maxSeq only assertions before this SEQ are searched
+     * @param nbrDerivStepHyps number of non-null derivation step hyps
+     * @param derivStepSortedHypArray the sorted derivation step hyps
+     * @param startIndex index of the first assertion to search
+     * @param maxHyps maximum number of assertion log hyps
+     * @param candidates assertions matching the step formula, or null
+     * @return StepSelectorResults for the derivation step
+     * @throws VerifyException if not enough allocatable WorkVars.
+     */
+    private StepSelectorResults loadStepSelectorResultsParallel(
+        final StepSelectorStore store, final int nbrThreads, final int maxSeq,
+        final int nbrDerivStepHyps,
+        final ProofStepStmt[] derivStepSortedHypArray, final int startIndex,
+        final int maxHyps, final Set<Assrt> candidates) throws VerifyException
+    {
+
+        final Assrt[] searchList = assrtAList.stream()
+            .skip(Math.min(startIndex, assrtAList.size()))
+            .filter(a -> a.getSeq() < maxSeq
+                && a.getLogHypArrayLength() <= maxHyps
+                && (candidates == null || candidates.contains(a)))
+            .toArray(Assrt[]::new);
+
+        final ParseNode stepRoot = derivStep.formulaParseTree == null ? null
+            : derivStep.formulaParseTree.getRoot();
+        final ParseNode[] stepHypRoot = new ParseNode[nbrDerivStepHyps];
+        for (int i = 0; i < nbrDerivStepHyps; i++)
+            stepHypRoot[i] = derivStepSortedHypArray[i].formulaParseTree
+                .getRoot();
+
+        final int chunkSize = PaConstants.STEP_SELECTOR_SEARCH_CHUNK_SIZE;
+        final int nbrChunks = (searchList.length + chunkSize - 1) / chunkSize;
+
+        boolean storeOverflow = false;
+        try (ParallelIndexWork<UnifiedChunk> unified = new ParallelIndexWork<>(
+            searchExecutor, nbrThreads, nbrChunks, null, w -> {
+                final StepSelectorSearch worker = new StepSelectorSearch(this,
+                    proofAsstPreferences.getWorkVarManager().newWorkerCopy());
+                return c -> worker.unifyChunk(searchList, c * chunkSize,
+                    Math.min(c * chunkSize + chunkSize, searchList.length),
+                    stepRoot, stepHypRoot, derivStepSortedHypArray);
+            }))
+        {
+            chunkLoop: for (int c = 0; c < nbrChunks; c++) {
+                final UnifiedChunk chunk = unified.take(c);
+                for (int i = 0; i < chunk.cnt; i++) {
+                    if (chunk.assrtSubst[i] == null)
+                        continue;
+                    assrt = searchList[c * chunkSize + i];
+                    assrtNbrLogHyps = assrt.getLogHypArrayLength();
+                    assrtHypArray = assrt.getMandFrame().hypArray;
+                    assrtLogHypArray = assrt.getLogHypArray();
+                    assrtSubst = chunk.assrtSubst[i];
+                    if (addAssrtToStore(store)) {
+                        storeOverflow = true;
+                        break chunkLoop;
+                    }
+                }
+                if (chunk.error != null)
+                    throw chunk.error;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+
+        return store.createStepSelectorResults(derivStep.getStep(),
+            storeOverflow);
+    }
+
+    /**
+     * Unification results of a chunk of the parallel search.
+     */
+    private static class UnifiedChunk {
+        /** assrtSubst of each unifiable assertion of the chunk, else null */
+        final ParseNode[][] assrtSubst;
+        /** number of assertions searched */
+        int cnt;
+        /** VerifyException which ended the search of the chunk, or null */
+        VerifyException error;
+
+        UnifiedChunk(final int size) {
+            assrtSubst = new ParseNode[size][];
+        }
+    }
+
+    /**
+     * Worker of the parallel search: searches a chunk of the search list.
+     *
+     * @param searchList the candidate assertions in search order
+     * @param from index of the chunk's first assertion
+     * @param to index after the chunk's last assertion
+     * @param stepRoot root of the step formula, or null
+     * @param stepHypRoot roots of the derivation step hyps' formulas
+     * @param derivStepSortedHypArray the sorted derivation step hyps
+     * @return the chunk's UnifiedChunk.
+     */
+    private UnifiedChunk unifyChunk(final Assrt[] searchList, final int from,
+        final int to, final ParseNode stepRoot, final ParseNode[] stepHypRoot,
+        final ProofStepStmt[] derivStepSortedHypArray)
+    {
+        final UnifiedChunk chunk = new UnifiedChunk(to - from);
+        try {
+            for (int i = from; i < to; i++, chunk.cnt++) {
+                if (!couldUnify(searchList[i], stepRoot, stepHypRoot))
+                    continue;
+                assrt = searchList[i];
+                assrtNbrLogHyps = assrt.getLogHypArrayLength();
+                if (derivStepHypArray == null
+                    || derivStepHypArray.length != assrtNbrLogHyps)
+                {
+                    derivStepHypArray = new ProofStepStmt[assrtNbrLogHyps];
+                    for (int j = 0; j < stepHypRoot.length; j++)
+                        derivStepHypArray[j] = derivStepSortedHypArray[j];
+                }
+                if (isAssrtUnifiable())
+                    chunk.assrtSubst[i - from] = assrtSubst;
+            }
+        } catch (final VerifyException e) {
+            chunk.error = e;
+        }
+        return chunk;
+    }
+
+    /**
+     * Read-only screening test for the parallel search.
+     * <p>
+     * Returns false only if the assertion certainly does not unify with the
+     * step: its conclusion does not match the step formula, or one of the
+     * step's hypotheses matches none of the assertion's logical hypotheses.
+     * Matching is done by {@code couldUnify(ParseNode, ParseNode)}, which
+     * ignores the consistency of the substitutions.
+     *
+     * @param assrt the candidate assertion
+     * @param stepRoot root of the step formula, or null
+     * @param stepHypRoot roots of the non-null step hypotheses
+     * @return false if the assertion cannot unify with the step.
+     */
+    private static boolean couldUnify(final Assrt assrt,
+        final ParseNode stepRoot, final ParseNode[] stepHypRoot)
+    {
+        if (stepRoot != null
+            && !couldUnify(assrt.getExprParseTree().getRoot(), stepRoot))
+            return false;
+
+        final LogHyp[] logHypArray = assrt.getLogHypArray();
+        hypLoop: for (final ParseNode hypRoot : stepHypRoot) {
+            for (final LogHyp logHyp : logHypArray)
+                if (couldUnify(logHyp.getExprParseTree().getRoot(), hypRoot))
+                    continue hypLoop;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Structural test mirroring StepUnifier.unifyLevel() without recording
+     * any substitutions: assertion variables and step Work Variables match
+     * any subtree of the same type.
+     *
+     * @param targetNode node of the assertion formula
+     * @param sourceNode node of the step formula
+     * @return false if the subtrees cannot unify.
+     */
+    private static boolean couldUnify(final ParseNode targetNode,
+        final ParseNode sourceNode)
+    {
+        if (targetNode.stmt.getTyp() != sourceNode.stmt.getTyp())
+            return false;
+        if (targetNode.stmt instanceof VarHyp
+            || sourceNode.stmt instanceof WorkVarHyp)
+            return true;
+        if (targetNode.stmt != sourceNode.stmt)
+            return false;
+        for (int i = 0; i < targetNode.child.length; i++)
+            if (!couldUnify(targetNode.child[i], sourceNode.child[i]))
+                return false;
+        return true;
+    }
+
     public List<Assrt> getSortedAssrtSearchList() {
         return assrtAList;
     }
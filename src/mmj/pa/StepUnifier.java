@@ -15,6 +15,7 @@
 package mmj.pa;
 
 import mmj.lang.*;
+import mmj.util.Metrics;
 import mmj.verify.VerifyException;
 
 /**
@@ -27,8 +28,9 @@ import mmj.verify.VerifyException;
  * StepUnifier has much in common with the unification algorithm in
  * ProofUnifier. These are the main differences:
  * <ol>
- * <li>It accumulates VarHyp substitution results into the new "paSubst" slot in
- * mmj.lang.VarHyp instead of indirectly in the assrtSubst array.</li>
+ * <li>It accumulates VarHyp substitution results into the WorkVarManager's
+ * mmj.lang.UnifyBindings, an array indexed by variable, instead of indirectly
+ * in the assrtSubst array.</li>
  * <li>It uses Work Variables instead of Dummy Variables.</li>
  * <li>SubstAnswer is a 2 dimensional array of UnifySubst in StepUnifier instead
  * of a 3 dimensional array of ParseNode, as in ProofUnifier. The payload of
@@ -44,10 +46,11 @@ import mmj.verify.VerifyException;
  * dependent upon the previously accum'd logical hypotheses... so, to make it
  * simple, we just store the "raw" substitutions pre-accumulation/merging.)</li>
  * <li>The backout process for reversing partial results during processing of
- * the sorted logical hypothesis arrays is different. One thing it has in common
- * with ProofUnifier's backout process is that it too relies on the fact that
- * only ONE substitution to a VarHyp is made -- so backout out an assignment
- * does not require restoring a previous substitution, but simply null-ing it
+ * the sorted logical hypothesis arrays is different: each level's assignments
+ * are popped off the UnifyBindings trail. One thing it has in common with
+ * ProofUnifier's backout process is that it too relies on the fact that only
+ * ONE substitution to a VarHyp is made -- so backout out an assignment does
+ * not require restoring a previous substitution, but simply null-ing it
  * out.</li>
  * <li>No attempt is made to salvage the work produced by
  * unifyAndMergeHypsUnsorted() as is done in ProofUnifier when going into
@@ -78,13 +81,12 @@ public class StepUnifier {
     private final WorkVarManager workVarManager;
 
     /**
-     * {@code applied} is just an array of UnifySubst's without regard for their
-     * internal linked-list "next" pointers. It holds the UnifySubst data
-     * currently applied to the VarHyp storage areas and is used for any
-     * backouts of those changes.
+     * {@code bindings} holds the substitutions currently applied. Its trail is
+     * used for any backouts of those changes: {@code levelAppliedCnt[i + 1]}
+     * is the number of trail entries made at level i (-1 for the Proof Step
+     * Formula).
      */
-    private UnifySubst[] applied;
-    private int appliedCnt;
+    private UnifyBindings bindings;
     private int[] levelAppliedCnt;
 
     private int currLevel;
@@ -152,8 +154,6 @@ public class StepUnifier {
      */
     public StepUnifier(final WorkVarManager workVarManager) {
         this.workVarManager = workVarManager;
-        applied = new UnifySubst[PaConstants.STEP_UNIFIER_APPLIED_ARRAY_LEN_INIT];
-
     }
 
     /**
@@ -174,7 +174,7 @@ public class StepUnifier {
      * array with the substitutions generated by successful Unification.
      * <p>
      * NOTE: This is an especially important part of the zany scheme to hold
-     * Work Variable substitution values inside the actual VarHyp instances
+     * Work Variable substitution values in the WorkVarManager's UnifyBindings
      * (oy...) The resolution of chained substitutions into Work Variables does
      * two vital things:
      * <ol>
@@ -217,10 +217,10 @@ public class StepUnifier {
     private void loadAssrtSubst(final ParseNode[] assrtSubst) {
         for (int i = 0; i < assrtHypArray.length; i++)
             if (assrtHypArray[i] instanceof VarHyp) {
-                assrtSubst[i] = ((VarHyp)assrtHypArray[i]).paSubst;
-                if (assrtSubst[i].hasUpdatedWorkVar())
+                assrtSubst[i] = bindings.getTarget(i);
+                if (assrtSubst[i].hasUpdatedWorkVar(bindings))
                     assrtSubst[i] = assrtSubst[i]
-                        .cloneResolvingUpdatedWorkVars();
+                        .cloneResolvingUpdatedWorkVars(bindings);
             }
     }
 
@@ -286,12 +286,10 @@ public class StepUnifier {
         assrtLogHypArray = assrt.getLogHypArray();
 
         // initializeTargetVarHypPASubst
-        for (int i = 0; i < assrtHypArray.length; i++)
-            if (assrtHypArray[i] instanceof VarHyp)
-                ((VarHyp)assrtHypArray[i]).paSubst = null;
+        bindings = workVarManager.getBindings();
+        bindings.startUnification(assrtHypArray);
 
         // allocateNewProofStepStuff
-        appliedCnt = 0;
         levelAppliedCnt = new int[assrtLogHypArray.length + 1];
 
         // OK, DO IT!
@@ -302,13 +300,16 @@ public class StepUnifier {
             return true;
         }
 
+        Metrics.UNIFY_STEP_FORMULA_ATTEMPTS.inc();
         currLevel = F_LEVEL_NBR;
         currLevelDeferred = UnifySubst.EMPTY_LIST;
         currLevelDeferredLast = null;
         if (unifyLevel(assrt.getExprParseTree().getRoot(), stepRoot)) {
             allocWorkVarsForUnassignedSourceVars();
-            if (mergeCurrLevelSubst())
+            if (mergeCurrLevelSubst()) {
+                Metrics.UNIFY_STEP_FORMULA_SUCCESSES.inc();
                 return true;
+            }
         }
 
         backoutCurrLevelApplieds();
@@ -544,21 +545,15 @@ public class StepUnifier {
             if (!(assrtHypArray[i] instanceof VarHyp))
                 continue;
 
-            sourceVarHyp = (VarHyp)assrtHypArray[i];
-            if (sourceVarHyp.paSubst != null)
+            if (bindings.getTarget(i) != null)
                 continue;
+            sourceVarHyp = (VarHyp)assrtHypArray[i];
 
             workVarHyp = workVarManager.allocWorkVarHyp(sourceVarHyp.getTyp());
 
-            addToAppliedArray(
-                new UnifySubst(workVarHyp, null, // null toNode
-                    true), // generatedDuringAccum
-                F_LEVEL_NBR); // fLevel
-
-            sourceVarHyp.paSubst = new ParseNode(workVarHyp);
+            addAllocToAppliedArray(workVarHyp, F_LEVEL_NBR); // fLevel
 
-            addToAppliedArray(
-                new UnifySubst(sourceVarHyp, sourceVarHyp.paSubst, true), // generatedDuringAccum
+            addToAppliedArray(sourceVarHyp, new ParseNode(workVarHyp),
                 F_LEVEL_NBR); // fLevel
         }
     }
@@ -572,16 +567,14 @@ public class StepUnifier {
 
         if (targetNode.stmt instanceof VarHyp) {
             final VarHyp targetVarHyp = (VarHyp)targetNode.stmt;
-            final UnifySubst targetSubst = new UnifySubst(targetVarHyp, // fromHyp
-                sourceNode, // toNode
-                false); // generatedDuringAccum
 
-            if (currLevel == F_LEVEL_NBR && targetVarHyp.paSubst == null) {
-                targetVarHyp.paSubst = sourceNode;
-                addToAppliedArray(targetSubst, F_LEVEL_NBR); // fLevel index
-            }
+            if (currLevel == F_LEVEL_NBR && bindings.get(targetVarHyp) == null)
+                addToAppliedArray(targetVarHyp, sourceNode, // toNode
+                    F_LEVEL_NBR); // fLevel index
             else
-                addToCurrLevelDeferred(targetSubst);
+                addToCurrLevelDeferred(new UnifySubst(targetVarHyp, // fromHyp
+                    sourceNode, // toNode
+                    false)); // generatedDuringAccum
             return true;
         }
 
@@ -604,14 +597,15 @@ public class StepUnifier {
     private boolean mergeSubst(final UnifySubst curr) {
 
         ParseNode toParseNode = curr.toNode;
+        final ParseNode fromSubst = bindings.get(curr.fromHyp);
 
         if (curr.fromHyp instanceof WorkVarHyp) {
             if (!curr.generatedDuringAccum)
-                toParseNode = curr.toNode.cloneTargetToSourceVars();
+                toParseNode = curr.toNode.cloneTargetToSourceVars(bindings);
 
-            if (curr.fromHyp.paSubst == null) {
-                final int returnCode = toParseNode
-                    .checkWorkVarHasOccursIn((WorkVarHyp)curr.fromHyp);
+            if (fromSubst == null) {
+                final int returnCode = toParseNode.checkWorkVarHasOccursIn(
+                    (WorkVarHyp)curr.fromHyp, bindings);
 
                 if (returnCode == LangConstants.WV_OCCURS_IN_RENAME_LOOP)
                     return true; // ok, but no assignment update!
@@ -621,13 +615,12 @@ public class StepUnifier {
             }
         }
 
-        if (curr.fromHyp.paSubst == null) {
-            curr.fromHyp.paSubst = toParseNode;
-            addToAppliedArray(curr, currLevel);
+        if (fromSubst == null) {
+            addToAppliedArray(curr.fromHyp, toParseNode, currLevel);
             return true;
         }
 
-        return subunify(curr.fromHyp.paSubst, toParseNode);
+        return subunify(fromSubst, toParseNode);
     }
 
     // clone of mergeSubst()
@@ -635,14 +628,15 @@ public class StepUnifier {
         final ParseNode currToNode, final boolean currGeneratedDuringAccum)
     {
         ParseNode toParseNode = currToNode;
+        final ParseNode fromSubst = bindings.get(currFromHyp);
 
         if (currFromHyp instanceof WorkVarHyp) {
             if (!currGeneratedDuringAccum)
-                toParseNode = currToNode.cloneTargetToSourceVars();
+                toParseNode = currToNode.cloneTargetToSourceVars(bindings);
 
-            if (currFromHyp.paSubst == null) {
-                final int returnCode = toParseNode
-                    .checkWorkVarHasOccursIn((WorkVarHyp)currFromHyp);
+            if (fromSubst == null) {
+                final int returnCode = toParseNode.checkWorkVarHasOccursIn(
+                    (WorkVarHyp)currFromHyp, bindings);
 
                 if (returnCode == LangConstants.WV_OCCURS_IN_RENAME_LOOP)
                     return true; // ok, but no assignment update!
@@ -652,14 +646,12 @@ public class StepUnifier {
             }
         }
 
-        if (currFromHyp.paSubst == null) {
-            currFromHyp.paSubst = toParseNode;
-            addToAppliedArray(new UnifySubst(currFromHyp, currToNode,
-                currGeneratedDuringAccum), currLevel);
+        if (fromSubst == null) {
+            addToAppliedArray(currFromHyp, toParseNode, currLevel);
             return true;
         }
 
-        return subunify(currFromHyp.paSubst, toParseNode);
+        return subunify(fromSubst, toParseNode);
     }
 
     /**
@@ -710,24 +702,30 @@ public class StepUnifier {
             currLevelDeferred = deferredSubst;
     }
 
-    private void addToAppliedArray(final UnifySubst unifySubst,
-        int levelIndex)
+    private void addToAppliedArray(final VarHyp fromHyp,
+        final ParseNode toNode, final int levelIndex)
     {
-        if (appliedCnt >= applied.length) {
-            if (appliedCnt >= PaConstants.STEP_UNIFIER_APPLIED_ARRAY_LEN_MAX)
-                throw new IllegalArgumentException(new ProofAsstException(
-                    PaConstants.ERRMSG_ADD_TO_APPLIED_ARRAY_OFLOW));
-            final int n = applied.length
-                + PaConstants.STEP_UNIFIER_APPLIED_ARRAY_LEN_INIT;
-            final UnifySubst[] x = new UnifySubst[n];
-            for (int i = 0; i < appliedCnt; i++)
-                x[i] = applied[i];
-            applied = x;
-        }
+        checkAppliedArrayLimit();
+        bindings.bind(fromHyp, toNode);
+        levelAppliedCnt[levelIndex + 1]++;
+    }
 
-        applied[appliedCnt++] = unifySubst;
-        levelAppliedCnt[++levelIndex]++;
+    // records a Work Var allocated during unification so that
+    // its backout deallocates it.
+    private void addAllocToAppliedArray(final WorkVarHyp workVarHyp,
+        final int levelIndex)
+    {
+        checkAppliedArrayLimit();
+        bindings.recordAlloc(workVarHyp);
+        levelAppliedCnt[levelIndex + 1]++;
     }
+
+    private void checkAppliedArrayLimit() {
+        if (bindings.mark() >= PaConstants.STEP_UNIFIER_APPLIED_ARRAY_LEN_MAX)
+            throw new IllegalArgumentException(new ProofAsstException(
+                PaConstants.ERRMSG_ADD_TO_APPLIED_ARRAY_OFLOW));
+    }
+
     private void backoutCurrLevelApplieds() {
         backoutOneLevelApplieds(currLevel);
     }
@@ -739,28 +737,12 @@ public class StepUnifier {
 
     private void backoutOneLevelApplieds(int levelNbr) {
 
-        int backoutCnt = levelAppliedCnt[++levelNbr];
-
-        UnifySubst appliedSubst;
-        while (backoutCnt-- > 0) {
-            appliedSubst = applied[--appliedCnt];
-
-            // Erase fromHyp.paSubst value because we never
-            // apply a substitution value more than once per
-            // variable during unification -- so if the VarHyp
-            // is mentioned in array "applied", erase .paSubst.
-            appliedSubst.fromHyp.paSubst = null;
-
-            if (appliedSubst.fromHyp instanceof WorkVarHyp
-                && appliedSubst.toNode == null)
-                // appliedSubst.toNode == null means that
-                // allocation was requested during unification;
-                // the WorkVarHyp was not part of the original
-                // formula, so it can be deallocated.
-                workVarManager.dealloc((WorkVarHyp)appliedSubst.fromHyp);
-
-            applied[appliedCnt] = null;
-        }
+        // Erasing a binding just nulls it out because we never
+        // apply a substitution value more than once per
+        // variable during unification. Work Vars allocated
+        // during unification were not part of the original
+        // formula, so they are deallocated.
+        bindings.undo(bindings.mark() - levelAppliedCnt[++levelNbr]);
 
         levelAppliedCnt[levelNbr] = 0;
     }
@@ -0,0 +1,318 @@
+package mmj.pa;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import mmj.pa.HighlightedDocument.DocumentReader;
+import mmj.pa.WorksheetTokenizer.Token;
+
+/**
+ * Incremental, event-driven Syntax Highlighting for a HighlightedDocument.
+ * <p>
+ * The token spans of each statement of the worksheet (a proof step, comment,
+ * header, etc., which always starts at the beginning of a line, where the
+ * tokenizer is in its initial state) are cached. An edit only invalidates the
+ * spans it touches and marks a "damaged" range. Edits are coalesced: the
+ * damaged range grows with each edit and is re-tokenized once the edits pause
+ * for {@link PaConstants#HIGHLIGHT_COALESCE_DELAY} milliseconds. Tokenizing
+ * starts at the last cached statement before the damage and stops at the
+ * first statement past the damage whose tokens match the cache, and only
+ * tokens whose spans or styles changed are restyled.
+ * <p>
+ * Everything runs on the Event Dispatch Thread, in slices of at most
+ * {@link PaConstants#HIGHLIGHT_TOKENS_PER_SLICE} tokens, so even recoloring a
+ * whole large worksheet does not freeze the editor.
+ */
+class SyntaxColorer implements ActionListener {
+
+    /** The cached tokens of one worksheet statement. */
+    private static class StmtSpans {
+        /** Document offset of the statement's first token */
+        int start;
+        /** Document offset just past the statement's last token */
+        int end;
+        /** Token begin offsets, relative to start */
+        final int[] begin;
+        final int[] length;
+        final String[] type;
+
+        StmtSpans(final List<Token> tokens) {
+            final int n = tokens.size();
+            start = tokens.get(0).begin;
+            final Token last = tokens.get(n - 1);
+            end = last.begin + last.length;
+            begin = new int[n];
+            length = new int[n];
+            type = new String[n];
+            for (int i = 0; i < n; i++) {
+                final Token t = tokens.get(i);
+                begin[i] = t.begin - start;
+                length[i] = t.length;
+                type[i] = t.type;
+            }
+        }
+
+        boolean sameToken(final int i, final StmtSpans other) {
+            return i < other.begin.length && begin[i] == other.begin[i]
+                && length[i] == other.length[i]
+                && type[i].equals(other.type[i]);
+        }
+
+        boolean sameTokens(final StmtSpans other) {
+            if (begin.length != other.begin.length)
+                return false;
+            for (int i = 0; i < begin.length; i++)
+                if (!sameToken(i, other))
+                    return false;
+            return true;
+        }
+
+        void shift(final int adjustment) {
+            start += adjustment;
+            end += adjustment;
+        }
+    }
+
+    private final HighlightedDocument doc;
+
+    private final ProofAsstPreferences preferences;
+
+    /** Cached statements, sorted by start offset and non-overlapping. */
+    private final List<StmtSpans> spans = new ArrayList<>();
+
+    /**
+     * The damaged range still to be re-tokenized, in current document
+     * offsets, or dirtyStart = -1 if there is none.
+     */
+    private int dirtyStart = -1;
+    private int dirtyEnd;
+
+    /** Fires when a burst of edits is over */
+    private final Timer coalesceTimer;
+
+    private boolean continuationPending;
+
+    /**
+     * Creates the colorer for the given document.
+     *
+     * @param doc The document to be colored.
+     * @param prefs the preferences class
+     */
+    public SyntaxColorer(final HighlightedDocument doc,
+        final ProofAsstPreferences prefs)
+    {
+        this.doc = doc;
+        preferences = prefs;
+        coalesceTimer = new Timer(PaConstants.HIGHLIGHT_COALESCE_DELAY, this);
+        coalesceTimer.setRepeats(false);
+    }
+
+    /**
+     * Tell the colorer that a section of the document was changed. The
+     * statements touched by the change are dropped from the cache and the
+     * range is recolored when the current burst of edits is over.
+     * <p>
+     * Changes made off the Event Dispatch Thread (e.g. while the GUI is being
+     * built) cause the whole document to be recolored.
+     *
+     * @param position The location of the change
+     * @param adjustment The amount of text added (negative if removed)
+     */
+    public void color(final int position, final int adjustment) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            colorAll();
+            return;
+        }
+
+        final int removedEnd = position + Math.max(-adjustment, 0);
+        for (int i = spans.size() - 1; i >= 0; i--) {
+            final StmtSpans s = spans.get(i);
+            if (s.end < position)
+                break;
+            if (s.start > removedEnd)
+                s.shift(adjustment);
+            else
+                spans.remove(i);
+        }
+
+        if (dirtyStart >= 0) {
+            dirtyStart = shiftPosition(dirtyStart, position, adjustment);
+            dirtyEnd = shiftPosition(dirtyEnd, position, adjustment);
+        }
+        markDirty(position, position + Math.max(adjustment, 0));
+        coalesceTimer.restart();
+    }
+
+    /** Drop the cache and recolor the whole document. */
+    public void colorAll() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(this::colorAll);
+            return;
+        }
+        spans.clear();
+        markDirty(0, doc.getLength());
+        coalesceTimer.restart();
+    }
+
+    /**
+     * Recolor now, on the calling (Event Dispatch) thread, until the given
+     * position has been reached. Used after the text is replaced
+     * programmatically so the visible part of the worksheet is not shown
+     * uncolored.
+     *
+     * @param blockUntil document offset to be colored before returning.
+     */
+    public void block(final int blockUntil) {
+        if (!SwingUtilities.isEventDispatchThread())
+            return;
+        while (dirtyStart >= 0 && dirtyStart <= blockUntil)
+            colorSlice();
+    }
+
+    /** The coalescing timer fired: start recoloring the damaged range. */
+    public void actionPerformed(final ActionEvent e) {
+        continueColoring();
+    }
+
+    private void continueColoring() {
+        continuationPending = false;
+        colorSlice();
+        if (dirtyStart >= 0 && !continuationPending) {
+            continuationPending = true;
+            SwingUtilities.invokeLater(this::continueColoring);
+        }
+    }
+
+    private static int shiftPosition(final int p, final int position,
+        final int adjustment)
+    {
+        if (p <= position)
+            return p;
+        return Math.max(position, p + adjustment);
+    }
+
+    private void markDirty(final int start, final int end) {
+        if (dirtyStart < 0) {
+            dirtyStart = start;
+            dirtyEnd = end;
+        }
+        else {
+            dirtyStart = Math.min(dirtyStart, start);
+            dirtyEnd = Math.max(dirtyEnd, end);
+        }
+    }
+
+    /**
+     * Re-tokenize one slice of the damaged range, restyling the tokens which
+     * changed, and advance (or clear) dirtyStart.
+     */
+    private void colorSlice() {
+        if (dirtyStart < 0)
+            return;
+
+        final DocumentReader reader = doc.getDocumentReader();
+        final WorksheetTokenizer tokenizer = doc.getTokenizer();
+        final int docLength = doc.getLength();
+
+        // restart at the last cached statement at or before the damage
+        int k = lastSpanAtOrBefore(dirtyStart);
+        final int restart = k < 0 ? 0 : spans.get(k).start;
+        if (k < 0)
+            k = 0;
+
+        final List<Token> stmt = new ArrayList<>();
+        int nbrTokens = 0;
+        try {
+            reader.seek(restart);
+            tokenizer.reset(reader, restart);
+            Token t = tokenizer.getNextToken();
+            while (true) {
+                if (t != null && !(t.initialState && !stmt.isEmpty())) {
+                    if (t.length < 0 || t.type == null || t.begin < 0
+                        || t.begin + t.length > docLength)
+                        new ProofAsstException(
+                            PaConstants.ERRMSG_TOKENIZER_FAIL)
+                                .printStackTrace();
+                    else {
+                        stmt.add(t);
+                        nbrTokens++;
+                    }
+                    t = tokenizer.getNextToken();
+                    continue;
+                }
+                if (stmt.isEmpty())
+                    break; // end of document
+
+                // a statement is complete
+                final StmtSpans fresh = new StmtSpans(stmt);
+                stmt.clear();
+                while (k < spans.size() && spans.get(k).start < fresh.start)
+                    spans.remove(k); // re-tokenized differently
+                final StmtSpans cached = k < spans.size()
+                    && spans.get(k).start == fresh.start ? spans.get(k)
+                        : null;
+                if (cached != null && fresh.start >= dirtyEnd
+                    && cached.sameTokens(fresh))
+                {
+                    // the rest of the cache is still valid
+                    dirtyStart = -1;
+                    return;
+                }
+                applyStyles(fresh, cached);
+                if (cached != null)
+                    spans.set(k, fresh);
+                else
+                    spans.add(k, fresh);
+                k++;
+
+                if (t == null)
+                    break;
+                if (nbrTokens >= PaConstants.HIGHLIGHT_TOKENS_PER_SLICE) {
+                    dirtyStart = t.begin;
+                    dirtyEnd = Math.max(dirtyEnd, dirtyStart);
+                    return;
+                }
+            }
+        } catch (final IOException e) {}
+
+        // reached the end of the document
+        while (k < spans.size())
+            spans.remove(k);
+        dirtyStart = -1;
+    }
+
+    private int lastSpanAtOrBefore(final int position) {
+        int lo = 0, hi = spans.size() - 1, found = -1;
+        while (lo <= hi) {
+            final int mid = lo + hi >>> 1;
+            if (spans.get(mid).start <= position) {
+                found = mid;
+                lo = mid + 1;
+            }
+            else
+                hi = mid - 1;
+        }
+        return found;
+    }
+
+    private void applyStyles(final StmtSpans fresh, final StmtSpans cached) {
+        for (int i = 0; i < fresh.begin.length; i++) {
+            if (cached != null && fresh.sameToken(i, cached))
+                continue;
+            try {
+                doc.setCharacterAttributes(fresh.start + fresh.begin[i],
+                    fresh.length[i],
+                    preferences.getHighlightingStyle(fresh.type[i]), true);
+            } catch (final RuntimeException e) {
+                System.err.println("Ignoring exception:");
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -24,6 +24,8 @@ public class CharStrSearchDataLine extends SearchDataLine {
         if (csa.searchOutput.searchReturnCode == 0
             && searchPartChoice == SearchOptionsConstants.PART_COMMENTS_ID)
             convertSearchTermTextToLowerCase();
+        for (final QuotedSearchTerm quotedSearchTerm : quotedSearchTermList)
+            quotedSearchTerm.literals = new String[]{quotedSearchTerm.text};
     }
 
     @Override
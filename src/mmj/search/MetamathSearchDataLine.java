@@ -15,6 +15,8 @@
 
 package mmj.search;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 public class MetamathSearchDataLine extends SearchDataLine {
@@ -59,6 +61,7 @@ public class MetamathSearchDataLine extends SearchDataLine {
             final QuotedSearchTerm quotedSearchTerm = quotedSearchTermList
                 .get(i);
             final StringBuffer stringbuffer = new StringBuffer();
+            final List<String> literals = new ArrayList<>();
             int j = 0;
             StringBuffer stringbuffer1 = new StringBuffer();
             do {
@@ -69,6 +72,7 @@ public class MetamathSearchDataLine extends SearchDataLine {
                     final char c1 = quotedSearchTerm.text.charAt(j);
                     if (c1 == '*' || c1 == '?') {
                         if (stringbuffer1.length() > 0) {
+                            literals.add(stringbuffer1.toString());
                             stringbuffer.append(Pattern.quote(stringbuffer1
                                 .toString()));
                             stringbuffer1 = new StringBuffer();
@@ -83,6 +87,7 @@ public class MetamathSearchDataLine extends SearchDataLine {
                     && (searchPartChoice == SearchOptionsConstants.PART_LABELS_ID || searchPartChoice == SearchOptionsConstants.PART_LABELS_RPN_ID))
                 {
                     if (stringbuffer1.length() > 0) {
+                        literals.add(stringbuffer1.toString());
                         stringbuffer.append(Pattern.quote(stringbuffer1
                             .toString()));
                         stringbuffer1 = new StringBuffer();
@@ -93,9 +98,13 @@ public class MetamathSearchDataLine extends SearchDataLine {
                 else
                     stringbuffer1.append(c);
             } while (true);
-            if (stringbuffer1.length() > 0)
+            if (stringbuffer1.length() > 0) {
+                literals.add(stringbuffer1.toString());
                 stringbuffer.append(Pattern.quote(stringbuffer1.toString()));
+            }
             quotedSearchTerm.text = stringbuffer.toString();
+            quotedSearchTerm.literals = literals
+                .toArray(new String[literals.size()]);
         }
 
     }
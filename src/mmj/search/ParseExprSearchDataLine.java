@@ -30,6 +30,14 @@ public class ParseExprSearchDataLine extends SearchDataLine {
             parseSearchTerms(csa);
     }
 
+    @Override
+    public SearchDataLine copy(final SearchDataGetter searchDataGetter) {
+        final ParseExprSearchDataLine copy = (ParseExprSearchDataLine)super
+            .copy(searchDataGetter);
+        copy.searchUnifier = new SearchUnifier();
+        return copy;
+    }
+
     @Override
     public void loadAssrtData() {
         loadAssrtDataTreeArray();
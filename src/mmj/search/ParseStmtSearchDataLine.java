@@ -29,6 +29,14 @@ public class ParseStmtSearchDataLine extends SearchDataLine {
             parseSearchTerms(csa);
     }
 
+    @Override
+    public SearchDataLine copy(final SearchDataGetter searchDataGetter) {
+        final ParseStmtSearchDataLine copy = (ParseStmtSearchDataLine)super
+            .copy(searchDataGetter);
+        copy.searchUnifier = new SearchUnifier();
+        return copy;
+    }
+
     @Override
     public void loadAssrtData() {
         loadAssrtDataTreeArray();
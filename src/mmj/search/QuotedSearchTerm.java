@@ -28,6 +28,7 @@ public class QuotedSearchTerm {
         orIsSet = false;
         pattern = null;
         parsedSearchTerm = null;
+        literals = null;
     }
 
     public QuotedSearchTerm(final String s, final int i) {
@@ -39,6 +40,7 @@ public class QuotedSearchTerm {
         orIsSet = false;
         pattern = null;
         parsedSearchTerm = null;
+        literals = null;
     }
 
     public QuotedSearchTerm first(final String s, final String s1,
@@ -122,4 +124,10 @@ public class QuotedSearchTerm {
     public boolean orIsSet;
     Pattern pattern;
     public ParsedSearchTerm parsedSearchTerm;
+    /**
+     * Literal strings which must all occur in the searched text for this term
+     * to match, used to look up candidates in the SearchIndex; null if the
+     * term cannot be narrowed that way.
+     */
+    String[] literals;
 }
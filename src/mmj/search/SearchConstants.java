@@ -34,6 +34,8 @@ public class SearchConstants {
     public static final int SEARCH_SCORE_SELECTED_ITEM = 50;
     public static final int SEARCH_SCORE_NOT_SELECTED_ITEM = 0;
     public static final int SEARCH_SCORE_TRAILER_ITEM = -1;
+    public static final int SEARCH_CHUNK_SIZE = 256;
+    public static final int SEARCH_INDEX_MAX_PCT = 50;
     public static final String COMPLETED_ITEM_OUTPUT_LITERAL = "(*) ";
     public static final String DOT_STEP_CAPTION = ".Step ";
     public static final String SEARCH_OUTPUT_SEARCH_FORMULA_INDENT = "    ";
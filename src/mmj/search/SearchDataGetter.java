@@ -22,6 +22,7 @@ public class SearchDataGetter {
 
     public SearchDataGetter() {
         assrt = null;
+        searchIndex = null;
         assrtFormulaString = null;
         logHypFormulaString = null;
         assrtCommentString = null;
@@ -115,6 +116,8 @@ public class SearchDataGetter {
     }
 
     private String getAssrtCommentString() {
+        if (assrtCommentString == null && searchIndex != null)
+            assrtCommentString = searchIndex.getComment(assrt);
         if (assrtCommentString == null)
             assrtCommentString = assrt.getDescriptionForSearch().toLowerCase();
         return assrtCommentString;
@@ -317,4 +320,5 @@ public class SearchDataGetter {
     ParseTree[] logHypFormulaTree;
     VarHyp[] assrtFormulaVarHyp;
     VarHyp[][] logHypFormulaVarHyp;
+    SearchIndex searchIndex;
 }
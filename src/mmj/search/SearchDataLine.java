@@ -22,7 +22,7 @@ import java.util.regex.PatternSyntaxException;
 
 import mmj.lang.*;
 
-public abstract class SearchDataLine {
+public abstract class SearchDataLine implements Cloneable {
 
     public static SearchDataLine createSearchDataLine(
         final CompiledSearchArgs csa, final int i,
@@ -97,6 +97,25 @@ public abstract class SearchDataLine {
         loadQuotedSearchTermList(csa);
     }
 
+    /**
+     * Returns a copy of this line for use by another thread. The compiled
+     * search terms are shared; the per-assertion work areas are not.
+     *
+     * @param searchDataGetter the SearchDataGetter used by the copy.
+     * @return the copy.
+     */
+    public SearchDataLine copy(final SearchDataGetter searchDataGetter) {
+        final SearchDataLine copy;
+        try {
+            copy = (SearchDataLine)clone();
+        } catch (final CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        copy.searchDataGetter = searchDataGetter;
+        copy.initForNextSearch();
+        return copy;
+    }
+
     public abstract void loadAssrtData();
 
     public abstract boolean evaluateSearchTerm(
@@ -105,6 +124,8 @@ public abstract class SearchDataLine {
     public int evaluate(final CompiledSearchArgs csa) {
         if (!searchDataLineWantsThisAssrt())
             return 0;
+        if (candidates != null && !candidates.contains(searchDataGetter.assrt))
+            return !isOperSetToNot() ? -1 : 1;
         initForNextSearch();
         loadAssrtData();
         if (evaluateSearchTerms(csa))
@@ -117,6 +138,21 @@ public abstract class SearchDataLine {
         assrtDataTreeArray = null;
     }
 
+    /**
+     * Looks up the assertions which may match this line's search terms in the
+     * SearchIndex; evaluate() treats every other assertion as not matching
+     * without loading its data.
+     *
+     * @param searchIndex the SearchIndex.
+     */
+    void loadCandidates(final SearchIndex searchIndex) {
+        final List<String[]> terms = new ArrayList<>(
+            quotedSearchTermList.size());
+        for (final QuotedSearchTerm quotedSearchTerm : quotedSearchTermList)
+            terms.add(quotedSearchTerm.literals);
+        candidates = searchIndex.getCandidates(searchPartChoice, terms);
+    }
+
     protected boolean searchDataLineWantsThisAssrt() {
         if (searchDataGetter.assrt instanceof Axiom) {
             if (wantsAxioms)
@@ -282,6 +318,7 @@ public abstract class SearchDataLine {
     String searchForWhat;
     int searchBoolChoice;
     List<QuotedSearchTerm> quotedSearchTermList;
+    SearchIndex.Candidates candidates;
     String[] assrtDataStringArray;
     ParseTree[] assrtDataTreeArray;
     VarHyp[][] assrtDataVarHypArray;
@@ -30,6 +30,33 @@ public class SearchDataLines {
             else
                 line[i] = SearchDataLine.createSearchDataLine(csa, i, getter);
 
+        if (csa.searchOutput.searchReturnCode == 0) {
+            getter.searchIndex = csa.searchMgr.getSearchIndex();
+            if (getter.searchIndex != null)
+                for (final SearchDataLine l : line)
+                    if (l != null)
+                        l.loadCandidates(getter.searchIndex);
+        }
+    }
+
+    private SearchDataLines(final SearchDataLines lines) {
+        getter = new SearchDataGetter();
+        getter.searchIndex = lines.getter.searchIndex;
+        line = new SearchDataLine[lines.line.length];
+        for (int i = 0; i < line.length; i++)
+            if (lines.line[i] != null)
+                line[i] = lines.line[i].copy(getter);
+    }
+
+    /**
+     * Returns a copy of these search data lines which can be evaluated on
+     * another thread: it shares the compiled search terms but has its own
+     * SearchDataGetter and SearchUnifier work areas.
+     *
+     * @return a copy for use by one thread.
+     */
+    public SearchDataLines copy() {
+        return new SearchDataLines(this);
     }
 
     public boolean evaluate(final Assrt assrt, final CompiledSearchArgs csa) {
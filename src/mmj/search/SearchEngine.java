@@ -15,12 +15,12 @@
 
 package mmj.search;
 
-import java.util.BitSet;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.*;
 
 import mmj.lang.*;
 import mmj.pa.*;
+import mmj.util.ParallelIndexWork;
 import mmj.verify.VerifyException;
 import mmj.verify.VerifyProofs;
 
@@ -47,6 +47,7 @@ public class SearchEngine {
     private ParseNode[] assrtSubst = null;
     private boolean stepSearchMode = false;
     private boolean substitutions = false;
+    private ChunkedEvaluation chunks = null;
 
     public SearchEngine(final SearchMgr searchMgr, final ProofAsst proofAsst,
         final ProofAsstPreferences proofAsstPreferences,
@@ -78,18 +79,13 @@ public class SearchEngine {
             searchOutput, proofAsst, proofAsstPreferences, verifyProofs,
             provableLogicStmtTyp);
         if (searchOutput.searchReturnCode == 0) {
-            final FutureTask<SearchOutput> search = new FutureTask<>(
-                new Callable<SearchOutput>()
-            {
-                    public SearchOutput call() throws Exception {
-                        return searchTask();
-                    }
-                });
-            Executors.newSingleThreadExecutor().execute(search);
+            final Future<SearchOutput> search = searchMgr
+                .getSearchTaskExecutor().submit(this::searchTask);
             try {
                 searchOutput = search.get(compiledSearchArgs.searchMaxTime,
                     TimeUnit.SECONDS);
             } catch (final InterruptedException interruptedexception) {
+                cancelSearchTask(search);
                 searchOutput.storeError(3, 30,
                     SearchConstants.ERRMSG_SEARCH_TASK_INTERRUPTED_1
                         + interruptedexception.getMessage());
@@ -101,6 +97,7 @@ public class SearchEngine {
                 throw new IllegalArgumentException(
                     "Rethrowing ExecutionException", executionexception);
             } catch (final TimeoutException timeoutexception) {
+                cancelSearchTask(search);
                 searchOutput.storeError(2, 30,
                     SearchConstants.ERRMSG_SEARCH_TASK_TIMEOUT_1
                         + timeoutexception.getMessage());
@@ -111,6 +108,25 @@ public class SearchEngine {
         return searchOutput;
     }
 
+    /**
+     * Cancels a search task which ran out of time (or whose caller was
+     * interrupted) and waits until it has stopped, so that it no longer
+     * updates searchOutput. The task executor has one thread, so an empty
+     * task submitted after the cancel runs only once the search task is done.
+     *
+     * @param search the search task.
+     */
+    private void cancelSearchTask(final Future<SearchOutput> search) {
+        search.cancel(true);
+        try {
+            searchMgr.getSearchTaskExecutor().submit(() -> {}).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public SearchOutput searchTask() {
         substitutions = compiledSearchArgs.searchSubstitutions;
         store = new SearchOutputStore(compiledSearchArgs.searchMaxResults,
@@ -124,9 +140,12 @@ public class SearchEngine {
                 doExtendedSearch();
             }
         } catch (final InterruptedException interruptedexception) {
-            searchOutput.storeError(3, 30,
-                SearchConstants.ERRMSG_SEARCH_TASK_INTERRUPTED_1
-                    + interruptedexception.getMessage());
+            // cancelled by execSearch(), which reports the reason
+        } finally {
+            if (chunks != null) {
+                chunks.cancel();
+                chunks = null;
+            }
         }
         return searchOutput;
     }
@@ -168,6 +187,7 @@ public class SearchEngine {
             step = "";
         }
         int k1 = computeSearchStart(minHyps);
+        chunks = startChunkedEvaluation(k1);
         hypLoop: for (int hyp = minHyps; hyp <= maxHyps; hyp++) {
             if (stepSearchMode) {
                 derivStepHypArray = new ProofStepStmt[hyp];
@@ -189,7 +209,6 @@ public class SearchEngine {
                 }
                 if (i2 <= minSeq) {
                     searchOutput.statsNbrRejectLEMinSeq++;
-                    k1++;
                     continue;
                 }
                 assrtNbrLogHyps = assrt.getLogHypArrayLength();
@@ -199,68 +218,178 @@ public class SearchEngine {
                 }
                 if (assrt.getNbrProofRefs() < minProofRefs) {
                     searchOutput.statsNbrRejectLTMinProofRefs++;
-                    k1++;
                     continue;
                 }
                 assrtLogHypArray = assrt.getLogHypArray();
                 assrtHypArray = assrt.getMandFrame().hypArray;
-                if (evaluateOtherExclusionCriteria()) {
-                    if (stepSearchMode && !isAssrtUnifiable()) {
-                        searchOutput.statsNbrRejectFailUnify++;
-                        k1++;
-                        continue;
-                    }
-                    if (evaluateSearchDataLines()) {
-                        if (searchOutput.searchReturnCode != 0)
-                            break;
-                        searchOutput.statsNbrSelected++;
-                        if (addAssrtToStore(computeScore())) {
-                            full = true;
-                            break;
-                        }
+                final byte verdict = chunks == null
+                    ? evaluateOtherExclusionCriteria(assrt)
+                    : chunks.getVerdict(k1);
+                if (verdict == REJECT_EXCL_LABELS) {
+                    searchOutput.statsNbrRejectExclLabels++;
+                    searchOutput.statsNbrRejectOtherExclCriteria++;
+                    continue;
+                }
+                if (verdict == REJECT_OTHER_EXCL_CRITERIA) {
+                    searchOutput.statsNbrRejectOtherExclCriteria++;
+                    continue;
+                }
+                if (stepSearchMode && !isAssrtUnifiable()) {
+                    searchOutput.statsNbrRejectFailUnify++;
+                    continue;
+                }
+                if (chunks == null ? evaluateSearchDataLines(
+                    compiledSearchArgs.searchDataLines, assrt)
+                    : verdict == SELECTED)
+                {
+                    if (searchOutput.searchReturnCode != 0)
+                        break;
+                    searchOutput.statsNbrSelected++;
+                    if (addAssrtToStore(computeScore())) {
+                        full = true;
+                        break hypLoop;
                     }
-                    else
-                        searchOutput.statsNbrRejectFailSearchData++;
                 }
                 else
-                    searchOutput.statsNbrRejectOtherExclCriteria++;
+                    searchOutput.statsNbrRejectFailSearchData++;
             }
         }
         store.loadSearchOutput(searchOutput, step, full);
         return;
     }
 
+    /**
+     * Starts evaluating the search criteria which do not involve unification
+     * (excluded labels, chapter/section dependencies and the search data
+     * lines) on the search worker threads, if more than one thread is
+     * configured.
+     * <p>
+     * The assertion list, from {@code start} on, is split into chunks of
+     * {@code SearchConstants.SEARCH_CHUNK_SIZE} assertions which the workers
+     * claim in order, each worker using its own copy of the search data
+     * lines. loadSearchOutput() still walks the list in order on the search
+     * task thread, unifies with the derivation step (StepUnifier is not thread
+     * safe) and adds the selected assertions to the store, so the output is
+     * the same as with one thread; it waits only for the chunk holding the
+     * assertion it needs next, and cancels the remaining chunks when the
+     * store is full.
+     *
+     * @param start index of the first assertion searched.
+     * @return the evaluation, or null for a single-threaded search.
+     */
+    private ChunkedEvaluation startChunkedEvaluation(final int start) {
+        final int nbrThreads = proofAsstPreferences.searchThreads.get();
+        if (nbrThreads <= 1 || start >= assrtAList.size())
+            return null;
+        return new ChunkedEvaluation(start,
+            searchMgr.getSearchWorkerExecutor(nbrThreads), nbrThreads);
+    }
+
+    private static final byte NOT_EVALUATED = 0;
+    private static final byte REJECT_EXCL_LABELS = 1;
+    private static final byte REJECT_OTHER_EXCL_CRITERIA = 2;
+    private static final byte REJECT_SEARCH_DATA = 3;
+    private static final byte SELECTED = 4;
+
+    /**
+     * The chunks of one search evaluated by the search worker threads.
+     */
+    private class ChunkedEvaluation {
+        private final int start;
+        private final ParallelIndexWork<byte[]> work;
+        private volatile boolean cancelled = false;
+
+        ChunkedEvaluation(final int start, final ExecutorService pool,
+            final int nbrThreads)
+        {
+            this.start = start;
+            final int size = SearchConstants.SEARCH_CHUNK_SIZE;
+            final int nbrChunks = (assrtAList.size() - start + size - 1)
+                / size;
+            final SearchDataLines lines = compiledSearchArgs.searchDataLines;
+            work = new ParallelIndexWork<>(pool, nbrThreads, nbrChunks, null,
+                w -> {
+                    final SearchDataLines copy = lines == null ? null
+                        : lines.copy();
+                    return c -> evaluateChunk(c, copy);
+                });
+        }
+
+        /**
+         * Returns the verdict for an assertion, waiting for its chunk.
+         *
+         * @param index index of the assertion in assrtAList.
+         * @return the verdict.
+         * @throws InterruptedException if the search is cancelled.
+         */
+        byte getVerdict(final int index) throws InterruptedException {
+            final int offset = index - start;
+            final int size = SearchConstants.SEARCH_CHUNK_SIZE;
+            return work.get(offset / size)[offset % size];
+        }
+
+        void cancel() {
+            cancelled = true;
+            work.cancel();
+        }
+
+        private byte[] evaluateChunk(final int c,
+            final SearchDataLines lines)
+        {
+            final int from = start + c * SearchConstants.SEARCH_CHUNK_SIZE;
+            final int to = Math.min(from + SearchConstants.SEARCH_CHUNK_SIZE,
+                assrtAList.size());
+            final CompiledSearchArgs csa = compiledSearchArgs;
+            final byte[] verdict = new byte[to - from];
+            for (int i = from; i < to && !cancelled; i++) {
+                final Assrt a = assrtAList.get(i);
+                final int seq = a.getSeq();
+                final int nbrHyps = a.getLogHypArrayLength();
+                if (seq >= csa.searchMaxSeq || seq <= csa.searchMinSeq
+                    || nbrHyps < csa.searchMinHyps
+                    || nbrHyps > csa.searchMaxHyps
+                    || a.getNbrProofRefs() < csa.searchMinProofRefs)
+                    verdict[i - from] = NOT_EVALUATED;
+                else {
+                    verdict[i - from] = evaluateOtherExclusionCriteria(a);
+                    if (verdict[i - from] == SELECTED)
+                        verdict[i - from] = evaluateSearchDataLines(lines, a)
+                            ? SELECTED : REJECT_SEARCH_DATA;
+                }
+            }
+            return verdict;
+        }
+    }
+
     private void doExtendedSearch() throws InterruptedException {
         checkForInterrupt();
     }
 
-    private boolean evaluateOtherExclusionCriteria() {
+    private byte evaluateOtherExclusionCriteria(final Assrt assrt) {
         final String s = assrt.getLabel();
         final int i = compiledSearchArgs.searchExclLabelsPattern.length;
         for (int j = 0; j < i; j++)
             if (compiledSearchArgs.searchExclLabelsPattern[j].matcher(s)
                 .matches())
-            {
-                searchOutput.statsNbrRejectExclLabels++;
-                return false;
-            }
+                return REJECT_EXCL_LABELS;
 
         final BitSet bitset = compiledSearchArgs.searchCombinedDependencies;
         if (bitset != null)
             if (compiledSearchArgs.searchUseChapHierarchy) {
                 if (!bitset.get(assrt.getChapterNbr()))
-                    return false;
+                    return REJECT_OTHER_EXCL_CRITERIA;
             }
             else if (compiledSearchArgs.searchUseSecHierarchy && !bitset
                 .get(BookManager.getOrigSectionNbr(assrt.getSectionNbr())))
-                return false;
-        return true;
+                return REJECT_OTHER_EXCL_CRITERIA;
+        return SELECTED;
     }
 
-    private boolean evaluateSearchDataLines() {
-        if (compiledSearchArgs.searchDataLines != null)
-            return compiledSearchArgs.searchDataLines.evaluate(assrt,
-                compiledSearchArgs);
+    private boolean evaluateSearchDataLines(final SearchDataLines lines,
+        final Assrt assrt)
+    {
+        if (lines != null)
+            return lines.evaluate(assrt, compiledSearchArgs);
         else
             return true;
     }
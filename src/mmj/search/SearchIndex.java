@@ -0,0 +1,270 @@
+//*****************************************************************************/
+//* Copyright (C) 2005-2013                                                   */
+//* MEL O'CAT  X178G243 (at) yahoo (dot) com                                  */
+//* License terms: GNU General Public License Version 2                       */
+//*                or any later version                                       */
+//*****************************************************************************/
+//*456789012345678 (80-character line to adjust editor window) 456789012345678*/
+
+/*
+ * SearchIndex.java  0.01
+ */
+
+package mmj.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mmj.lang.Assrt;
+
+/**
+ * SearchIndex is an inverted index of the character trigrams of the
+ * assertions' comments, labels and formulas, used to skip assertions which
+ * cannot match a search term before the term's pattern is applied.
+ * <p>
+ * The index is built from the same strings that SearchDataGetter hands to the
+ * search data lines: the lower-cased comment, the labels of the assertion and
+ * its logical hypotheses, and the formulas of the assertion and its logical
+ * hypotheses. A string containing a literal contains every trigram of the
+ * literal, so an assertion whose strings lack one of those trigrams is
+ * certainly not a match; the converse does not hold, so the surviving
+ * candidates are still checked by the search data line.
+ * <p>
+ * Trigrams found in more than {@code SearchConstants.SEARCH_INDEX_MAX_PCT}
+ * percent of the assertions do not narrow a search much and their posting
+ * lists are dropped after the index is built.
+ * <p>
+ * Assertions added after the index is built (by the TheoremLoader) are
+ * appended with {@code add()}. Assertions which are not in the index are
+ * always candidates.
+ */
+public class SearchIndex {
+
+    private static final int COMMENTS = 0;
+    private static final int LABELS = 1;
+    private static final int FORMULAS = 2;
+    private static final int NBR_PARTS = 3;
+
+    /** Posting list of one trigram; ids == null means "every assertion". */
+    private static class Postings {
+        int[] ids = new int[4];
+        int cnt = 0;
+
+        void add(final int id) {
+            if (ids == null)
+                return;
+            if (cnt == ids.length)
+                ids = Arrays.copyOf(ids, cnt * 2);
+            ids[cnt++] = id;
+        }
+    }
+
+    private static class Entry {
+        final int id;
+        final String comment;
+
+        Entry(final int id, final String comment) {
+            this.id = id;
+            this.comment = comment;
+        }
+    }
+
+    /**
+     * The assertions which may match a search data line.
+     */
+    public static class Candidates {
+        private final SearchIndex index;
+        private final BitSet ids;
+        private final int nbrIds;
+
+        private Candidates(final SearchIndex index, final BitSet ids,
+            final int nbrIds)
+        {
+            this.index = index;
+            this.ids = ids;
+            this.nbrIds = nbrIds;
+        }
+
+        /**
+         * @param assrt an assertion.
+         * @return false if the assertion certainly does not match.
+         */
+        public boolean contains(final Assrt assrt) {
+            final Entry entry = index.entries.get(assrt);
+            return entry == null || entry.id >= nbrIds || ids.get(entry.id);
+        }
+    }
+
+    private final Map<Assrt, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Map<Long, Postings>> postings = new ArrayList<>(
+        NBR_PARTS);
+    private int nbrIds = 0;
+
+    /**
+     * Builds the index for a collection of assertions.
+     *
+     * @param assrts the assertions.
+     */
+    public SearchIndex(final Collection<? extends Assrt> assrts) {
+        for (int i = 0; i < NBR_PARTS; i++)
+            postings.add(new HashMap<>());
+        for (final Assrt assrt : assrts)
+            add(assrt);
+        final int max = (int)((long)nbrIds
+            * SearchConstants.SEARCH_INDEX_MAX_PCT / 100);
+        for (final Map<Long, Postings> part : postings)
+            for (final Postings p : part.values())
+                if (p.cnt > max) {
+                    p.ids = null;
+                    p.cnt = nbrIds;
+                }
+                else
+                    p.ids = Arrays.copyOf(p.ids, p.cnt);
+    }
+
+    /**
+     * Adds an assertion to the index.
+     * <p>
+     * An assertion which is already indexed (a theorem updated by the
+     * TheoremLoader) gets a new id, so that the posting lists stay in
+     * ascending order; its old id is simply no longer referenced.
+     *
+     * @param assrt the assertion.
+     */
+    public synchronized void add(final Assrt assrt) {
+        final SearchDataGetter getter = new SearchDataGetter();
+        getter.initForNextSearch(assrt);
+        final String comment = getter.getCommentsAssrtDataStringArray(true,
+            true, true)[0];
+
+        final int id = nbrIds++;
+        entries.put(assrt, new Entry(id, comment));
+
+        addStrings(COMMENTS, id, new String[]{comment});
+        addStrings(LABELS, id,
+            getter.getLabelsAssrtDataStringArray(true, true, true));
+        addStrings(FORMULAS, id,
+            getter.getFormulasAssrtDataStringArray(true, true, true));
+    }
+
+    private void addStrings(final int part, final int id,
+        final String[] strings)
+    {
+        final Map<Long, Postings> map = postings.get(part);
+        for (final long key : distinctTrigrams(strings)) {
+            Postings p = map.get(key);
+            if (p == null)
+                map.put(key, p = new Postings());
+            if (p.ids == null || p.cnt == 0 || p.ids[p.cnt - 1] != id)
+                p.add(id);
+        }
+    }
+
+    private static long[] distinctTrigrams(final String[] strings) {
+        int n = 0;
+        for (final String s : strings)
+            n += Math.max(0, s.length() - 2);
+        final long[] keys = new long[n];
+        n = 0;
+        for (final String s : strings)
+            for (int i = 0; i + 2 < s.length(); i++)
+                keys[n++] = trigram(s, i);
+        Arrays.sort(keys);
+        int cnt = 0;
+        for (int i = 0; i < keys.length; i++)
+            if (cnt == 0 || keys[i] != keys[cnt - 1])
+                keys[cnt++] = keys[i];
+        return Arrays.copyOf(keys, cnt);
+    }
+
+    private static long trigram(final String s, final int i) {
+        return (long)s.charAt(i) << 32 | (long)s.charAt(i + 1) << 16
+            | s.charAt(i + 2);
+    }
+
+    /**
+     * Returns the lower-cased comment of an indexed assertion, as returned by
+     * {@code SearchDataGetter.getCommentsAssrtDataStringArray()}.
+     *
+     * @param assrt the assertion.
+     * @return the comment, or null if the assertion is not indexed.
+     */
+    public String getComment(final Assrt assrt) {
+        final Entry entry = entries.get(assrt);
+        return entry == null ? null : entry.comment;
+    }
+
+    /**
+     * Computes the assertions which may match a search data line.
+     * <p>
+     * Each element of {@code terms} holds the literals which a string must
+     * contain to match one of the line's search terms; a null element is a
+     * term which cannot be narrowed. An assertion is a candidate if, for some
+     * term, its strings contain all trigrams of all the term's literals.
+     *
+     * @param partChoice the SearchOptionsConstants Part choice.
+     * @param terms the literals of each search term.
+     * @return the candidates, or null if the index does not narrow the search.
+     */
+    public synchronized Candidates getCandidates(final int partChoice,
+        final List<String[]> terms)
+    {
+        final int part;
+        switch (partChoice) {
+            case SearchOptionsConstants.PART_COMMENTS_ID:
+                part = COMMENTS;
+                break;
+            case SearchOptionsConstants.PART_LABELS_ID:
+                part = LABELS;
+                break;
+            case SearchOptionsConstants.PART_FORMULAS_ID:
+                part = FORMULAS;
+                break;
+            default:
+                return null;
+        }
+        final BitSet ids = new BitSet(nbrIds);
+        for (final String[] literals : terms) {
+            final int[] termIds = literals == null ? null
+                : intersect(postings.get(part), literals);
+            if (termIds == null)
+                return null;
+            for (final int id : termIds)
+                ids.set(id);
+        }
+        return new Candidates(this, ids, nbrIds);
+    }
+
+    private int[] intersect(final Map<Long, Postings> map,
+        final String[] literals)
+    {
+        final List<Postings> lists = new ArrayList<>();
+        for (final String literal : literals)
+            for (final long key : distinctTrigrams(new String[]{literal})) {
+                final Postings p = map.get(key);
+                if (p == null)
+                    return new int[0];
+                if (p.ids != null)
+                    lists.add(p);
+            }
+        if (lists.isEmpty())
+            return null;
+        lists.sort(Comparator.comparingInt(p -> p.cnt));
+
+        int[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).cnt);
+        int cnt = result.length;
+        for (int l = 1; l < lists.size() && cnt > 0; l++) {
+            final Postings p = lists.get(l);
+            int n = 0;
+            int j = 0;
+            for (int i = 0; i < cnt; i++) {
+                while (j < p.cnt && p.ids[j] < result[i])
+                    j++;
+                if (j < p.cnt && p.ids[j] == result[i])
+                    result[n++] = result[i];
+            }
+            cnt = n;
+        }
+        return Arrays.copyOf(result, cnt);
+    }
+}
@@ -15,9 +15,12 @@
 
 package mmj.search;
 
+import static mmj.util.ParallelIndexWork.daemonThreadFactory;
+
 import java.awt.Dimension;
 import java.awt.Font;
 import java.util.List;
+import java.util.concurrent.*;
 
 import javax.swing.JOptionPane;
 
@@ -70,9 +73,39 @@ public class SearchMgr {
     private SearchOutput searchOutput = new SearchOutput("");
     private SearchEngine searchEngine = null;
     private final SearchUnifier searchUnifier = new SearchUnifier();
+    private ExecutorService searchTaskExecutor = null;
+    private ExecutorService searchWorkerExecutor = null;
+    private int searchWorkerThreads = 0;
+    private SearchIndex searchIndex = null;
+    // the SearchMgr holding the SearchIndex, see the session constructor
+    private final SearchMgr searchIndexOwner;
 
     public SearchMgr(final ProofAsstPreferences proofAsstPreferences) {
+        this(proofAsstPreferences, null);
+    }
+
+    /**
+     * Constructor for a Proof Assistant session (see ProofAsst.newSession()).
+     * <p>
+     * The session's SearchMgr has its own search arguments, output,
+     * SearchEngine and executors, and so searches with the session's
+     * StepUnifier and VerifyProofs (see initOtherEnvAreas()). The SearchIndex
+     * is shared with the other SearchMgr, which keeps it up to date.
+     *
+     * @param shared the SearchMgr whose SearchIndex is shared
+     * @param proofAsstPreferences the session's ProofAsstPreferences
+     */
+    public SearchMgr(final SearchMgr shared,
+        final ProofAsstPreferences proofAsstPreferences)
+    {
+        this(proofAsstPreferences, shared);
+    }
+
+    private SearchMgr(final ProofAsstPreferences proofAsstPreferences,
+        final SearchMgr shared)
+    {
         this.proofAsstPreferences = proofAsstPreferences;
+        searchIndexOwner = shared == null ? this : shared.searchIndexOwner;
         SearchOptionsConstants.CHECK_SEARCH_OPTIONS_FIELD_ATTR_IDS();
         SearchOptionsConstants.CHECK_SEARCH_ARGS_FIELD_IDS(searchArgs);
         SearchOptionsConstants.CHECK_SEARCH_OPTIONS_BUTTON_ATTR_IDS();
@@ -99,6 +132,9 @@ public class SearchMgr {
         bookManager = logicalSystem.bookManager;
         provableLogicStmtTyp = grammar.getProvableLogicStmtTypArray()[0];
         searchArgs.sortedAssrtSearchList = proofAsst.getSortedAssrtSearchList();
+        synchronized (this) {
+            searchIndex = null;
+        }
         searchEngine = new SearchEngine(this, proofAsst, proofAsstPreferences,
             bookManager, verifyProofs, provableLogicStmtTyp);
     }
@@ -420,6 +456,79 @@ public class SearchMgr {
         return searchUnifier;
     }
 
+    /**
+     * Returns the executor which runs search tasks, one at a time.
+     * <p>
+     * The executor has a single daemon thread which is created on first use
+     * and kept for the rest of the session, so that repeated searches do not
+     * create (and leave behind) a thread each.
+     *
+     * @return the search task executor.
+     */
+    public synchronized ExecutorService getSearchTaskExecutor() {
+        if (searchTaskExecutor == null)
+            searchTaskExecutor = Executors
+                .newSingleThreadExecutor(daemonThreadFactory("mmj2-search"));
+        return searchTaskExecutor;
+    }
+
+    /**
+     * Returns the executor on which a search task evaluates chunks of the
+     * assertion list in parallel.
+     * <p>
+     * The pool is kept between searches and is only rebuilt when the number
+     * of threads changes.
+     *
+     * @param nbrThreads number of worker threads.
+     * @return the search worker executor.
+     */
+    public synchronized ExecutorService getSearchWorkerExecutor(
+        final int nbrThreads)
+    {
+        if (searchWorkerExecutor == null || searchWorkerThreads != nbrThreads) {
+            if (searchWorkerExecutor != null)
+                searchWorkerExecutor.shutdown();
+            searchWorkerExecutor = Executors.newFixedThreadPool(nbrThreads,
+                daemonThreadFactory("mmj2-search-worker"));
+            searchWorkerThreads = nbrThreads;
+        }
+        return searchWorkerExecutor;
+    }
+
+    /**
+     * Returns the SearchIndex of the assertions' comments, labels and
+     * formulas.
+     * <p>
+     * The index is built by the first search after the Proof Assistant is
+     * initialized and kept up to date by {@code addToSearchIndex()}.
+     *
+     * @return the SearchIndex, or null if the Proof Assistant is not
+     *         initialized.
+     */
+    public synchronized SearchIndex getSearchIndex() {
+        if (searchIndexOwner != this)
+            return searchIndexOwner.getSearchIndex();
+        if (searchIndex == null && proofAsst != null)
+            searchIndex = new SearchIndex(proofAsst.getSortedAssrtSearchList());
+        return searchIndex;
+    }
+
+    /**
+     * Adds theorems committed by the TheoremLoader to the SearchIndex, if it
+     * has been built.
+     *
+     * @param list the new theorems.
+     */
+    public synchronized void addToSearchIndex(
+        final List<? extends Assrt> list)
+    {
+        if (searchIndexOwner != this)
+            searchIndexOwner.addToSearchIndex(list);
+        else if (searchIndex != null)
+            for (final Assrt assrt : list)
+                searchIndex.add(assrt);
+    }
+
     public WorkVarManager getWorkVarManager() {
         return proofAsstPreferences.getWorkVarManager();
     }
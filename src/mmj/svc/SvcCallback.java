@@ -61,7 +61,10 @@ public interface SvcCallback {
      * Within the SvcCallback.go() method the user-code can execute calls to
      * mmj2 methods but must single-thread the accesses as mmj2 is not, in
      * general, written for total multi- threaded access throughout (some code
-     * could be multi-threaded but not all.)
+     * could be multi-threaded but not all.) The exception is Proof Worksheet
+     * unification: each thread may obtain its own session with
+     * {@code proofAsst.newSession(messages)} and unify worksheets through it,
+     * sharing the loaded LogicalSystem and Grammar.
      * <p>
      * When finished accessing the mmj2 Services, the user-code simply needs to
      * execute a "return" from the SvcCallback.go() method.
@@ -21,6 +21,7 @@ import java.util.stream.Collectors;
 
 import mmj.lang.*;
 import mmj.pa.MMJException;
+import mmj.verify.VerifyException;
 
 /**
  * MMTTheoremSet represents a set of MMTTheoremStmtGroup objects to be loaded
@@ -239,6 +240,52 @@ public class MMTTheoremSet implements Iterable<TheoremStmtGroup> {
         // indicating unrecoverable error.
         logicalSystem.theoremLoaderCommit(this);
 
+        verifyDependentsOfUpdates();
+    }
+
+    /**
+     * Re-verifies the proofs, outside the MMTTheoremSet, which use a theorem
+     * whose Mandatory $d restrictions were changed by the update.
+     * <p>
+     * Each theorem in the MMTTheoremSet has already been verified by
+     * TheoremStmtGroup.updateLogicalSystem(). A proof depends only on the
+     * statements of the assertions it uses, and the formula and logical
+     * hypotheses of an updated theorem cannot change, so only the direct
+     * dependents of theorems with changed $d's need to be verified again.
+     * These are found with the LogicalSystem's ProofDependencyGraph rather
+     * than by verifying every proof in the database.
+     * <p>
+     * As in TheoremStmtGroup, proof verification errors are stored in the
+     * Messages object and do not halt processing.
+     */
+    private void verifyDependentsOfUpdates() {
+        final ProofVerifier proofVerifier = logicalSystem.getProofVerifier();
+        if (proofVerifier == null)
+            return;
+
+        final List<Theorem> djVarsUpdates = new ArrayList<>();
+        for (final TheoremStmtGroup t : this)
+            if (t.getWasMandDjVarsUpdated())
+                djVarsUpdates.add(t.getTheorem());
+        if (djVarsUpdates.isEmpty())
+            return;
+
+        int nbrVerified = 0;
+        for (final Theorem dependent : logicalSystem.getProofDependencyGraph()
+            .getDependents(djVarsUpdates, false))
+        {
+            if (theoremStmtGroupTbl.containsKey(dependent.getLabel()))
+                continue;
+            nbrVerified++;
+            final VerifyException e = proofVerifier.verifyOneProof(dependent);
+            if (e != null)
+                messages.accumException(e);
+        }
+
+        if (tlPreferences.auditMessages.get())
+            messages.accumMessage(
+                TlConstants.ERRMSG_AUDIT_MSG_DEPENDENTS_REVERIFIED,
+                djVarsUpdates.size(), nbrVerified);
     }
 
     private Map<String, TheoremStmtGroup> buildTheoremStmtGroupTbl(
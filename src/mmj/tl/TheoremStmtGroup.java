@@ -356,6 +356,38 @@ public class TheoremStmtGroup {
         return wasTheoremUpdated;
     }
 
+    /**
+     * Gets the proof the theorem had before it was updated.
+     *
+     * @return previous proof or null if the theorem is new.
+     */
+    public RPNStep[] getOldProof() {
+        return oldProof;
+    }
+
+    /**
+     * Returns true if the theorem was updated and its Mandatory $d
+     * restrictions are not the same as before the update.
+     * <p>
+     * Other theorems depend only on the statement of an updated theorem: its
+     * formula and logical hypotheses cannot change, so only a change in the
+     * Mandatory $d's can alter the result of verifying the proofs which use
+     * it.
+     *
+     * @return true if the Mandatory DjVars were changed by the update.
+     */
+    public boolean getWasMandDjVarsUpdated() {
+        if (!wasTheoremUpdated)
+            return false;
+        final DjVars[] newDjVarsArray = theorem.getMandFrame().djVarsArray;
+        if (oldDjVarsArray == newDjVarsArray)
+            return false;
+        if (oldDjVarsArray == null || newDjVarsArray == null)
+            return true;
+        return !new HashSet<>(Arrays.asList(oldDjVarsArray))
+            .equals(new HashSet<>(Arrays.asList(newDjVarsArray)));
+    }
+
     /**
      * Gets the wasTheoremInserted flag.
      *
@@ -456,6 +456,10 @@ public class TlConstants {
             + " Explanation message identifying the rollback error"
             + " follows: %s");
 
+    public static final ErrorCode ERRMSG_AUDIT_MSG_DEPENDENTS_REVERIFIED = of(
+        "I-TL-0405 $d restrictions changed for %d updated theorem(s)."
+            + " %d theorem(s) whose proofs use them were re-verified.");
+
     // ----------------------------------------------------------
     // Messages from mmj.util.TheoremLoaderBoss.java
     // ----------------------------------------------------------
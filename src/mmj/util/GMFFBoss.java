@@ -50,6 +50,7 @@ public class GMFFBoss extends Boss {
         };
         putCommand(RUNPARM_CLEAR, clear);
         putCommand(RUNPARM_LOAD_FILE, clear);
+        putCommand(RUNPARM_LOAD_SNAPSHOT, clear);
 
         putCommand(RUNPARM_GMFF_INITIALIZE, this::doGMFFInitialize);
         putCommand(RUNPARM_GMFF_EXPORT_PARMS, this::doRunParmGMFFExportParms);
@@ -62,6 +63,7 @@ public class GMFFBoss extends Boss {
         putCommand(RUNPARM_GMFF_EXPORT_FROM_FOLDER,
             this::doGMFFExportFromFolder);
         putCommand(RUNPARM_GMFF_EXPORT_THEOREM, this::doGMFFExportTheorem);
+        putCommand(RUNPARM_GMFF_EXPORT_THREADS, this::editGMFFExportThreads);
     }
 
     /**
@@ -206,4 +208,21 @@ public class GMFFBoss extends Boss {
         batchFramework.outputBoss.printAndClearMessages();
         return;
     }
+
+    /**
+     * Validate GMFFExportThreads
+     * <p>
+     * Must be a positive integer, or "*" for one thread per available
+     * processor (capped at GMFFConstants.EXPORT_THREADS_MAXIMUM).
+     */
+    public void editGMFFExportThreads() {
+        require(1);
+        int n;
+        if (get(1).equals(RUNPARM_OPTION_VALUE_ALL))
+            n = Math.min(Runtime.getRuntime().availableProcessors(),
+                EXPORT_THREADS_MAXIMUM);
+        else
+            n = Math.min(getPosInt(1), EXPORT_THREADS_MAXIMUM);
+        getGMFFManager().setExportThreads(n);
+    }
 }
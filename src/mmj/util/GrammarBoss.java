@@ -35,6 +35,8 @@ package mmj.util;
 
 import static mmj.util.UtilConstants.*;
 
+import java.io.File;
+
 import mmj.lang.*;
 import mmj.lang.ParseTree.RPNStep;
 import mmj.verify.*;
@@ -78,6 +80,10 @@ public class GrammarBoss extends Boss {
 
     protected Class<? extends GrammaticalParser> parserPrototype;
 
+    protected File parseTableCacheFile;
+
+    protected int parseThreadsParm;
+
     /**
      * Constructor with BatchFramework for access to environment.
      *
@@ -88,9 +94,11 @@ public class GrammarBoss extends Boss {
 
         grammarAmbiguityParm = GrammarConstants.DEFAULT_COMPLETE_GRAMMAR_AMBIG_EDITS;
         statementAmbiguityParm = GrammarConstants.DEFAULT_COMPLETE_STATEMENT_AMBIG_EDITS;
+        parseThreadsParm = GrammarConstants.PARSE_THREADS_DEFAULT;
 
         putCommand(RUNPARM_CLEAR, this::clear);
         putCommand(RUNPARM_LOAD_FILE, this::clear);
+        putCommand(RUNPARM_LOAD_SNAPSHOT, this::clear);
 
 //PATCH 2008-08-01: MOVE TO LogicalSystemBoss
 //        putCommand(RUNPARM_PROVABLE_LOGIC_STMT_TYPE,
@@ -106,6 +114,11 @@ public class GrammarBoss extends Boss {
 
         putCommand(RUNPARM_SET_PARSER, this::editParser);
 
+        putCommand(RUNPARM_PARSE_TABLE_CACHE_FILE,
+            this::editParseTableCacheFile);
+
+        putCommand(RUNPARM_PARSE_THREADS, this::editParseThreads);
+
         putCommand(RUNPARM_INITIALIZE_GRAMMAR, this::doInitializeGrammar);
 
         putCommand(RUNPARM_PARSE, this::doParse);
@@ -123,6 +136,8 @@ public class GrammarBoss extends Boss {
         grammarAmbiguityParm = GrammarConstants.DEFAULT_COMPLETE_GRAMMAR_AMBIG_EDITS;
         statementAmbiguityParm = GrammarConstants.DEFAULT_COMPLETE_STATEMENT_AMBIG_EDITS;
         parserPrototype = GrammarConstants.DEFAULT_PARSER_PROTOTYPE;
+        parseTableCacheFile = null;
+        parseThreadsParm = GrammarConstants.PARSE_THREADS_DEFAULT;
         return false; // not "consumed"
     }
 
@@ -199,6 +214,8 @@ public class GrammarBoss extends Boss {
             throw error(e);
         }
         grammar.setStore(batchFramework.storeBoss.getStore());
+        grammar.setParseTableCacheFile(parseTableCacheFile);
+        grammar.setParseThreads(parseThreadsParm);
 
         return grammar;
     }
@@ -217,6 +234,41 @@ public class GrammarBoss extends Boss {
         }
     }
 
+    /**
+     * Validate the parse table cache file name.
+     */
+    public void editParseTableCacheFile() {
+        final File filePath = batchFramework.paths.getMMJ2Path();
+        File file = new File(getFileName(1));
+        if (filePath != null && !file.isAbsolute())
+            file = new File(filePath, file.getPath());
+        if (file.isDirectory())
+            throw error(ERRMSG_NOT_A_FILE, file.getAbsolutePath());
+        parseTableCacheFile = file;
+        if (grammar != null)
+            grammar.setParseTableCacheFile(file);
+    }
+
+    /**
+     * Validate ParseThreads RunParm.
+     * <p>
+     * "*" means one thread per available processor, capped at
+     * GrammarConstants.PARSE_THREADS_MAX.
+     */
+    public void editParseThreads() {
+        require(1);
+        int n;
+        if (get(1).equals(RUNPARM_OPTION_VALUE_ALL))
+            n = Math.min(Runtime.getRuntime().availableProcessors(),
+                GrammarConstants.PARSE_THREADS_MAX);
+        else
+            n = getPosInt(1);
+        Grammar.validateParseThreads(n);
+        parseThreadsParm = n;
+        if (grammar != null)
+            grammar.setParseThreads(n);
+    }
+
     /**
      * Executes the InitializeGrammar command, prints any messages, etc.
      */
@@ -273,6 +325,44 @@ public class GrammarBoss extends Boss {
         batchFramework.outputBoss.printAndClearMessages();
     }
 
+    /**
+     * Initializes the Grammar for a snapshot restored by LoadSnapshot, if the
+     * Grammar was initialized when the snapshot was written.
+     * <p>
+     * Grammar initialization resets the parse trees of the logical statements,
+     * so the parse trees of the snapshot are put back afterwards. If all
+     * statements were parsed when the snapshot was written the Parse RunParm
+     * is then not needed.
+     *
+     * @param snapshot the restored snapshot.
+     */
+    public void restoreSnapshot(final LogicalSystemSnapshot snapshot) {
+        if (!snapshot.getGrammarInitialized())
+            return;
+
+        final LogicalSystem logicalSystem = batchFramework.logicalSystemBoss
+            .getLogicalSystem();
+
+        final Stmt[] stmts = logicalSystem.getStmtTbl().values()
+            .toArray(new Stmt[0]);
+        final ParseTree[] parseTrees = new ParseTree[stmts.length];
+        for (int i = 0; i < stmts.length; i++)
+            parseTrees[i] = stmts[i].getExprParseTree();
+
+        initializeGrammar();
+        if (!grammarInitialized)
+            return;
+
+        for (int i = 0; i < stmts.length; i++)
+            if (stmts[i].getExprParseTree() == null)
+                stmts[i].setExprParseTree(parseTrees[i]);
+
+        if (snapshot.getAllStatementsParsed()) {
+            allStatementsParsedSuccessfully = true;
+            logicalSystem.setSyntaxVerifier(grammar);
+        }
+    }
+
     /**
      * An initializeGrammar subroutine.
      */
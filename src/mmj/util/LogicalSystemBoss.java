@@ -24,6 +24,9 @@ package mmj.util;
 
 import static mmj.util.UtilConstants.*;
 
+import java.io.File;
+import java.util.Arrays;
+
 import mmj.gmff.GMFFManager;
 import mmj.lang.*;
 import mmj.mmio.*;
@@ -63,6 +66,9 @@ public class LogicalSystemBoss extends Boss {
 
     protected boolean loadComments;
     protected boolean loadProofs;
+    protected boolean loadPipeline;
+    protected boolean lazyProofs;
+    protected boolean softProofCache;
 
     protected LogicalSystem logicalSystem;
 
@@ -70,6 +76,11 @@ public class LogicalSystemBoss extends Boss {
 
     protected boolean logicalSystemLoaded;
 
+    // source file of the loaded LogicalSystem, for SaveSnapshot; the hash is
+    // only known when the LogicalSystem came from a snapshot.
+    protected String loadedFileName;
+    protected byte[] loadedFileHash;
+
     /**
      * Constructor with BatchFramework for access to environment.
      *
@@ -92,6 +103,8 @@ public class LogicalSystemBoss extends Boss {
             this::editLoadEndpointStmtNbr);
         putCommand(RUNPARM_LOAD_COMMENTS, this::editLoadComments);
         putCommand(RUNPARM_LOAD_PROOFS, this::editLoadProofs);
+        putCommand(RUNPARM_LOAD_PIPELINE, this::editLoadPipeline);
+        putCommand(RUNPARM_LAZY_PROOFS, this::editLazyProofs);
 
         putCommand(RUNPARM_PROVABLE_LOGIC_STMT_TYPE,
             this::editProvableLogicStmtType);
@@ -107,6 +120,8 @@ public class LogicalSystemBoss extends Boss {
             this::editSeqAssignerIntervalTblInitialSize);
 
         putCommand(RUNPARM_LOAD_FILE, this::doLoadFile);
+        putCommand(RUNPARM_LOAD_SNAPSHOT, this::doLoadSnapshot);
+        putCommand(RUNPARM_SAVE_SNAPSHOT, this::doSaveSnapshot);
     }
 
     /**
@@ -127,9 +142,14 @@ public class LogicalSystemBoss extends Boss {
         loadEndpointStmtLabelParm = null;
         logicalSystem = null;
         systemizer = null;
+        loadedFileName = null;
+        loadedFileHash = null;
 
         loadComments = MMIOConstants.LOAD_COMMENTS_DEFAULT;
         loadProofs = MMIOConstants.LOAD_PROOFS_DEFAULT;
+        loadPipeline = MMIOConstants.LOAD_PIPELINE_DEFAULT;
+        lazyProofs = LangConstants.LAZY_PROOFS_DEFAULT;
+        softProofCache = false;
 
         provableLogicStmtTypeParm = GrammarConstants.DEFAULT_PROVABLE_LOGIC_STMT_TYP_CODES[0];
 
@@ -178,6 +198,8 @@ public class LogicalSystemBoss extends Boss {
     public void doLoadFile() {
 
         logicalSystemLoaded = false;
+        loadedFileName = null;
+        loadedFileHash = null;
 
         require(1);
 
@@ -217,10 +239,13 @@ public class LogicalSystemBoss extends Boss {
             logicalSystem.clearTheoremLoaderCommitListenerList();
         }
 
+        logicalSystem.setLazyProofs(lazyProofs, softProofCache);
+
         if (systemizer == null)
             systemizer = new Systemizer();
         systemizer.init(messages, logicalSystem, loadEndpointStmtNbrParm,
             loadEndpointStmtLabelParm, loadComments, loadProofs);
+        systemizer.setLoadPipeline(loadPipeline);
 
         try {
             systemizer.load(batchFramework.paths.getMetamathPath(), get(1));
@@ -228,12 +253,118 @@ public class LogicalSystemBoss extends Boss {
             throw error(e);
         }
 
-        if (messages.getErrorMessageCnt() == 0)
+        if (messages.getErrorMessageCnt() == 0) {
             logicalSystemLoaded = true;
+            loadedFileName = get(1);
+        }
+
+        batchFramework.outputBoss.printAndClearMessages();
+    }
+
+    /**
+     * Execute the LoadSnapshot command: restores a LogicalSystem written by
+     * SaveSnapshot, in place of LoadFile.
+     * <p>
+     * The snapshot is rejected if its Metamath file has changed. If the
+     * snapshot was made after VerifyProof and Parse the Grammar is
+     * initialized and the saved proofs and parse trees are accepted as they
+     * are.
+     */
+    public void doLoadSnapshot() {
+
+        logicalSystemLoaded = false;
+        loadedFileName = null;
+        loadedFileHash = null;
+
+        final File snapshotFile = getExistingFile(
+            batchFramework.paths.getMMJ2Path(), 1);
+
+        final Messages messages = batchFramework.outputBoss.getMessages();
+
+        final LogicalSystemSnapshot snapshot;
+        try {
+            snapshot = LogicalSystemSnapshot.read(snapshotFile);
+        } catch (final LangException e) {
+            throw error(e);
+        }
+
+        String sourceFileName = opt(2);
+        if (sourceFileName == null || sourceFileName.isEmpty())
+            sourceFileName = snapshot.getSourceFileName();
+        final File sourceFile = getMetamathFile(sourceFileName);
+        if (sourceFile.isFile()) {
+            try {
+                if (!Arrays.equals(LogicalSystemSnapshot.hashFile(sourceFile),
+                    snapshot.getSourceHash()))
+                    throw error(ERRMSG_SNAPSHOT_STALE,
+                        snapshotFile.getAbsolutePath(),
+                        sourceFile.getAbsolutePath());
+            } catch (final LangException e) {
+                throw error(e);
+            }
+        }
+        else
+            messages.accumMessage(ERRMSG_SNAPSHOT_SOURCE_NOTFND,
+                sourceFile.getAbsolutePath(), snapshotFile.getAbsolutePath());
+
+        gmffManager = new GMFFManager(batchFramework.paths.getMMJ2Path(),
+            messages);
+        logicalSystem = snapshot.newLogicalSystem(gmffManager);
+        logicalSystem.setLazyProofs(lazyProofs, softProofCache);
+        bookManager = logicalSystem.bookManager;
+        seqAssigner = logicalSystem.seqAssigner;
+        systemizer = null;
+
+        logicalSystemLoaded = true;
+        loadedFileName = snapshot.getSourceFileName();
+        loadedFileHash = snapshot.getSourceHash();
+
+        batchFramework.verifyProofBoss.restoreSnapshot(snapshot);
+        batchFramework.grammarBoss.restoreSnapshot(snapshot);
 
         batchFramework.outputBoss.printAndClearMessages();
     }
 
+    /**
+     * Execute the SaveSnapshot command: writes the loaded LogicalSystem, with
+     * the VerifyProof and Parse status, to a snapshot file for LoadSnapshot.
+     */
+    public void doSaveSnapshot() {
+
+        final LogicalSystem logicalSystem = getLogicalSystem();
+
+        File snapshotFile = new File(getFileName(1));
+        final File filePath = batchFramework.paths.getMMJ2Path();
+        if (filePath != null && !snapshotFile.isAbsolute())
+            snapshotFile = new File(filePath, snapshotFile.getPath());
+        if (snapshotFile.isDirectory())
+            throw error(ERRMSG_NOT_A_FILE, snapshotFile.getAbsolutePath());
+
+        try {
+            if (loadedFileHash == null)
+                loadedFileHash = LogicalSystemSnapshot
+                    .hashFile(getMetamathFile(loadedFileName));
+
+            new LogicalSystemSnapshot(loadedFileName, loadedFileHash,
+                batchFramework.verifyProofBoss
+                    .getAllProofsVerifiedSuccessfully(),
+                batchFramework.grammarBoss.getGrammarInitialized(),
+                batchFramework.grammarBoss
+                    .getAllStatementsParsedSuccessfully())
+                        .write(snapshotFile, logicalSystem);
+        } catch (final LangException e) {
+            throw error(e);
+        }
+    }
+
+    private File getMetamathFile(final String fileName) {
+        final File filePath = batchFramework.paths.getMetamathPath();
+        final File file = new File(fileName);
+        if (filePath != null && !file.isAbsolute())
+            return new File(filePath, fileName);
+        return file;
+    }
+
     /**
      * Returns the current value of the LoadProofs RunParm or its default
      * setting.
@@ -298,6 +429,30 @@ public class LogicalSystemBoss extends Boss {
         loadProofs = getYesNo(1);
     }
 
+    /**
+     * Validate Load Pipeline Parameter.
+     * <p>
+     * Must equal yes or no.
+     *
+     * @throws IllegalArgumentException if an error occurred
+     */
+    protected void editLoadPipeline() {
+        loadPipeline = getYesNo(1);
+    }
+
+    /**
+     * Validate Lazy Proofs Parameters.
+     * <p>
+     * Value 1 must equal yes or no, optional value 2 SoftCache or
+     * NoSoftCache.
+     *
+     * @throws IllegalArgumentException if an error occurred
+     */
+    protected void editLazyProofs() {
+        lazyProofs = getYesNo(1);
+        softProofCache = getBoolean(2, false, "SoftCache");
+    }
+
     /**
      * Validate Statement Table Initial Size Parameter.
      *
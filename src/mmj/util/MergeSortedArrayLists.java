@@ -78,7 +78,8 @@ public class MergeSortedArrayLists<T> {
      *             Theorem Loader.)
      */
     public MergeSortedArrayLists(final ArrayList<T> destList,
-        final List<? extends T> srcList, final Comparator<T> comparator,
+        final List<? extends T> srcList,
+        final Comparator<? super T> comparator,
         final boolean abortIfDupsFound) throws IllegalArgumentException
     {
 
@@ -0,0 +1,389 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * Metrics.java  0.01
+ */
+
+package mmj.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics is a registry of counters and latency histograms for the hot paths
+ * of mmj2: loading, parsing, proof verification and unification.
+ * <p>
+ * Metrics are disabled by default. While disabled every update is a single
+ * read of a volatile boolean, and {@code Timer.start()} does not read the
+ * clock. The counters are {@code LongAdder}s, so they may be updated from
+ * several threads without contention.
+ * <p>
+ * The metrics are switched on by the {@code EnableMetrics} RunParm and written
+ * in JSON or CSV format by the {@code DumpMetrics} RunParm.
+ */
+public final class Metrics {
+
+    private static volatile boolean enabled = false;
+
+    private static final Map<String, Metric> REGISTRY = new LinkedHashMap<>();
+
+    /** Statements read from the Metamath file(s). */
+    public static final Counter LOAD_STATEMENTS = new Counter(
+        "load.statements");
+
+    /** Tokens read from the Metamath file(s). */
+    public static final Counter LOAD_TOKENS = new Counter("load.tokens");
+
+    /** Time spent in {@code Systemizer.load()}. */
+    public static final Timer LOAD_FILE = new Timer("load.file");
+
+    /** Tokens read per second of load time. */
+    public static final Rate LOAD_TOKENS_PER_SEC = new Rate(
+        "load.tokensPerSec", LOAD_TOKENS, LOAD_FILE);
+
+    /** Time spent parsing one formula. */
+    public static final Timer PARSE_FORMULA = new Timer("parse.formula");
+
+    /** Parses restarted with larger arrays. */
+    public static final Counter PARSE_RETRIES = new Counter("parse.retries");
+
+    /** Formulas which did not parse. */
+    public static final Counter PARSE_FAILURES = new Counter(
+        "parse.failures");
+
+    /** Time spent verifying one proof. */
+    public static final Timer VERIFY_PROOF = new Timer("verify.proof");
+
+    /** Proof steps processed by the proof verifier. */
+    public static final Counter VERIFY_STEPS = new Counter("verify.steps");
+
+    /** Proof verifications restarted with larger arrays. */
+    public static final Counter VERIFY_RETRIES = new Counter(
+        "verify.retries");
+
+    /** Step and hypothesis formulas the ProofUnifier tried to unify. */
+    public static final Counter UNIFY_ATTEMPTS = new Counter(
+        "unify.attempts");
+
+    /** Unifications rejected by the ProofUnifier's pre-unification check. */
+    public static final Counter UNIFY_PREUNIFY_REJECTS = new Counter(
+        "unify.preunifyRejects");
+
+    /** Calls of {@code StepUnifier.unifyAndMergeStepFormula()}. */
+    public static final Counter UNIFY_STEP_FORMULA_ATTEMPTS = new Counter(
+        "unify.stepFormula.attempts");
+
+    /** Successful calls of {@code StepUnifier.unifyAndMergeStepFormula()}. */
+    public static final Counter UNIFY_STEP_FORMULA_SUCCESSES = new Counter(
+        "unify.stepFormula.successes");
+
+    private Metrics() {}
+
+    /** @return true if metrics are being collected. */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches collection of metrics on or off.
+     *
+     * @param enabled true to collect metrics.
+     */
+    public static void setEnabled(final boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /** Sets every metric back to zero. */
+    public static void reset() {
+        synchronized (REGISTRY) {
+            for (final Metric m : REGISTRY.values())
+                m.reset();
+        }
+    }
+
+    /**
+     * Writes all metrics as one JSON object, keyed by metric name.
+     *
+     * @param w the Writer.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void writeJSON(final Writer w) throws IOException {
+        w.write("{\n");
+        String sep = "";
+        synchronized (REGISTRY) {
+            for (final Metric m : REGISTRY.values()) {
+                w.write(sep);
+                w.write("  \"");
+                w.write(m.name);
+                w.write("\": ");
+                m.writeJSON(w);
+                sep = ",\n";
+            }
+        }
+        w.write("\n}\n");
+    }
+
+    /**
+     * Writes all metrics as CSV, one line per metric.
+     * <p>
+     * Columns: name, type, count, total, mean, p50, p90, p99, max. Times are
+     * in nanoseconds; columns which do not apply to a metric are empty.
+     *
+     * @param w the Writer.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void writeCSV(final Writer w) throws IOException {
+        w.write("name,type,count,total,mean,p50,p90,p99,max\n");
+        synchronized (REGISTRY) {
+            for (final Metric m : REGISTRY.values())
+                m.writeCSV(w);
+        }
+    }
+
+    /** Base class of the metrics. */
+    public abstract static class Metric {
+        final String name;
+
+        Metric(final String name) {
+            this.name = name;
+            synchronized (REGISTRY) {
+                if (REGISTRY.put(name, this) != null)
+                    throw new IllegalArgumentException(name);
+            }
+        }
+
+        /** @return the name of the metric. */
+        public String getName() {
+            return name;
+        }
+
+        abstract void reset();
+
+        abstract void writeJSON(Writer w) throws IOException;
+
+        abstract void writeCSV(Writer w) throws IOException;
+    }
+
+    /** A count of events. */
+    public static final class Counter extends Metric {
+        private final LongAdder count = new LongAdder();
+
+        public Counter(final String name) {
+            super(name);
+        }
+
+        /** Adds one to the count, if metrics are enabled. */
+        public void inc() {
+            if (enabled)
+                count.increment();
+        }
+
+        /**
+         * Adds to the count, if metrics are enabled.
+         *
+         * @param n the number to add.
+         */
+        public void add(final long n) {
+            if (enabled)
+                count.add(n);
+        }
+
+        /** @return the count. */
+        public long get() {
+            return count.sum();
+        }
+
+        @Override
+        void reset() {
+            count.reset();
+        }
+
+        @Override
+        void writeJSON(final Writer w) throws IOException {
+            w.write("{\"type\": \"counter\", \"count\": " + get() + "}");
+        }
+
+        @Override
+        void writeCSV(final Writer w) throws IOException {
+            w.write(name + ",counter," + get() + ",,,,,,\n");
+        }
+    }
+
+    /**
+     * A latency histogram.
+     * <p>
+     * Durations are counted in buckets by the position of their highest one
+     * bit, so bucket {@code b} holds durations from {@code 2^(b-1)} up to
+     * {@code 2^b - 1} nanoseconds, and percentiles are accurate to a factor
+     * of two. Typical use:
+     *
+     * <pre>
+     * final long start = Metrics.PARSE_FORMULA.start();
+     * ...
+     * Metrics.PARSE_FORMULA.stop(start);
+     * </pre>
+     */
+    public static final class Timer extends Metric {
+        private static final int NBR_BUCKETS = 64;
+
+        private final LongAdder[] buckets = new LongAdder[NBR_BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public Timer(final String name) {
+            super(name);
+            for (int i = 0; i < NBR_BUCKETS; i++)
+                buckets[i] = new LongAdder();
+        }
+
+        /**
+         * Starts timing an event.
+         *
+         * @return the start time for {@code stop()}, or 0 if metrics are
+         *         disabled.
+         */
+        public long start() {
+            return enabled ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Records the duration of an event.
+         *
+         * @param start the value returned by {@code start()}.
+         */
+        public void stop(final long start) {
+            if (start != 0 && enabled)
+                record(System.nanoTime() - start);
+        }
+
+        /**
+         * Records a duration.
+         *
+         * @param nanos the duration in nanoseconds.
+         */
+        public void record(final long nanos) {
+            if (!enabled)
+                return;
+            final long n = Math.max(nanos, 0);
+            buckets[NBR_BUCKETS - Long.numberOfLeadingZeros(n)].increment();
+            count.increment();
+            total.add(n);
+            max.accumulate(n);
+        }
+
+        /** @return the number of recorded events. */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /** @return the sum of the recorded durations, in nanoseconds. */
+        public long getTotal() {
+            return total.sum();
+        }
+
+        /** @return the longest recorded duration, in nanoseconds. */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Returns an upper bound of a percentile of the recorded durations.
+         *
+         * @param pct the percentile, 0 to 100.
+         * @return the upper bound of the bucket holding the percentile, in
+         *         nanoseconds, or 0 if nothing was recorded.
+         */
+        public long getPercentile(final double pct) {
+            final long[] counts = new long[NBR_BUCKETS];
+            long n = 0;
+            for (int i = 0; i < NBR_BUCKETS; i++)
+                n += counts[i] = buckets[i].sum();
+            if (n == 0)
+                return 0;
+            final long rank = Math.max(1, (long)Math.ceil(n * pct / 100));
+            long seen = 0;
+            for (int i = 0; i < NBR_BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return Math.min((1L << i) - 1, getMax());
+            }
+            return getMax();
+        }
+
+        @Override
+        void reset() {
+            for (final LongAdder b : buckets)
+                b.reset();
+            count.reset();
+            total.reset();
+            max.reset();
+        }
+
+        private long getMean() {
+            final long n = getCount();
+            return n == 0 ? 0 : getTotal() / n;
+        }
+
+        @Override
+        void writeJSON(final Writer w) throws IOException {
+            w.write("{\"type\": \"timer\", \"count\": " + getCount()
+                + ", \"totalNanos\": " + getTotal() + ", \"meanNanos\": "
+                + getMean() + ", \"p50Nanos\": " + getPercentile(50)
+                + ", \"p90Nanos\": " + getPercentile(90)
+                + ", \"p99Nanos\": " + getPercentile(99) + ", \"maxNanos\": "
+                + getMax() + "}");
+        }
+
+        @Override
+        void writeCSV(final Writer w) throws IOException {
+            w.write(name + ",timer," + getCount() + "," + getTotal() + ","
+                + getMean() + "," + getPercentile(50) + ","
+                + getPercentile(90) + "," + getPercentile(99) + "," + getMax()
+                + "\n");
+        }
+    }
+
+    /** The number of events of a Counter per second of a Timer's total. */
+    public static final class Rate extends Metric {
+        private final Counter counter;
+        private final Timer timer;
+
+        public Rate(final String name, final Counter counter,
+            final Timer timer)
+        {
+            super(name);
+            this.counter = counter;
+            this.timer = timer;
+        }
+
+        /** @return events per second, or 0 if no time was recorded. */
+        public double get() {
+            final long nanos = timer.getTotal();
+            return nanos == 0 ? 0 : counter.get() * 1e9 / nanos;
+        }
+
+        @Override
+        void reset() {}
+
+        @Override
+        void writeJSON(final Writer w) throws IOException {
+            w.write("{\"type\": \"rate\", \"perSecond\": "
+                + String.format(Locale.ROOT, "%.1f", get()) + "}");
+        }
+
+        @Override
+        void writeCSV(final Writer w) throws IOException {
+            w.write(name + ",rate,,,"
+                + String.format(Locale.ROOT, "%.1f", get()) + ",,,,\n");
+        }
+    }
+}
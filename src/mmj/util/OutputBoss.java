@@ -119,6 +119,10 @@ public class OutputBoss extends Boss {
         putCommand(RUNPARM_STOP_INSTRUMENTATION_TIMER,
             this::editStopInstrumentationTimer);
 
+        putCommand(RUNPARM_ENABLE_METRICS, this::editEnableMetrics);
+
+        putCommand(RUNPARM_DUMP_METRICS, this::doDumpMetrics);
+
         putCommand(RUNPARM_PRINT_BOOK_MANAGER_CHAPTERS,
             this::doPrintBookManagerChapters);
 
@@ -502,6 +506,50 @@ public class OutputBoss extends Boss {
         printAndClearMessages();
     }
 
+    /**
+     * Validate EnableMetrics Runparm.
+     */
+    protected void editEnableMetrics() {
+        final boolean enable = getYesNo(1);
+        if (enable && !Metrics.isEnabled())
+            Metrics.reset();
+        Metrics.setEnabled(enable);
+    }
+
+    /**
+     * Executes the DumpMetrics RunParm command.
+     */
+    protected void doDumpMetrics() {
+        final String fileNameParm = getFileName(1);
+        String format = opt(4);
+        if (format == null)
+            format = fileNameParm.toLowerCase()
+                .endsWith("." + RUNPARM_OPTION_METRICS_CSV)
+                    ? RUNPARM_OPTION_METRICS_CSV : RUNPARM_OPTION_METRICS_JSON;
+        else {
+            format = format.toLowerCase();
+            if (!format.equals(RUNPARM_OPTION_METRICS_JSON)
+                && !format.equals(RUNPARM_OPTION_METRICS_CSV))
+                throw error(ERRMSG_METRICS_FORMAT_UNRECOG,
+                    RUNPARM_OPTION_METRICS_JSON, RUNPARM_OPTION_METRICS_CSV,
+                    format);
+        }
+
+        try (PrintWriter w = getPrintWriter(
+            batchFramework.paths.getMMJ2Path()))
+        {
+            if (format.equals(RUNPARM_OPTION_METRICS_CSV))
+                Metrics.writeCSV(w);
+            else
+                Metrics.writeJSON(w);
+            if (w.checkError())
+                throw new IOException("PrintWriter error");
+        } catch (final IOException e) {
+            throw error(e, ERRMSG_METRICS_WRITE_ERROR, fileNameParm,
+                e.getMessage());
+        }
+    }
+
     /**
      * Checks to see if BookManager is initialized and enabled.
      * <p>
@@ -0,0 +1,246 @@
+//********************************************************************/
+//* Copyright (C) 2005  MEL O'CAT  mmj2 (via) planetmath (dot) org   */
+//* License terms: GNU General Public License Version 2              */
+//*                or any later version                              */
+//********************************************************************/
+//*4567890123456 (71-character line to adjust editor window) 23456789*/
+
+/*
+ * ParallelIndexWork.java  0.01
+ */
+
+package mmj.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * ParallelIndexWork runs the tasks for the indices 0 to count - 1 on a number
+ * of worker threads.
+ * <p>
+ * Each worker claims the next index from a shared counter, so the indices are
+ * started in order, and a caller consuming the results in index order waits
+ * only for the index it needs next. Every worker has its own task object
+ * (built by {@code newTask} with the worker number), so it can keep its own
+ * work areas, e.g. a parser or a Proof Assistant session.
+ * <p>
+ * A worker stops claiming indices when the work is cancelled, when the
+ * optional {@link Gate} says so, or when the indices run out. An exception
+ * thrown by a task is stored as the result of its index and rethrown, as is,
+ * by {@link #get(int)}.
+ * <p>
+ * The work is meant to be used in a try-with-resources statement:
+ * {@link #close()} cancels whatever is not done and shuts down the thread
+ * pool, if the work created its own.
+ *
+ * @param <T> the result type of a task.
+ */
+public class ParallelIndexWork<T> implements AutoCloseable {
+
+    /**
+     * The task of a worker, run once for each index it claims.
+     *
+     * @param <T> the result type.
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        /**
+         * Runs the task for one index.
+         *
+         * @param index the index claimed.
+         * @return the result for the index.
+         * @throws Exception if an error occurred.
+         */
+        T run(int index) throws Exception;
+    }
+
+    /**
+     * Decides, before each claim, whether a worker may claim another index.
+     */
+    @FunctionalInterface
+    public interface Gate {
+        /**
+         * @return false to make the worker stop.
+         * @throws InterruptedException if interrupted while waiting (the
+         *             worker stops).
+         */
+        boolean mayClaim() throws InterruptedException;
+    }
+
+    private final int count;
+    private final List<CompletableFuture<T>> results;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final List<Future<?>> workers;
+    private final ExecutorService ownPool;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Starts the workers.
+     *
+     * @param executor the executor to run the workers on, or null to run them
+     *            on a pool of their own.
+     * @param nbrThreads maximum number of workers; no more workers than
+     *            indices are started.
+     * @param count number of indices.
+     * @param gate the Gate checked before each claim, or null.
+     * @param newTask builds the task of the worker with the given number
+     *            (from 0).
+     */
+    public ParallelIndexWork(final ExecutorService executor,
+        final int nbrThreads, final int count, final Gate gate,
+        final IntFunction<Task<T>> newTask)
+    {
+        this.count = count;
+        results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            results.add(new CompletableFuture<>());
+
+        final int nbrWorkers = Math.max(1, Math.min(nbrThreads, count));
+        workers = new ArrayList<>(nbrWorkers);
+        ownPool = executor == null ? Executors.newFixedThreadPool(nbrWorkers,
+            daemonThreadFactory("mmj2-worker")) : null;
+        final ExecutorService pool = executor == null ? ownPool : executor;
+        for (int w = 0; w < nbrWorkers; w++) {
+            final Task<T> task = newTask.apply(w);
+            workers.add(pool.submit(() -> work(task, gate)));
+        }
+    }
+
+    private void work(final Task<T> task, final Gate gate) {
+        try {
+            int i;
+            while (!cancelled && (gate == null || gate.mayClaim())
+                && (i = nextIndex.getAndIncrement()) < count)
+                try {
+                    results.get(i).complete(task.run(i));
+                } catch (final Throwable e) {
+                    results.get(i).completeExceptionally(e);
+                }
+        } catch (final InterruptedException e) {}
+    }
+
+    /**
+     * Waits for the result of an index.
+     *
+     * @param index the index.
+     * @return the result.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public T get(final int index) throws InterruptedException {
+        return getResult(results.get(index));
+    }
+
+    /**
+     * Waits for the result of an index and drops the work's reference to it,
+     * so that a result can be garbage collected once the caller is done with
+     * it.
+     *
+     * @param index the index.
+     * @return the result.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public T take(final int index) throws InterruptedException {
+        final T result = get(index);
+        results.set(index, null);
+        return result;
+    }
+
+    /**
+     * Waits until every worker has stopped claiming indices and has finished
+     * its last task, then rethrows the first exception thrown by a task, if
+     * any.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void awaitWorkers() throws InterruptedException {
+        for (final Future<?> worker : workers)
+            getResult(worker);
+        for (final CompletableFuture<T> result : results)
+            if (result.isCompletedExceptionally())
+                getResult(result);
+    }
+
+    /**
+     * Stops the workers claiming more indices and interrupts the tasks
+     * running.
+     */
+    public void cancel() {
+        cancelled = true;
+        nextIndex.set(count);
+        for (final Future<?> worker : workers)
+            worker.cancel(true);
+    }
+
+    /**
+     * Cancels the work (see cancel()) and shuts down the pool, if the work
+     * created its own.
+     */
+    @Override
+    public void close() {
+        cancel();
+        if (ownPool != null)
+            ownPool.shutdownNow();
+    }
+
+    /**
+     * Waits for a Future and returns its result, rethrowing the exception it
+     * completed with as is if that is a RuntimeException or an Error.
+     *
+     * @param future the Future.
+     * @param <V> the result type.
+     * @return the result.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws IllegalStateException wrapping a checked exception thrown by
+     *             the task.
+     */
+    public static <V> V getResult(final Future<V> future)
+        throws InterruptedException
+    {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Returns the cause of an ExecutionException as an unchecked exception to
+     * be thrown, or throws it if it is an Error.
+     * <p>
+     * Usage: {@code throw ParallelIndexWork.unwrap(e);}
+     *
+     * @param e the ExecutionException.
+     * @return the cause if it is a RuntimeException, else an
+     *         IllegalStateException wrapping it.
+     */
+    public static RuntimeException unwrap(final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof Error)
+            throw (Error)cause;
+        if (cause instanceof RuntimeException)
+            return (RuntimeException)cause;
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * Returns a ThreadFactory making daemon threads named {@code name-1},
+     * {@code name-2} and so on, for thread pools which are kept for the rest
+     * of the run and must not keep the JVM alive.
+     *
+     * @param name the thread name prefix.
+     * @return the ThreadFactory.
+     */
+    public static ThreadFactory daemonThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private int cnt = 0;
+            public synchronized Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, name + "-" + ++cnt);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
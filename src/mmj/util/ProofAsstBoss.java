@@ -121,6 +121,7 @@ public class ProofAsstBoss extends Boss {
         };
         putCommand(RUNPARM_CLEAR, clear);
         putCommand(RUNPARM_LOAD_FILE, clear);
+        putCommand(RUNPARM_LOAD_SNAPSHOT, clear);
 
         putCommand(RUNPARM_PROOF_ASST_LOOK_AND_FEEL,
             this::editProofAsstLookAndFeel);
@@ -198,6 +199,14 @@ public class ProofAsstBoss extends Boss {
         putCommand(RUNPARM_STEP_SELECTOR_MAX_RESULTS,
             this::editStepSelectorMaxResults);
 
+        putCommand(RUNPARM_STEP_SELECTOR_THREADS,
+            this::editStepSelectorThreads);
+
+        putCommand(RUNPARM_SEARCH_THREADS, this::editSearchThreads);
+
+        putCommand(RUNPARM_PROOF_ASST_BATCH_TEST_THREADS,
+            this::editProofAsstBatchTestThreads);
+
         putCommand(RUNPARM_STEP_SELECTOR_SHOW_SUBSTITUTIONS,
             this::editStepSelectorShowSubstitutions);
 
@@ -528,6 +537,57 @@ public class ProofAsstBoss extends Boss {
         getProofAsstPreferences().stepSelectorMaxResults.set(getPosInt(1));
     }
 
+    /**
+     * Validate StepSelectorThreads
+     * <p>
+     * Must be a positive integer, or "*" for one thread per available
+     * processor (capped at PaConstants.STEP_SELECTOR_THREADS_MAXIMUM).
+     */
+    protected void editStepSelectorThreads() {
+        require(1);
+        int n;
+        if (get(1).equals(RUNPARM_OPTION_VALUE_ALL))
+            n = Math.min(Runtime.getRuntime().availableProcessors(),
+                PaConstants.STEP_SELECTOR_THREADS_MAXIMUM);
+        else
+            n = getPosInt(1);
+        getProofAsstPreferences().stepSelectorThreads.set(n);
+    }
+
+    /**
+     * Validate SearchThreads
+     * <p>
+     * Must be a positive integer, or "*" for one thread per available
+     * processor (capped at PaConstants.SEARCH_THREADS_MAXIMUM).
+     */
+    protected void editSearchThreads() {
+        require(1);
+        int n;
+        if (get(1).equals(RUNPARM_OPTION_VALUE_ALL))
+            n = Math.min(Runtime.getRuntime().availableProcessors(),
+                PaConstants.SEARCH_THREADS_MAXIMUM);
+        else
+            n = getPosInt(1);
+        getProofAsstPreferences().searchThreads.set(n);
+    }
+
+    /**
+     * Validate ProofAsstBatchTestThreads
+     * <p>
+     * Must be a positive integer, or "*" for one thread per available
+     * processor (capped at PaConstants.BATCH_TEST_THREADS_MAXIMUM).
+     */
+    protected void editProofAsstBatchTestThreads() {
+        require(1);
+        int n;
+        if (get(1).equals(RUNPARM_OPTION_VALUE_ALL))
+            n = Math.min(Runtime.getRuntime().availableProcessors(),
+                PaConstants.BATCH_TEST_THREADS_MAXIMUM);
+        else
+            n = getPosInt(1);
+        getProofAsstPreferences().batchTestThreads.set(n);
+    }
+
     /**
      * Validate StepSelectorShowSubstitutions
      * <p>
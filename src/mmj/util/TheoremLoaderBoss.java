@@ -57,6 +57,7 @@ public class TheoremLoaderBoss extends Boss {
         };
         putCommand(RUNPARM_CLEAR, clear);
         putCommand(RUNPARM_LOAD_FILE, clear);
+        putCommand(RUNPARM_LOAD_SNAPSHOT, clear);
 
         putCommand(RUNPARM_THEOREM_LOADER_DJ_VARS_OPTION,
             this::editTheoremLoaderDjVarsOption);
@@ -707,6 +707,33 @@ public class UtilConstants {
             + "  ID String = Identifier in StartInstrumentationTimer\n"
             + "              RunParm -- must match.\n" + " </pre>\n" + "\n");
 
+    public static final BatchCommand RUNPARM_ENABLE_METRICS = new BatchCommand(
+        "EnableMetrics",
+        " EnableMetrics\n" + " <p>\n" + " \n" + " <pre>\n"
+            + " \"EnableMetrics\": value1 = yes or no (default = no)\n"
+            + " \n"
+            + "  Yes = reset all metrics to zero and start collecting\n"
+            + "        counters and latency histograms for loading,\n"
+            + "        parsing, proof verification and unification.\n"
+            + "  No  = stop collecting metrics. The values collected so\n"
+            + "        far are kept for \"DumpMetrics\".\n" + " </pre>\n"
+            + "\n");
+
+    public static final BatchCommand RUNPARM_DUMP_METRICS = new BatchCommand(
+        "DumpMetrics",
+        " DumpMetrics\n" + " <p>\n" + " \n" + " <pre>\n"
+            + " \"DumpMetrics\": value1 = filename,\n" + " \n"
+            + "                value2 = new (default), or update\n"
+            + " \n" + "                value3 = charset\n"
+            + "                   see RUNPARM_SYSERR_FILE comments\n"
+            + "                   for info on the above value parms!\n"
+            + " \n" + "                value4 = json or csv (default =\n"
+            + "                   csv if the file name ends with\n"
+            + "                   \".csv\", else json)\n" + " \n"
+            + "  Writes the metrics collected since \"EnableMetrics,yes\".\n"
+            + "  Times are in nanoseconds. Relative file names are\n"
+            + "  relative to the mmj2 path.\n" + " </pre>\n" + "\n");
+
     // ----------------------------------------------------------
     // Commands for mmj.mmio.Systemizer.java
     // ----------------------------------------------------------
@@ -717,6 +744,41 @@ public class UtilConstants {
             + " \"LoadFile\": value1 = qual/unqual filename (varies by OS!)\n"
             + " </pre>\n" + "\n");
 
+    public static final BatchCommand RUNPARM_SAVE_SNAPSHOT = new BatchCommand(
+        "SaveSnapshot",
+        " SaveSnapshot.\n" + " \n" + " <pre>\n"
+            + " \"SaveSnapshot\": value1 = qual/unqual filename (varies by OS!)\n"
+            + " \n"
+            + "                 Writes a binary snapshot of the loaded\n"
+            + "                 Metamath file: symbols, statements, proofs,\n"
+            + "                 parse trees, scopes and BookManager data,\n"
+            + "                 plus a hash of the source file. Use it\n"
+            + "                 after \"LoadFile\", \"VerifyProof\" and\n"
+            + "                 \"Parse\". Relative names are relative to\n"
+            + "                 the mmj2 path.\n"
+            + " </pre>\n" + "\n");
+
+    public static final BatchCommand RUNPARM_LOAD_SNAPSHOT = new BatchCommand(
+        "LoadSnapshot",
+        " LoadSnapshot.\n" + " \n" + " <pre>\n"
+            + " \"LoadSnapshot\": value1 = qual/unqual filename (varies by OS!)\n"
+            + "                 value2 = optional Metamath file name\n"
+            + "                          (default = the file the snapshot\n"
+            + "                          was made from.)\n"
+            + " \n"
+            + "                 Used in place of \"LoadFile\": restores\n"
+            + "                 a file written by \"SaveSnapshot\". If the\n"
+            + "                 snapshot was verified and parsed the\n"
+            + "                 Grammar is initialized and the proofs and\n"
+            + "                 parse trees are used as they are, so\n"
+            + "                 \"VerifyProof\" and \"Parse\" are not needed.\n"
+            + " \n"
+            + "                 The snapshot is rejected if the Metamath\n"
+            + "                 file (value2) has changed since the snapshot\n"
+            + "                 was written. If the Metamath file does not\n"
+            + "                 exist the check is skipped.\n"
+            + " </pre>\n" + "\n");
+
     public static final BatchCommand RUNPARM_LOAD_ENDPOINT_STMT_NBR = new BatchCommand(
         "LoadEndpointStmtNbr",
         " LoadEndpointStmtNbr.\n" + " \n" + " <pre>\n"
@@ -735,6 +797,44 @@ public class UtilConstants {
             + "                                 Must not be blank.\n"
             + " </pre>\n" + "\n");
 
+    public static final BatchCommand RUNPARM_LAZY_PROOFS = new BatchCommand(
+        "LazyProofs",
+        " LazyProofs\n" + " \n" + " <pre>\n"
+            + " \"LazyProofs\": value1 = yes/no (default = no)\n"
+            + "                          value2 = SoftCache/NoSoftCache\n"
+            + "                          (default = NoSoftCache)\n" + " \n"
+            + "                          \"yes\" = keep compressed proofs\n"
+            + "                          compressed (as a compact byte array)\n"
+            + "                          when the file is loaded, and\n"
+            + "                          decompress each proof when it is\n"
+            + "                          first used (VerifyProof, export,\n"
+            + "                          Proof Assistant, etc.) Saves much\n"
+            + "                          memory when few proofs are used.\n"
+            + " \n"
+            + "                          \"SoftCache\" = keep decompressed\n"
+            + "                          proofs only while memory permits,\n"
+            + "                          decompressing them again if needed.\n"
+            + " \n"
+            + "                          Errors in the compressed proof\n"
+            + "                          characters are then not reported\n"
+            + "                          when loading; the proof is treated\n"
+            + "                          as incomplete.\n"
+            + "                          Must precede \"LoadFile\".\n"
+            + " </pre>\n" + "\n");
+
+    public static final BatchCommand RUNPARM_LOAD_PIPELINE = new BatchCommand(
+        "LoadPipeline",
+        " LoadPipeline\n" + " \n" + " <pre>\n"
+            + " \"LoadPipeline\": value1 = yes/no (default = no)\n"
+            + "                          \"yes\" = read the input .mm file on\n"
+            + "                          a separate thread during \"LoadFile\",\n"
+            + "                          overlapping reading and tokenizing\n"
+            + "                          with loading the statements into\n"
+            + "                          the LogicalSystem.\n" + " \n"
+            + "                          Messages and results are the same\n"
+            + "                          as with \"no\".\n" + " </pre>\n"
+            + "\n");
+
     public static final BatchCommand RUNPARM_LOAD_COMMENTS = new BatchCommand(
         "LoadComments",
         " LoadComments\n" + " \n" + " <pre>\n"
@@ -895,6 +995,34 @@ public class UtilConstants {
             + " \"VerifyParse\": \"*\" or Stmt.label\n" + " </pre>\n" + "\n");
     // Stmt.label
 
+    public static final BatchCommand RUNPARM_VERIFY_PROOF_THREADS = new BatchCommand(
+        "VerifyProofThreads",
+        " VerifyProofThreads.\n" + " \n" + " <pre>\n"
+            + " \"VerifyProofThreads\": number of threads used by\n"
+            + "                          \"VerifyProof,*\", default = 1,\n"
+            + "                          max = 256, or \"*\" to use one\n"
+            + "                          thread per available processor.\n"
+            + " \n"
+            + "                          Error messages are reported in\n"
+            + "                          statement sequence order regardless\n"
+            + "                          of the number of threads.\n"
+            + " </pre>\n" + "\n");
+
+    public static final BatchCommand RUNPARM_VERIFY_PROOF_STREAMING = new BatchCommand(
+        "VerifyProofStreaming",
+        " VerifyProofStreaming.\n" + " \n" + " <pre>\n"
+            + " \"VerifyProofStreaming\": value1 = yes/no (default = no)\n"
+            + "                          \"yes\" = verify a proof kept\n"
+            + "                          compressed (see \"LazyProofs\")\n"
+            + "                          by reading its compressed\n"
+            + "                          characters step by step, without\n"
+            + "                          decompressing it first. The\n"
+            + "                          decompressed proof is then not\n"
+            + "                          kept in memory by \"VerifyProof\".\n"
+            + " \n"
+            + "                          Messages are the same as with\n"
+            + "                          \"no\".\n" + " </pre>\n" + "\n");
+
     // ----------------------------------------------------------
     // Commands for mmj.lang.SyntaxVerifier.java interface
     // ----------------------------------------------------------
@@ -905,6 +1033,31 @@ public class UtilConstants {
             + " \"SetParser\": fully qualified parser implementation class name.\n"
             + " </pre>\n" + "\n");
 
+    public static final BatchCommand RUNPARM_PARSE_TABLE_CACHE_FILE = new BatchCommand(
+        "ParseTableCacheFile",
+        " ParseTableCacheFile.\n" + " \n" + " <pre>\n"
+            + " \"ParseTableCacheFile\": file name of the binary parse table\n"
+            + " cache, relative to the mmj2 path unless absolute.\n"
+            + " The parse tables of table-driven parsers (see \"SetParser\",\n"
+            + " e.g. mmj.verify.LRParser) are written to the file after\n"
+            + " they are built, and reused by later runs as long as the\n"
+            + " syntax axioms of the database are unchanged.\n"
+            + " Must precede \"InitializeGrammar\" and \"Parse\".\n"
+            + " Default: no cache file.\n" + " </pre>\n" + "\n");
+
+    public static final BatchCommand RUNPARM_PARSE_THREADS = new BatchCommand(
+        "ParseThreads",
+        " ParseThreads.\n" + " \n" + " <pre>\n"
+            + " \"ParseThreads\": number of threads used by \"Parse,*\"\n"
+            + " (and by the parse done when a file is loaded with a\n"
+            + " grammar), default = 1, max = 256, or \"*\" to use one\n"
+            + " thread per available processor. Each thread uses its own\n"
+            + " parser instance; parsers which cannot be run on several\n"
+            + " threads parse sequentially.\n"
+            + " Error messages are reported in statement sequence order\n"
+            + " regardless of the number of threads.\n" + " </pre>\n"
+            + "\n");
+
     public static final BatchCommand RUNPARM_PARSE = new BatchCommand("Parse", // "*"
                                                                                // or
                                                                                // Stmt.label
@@ -1225,6 +1378,31 @@ public class UtilConstants {
             + " Optional, default is 50 (see mmj.pa.PaConstants.java)\n"
             + "\n");
 
+    public static final BatchCommand RUNPARM_STEP_SELECTOR_THREADS = new BatchCommand(
+        "StepSelectorThreads",
+        " StepSelectorThreads\n" + " <p>\n"
+            + " Number of threads used by the StepSelectorSearch to unify\n"
+            + " candidate assertions, max = 256, or \"*\" to use one thread\n"
+            + " per available processor. The unifiable assertions are\n"
+            + " collected in search order, so the results are the same,\n"
+            + " and in the same order, for any number of threads.\n"
+            + " <p>\n"
+            + " Optional, default is 1 (see mmj.pa.PaConstants.java)\n"
+            + "\n");
+
+    public static final BatchCommand RUNPARM_SEARCH_THREADS = new BatchCommand(
+        "SearchThreads",
+        " SearchThreads\n" + " <p>\n"
+            + " Number of threads used by the Search (Search Options\n"
+            + " screen and Step Search) to evaluate the search criteria,\n"
+            + " max = 256, or \"*\" to use one thread per available\n"
+            + " processor. The threads are kept for the rest of the session.\n"
+            + " Unification with the derivation step stays on one thread,\n"
+            + " so the results are the same for any number of threads.\n"
+            + " <p>\n"
+            + " Optional, default is 1 (see mmj.pa.PaConstants.java)\n"
+            + "\n");
+
     public static final BatchCommand RUNPARM_STEP_SELECTOR_SHOW_SUBSTITUTIONS = new BatchCommand(
         "StepSelectorShowSubstitutions",
         " StepSelectorShowSubstitutions\n" + " <p>\n"
@@ -1499,6 +1677,21 @@ public class UtilConstants {
             + " \"ProofAsstProofFolder\", if present, is used with relative filename. And\n"
             + " take care to note that if export is performed *after* ProofAsstGUI, the\n"
             + " ProofAsstProofFolder may have been changed.</p>\n" + "\n");
+
+    public static final BatchCommand RUNPARM_PROOF_ASST_BATCH_TEST_THREADS = new BatchCommand(
+        "ProofAsstBatchTestThreads",
+        " ProofAsstBatchTestThreads\n" + " <p>\n"
+            + " Number of threads used by ProofAsstBatchTest when it\n"
+            + " tests the theorems loaded in memory (no input file),\n"
+            + " max = 256, or \"*\" to use one thread per available\n"
+            + " processor. Each thread works in its own Proof Assistant\n"
+            + " session. The messages are output in theorem order, so\n"
+            + " they are the same as for a single thread, except for the\n"
+            + " times. The test stays sequential when \"UpdateDJs\" is\n"
+            + " requested, because later theorems see the updated $d's.\n"
+            + " <p>\n"
+            + " Optional, default is 1 (see mmj.pa.PaConstants.java)\n"
+            + "\n");
     // selection
     // and
     // optional
@@ -2164,6 +2357,21 @@ public class UtilConstants {
             + "         GMFFExportTheorem,syl,100,Test20110915a\n" + " </pre>\n"
             + "\n");
 
+    public static final BatchCommand RUNPARM_GMFF_EXPORT_THREADS = new BatchCommand(
+        "GMFFExportThreads",
+        " GMFFExportThreads\n" + " <p>\n"
+            + " Number of threads used by GMFFExportTheorem when it\n"
+            + " exports more than one theorem, max = 256, or \"*\" to\n"
+            + " use one thread per available processor. Each thread\n"
+            + " works in its own Proof Assistant session and builds\n"
+            + " the export text straight from the Proof Worksheet, and\n"
+            + " the export files are written in theorem order by a\n"
+            + " separate thread. The files and messages are the same as\n"
+            + " for a single thread. Must follow the \"LoadFile\" RunParm.\n"
+            + " <p>\n"
+            + " Optional, default is 1 (see mmj.gmff.GMFFConstants.java)\n"
+            + "\n");
+
     // ----------------------------------------------------------
     // Commands for mmj.util.MacroBoss
     // ----------------------------------------------------------
@@ -2370,6 +2578,16 @@ public class UtilConstants {
      */
     public static final String RUNPARM_OPTION_OFF = "off";
 
+    /**
+     * Option "json" (DumpMetrics format).
+     */
+    public static final String RUNPARM_OPTION_METRICS_JSON = "json";
+
+    /**
+     * Option "csv" (DumpMetrics format).
+     */
+    public static final String RUNPARM_OPTION_METRICS_CSV = "csv";
+
     /**
      * Option Value 4 "unified" for ProofAsstExportToFile RunParm and Option
      * Value 3 for ProofAsstBatchTest.
@@ -2780,6 +2998,15 @@ public class UtilConstants {
             + " the '%2$s' RunParm command and the enabled/disabled"
             + " status cannot be changed after %2$s is executed!");
 
+    public static final ErrorCode ERRMSG_SNAPSHOT_STALE = of("A-UT-0205 "
+        + "Snapshot %s is out of date: Metamath file %s has changed since"
+        + " the snapshot was written. Load the Metamath file and save a new"
+        + " snapshot.");
+
+    public static final ErrorCode ERRMSG_SNAPSHOT_SOURCE_NOTFND = of(
+        "I-UT-0206 Metamath file %s not found; snapshot %s was not checked"
+            + " for being out of date.");
+
     // ----------------------------------------------------------
     // Messages from Dump.java
     // ----------------------------------------------------------
@@ -2806,6 +3033,12 @@ public class UtilConstants {
     public static final ErrorCode ERRMSG_BOOK_MANAGER_SECTION_NBR_NOT_FOUND = of(
         "A-UT-0037 BookManager Section Number %d not found");
 
+    public static final ErrorCode ERRMSG_METRICS_FORMAT_UNRECOG = of(
+        "A-UT-0207 Metrics format must be '%s' or '%s'. Value input was '%s'.");
+
+    public static final ErrorCode ERRMSG_METRICS_WRITE_ERROR = of(
+        "A-UT-0208 Error writing metrics to file %s: %s");
+
     // ----------------------------------------------------------
     // Messages from ProofAsstBoss.java
     // ----------------------------------------------------------
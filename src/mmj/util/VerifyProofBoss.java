@@ -23,9 +23,10 @@ package mmj.util;
 
 import static mmj.util.UtilConstants.*;
 
+import java.util.function.BooleanSupplier;
+
 import mmj.lang.*;
-import mmj.verify.VerifyException;
-import mmj.verify.VerifyProofs;
+import mmj.verify.*;
 
 /**
  * Responsible for building, loading, maintaining and fetching ProofVerifier,
@@ -48,6 +49,10 @@ public class VerifyProofBoss extends Boss {
 
     protected boolean allStatementsParsedSuccessfully;
 
+    protected int verifyThreadsParm = ProofConstants.VERIFY_THREADS_DEFAULT;
+
+    protected boolean verifyStreamingParm;
+
     /**
      * Constructor with BatchFramework for access to environment.
      *
@@ -60,16 +65,23 @@ public class VerifyProofBoss extends Boss {
             verifyProofs = null;
             allProofsVerifiedSuccessfully = false;
             allStatementsParsedSuccessfully = false;
+            verifyThreadsParm = ProofConstants.VERIFY_THREADS_DEFAULT;
+            verifyStreamingParm = false;
             return false; // not "consumed"
         });
-        putCommand(RUNPARM_LOAD_FILE, () -> {
+        final BooleanSupplier load = () -> {
             allProofsVerifiedSuccessfully = false;
             allStatementsParsedSuccessfully = false;
             return false; // not "consumed"
-        });
+        };
+        putCommand(RUNPARM_LOAD_FILE, load);
+        putCommand(RUNPARM_LOAD_SNAPSHOT, load);
 
         putCommand(RUNPARM_VERIFY_PROOF, this::doVerifyProof);
         putCommand(RUNPARM_VERIFY_PARSE, this::doVerifyParse);
+        putCommand(RUNPARM_VERIFY_PROOF_THREADS, this::editVerifyProofThreads);
+        putCommand(RUNPARM_VERIFY_PROOF_STREAMING,
+            this::editVerifyProofStreaming);
 
     }
 
@@ -101,6 +113,21 @@ public class VerifyProofBoss extends Boss {
         return verifyProofs;
     }
 
+    /**
+     * Takes over the VerifyProof status of a snapshot restored by
+     * LoadSnapshot: if its proofs were verified they are not verified again.
+     *
+     * @param snapshot the restored snapshot.
+     */
+    public void restoreSnapshot(final LogicalSystemSnapshot snapshot) {
+        if (!snapshot.getProofsVerified())
+            return;
+        initializeVerifyProofsIfNeeded();
+        allProofsVerifiedSuccessfully = true;
+        batchFramework.logicalSystemBoss.getLogicalSystem()
+            .setProofVerifier(verifyProofs);
+    }
+
     /**
      * Executes the VerifyProof command, prints any messages, etc.
      */
@@ -168,9 +195,44 @@ public class VerifyProofBoss extends Boss {
 
     }
 
+    /**
+     * Validate VerifyProofThreads RunParm.
+     * <p>
+     * "*" means one thread per available processor, capped at
+     * ProofConstants.VERIFY_THREADS_MAX.
+     *
+     * @throws IllegalArgumentException if an error occurred
+     */
+    protected void editVerifyProofThreads() {
+        require(1);
+        int n;
+        if (get(1).equals(RUNPARM_OPTION_VALUE_ALL))
+            n = Math.min(Runtime.getRuntime().availableProcessors(),
+                ProofConstants.VERIFY_THREADS_MAX);
+        else
+            n = getPosInt(1);
+        VerifyProofs.validateVerifyThreads(n);
+        verifyThreadsParm = n;
+        if (verifyProofs != null)
+            verifyProofs.setVerifyThreads(n);
+    }
+
+    /**
+     * Validate VerifyProofStreaming RunParm.
+     *
+     * @throws IllegalArgumentException if an error occurred
+     */
+    protected void editVerifyProofStreaming() {
+        verifyStreamingParm = getYesNo(1);
+        if (verifyProofs != null)
+            verifyProofs.setStreamCompressedProofs(verifyStreamingParm);
+    }
+
     protected void initializeVerifyProofsIfNeeded() {
         if (verifyProofs == null) {
             verifyProofs = new VerifyProofs();
+            verifyProofs.setVerifyThreads(verifyThreadsParm);
+            verifyProofs.setStreamCompressedProofs(verifyStreamingParm);
             allProofsVerifiedSuccessfully = false;
             allStatementsParsedSuccessfully = false;
         }
@@ -53,6 +53,7 @@ public class WorkVarBoss extends Boss {
 
         putCommand(RUNPARM_CLEAR, clear);
         putCommand(RUNPARM_LOAD_FILE, clear);
+        putCommand(RUNPARM_LOAD_SNAPSHOT, clear);
 
         putCommand(RUNPARM_DEFINE_WORK_VAR_TYPE, this::editDefineWorkVarType);
 
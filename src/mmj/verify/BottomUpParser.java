@@ -14,6 +14,7 @@ package mmj.verify;
 import java.util.List;
 
 import mmj.lang.*;
+import mmj.util.Metrics;
 
 /**
  * Bottom Up Parser, too slow and stupid for set.mm use.
@@ -75,6 +76,17 @@ public class BottomUpParser implements GrammaticalParser {
             maxFormulaLength = 100;
     }
 
+    /**
+     * BottomUpParser keeps no shared tables, so a worker parser is simply a
+     * new BottomUpParser for the same Grammar.
+     *
+     * @return new BottomUpParser.
+     */
+    @Override
+    public GrammaticalParser newWorkerParser() {
+        return new BottomUpParser(grammar, maxFormulaLength);
+    }
+
     /**
      * BottomUpParser - returns 'n' = the number of ParseTree objects generated
      * for the input formula and stored in parseTreeArray.
@@ -484,6 +496,8 @@ public class BottomUpParser implements GrammaticalParser {
             initArrays(maxFormulaLength);
             return;
         }
+        if (retry > 0)
+            Metrics.PARSE_RETRIES.inc();
         retryCnt = retry;
 
         if (pStackIndex > pStackHighwater)
@@ -36,6 +36,7 @@ package mmj.verify;
 import java.util.*;
 
 import mmj.lang.*;
+import mmj.util.Metrics;
 
 /**
  * EarleyParser is my implementation of the Earley Parse algorithm, enhanced
@@ -202,6 +203,28 @@ public class EarleyParser implements GrammaticalParser {
         // defer array building until reInitArrays(0) in parseExpr
     }
 
+    /**
+     * Creates an EarleyParser for another thread.
+     * <p>
+     * The Earley rules and FIRST sets are stored in the Grammar's Cnsts and
+     * must only be loaded once, so they are loaded here (if this parser has
+     * not yet done so) and the worker parser is marked as already loaded.
+     *
+     * @return new EarleyParser sharing this parser's rules.
+     * @throws VerifyException if an error occurred
+     */
+    @Override
+    public GrammaticalParser newWorkerParser() throws VerifyException {
+        if (retryCnt == -1)
+            reInitArrays(0);
+        final EarleyParser worker = new EarleyParser(grammar, pMax - 1);
+        worker.retryCnt = 0;
+        worker.initArrays(worker.pMax, worker.pItemSetMax,
+            worker.pCompletedItemSetMax, worker.pBringForwardTypMax,
+            worker.pPredictorTypMax);
+        return worker;
+    }
+
     /**
      * parseExpr - returns 'n' = the number of ParseTree objects generated for
      * the input formula and stored in parseTreeArray.
@@ -944,6 +967,8 @@ public class EarleyParser implements GrammaticalParser {
                 pBringForwardTypMax, pPredictorTypMax);
             return;
         }
+        if (retry > 0)
+            Metrics.PARSE_RETRIES.inc();
         retryCnt = retry;
 
         if (pItemSetIndex > pItemSetHighwater)
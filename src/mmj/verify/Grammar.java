@@ -39,12 +39,19 @@
 
 package mmj.verify;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
 import mmj.lang.*;
 import mmj.pa.ErrorCode;
+import mmj.pa.MMJException;
 import mmj.pa.SessionStore;
+import mmj.util.Metrics;
+import mmj.util.ParallelIndexWork;
 import mmj.verify.GrammarConstants.LabelContext;
 
 /**
@@ -175,6 +182,13 @@ public class Grammar implements SyntaxVerifier {
     private Messages messages;
     private SessionStore store;
 
+    // hash of the syntax axioms, identifying the grammar
+    // for cached parse tables
+    private long syntaxAxiomHash;
+    private File parseTableCacheFile;
+
+    private int parseThreads = GrammarConstants.PARSE_THREADS_DEFAULT;
+
     private int lastGrammarRuleNbr = 0;
 
     public int assignNextGrammarRuleNbr() {
@@ -183,6 +197,13 @@ public class Grammar implements SyntaxVerifier {
 
     private GrammaticalParser grammaticalParser;
 
+    /**
+     * Serializes the use of grammaticalParser, which keeps its work areas in
+     * the parser object, by threads which have no parser of their own (see
+     * newWorkerParser()).
+     */
+    private final Object parserLock = new Object();
+
     private Class<? extends GrammaticalParser> parserPrototype;
 
     /**
@@ -318,6 +339,107 @@ public class Grammar implements SyntaxVerifier {
         this.store = store;
     }
 
+    /**
+     * Set the parse table cache file used by parsers that build parse tables
+     * (see LRParser). The cache is reused across runs as long as the syntax
+     * axioms are unchanged.
+     *
+     * @param parseTableCacheFile the cache file, or null for no cache.
+     */
+    public void setParseTableCacheFile(final File parseTableCacheFile) {
+        this.parseTableCacheFile = parseTableCacheFile;
+    }
+
+    /**
+     * Return the parse table cache file.
+     *
+     * @return the cache file, or null if not in use.
+     */
+    public File getParseTableCacheFile() {
+        return parseTableCacheFile;
+    }
+
+    /**
+     * Set the number of threads used by parseAllFormulas().
+     * <p>
+     * Each thread parses with its own parser instance (see
+     * {@link GrammaticalParser#newWorkerParser()}); parsers which do not
+     * support this are run sequentially regardless of the setting.
+     *
+     * @param parseThreads number of threads, 1 = sequential.
+     * @throws IllegalArgumentException if the number is out of range.
+     */
+    public void setParseThreads(final int parseThreads) {
+        validateParseThreads(parseThreads);
+        this.parseThreads = parseThreads;
+    }
+
+    /**
+     * Validate a number of parse threads.
+     *
+     * @param parseThreads number of threads.
+     * @throws IllegalArgumentException if the number is out of range.
+     */
+    public static void validateParseThreads(final int parseThreads) {
+        if (parseThreads < 1
+            || parseThreads > GrammarConstants.PARSE_THREADS_MAX)
+            throw new IllegalArgumentException(
+                new VerifyException(GrammarConstants.ERRMSG_PARSE_THREADS_RANGE,
+                    parseThreads, GrammarConstants.PARSE_THREADS_MAX));
+    }
+
+    /**
+     * Return the number of threads used by parseAllFormulas().
+     *
+     * @return number of threads, 1 = sequential.
+     */
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    /**
+     * Return the hash of the syntax axioms computed during grammar
+     * initialization.
+     * <p>
+     * The hash covers the label, seq order, formula and variable hypotheses
+     * (labels and Type Codes) of every syntax axiom, the Type Code parameters,
+     * and the nulls permitted Type Codes and Type Conversions derived from the
+     * syntax axioms, so it changes whenever the grammar of the database
+     * changes. It is used as the key of cached parse tables.
+     *
+     * @return the syntax axiom hash.
+     */
+    public long getSyntaxAxiomHash() {
+        return syntaxAxiomHash;
+    }
+
+    private long computeSyntaxAxiomHash(final Set<Axiom> allSyntaxAxiomSet) {
+        long h = 1125899906842597L;
+        for (final String typ : provableLogicStmtTypCodes)
+            h = 31 * h + typ.hashCode();
+        for (final String typ : logicStmtTypCodes)
+            h = 31 * h + typ.hashCode();
+        for (final Axiom axiom : allSyntaxAxiomSet) {
+            h = 31 * h + axiom.getLabel().hashCode();
+            final Formula formula = axiom.getFormula();
+            final Sym[] sym = formula.getSym();
+            for (int i = 0; i < formula.getCnt(); i++)
+                h = 31 * h + sym[i].getId().hashCode();
+            h = 31 * h + formula.getCnt();
+            for (final VarHyp varHyp : axiom.getMandVarHypArray()) {
+                h = 31 * h + varHyp.getLabel().hashCode();
+                h = 31 * h + varHyp.getTyp().getId().hashCode();
+            }
+        }
+        for (final Cnst typ : nullsPermittedTypSet)
+            h = 31 * h + typ.getId().hashCode();
+        for (final TypeConversionRule rule : typeConversionGRList) {
+            h = 31 * h + rule.getGrammarRuleTyp().getId().hashCode();
+            h = 31 * h + rule.getConvTyp().getId().hashCode();
+        }
+        return h;
+    }
+
     /**
      * Return grammarInitialized flag.
      *
@@ -646,6 +768,14 @@ public class Grammar implements SyntaxVerifier {
         final Set<Stmt> stmtTblBySeq = new TreeSet<>(MObj.SEQ);
         stmtTblBySeq.addAll(stmtTbl.values());
 
+        if (parseThreads > 1) {
+            final GrammaticalParser[] workerParsers = newWorkerParsers();
+            if (workerParsers != null) {
+                parseAllFormulasParallel(stmtTblBySeq, workerParsers);
+                return;
+            }
+        }
+
         for (final Stmt stmt : stmtTblBySeq) {
             if (messages.maxErrorMessagesReached())
                 break;
@@ -654,27 +784,124 @@ public class Grammar implements SyntaxVerifier {
                 || stmt instanceof Axiom && ((Axiom)stmt).getIsSyntaxAxiom())
                 // already done during initializeGrammarTables()
                 continue;
-            ParseTree exprParseTree = grammaticalParseOneFormula(
+            final ParseTree exprParseTree = grammaticalParseOneFormula(
                 stmt.getFormula(), varHypArray, stmt.getSeq(), stmt.getLabel());
-            if (exprParseTree == null)
-                exprParseTree = buildDefaultExprParseTree(stmt, varHypArray);
-            stmt.setExprParseTree(exprParseTree);
+            storeExprParseTree(stmt, varHypArray, exprParseTree);
+        }
+    }
+
+    /**
+     * Store a statement's parse tree, substituting the default tree if the
+     * parse failed, and prime the cached tree measures.
+     *
+     * @param stmt the parsed Stmt.
+     * @param varHypArray the Stmt's mandatory VarHyps.
+     * @param exprParseTree the parse result, or null if the parse failed.
+     */
+    private void storeExprParseTree(final Stmt stmt,
+        final VarHyp[] varHypArray, ParseTree exprParseTree)
+    {
+        if (exprParseTree == null)
+            exprParseTree = buildDefaultExprParseTree(stmt, varHypArray);
+        stmt.setExprParseTree(exprParseTree);
 
 //            System.out.println(stmt.getLabel() + " $"
 //                + (stmt instanceof LogHyp ? "e"
 //                    : stmt instanceof Axiom ? "a" : "p")
 //                + " " + exprParseTree.getRoot().asLisp());
 
-            // Prime these values so they aren't computed later
-            // (and so that the buffers don't get dirtied later).
-            // The "get" routines cache results...so...
-            exprParseTree.getMaxDepth();
-            exprParseTree.getLevelOneTwo();
-            if (stmt instanceof Assrt) {
-                final Assrt assrt = (Assrt)stmt;
-                assrt.getLogHypsMaxDepth();
-                assrt.getLogHypsL1HiLoKey();
-            }
+        // Prime these values so they aren't computed later
+        // (and so that the buffers don't get dirtied later).
+        // The "get" routines cache results...so...
+        exprParseTree.getMaxDepth();
+        exprParseTree.getLevelOneTwo();
+        if (stmt instanceof Assrt) {
+            final Assrt assrt = (Assrt)stmt;
+            assrt.getLogHypsMaxDepth();
+            assrt.getLogHypsL1HiLoKey();
+        }
+    }
+
+    /**
+     * Create one parser per parse thread, or return null if the grammatical
+     * parser cannot be run on multiple threads.
+     *
+     * @return array of worker parsers, or null.
+     */
+    private GrammaticalParser[] newWorkerParsers() {
+        final GrammaticalParser[] workerParsers = new GrammaticalParser[parseThreads];
+        try {
+            for (int w = 0; w < workerParsers.length; w++)
+                if ((workerParsers[w] = grammaticalParser
+                    .newWorkerParser()) == null)
+                    return null;
+        } catch (final VerifyException e) {
+            messages.accumException(e);
+            return null;
+        }
+        return workerParsers;
+    }
+
+    /**
+     * Parse the statements in a SEQ-sorted set on a fixed thread pool.
+     * <p>
+     * Workers claim the next unparsed statement index from a shared counter
+     * and collect the parse tree and messages for it. A worker stops claiming
+     * once enough storable errors have been found to fill {@code messages};
+     * because the parsed indices always form a prefix of the list, the first
+     * errors in SEQ order are then all known. The parse trees are then stored
+     * and the messages accumulated in SEQ order, exactly as the sequential
+     * loop would. (Storing is done on this thread since an Assrt's cached
+     * measures depend on the parse trees of its LogHyps.)
+     *
+     * @param stmtTblBySeq the statements, sorted by MObj.SEQ.
+     * @param workerParsers one parser per thread.
+     */
+    private void parseAllFormulasParallel(final Set<Stmt> stmtTblBySeq,
+        final GrammaticalParser[] workerParsers)
+    {
+        final Stmt[] stmts = stmtTblBySeq.stream()
+            .filter(stmt -> !(stmt instanceof VarHyp
+                || stmt instanceof Axiom && ((Axiom)stmt).getIsSyntaxAxiom()))
+            .toArray(Stmt[]::new);
+        final ParseTree[] trees = new ParseTree[stmts.length];
+        final AtomicReferenceArray<List<MMJException>> results = new AtomicReferenceArray<>(
+            stmts.length);
+        final int room = messages.getMaxErrorMessages()
+            - messages.getErrorMessageCnt();
+        final AtomicInteger errorCnt = new AtomicInteger();
+
+        try (ParallelIndexWork<Void> work = new ParallelIndexWork<>(null,
+            workerParsers.length, stmts.length, () -> errorCnt.get() < room,
+            w -> {
+                final GrammaticalParser parser = workerParsers[w];
+                return i -> {
+                    final Stmt stmt = stmts[i];
+                    final List<MMJException> msgList = new ArrayList<>(1);
+                    trees[i] = grammaticalParseOneFormula(parser, msgList::add,
+                        stmt.getFormula(), stmt.getMandVarHypArray(),
+                        stmt.getSeq(), stmt.getLabel());
+                    for (final MMJException e : msgList)
+                        if (e.code.use() && e.code.level.error)
+                            errorCnt.incrementAndGet();
+                    results.set(i, msgList);
+                    return null;
+                };
+            }))
+        {
+            work.awaitWorkers();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+
+        for (int i = 0; i < stmts.length; i++) {
+            if (messages.maxErrorMessagesReached() || results.get(i) == null)
+                break;
+            for (final MMJException e : results.get(i))
+                messages.accumException(e);
+            storeExprParseTree(stmts[i], stmts[i].getMandVarHypArray(),
+                trees[i]);
         }
     }
 
@@ -767,56 +994,113 @@ public class Grammar implements SyntaxVerifier {
      */
     public ParseTree parseFormulaWithoutSafetyNet(final Formula formula,
         final Hyp[] hypArray, final int highestSeq)
+    {
+        synchronized (parserLock) {
+            return parseWithoutSafetyNet(grammaticalParser, formula, hypArray,
+                highestSeq);
+        }
+    }
+
+    /**
+     * Variant of parseFormulaWithoutSafetyNet() which parses with a parser
+     * obtained from newWorkerParser(), so that threads having their own
+     * parser do not wait for each other.
+     *
+     * @param parser the caller's parser, or null to use the Grammar's own
+     *            parser.
+     * @param formula formula to be parsed.
+     * @param hypArray Hyp's for Formula's Var's.
+     * @param highestSeq Maximum Stmt.seq that may be used to parse the
+     *            expression.
+     * @return ParseTree or null if parse errors.
+     */
+    public ParseTree parseFormulaWithoutSafetyNet(
+        final GrammaticalParser parser, final Formula formula,
+        final Hyp[] hypArray, final int highestSeq)
+    {
+        if (parser == null)
+            return parseFormulaWithoutSafetyNet(formula, hypArray, highestSeq);
+        return parseWithoutSafetyNet(parser, formula, hypArray, highestSeq);
+    }
+
+    private ParseTree parseWithoutSafetyNet(final GrammaticalParser parser,
+        final Formula formula, final Hyp[] hypArray, final int highestSeq)
     {
         ParseTree exprParseTree = null;
 
         final ParseTree[] parseTreeArray = new ParseTree[1];
         int parseTreeCnt;
         try {
-            parseTreeCnt = grammaticalParser.parseExpr(parseTreeArray,
-                formula.getTyp(), formula.getParseNodeHolderExpr(hypArray),
-                highestSeq);
+            parseTreeCnt = parser.parseExpr(parseTreeArray, formula.getTyp(),
+                formula.getParseNodeHolderExpr(hypArray), highestSeq);
             if (parseTreeCnt > 0)
                 exprParseTree = parseTreeArray[0];
         } catch (final VerifyException e) {}
         return exprParseTree;
     }
 
+    /**
+     * Create a parser for the exclusive use of one thread, e.g. a Proof
+     * Assistant session, to be passed to parseFormulaWithoutSafetyNet().
+     * <p>
+     * The Grammar must be initialized.
+     *
+     * @return a new parser, or null if the grammatical parser cannot be run on
+     *         multiple threads.
+     * @throws VerifyException if an error occurred
+     */
+    public GrammaticalParser newWorkerParser() throws VerifyException {
+        return grammaticalParser.newWorkerParser();
+    }
+
     private ParseTree grammaticalParseOneFormula(final Formula formula,
         final VarHyp[] varHypArray, final int highestSeq,
         final String defaultStmtLabel)
+    {
+        synchronized (parserLock) {
+            return grammaticalParseOneFormula(grammaticalParser,
+                messages::accumException, formula, varHypArray, highestSeq,
+                defaultStmtLabel);
+        }
+    }
+
+    private ParseTree grammaticalParseOneFormula(final GrammaticalParser parser,
+        final Consumer<MMJException> msgOut, final Formula formula,
+        final VarHyp[] varHypArray, final int highestSeq,
+        final String defaultStmtLabel)
     {
         ParseTree exprParseTree = null;
 
         final ParseTree[] parseTreeArray = new ParseTree[parseTreeMax];
         int parseTreeCnt;
+        final long start = Metrics.PARSE_FORMULA.start();
         try {
-            parseTreeCnt = grammaticalParser.parseExpr(parseTreeArray,
+            parseTreeCnt = parser.parseExpr(parseTreeArray,
                 formula.getTyp(), formula.getParseNodeHolderExpr(varHypArray),
                 highestSeq);
             if (parseTreeCnt < 0)
-                messages.accumMessage(
+                msgOut.accept(new MMJException(
                     GrammarConstants.ERRMSG_PARSE_FAILED_AT_POS,
-                    defaultStmtLabel, -parseTreeCnt);
+                    defaultStmtLabel, -parseTreeCnt));
             else
                 switch (parseTreeCnt) {
                     case 1:
                         exprParseTree = parseTreeArray[0];
                         break;
                     case 0:
-                        messages.accumMessage(
+                        msgOut.accept(new MMJException(
                             GrammarConstants.ERRMSG_PARSE_FAILED,
-                            defaultStmtLabel);
+                            defaultStmtLabel));
                         break;
                     case 2:
                         /**
                          * return 1st parse tree of n
                          */
                         exprParseTree = parseTreeArray[0];
-                        messages.accumMessage(
+                        msgOut.accept(new MMJException(
                             GrammarConstants.ERRMSG_2_PARSE_TREES,
                             defaultStmtLabel, parseTreeArray[0],
-                            parseTreeArray[1]);
+                            parseTreeArray[1]));
                         break;
                     default:
                         /**
@@ -828,15 +1112,19 @@ public class Grammar implements SyntaxVerifier {
                             s.append(ErrorCode.format(
                                 GrammarConstants.ERRMSG_N_PARSE_TREES_2, i,
                                 parseTreeArray[i]));
-                        messages.accumMessage(
+                        msgOut.accept(new MMJException(
                             GrammarConstants.ERRMSG_N_PARSE_TREES,
-                            defaultStmtLabel, s);
+                            defaultStmtLabel, s));
                         break;
                 }
         } catch (final VerifyException e) {
-            messages.accumException(
+            msgOut.accept(
                 e.addContext(new LabelContext(defaultStmtLabel)));
+        } finally {
+            Metrics.PARSE_FORMULA.stop(start);
         }
+        if (exprParseTree == null)
+            Metrics.PARSE_FAILURES.inc();
         return exprParseTree;
     }
 
@@ -972,6 +1260,8 @@ public class Grammar implements SyntaxVerifier {
         if (errorsFound)
             return false;
 
+        syntaxAxiomHash = computeSyntaxAxiomHash(allSyntaxAxiomSet);
+
         /**
          * Note: the BottomUpParser is perfectly acceptable for parsing Grammar
          * Rules, and it may even be somewhat better for ambiguous grammars as
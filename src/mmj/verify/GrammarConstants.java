@@ -499,5 +499,31 @@ public class GrammarConstants {
     public static final ErrorCode ERRMSG_REDUCE_REDUCE = of(
         "E-GR-0052 Reduce/reduce conflict in grammar: %s => \"%s\" / \"%s\"");
 
+    public static final ErrorCode ERRMSG_PARSE_TABLE_CACHE_WRITE = of(
+        "I-GR-0053 Unable to write parse table cache file %s: %s");
+
+    public static final ErrorCode ERRMSG_PARSE_TABLE_CACHE_LOADED = of(
+        "I-GR-0054 Parse tables loaded from cache file %s");
+
+    /**
+     * Parse table cache file format identifier, "MMJ2" + version.
+     */
+    public static final int PARSE_TABLE_CACHE_MAGIC = 0x4D4D4A32;
+    public static final int PARSE_TABLE_CACHE_VERSION = 2;
+
+    public static final ErrorCode ERRMSG_PARSE_THREADS_RANGE = of(
+        "E-GR-0055 Number of parse threads = %d, must be between 1 and %d");
+
+    /**
+     * Default number of threads used by Grammar.parseAllFormulas(); one
+     * thread means the original, sequential parse loop.
+     */
+    public static final int PARSE_THREADS_DEFAULT = 1;
+
+    /**
+     * Maximum number of threads used by Grammar.parseAllFormulas().
+     */
+    public static final int PARSE_THREADS_MAX = 256;
+
     public static final Class<? extends GrammaticalParser> DEFAULT_PARSER_PROTOTYPE = EarleyParser.class;
 }
@@ -50,4 +50,20 @@ public interface GrammaticalParser {
      * @param store The setting storage
      */
     default void addSettings(final SessionStore store) {}
+
+    /**
+     * Create a parser for use on another thread.
+     * <p>
+     * The new parser parses with the same Grammar as this one and shares its
+     * read-only tables, but has its own work areas, so that it and this parser
+     * may run {@code parseExpr()} concurrently. This is called on the thread
+     * owning this parser before the worker threads are started.
+     *
+     * @return a new parser, or null if the parser does not support being run
+     *         on multiple threads (callers then parse sequentially).
+     * @throws VerifyException if an error occurred
+     */
+    default GrammaticalParser newWorkerParser() throws VerifyException {
+        return null;
+    }
 }
@@ -11,7 +11,11 @@
 
 package mmj.verify;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.function.BiFunction;
@@ -21,6 +25,7 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import mmj.lang.*;
+import mmj.lang.ParseTree.RPNStep;
 import mmj.pa.*;
 
 /**
@@ -62,6 +67,25 @@ public class LRParser implements GrammaticalParser {
         grammar = grammarIn;
     }
 
+    /**
+     * The parse tables are not modified by {@code parseExpr()} once loaded, so
+     * the worker parser shares them (and the settings they were loaded from).
+     *
+     * @return new LRParser sharing this parser's tables.
+     */
+    @Override
+    public GrammaticalParser newWorkerParser() {
+        load(true);
+        final LRParser worker = new LRParser(grammar, 0);
+        worker.store = store;
+        worker.grammarHash = grammarHash;
+        worker.startStatesSetting = startStatesSetting;
+        worker.rowsSetting = rowsSetting;
+        worker.startStates = startStates;
+        worker.rows = rows;
+        return worker;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void addSettings(final SessionStore store) {
@@ -370,14 +394,22 @@ public class LRParser implements GrammaticalParser {
         newRules.clear();
         ParseState.clearCache();
 
+        storeSettings();
+    }
+
+    private void storeSettings() {
         grammarHash.reset();
-        grammarHash.set(grammar.getNotationGRSet().size());
+        grammarHash.set(getGrammarHash());
         startStatesSetting.reset();
         startStatesSetting.set(startStates);
         rowsSetting.reset();
         rowsSetting.set(rows);
     }
 
+    private int getGrammarHash() {
+        return Long.hashCode(grammar.getSyntaxAxiomHash());
+    }
+
     private Integer getState(final ParseSet set) {
         Integer index = setLookup.get(set);
         if (index == null) {
@@ -449,12 +481,14 @@ public class LRParser implements GrammaticalParser {
     }
 
     public void load(final boolean fromFile) {
-        if (grammarHash.get().equals(grammar.getNotationGRSet().size())) {
+        if (grammarHash.get().equals(getGrammarHash())) {
             startStates = startStatesSetting.get();
             rows = rowsSetting.get();
         }
         if (startStates == null || startStates.isEmpty())
             if (fromFile) {
+                if (readCacheFile())
+                    return;
                 try {
                     final List<ProofAsstException> errors = new ArrayList<>();
                     store.load(true, errors, grammarHash.key(),
@@ -468,8 +502,134 @@ public class LRParser implements GrammaticalParser {
                 }
                 load(false);
             }
-            else
+            else {
                 initialize();
+                writeCacheFile();
+            }
+    }
+
+    /**
+     * Loads the parse tables from the Grammar's parse table cache file, if
+     * there is one and it was written for the current syntax axioms.
+     * <p>
+     * The file is read into one buffer, and closed, before it is decoded into
+     * the table rows, so that no mapping of it outlives the load and the file
+     * can be rewritten later in the run.
+     *
+     * @return true if the tables were loaded.
+     */
+    private boolean readCacheFile() {
+        final File file = grammar.getParseTableCacheFile();
+        if (file == null || !file.isFile())
+            return false;
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+            StandardOpenOption.READ))
+        {
+            final ByteBuffer buf = ByteBuffer
+                .allocate((int)Math.min(channel.size(), Integer.MAX_VALUE));
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {}
+            channel.close();
+            buf.flip();
+            if (buf.getInt() != GrammarConstants.PARSE_TABLE_CACHE_MAGIC
+                || buf.getInt() != GrammarConstants.PARSE_TABLE_CACHE_VERSION
+                || buf.getLong() != grammar.getSyntaxAxiomHash())
+                return false;
+
+            final Map<String, Integer> newStartStates = new HashMap<>();
+            for (int i = buf.getInt(); i > 0; i--)
+                newStartStates.put(getString(buf), buf.getInt());
+
+            final int nbrRows = buf.getInt();
+            final List<ParseTableRow> newRows = new ArrayList<>(nbrRows);
+            for (int r = 0; r < nbrRows; r++) {
+                final ParseTableRow row = new ParseTableRow();
+                for (int i = buf.getInt(); i > 0; i--)
+                    row.transitions.put(getString(buf), buf.getInt());
+                if (buf.get() != 0) {
+                    row.typeCode = getString(buf);
+                    row.args = buf.getInt();
+                    final RPNStep[] rpn = new RPNStep[buf.getInt()];
+                    for (int i = 0; i < rpn.length; i++) {
+                        final String step = getString(buf);
+                        rpn[i] = new RPNStep(grammar.stmtTbl, step);
+                        if (rpn[i].stmt == null && rpn[i].backRef <= 0)
+                            return false; // stale label
+                    }
+                    row.paramTransformationTree = new ParseTree(rpn);
+                }
+                newRows.add(row);
+            }
+            startStates = newStartStates;
+            rows = newRows;
+        } catch (final IOException | RuntimeException e) {
+            return false;
+        }
+        storeSettings();
+        grammar.getMessages().accumMessage(
+            GrammarConstants.ERRMSG_PARSE_TABLE_CACHE_LOADED,
+            file.getAbsolutePath());
+        return true;
+    }
+
+    /**
+     * Writes the parse tables to the Grammar's parse table cache file, if
+     * there is one, keyed by the syntax axiom hash.
+     */
+    private void writeCacheFile() {
+        final File file = grammar.getParseTableCacheFile();
+        if (file == null)
+            return;
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(GrammarConstants.PARSE_TABLE_CACHE_MAGIC);
+            out.writeInt(GrammarConstants.PARSE_TABLE_CACHE_VERSION);
+            out.writeLong(grammar.getSyntaxAxiomHash());
+
+            out.writeInt(startStates.size());
+            for (final Entry<String, Integer> e : startStates.entrySet()) {
+                putString(out, e.getKey());
+                out.writeInt(e.getValue());
+            }
+
+            out.writeInt(rows.size());
+            for (final ParseTableRow row : rows) {
+                out.writeInt(row.transitions.length());
+                for (final String key : row.transitions.keySet()) {
+                    putString(out, key);
+                    out.writeInt(row.getTransition(key));
+                }
+                out.writeByte(row.typeCode == null ? 0 : 1);
+                if (row.typeCode != null) {
+                    putString(out, row.typeCode);
+                    out.writeInt(row.args);
+                    final RPNStep[] rpn = row.paramTransformationTree
+                        .convertToRPN();
+                    out.writeInt(rpn.length);
+                    for (final RPNStep step : rpn)
+                        putString(out, step.toString());
+                }
+            }
+        } catch (final IOException e) {
+            file.delete();
+            grammar.getMessages().accumMessage(
+                GrammarConstants.ERRMSG_PARSE_TABLE_CACHE_WRITE,
+                file.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    private static String getString(final ByteBuffer buf) {
+        final byte[] b = new byte[buf.getInt()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void putString(final DataOutputStream out, final String s)
+        throws IOException
+    {
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
     }
 
     /**
@@ -124,6 +124,15 @@ public class ProofConstants {
      * Work expression (array) "hard failure" maximum size.
      */
     public static final int PROOF_WEXPR_HARD_FAILURE_LEN = 32000;
+    /**
+     * Expression stack (array) initial size. The expression stack holds the
+     * symbols of all substituted formulas on the proof stack.
+     */
+    public static final int PROOF_ESTACK_INIT_LEN = 16000;
+    /**
+     * Expression stack (array) "hard failure" maximum size.
+     */
+    public static final int PROOF_ESTACK_HARD_FAILURE_LEN = 2048000;
     /**
      * Substitution map array initial size.
      */
@@ -133,6 +142,17 @@ public class ProofConstants {
      */
     public static final int PROOF_SUBST_HARD_FAILURE_LEN = 6400;
 
+    /**
+     * Default number of threads used by VerifyProofs.verifyAllProofs(). One
+     * thread means the original, sequential verification loop.
+     */
+    public static final int VERIFY_THREADS_DEFAULT = 1;
+
+    /**
+     * Maximum number of threads used by VerifyProofs.verifyAllProofs().
+     */
+    public static final int VERIFY_THREADS_MAX = 256;
+
     /**
      * QED ProofDerivationStepEntry last step number
      */
@@ -153,6 +173,11 @@ public class ProofConstants {
             + " Increase PROOF_SUBST_HARD_FAILURE_LEN"
             + " and recompile? Max at %d");
 
+    public static final ErrorCode ERRMSG_ESTACK_ARRAY_OVERFLOW = of(
+        "A-PR-0026 VerifyProofs eStack array overflow. Bug?"
+            + " Increase PROOF_ESTACK_HARD_FAILURE_LEN"
+            + " and recompile? Max at %d");
+
     public static final ErrorCode ERRMSG_PROOF_STEP_INCOMPLETE = of(
         "E-PR-0004 VerifyProof: proof incomplete. ");
 
@@ -247,4 +272,12 @@ public class ProofConstants {
     public static final ErrorCode ERRMSG_PROOF_SQUISH_FAIL = of("E-PR-0024",
         "RPN invalid during proof compression");
 
+    public static final ErrorCode ERRMSG_VERIFY_THREADS_RANGE = of(
+        "E-PR-0025", "Number of verify threads = %d, must be between 1"
+            + " and %d");
+
+    public static final ErrorCode ERRMSG_PROOF_DECOMPRESS_ERROR = of(
+        "E-PR-0027", "VerifyProof: compressed proof cannot be decompressed."
+            + " Detailed message follows: %s");
+
 }
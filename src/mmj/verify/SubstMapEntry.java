@@ -45,9 +45,23 @@ public class SubstMapEntry {
 
     /**
      * substTo -- an expression or variable to replace substFrom.
+     * <p>
+     * Only the slice {@code substTo[substToStart]} through
+     * {@code substTo[substToEnd - 1]} is used, which lets VerifyProofs point
+     * substTo at the symbols of a proof stack entry instead of copying them.
      */
     public Sym[] substTo;
 
+    /**
+     * substToStart -- index of the first symbol of substTo to use.
+     */
+    public int substToStart;
+
+    /**
+     * substToEnd -- index after the last symbol of substTo to use.
+     */
+    public int substToEnd;
+
     /**
      * Default Constructor.
      */
@@ -60,8 +74,24 @@ public class SubstMapEntry {
      * @param substTo expression or variable to replace substFrom.
      */
     public SubstMapEntry(final Sym substFrom, final Sym[] substTo) {
+        this(substFrom, substTo, 0, substTo.length);
+    }
+
+    /**
+     * Construct using substFrom and a slice of substTo.
+     *
+     * @param substFrom variable to be replaced.
+     * @param substTo array holding the expression to replace substFrom.
+     * @param substToStart index of the first symbol of the expression.
+     * @param substToEnd index after the last symbol of the expression.
+     */
+    public SubstMapEntry(final Sym substFrom, final Sym[] substTo,
+        final int substToStart, final int substToEnd)
+    {
         this.substFrom = substFrom;
         this.substTo = substTo;
+        this.substToStart = substToStart;
+        this.substToEnd = substToEnd;
     }
 
     @Override
@@ -69,8 +99,8 @@ public class SubstMapEntry {
         String s = substFrom + " :>";
         if (substTo == null)
             return s + " null";
-        for (final Sym sym : substTo)
-            s += " " + sym;
+        for (int i = substToStart; i < substToEnd; i++)
+            s += " " + substTo[i];
         return s;
     }
 }
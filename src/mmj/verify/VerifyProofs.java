@@ -63,12 +63,16 @@
 package mmj.verify;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import mmj.lang.*;
 import mmj.lang.ParseTree.RPNStep;
+import mmj.lang.ProofCompression.StepReader;
 import mmj.pa.ErrorCode;
 import mmj.pa.PaConstants;
 import mmj.pa.PaConstants.*;
+import mmj.util.Metrics;
+import mmj.util.ParallelIndexWork;
 
 /**
  * VerifyProofs implements the proof verification process described in
@@ -133,6 +137,10 @@ import mmj.pa.PaConstants.*;
 public class VerifyProofs implements ProofVerifier {
     private int retryCnt = -1;
 
+    private int verifyThreads = ProofConstants.VERIFY_THREADS_DEFAULT;
+
+    private boolean streamCompressedProofs;
+
     // *******************************************
     // all following variables are work items used
     // within a single execution but are stored
@@ -140,9 +148,19 @@ public class VerifyProofs implements ProofVerifier {
     // a bazillion call paramaters.
     // *******************************************
 
+    // proof stack: entry i is the formula pStackSym[i][pStackStart[i]]
+    // through pStackSym[i][pStackEnd[i] - 1], Type Code included. The
+    // array is either the sym array of an existing Formula, shared rather
+    // than copied, or eStack, which holds the substituted formulas built
+    // by the proof steps. pStackMark[i] is eStackCnt when entry i was
+    // pushed, so popping back to entry i releases the eStack space above.
+    private int pStackCnt;
     private int pStackMax;
     private int pStackHighwater;
-    private Deque<Formula> pStack;
+    private Sym[][] pStackSym;
+    private int[] pStackStart;
+    private int[] pStackEnd;
+    private int[] pStackMark;
 
     // "work" expression/formula
     private int wExprCnt;
@@ -150,11 +168,23 @@ public class VerifyProofs implements ProofVerifier {
     private int wExprHighwater;
     private Sym[] wExpr;
 
+    // expression stack (see pStack above)
+    private int eStackCnt;
+    private int eStackMax;
+    private int eStackHighwater;
+    private Sym[] eStack;
+
     private int substCnt;
     private int substMax;
     private int substHighwater;
     private SubstMapEntry[] subst;
 
+    // subst entries of the current step indexed by Var.getVarNbr(),
+    // replacing a linear scan of subst[] for each formula symbol.
+    private SubstMapEntry[] substByVar = new SubstMapEntry[0];
+
+    private final List<Formula> backrefFormulas = new ArrayList<>();
+
     private boolean isExprRPNVerify;
     private String proofStmtLabel;
     private Formula proofStmtFormula;
@@ -162,6 +192,10 @@ public class VerifyProofs implements ProofVerifier {
     private ScopeFrame proofStmtOptFrame;
     private RPNStep[] proof;
 
+    // reads the proof being verified when it is streamed from its
+    // compressed form (proof == null)
+    private final StepReader stepReader = new StepReader();
+
     private boolean proofDjVarsSoftErrorsIgnore;
 
     private List<DjVars> proofSoftDjVarsErrorList;
@@ -177,6 +211,10 @@ public class VerifyProofs implements ProofVerifier {
     private int stepNbr;
     private String stepNbrOutputString;
 
+    // steps verified by the last verifyProof() attempt, added to
+    // Metrics.VERIFY_STEPS once the retries are over.
+    private int verifiedStepCnt;
+
     // *******************************************
 
     /**
@@ -199,8 +237,75 @@ public class VerifyProofs implements ProofVerifier {
 
     }
 
+    /**
+     * Set streaming verification of compressed proofs.
+     * <p>
+     * When on, verifyOneProof() (and so verifyAllProofs()) reads a proof
+     * which is kept compressed (see the LazyProofs RunParm) step by step
+     * straight from its compressed characters, instead of decompressing it
+     * into an RPNStep array first. The array is neither built nor kept in the
+     * Theorem, which saves memory bandwidth and heap when verifying a large
+     * database. The messages are the same either way.
+     *
+     * @param streamCompressedProofs true to stream compressed proofs.
+     */
+    public void setStreamCompressedProofs(
+        final boolean streamCompressedProofs)
+    {
+        this.streamCompressedProofs = streamCompressedProofs;
+    }
+
+    /**
+     * @return true if compressed proofs are verified by streaming.
+     */
+    public boolean getStreamCompressedProofs() {
+        return streamCompressedProofs;
+    }
+
+    /**
+     * Set the number of threads used by verifyAllProofs().
+     * <p>
+     * With more than one thread each worker gets its own VerifyProofs
+     * instance, since the work arrays of a VerifyProofs object can only be
+     * used for one proof at a time.
+     *
+     * @param verifyThreads number of threads, 1 = sequential.
+     * @throws IllegalArgumentException if the number is out of range.
+     */
+    public void setVerifyThreads(final int verifyThreads) {
+        validateVerifyThreads(verifyThreads);
+        this.verifyThreads = verifyThreads;
+    }
+
+    /**
+     * Validate a number of verify threads.
+     *
+     * @param verifyThreads number of threads.
+     * @throws IllegalArgumentException if the number is out of range.
+     */
+    public static void validateVerifyThreads(final int verifyThreads) {
+        if (verifyThreads < 1
+            || verifyThreads > ProofConstants.VERIFY_THREADS_MAX)
+            throw new IllegalArgumentException(
+                new VerifyException(ProofConstants.ERRMSG_VERIFY_THREADS_RANGE,
+                    verifyThreads, ProofConstants.VERIFY_THREADS_MAX));
+    }
+
+    /**
+     * Return the number of threads used by verifyAllProofs().
+     *
+     * @return number of threads, 1 = sequential.
+     */
+    public int getVerifyThreads() {
+        return verifyThreads;
+    }
+
     /**
      * Verify all proofs in Statement Table.
+     * <p>
+     * If more than one verify thread is set the proofs are verified in
+     * parallel, but the error messages are still accumulated in MObj.SEQ
+     * order, exactly as the sequential loop would produce them.
      *
      * @param messages Messages object for output error messages.
      * @param stmtTbl Statement Table (map).
@@ -210,6 +315,10 @@ public class VerifyProofs implements ProofVerifier {
     {
         final List<Stmt> list = new ArrayList<>(stmtTbl.values());
         Collections.sort(list, MObj.SEQ);
+        if (verifyThreads > 1) {
+            verifyAllProofsParallel(messages, list);
+            return;
+        }
         for (final Stmt stmt : list) {
             if (messages.maxErrorMessagesReached())
                 break;
@@ -221,6 +330,60 @@ public class VerifyProofs implements ProofVerifier {
         }
     }
 
+    /**
+     * Verify the Theorems in a SEQ-sorted list of statements on a fixed thread
+     * pool.
+     * <p>
+     * Workers claim the next unverified Theorem index from a shared counter,
+     * so every index below the highest one claimed is verified. A worker stops
+     * claiming once enough storable errors have been found to fill
+     * {@code messages}; because the verified indices always form a prefix of
+     * the list, the first errors in SEQ order are then all known and the
+     * output matches the sequential loop.
+     *
+     * @param messages Messages object for output error messages.
+     * @param list the statements, sorted by MObj.SEQ.
+     */
+    private void verifyAllProofsParallel(final Messages messages,
+        final List<Stmt> list)
+    {
+        final Theorem[] theorems = list.stream()
+            .filter(stmt -> stmt instanceof Theorem).toArray(Theorem[]::new);
+        final VerifyException[] results = new VerifyException[theorems.length];
+        final int room = messages.getMaxErrorMessages()
+            - messages.getErrorMessageCnt();
+        final AtomicInteger errorCnt = new AtomicInteger();
+
+        try (ParallelIndexWork<Void> work = new ParallelIndexWork<>(null,
+            verifyThreads, theorems.length, () -> errorCnt.get() < room,
+            w -> {
+                final VerifyProofs worker = new VerifyProofs();
+                worker.setStreamCompressedProofs(streamCompressedProofs);
+                return i -> {
+                    final VerifyException errMsg = worker
+                        .verifyOneProof(theorems[i]);
+                    results[i] = errMsg;
+                    if (errMsg != null && errMsg.code.use()
+                        && errMsg.code.level.error)
+                        errorCnt.incrementAndGet();
+                    return null;
+                };
+            }))
+        {
+            work.awaitWorkers();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+
+        for (final VerifyException errMsg : results) {
+            if (messages.maxErrorMessagesReached())
+                break;
+            if (errMsg != null)
+                messages.accumException(errMsg);
+        }
+    }
+
     /**
      * Verify a single proof.
      *
@@ -232,12 +395,15 @@ public class VerifyProofs implements ProofVerifier {
         VerifyException errMsg = null;
         boolean needToRetry = true;
 
+        verifiedStepCnt = 0;
+        final long start = Metrics.VERIFY_PROOF.start();
         try {
             reInitArrays(0);
             while (needToRetry)
                 try {
                     errMsg = null;
-                    loadTheoremGlobalVerifyVars(theorem);
+                    loadTheoremGlobalVerifyVars(theorem,
+                        streamCompressedProofs);
                     proofDjVarsSoftErrorsIgnore = false;
                     proofSoftDjVarsErrorList = null;
 
@@ -252,6 +418,9 @@ public class VerifyProofs implements ProofVerifier {
                 }
         } catch (final VerifyException e) {
             errMsg = e;
+        } finally {
+            Metrics.VERIFY_PROOF.stop(start);
+            Metrics.VERIFY_STEPS.add(verifiedStepCnt);
         }
 
         return errMsg;
@@ -295,6 +464,8 @@ public class VerifyProofs implements ProofVerifier {
         VerifyException errMsg = null;
         boolean needToRetry = true;
 
+        verifiedStepCnt = 0;
+        final long start = Metrics.VERIFY_PROOF.start();
         try {
             reInitArrays(0);
             while (needToRetry)
@@ -316,6 +487,9 @@ public class VerifyProofs implements ProofVerifier {
                 }
         } catch (final VerifyException e) {
             errMsg = e;
+        } finally {
+            Metrics.VERIFY_PROOF.stop(start);
+            Metrics.VERIFY_STEPS.add(verifiedStepCnt);
         }
 
         return errMsg;
@@ -353,6 +527,8 @@ public class VerifyProofs implements ProofVerifier {
         VerifyException errMsg = null;
         boolean needToRetry = true;
 
+        verifiedStepCnt = 0;
+        final long start = Metrics.VERIFY_PROOF.start();
         try {
             reInitArrays(0);
             while (needToRetry)
@@ -373,6 +549,9 @@ public class VerifyProofs implements ProofVerifier {
                 }
         } catch (final VerifyException e) {
             errMsg = e;
+        } finally {
+            Metrics.VERIFY_PROOF.stop(start);
+            Metrics.VERIFY_STEPS.add(verifiedStepCnt);
         }
 
         return errMsg;
@@ -494,16 +673,26 @@ public class VerifyProofs implements ProofVerifier {
             derivStepList.add(e);
         }
 
+        final int nbrHyps = derivStepList.size();
         reInitArrays(0);
-        loadTheoremGlobalVerifyVars(theorem);
-        try {
-            proof = new ParseTree(proof).squishTree().convertToRPN();
-        } catch (final IllegalArgumentException e) {
-            throw new VerifyException(e,
-                ProofConstants.ERRMSG_PROOF_SQUISH_FAIL);
-        }
-        loadProofDerivStepList(theorem, derivStepList, exportFormatUnified,
-            hypsOrder, provableLogicStmtTyp);
+        while (true)
+            try {
+                loadTheoremGlobalVerifyVars(theorem);
+                try {
+                    proof = new ParseTree(proof).squishTree().convertToRPN();
+                } catch (final IllegalArgumentException e) {
+                    throw new VerifyException(e,
+                        ProofConstants.ERRMSG_PROOF_SQUISH_FAIL);
+                }
+                loadProofDerivStepList(theorem, derivStepList,
+                    exportFormatUnified, hypsOrder, provableLogicStmtTyp);
+                break;
+            } catch (final ArrayIndexOutOfBoundsException e) {
+                // arrays too small (no VerifyProof run yet to size them)
+                derivStepList.subList(nbrHyps, derivStepList.size()).clear();
+                retryCnt++;
+                reInitArrays(retryCnt);
+            }
 
         ProofDerivationStepEntry.computeProofLevels(derivStepList);
 
@@ -557,7 +746,7 @@ public class VerifyProofs implements ProofVerifier {
                 if (index >= backrefs.size())
                     raiseVerifyException(Integer.toString(stepNbr + 1),
                         ProofConstants.ERRMSG_PROOF_STEP_RANGE);
-                pStack.push(backrefs.get(index));
+                pushFormula(backrefs.get(index));
                 final ProofDerivationStepEntry e = backrefSteps.get(index);
                 if (e != null)
                     undischargedStack.push(e);
@@ -570,7 +759,7 @@ public class VerifyProofs implements ProofVerifier {
                     backrefs.add(stepFormula);
                     backrefSteps.add(null);
                 }
-                pStack.push(stepFormula);
+                pushFormula(stepFormula);
                 if (proof[stepNbr].stmt instanceof LogHyp) {
                     for (final ProofDerivationStepEntry e : derivStepList)
                         if (stepLabel.equals(e.refLabel)) {
@@ -593,7 +782,7 @@ public class VerifyProofs implements ProofVerifier {
                     backrefs.add(stepFormula);
                     backrefSteps.add(null);
                 }
-                pStack.push(stepFormula);
+                pushFormula(stepFormula);
                 if (stepFormula.getTyp() == provableLogicStmtTyp
                     && !(stepAssrt instanceof Axiom
                         && ((Axiom)stepAssrt).getIsSyntaxAxiom()))
@@ -616,12 +805,12 @@ public class VerifyProofs implements ProofVerifier {
 
             findUniqueSubstMapping();
 
-            stepSubstFormula = applySubstMapping(stepFormula);
+            pushSubstMapping(stepFormula);
+            stepSubstFormula = getPStackFormula(pStackCnt - 1);
             if (proof[stepNbr].backRef < 0) {
                 backrefs.add(stepSubstFormula);
                 backrefSteps.add(null);
             }
-            pStack.push(stepSubstFormula);
 
             if (stepFormula.getTyp() == provableLogicStmtTyp
                 && !(stepAssrt instanceof Axiom
@@ -663,7 +852,7 @@ public class VerifyProofs implements ProofVerifier {
             }
         }
 
-        if (pStack.size() != 1)
+        if (pStackCnt != 1)
             if (proof.length == 0)
                 raiseVerifyException(Integer.toString(stepNbr),
                     ProofConstants.ERRMSG_PROOF_HAS_ZERO_STEPS);
@@ -671,10 +860,10 @@ public class VerifyProofs implements ProofVerifier {
                 raiseVerifyException(Integer.toString(stepNbr),
                     ProofConstants.ERRMSG_PROOF_STACK_GT_1_AT_END);
 
-        if (!proofStmtFormula.equals(pStack.peek()))
+        if (!pStackEquals(0, proofStmtFormula, false))
             raiseVerifyException(Integer.toString(stepNbr + 1),
                 ProofConstants.ERRMSG_FINAL_STACK_ENTRY_UNEQUAL2,
-                pStack.peek());
+                getPStackFormula(0));
 
         if (derivStepList.size() <= numHyps)
             raiseVerifyException(Integer.toString(stepNbr),
@@ -740,15 +929,29 @@ public class VerifyProofs implements ProofVerifier {
             for (int w = 0; w < wExprCnt; w++)
                 s[w] = wExpr[w];
             subst[substCnt].substTo = s;
+            subst[substCnt].substToStart = 0;
+            subst[substCnt].substToEnd = wExprCnt;
             substCnt++;
         }
     }
 
     private void loadTheoremGlobalVerifyVars(final Theorem theoremToProve) {
+        loadTheoremGlobalVerifyVars(theoremToProve, false);
+    }
+
+    /**
+     * @param theoremToProve the Theorem
+     * @param stream if true and the proof is kept compressed, set up
+     *            stepReader and leave proof null instead of decompressing.
+     */
+    private void loadTheoremGlobalVerifyVars(final Theorem theoremToProve,
+        final boolean stream)
+    {
         isExprRPNVerify = false;
         proofStmtLabel = theoremToProve.getLabel();
         proofStmtFormula = theoremToProve.getFormula();
-        proof = theoremToProve.getProof();
+        proof = stream && theoremToProve.readCompressedProof(stepReader) ? null
+            : theoremToProve.getProof();
         proofStmtFrame = theoremToProve.getMandFrame();
         proofStmtOptFrame = theoremToProve.getOptFrame();
     }
@@ -806,73 +1009,210 @@ public class VerifyProofs implements ProofVerifier {
      * @throws VerifyException if an error occurred
      */
     private void verifyProof() throws VerifyException {
-        pStack.clear();
-        final List<Formula> backrefs = new ArrayList<>();
+        if (proof == null) {
+            verifyStreamedProofSteps();
+            return;
+        }
+        verifiedStepCnt = proof.length;
+        pStackCnt = 0;
+        eStackCnt = 0;
+        backrefFormulas.clear();
         for (stepNbr = 0; stepNbr < proof.length; stepNbr++) {
-            if (stepNbr == 544)
-                hashCode();
-            if (proof[stepNbr] == null
-                || proof[stepNbr].backRef <= 0 && proof[stepNbr].stmt == null)
+            if (proof[stepNbr] == null)
                 raiseVerifyException(Integer.toString(stepNbr + 1),
                     ProofConstants.ERRMSG_PROOF_STEP_INCOMPLETE);
+            verifyStep(proof[stepNbr].stmt, proof[stepNbr].backRef);
+        }
+        verifyFinalStack(proof.length);
+    }
 
-            if (proof[stepNbr].stmt == null) {
-                final int index = proof[stepNbr].backRef - 1;
-                if (index >= backrefs.size())
-                    raiseVerifyException(Integer.toString(stepNbr + 1),
-                        ProofConstants.ERRMSG_PROOF_STEP_RANGE);
-                pStack.push(backrefs.get(index));
-                continue;
+    /**
+     * The verification loop for a proof read from its compressed form by
+     * stepReader, one step at a time.
+     * <p>
+     * If the compressed proof turns out to be invalid the decompression error
+     * is reported, even after a verification error in an earlier step.
+     *
+     * @throws VerifyException if an error occurred
+     */
+    private void verifyStreamedProofSteps() throws VerifyException {
+        pStackCnt = 0;
+        eStackCnt = 0;
+        backrefFormulas.clear();
+        stepNbr = 0;
+        try {
+            while (stepReader.next()) {
+                verifyStep(stepReader.stmt, stepReader.backRef);
+                stepNbr++;
             }
-            stepFormula = proof[stepNbr].stmt.getFormula();
-            if (proof[stepNbr].stmt instanceof Hyp) {
-                if (proof[stepNbr].backRef < 0)
-                    backrefs.add(stepFormula);
-                pStack.push(stepFormula);
-                continue;
+        } catch (final LangException e) {
+            raiseDecompressException(e);
+        } catch (final VerifyException e) {
+            try {
+                while (stepReader.next()) {}
+            } catch (final LangException e2) {
+                raiseDecompressException(e2);
             }
+            throw e;
+        } finally {
+            verifiedStepCnt = stepNbr;
+        }
+        verifyFinalStack(stepNbr);
+    }
 
-            stepAssrt = (Assrt)proof[stepNbr].stmt;
-            stepFrame = stepAssrt.getMandFrame();
-            if (stepFrame.hypArray.length == 0) {
-                if (proof[stepNbr].backRef < 0)
-                    backrefs.add(stepFormula);
-                pStack.push(stepFormula);
-                continue;
-            }
+    private void raiseDecompressException(final LangException e)
+        throws VerifyException
+    {
+        clearSubstByVar();
+        throw TheoremContext.addTheoremContext(proofStmtLabel,
+            new VerifyException(e, ProofConstants.ERRMSG_PROOF_DECOMPRESS_ERROR,
+                e.getMessage()));
+    }
 
-            stepLabel = stepAssrt.getLabel();
+    /**
+     * Verify proof step number stepNbr.
+     *
+     * @param stmt the step's Stmt (see RPNStep).
+     * @param backRef the step's backRef (see RPNStep).
+     * @throws VerifyException if an error occurred
+     */
+    private void verifyStep(final Stmt stmt, final int backRef)
+        throws VerifyException
+    {
+        if (stmt == null) {
+            if (backRef <= 0)
+                raiseVerifyException(Integer.toString(stepNbr + 1),
+                    ProofConstants.ERRMSG_PROOF_STEP_INCOMPLETE);
 
-            findUniqueSubstMapping();
+            final int index = backRef - 1;
+            if (index >= backrefFormulas.size())
+                raiseVerifyException(Integer.toString(stepNbr + 1),
+                    ProofConstants.ERRMSG_PROOF_STEP_RANGE);
+            pushFormula(backrefFormulas.get(index));
+            return;
+        }
+        stepFormula = stmt.getFormula();
+        if (stmt instanceof Hyp) {
+            if (backRef < 0)
+                backrefFormulas.add(stepFormula);
+            pushFormula(stepFormula);
+            return;
+        }
 
-            /**
-             * Optimization: don't go thru checkDjVars needlessly.
-             */
-            if (stepFrame.djVarsArray.length > 0) {
-                stepNbrOutputString = Integer.toString(stepNbr + 1);
-                checkDjVars();
-            }
+        stepAssrt = (Assrt)stmt;
+        stepFrame = stepAssrt.getMandFrame();
+        if (stepFrame.hypArray.length == 0) {
+            if (backRef < 0)
+                backrefFormulas.add(stepFormula);
+            pushFormula(stepFormula);
+            return;
+        }
 
-            stepSubstFormula = applySubstMapping(stepFormula);
-            if (proof[stepNbr].backRef < 0)
-                backrefs.add(stepSubstFormula);
-            pStack.push(stepSubstFormula);
+        stepLabel = stepAssrt.getLabel();
+
+        findUniqueSubstMapping();
 
+        /**
+         * Optimization: don't go thru checkDjVars needlessly.
+         */
+        if (stepFrame.djVarsArray.length > 0) {
+            stepNbrOutputString = Integer.toString(stepNbr + 1);
+            checkDjVars();
         }
 
-        if (pStack.size() != 1)
-            if (proof.length == 0)
+        pushSubstMapping(stepFormula);
+
+        /**
+         * The substituted formula lives in eStack and will be
+         * overwritten once popped, so a Formula is only materialized
+         * when a later backreference needs it.
+         */
+        if (backRef < 0)
+            backrefFormulas.add(getPStackFormula(pStackCnt - 1));
+    }
+
+    /**
+     * Check that the proof left just the statement's formula on the stack.
+     *
+     * @param nbrSteps the number of proof steps
+     * @throws VerifyException if an error occurred
+     */
+    private void verifyFinalStack(final int nbrSteps) throws VerifyException {
+        if (pStackCnt != 1)
+            if (nbrSteps == 0)
                 raiseVerifyException(Integer.toString(stepNbr),
                     ProofConstants.ERRMSG_PROOF_HAS_ZERO_STEPS);
             else
                 raiseVerifyException(Integer.toString(stepNbr),
                     ProofConstants.ERRMSG_PROOF_STACK_GT_1_AT_END);
 
-        if (!proofStmtFormula.equals(pStack.peek())
-            && !(isExprRPNVerify && proofStmtFormula.exprEquals(pStack.peek())))
+        if (!pStackEquals(0, proofStmtFormula, false)
+            && !(isExprRPNVerify && pStackEquals(0, proofStmtFormula, true)))
             raiseVerifyException(Integer.toString(stepNbr + 1),
-                ProofConstants.ERRMSG_FINAL_STACK_ENTRY_UNEQUAL, pStack.peek());
+                ProofConstants.ERRMSG_FINAL_STACK_ENTRY_UNEQUAL,
+                getPStackFormula(0));
+    }
+
+    /**
+     * Push an existing Formula onto the proof stack. The Formula's sym array
+     * is shared, not copied.
+     *
+     * @param f the Formula
+     */
+    private void pushFormula(final Formula f) {
+        pStackSym[pStackCnt] = f.getSym();
+        pStackStart[pStackCnt] = 0;
+        pStackEnd[pStackCnt] = f.getCnt();
+        pStackMark[pStackCnt] = eStackCnt;
+        pStackCnt++;
+    }
+
+    /**
+     * Materialize a proof stack entry as a Formula.
+     * <p>
+     * Only needed for backreferences, error messages and Proof Assistant
+     * output; the verification loop itself works on the stack slices.
+     *
+     * @param i the proof stack index
+     * @return a new Formula, or null if the index is out of range
+     */
+    private Formula getPStackFormula(final int i) {
+        if (i < 0 || i >= pStackCnt)
+            return null;
+        final int start = pStackStart[i];
+        final int cnt = pStackEnd[i] - start;
+        if (start == 0)
+            return new Formula(cnt, pStackSym[i]);
+        final Sym[] s = new Sym[cnt];
+        System.arraycopy(pStackSym[i], start, s, 0, cnt);
+        return new Formula(cnt, s);
     }
+
+    /**
+     * Compare a proof stack entry with a Formula.
+     *
+     * @param i the proof stack index
+     * @param f the Formula
+     * @param exprOnly true to ignore the Type Code (see Formula.exprEquals())
+     * @return true if the symbols are identical
+     */
+    private boolean pStackEquals(final int i, final Formula f,
+        final boolean exprOnly)
+    {
+        if (i < 0 || i >= pStackCnt)
+            return false;
+        final int fCnt = f.getCnt();
+        final int start = pStackStart[i];
+        if (pStackEnd[i] - start != fCnt)
+            return false;
+        final Sym[] fSym = f.getSym();
+        final Sym[] s = pStackSym[i];
+        for (int j = exprOnly ? 1 : 0; j < fCnt; j++)
+            if (fSym[j] != s[start + j])
+                return false;
+        return true;
+    }
+
     /**
      * ok, some input, work and output areas in global (class) work areas...
      *
@@ -881,81 +1221,206 @@ public class VerifyProofs implements ProofVerifier {
      *              Hyp[]  hypArray;        in proof step, contains
      *                                      mandatory hypothesis array.)
      *
-     *        -  Formula[] pStack;         (the proof stack, which should
-     *           int       pStackCnt       contain 'n' entries at the end
-     *                                     that have types matching the
-     *                                     hypArray entries -- they will
-     *                                     be used to generate
-     *                                     substitutions which force the
-     *                                     hypArray entriesto match
-     *                                     (and if not, error!))
+     *        -  the proof stack, which should contain 'n' entries at the
+     *           end that have types matching the hypArray entries -- they
+     *           will be used to generate substitutions which force the
+     *           hypArray entries to match (and if not, error!)
      *
      * output:-  SubstMapEntry[] subst --> contains output array of:
      *
      *              Sym substFrom (variable from proof step mandatory
-     *                             hypotheses)
+     *                             hypotheses, null for LogHyps)
      *              Sym[] substTo (expression/variable to substitute
      *                             FOR each occurrence of substFrom
      *                             in the proof step's mandatory
-     *                             hypotheses and assertion.)
+     *                             hypotheses and assertion -- a slice
+     *                             of a proof stack entry.)
+     *
+     *        -  SubstMapEntry[] substByVar, the same entries indexed
+     *           by Var number.
      * </pre>
+     * <p>
+     * The 'n' hypothesis entries are left on the proof stack, since the
+     * substitutions refer to their symbols; pushSubstMapping() pops them.
      *
      * @throws VerifyException if DjVars (restriction) violation found.
      */
     private void findUniqueSubstMapping() throws VerifyException {
-        substCnt = stepFrame.hypArray.length;
-        if (pStack.size() < stepFrame.hypArray.length)
+        final Hyp[] hypArray = stepFrame.hypArray;
+        substCnt = hypArray.length;
+        if (pStackCnt < substCnt)
             raiseVerifyException(Integer.toString(stepNbr + 1),
                 ProofConstants.ERRMSG_STACK_SIZE_MISMATCH_FOR_STEP_HYPS,
                 stepLabel);
 //            raiseVerifyException(Integer.toString(stepNbr + 1), stepLabel,
 //                ProofConstants.ERRMSG_PROOF_STACK_UNDERFLOW);
 
-        final Formula[] stackTop = new Formula[stepFrame.hypArray.length];
-        for (int i = stepFrame.hypArray.length - 1; i >= 0; i--)
-            stackTop[i] = pStack.pop();
+        final int base = pStackCnt - substCnt;
 
         // 1) scan stepFrame.hypArray, pulling out VarHyp's and
         // creating the subst array entries for them (subst
-        // is parallel by index to hypArray and pStack, with
-        // unused entries left null...initially.)
+        // is parallel by index to hypArray and the top of the
+        // proof stack, with substFrom left null for LogHyps.)
         for (int i = 0; i < substCnt; i++) {
-            final Hyp hyp = stepFrame.hypArray[i];
-            if (hyp.getTyp() != stackTop[i].getTyp())
+            final Hyp hyp = hypArray[i];
+            final int k = base + i;
+            final Sym stackTyp = pStackSym[k][pStackStart[k]];
+            if (hyp.getTyp() != stackTyp)
                 raiseVerifyException(Integer.toString(stepNbr + 1),
                     ProofConstants.ERRMSG_HYP_TYP_MISMATCH_STACK_TYP, stepLabel,
-                    hyp.getTyp(), stackTop[i].getTyp());
+                    hyp.getTyp(), stackTyp);
+
+            final SubstMapEntry substMapEntry = subst[i];
             if (!(hyp instanceof VarHyp)) {
-                subst[i] = null;
+                substMapEntry.substFrom = null;
                 continue;
             }
 
-            if (subst[i] == null)
-                subst[i] = new SubstMapEntry(((VarHyp)hyp).getVar(),
-                    stackTop[i].getExpr());
-            else {
-                subst[i].substFrom = ((VarHyp)hyp).getVar();
-                subst[i].substTo = stackTop[i].getExpr();
-            }
-
+            final Var var = ((VarHyp)hyp).getVar();
+            substMapEntry.substFrom = var;
+            substMapEntry.substTo = pStackSym[k];
+            substMapEntry.substToStart = pStackStart[k] + 1;
+            substMapEntry.substToEnd = pStackEnd[k];
+
+            final int varNbr = var.getVarNbr();
+            if (varNbr >= substByVar.length)
+                substByVar = Arrays.copyOf(substByVar,
+                    Math.max(varNbr + 1, Var.getVarNbrCnt()));
+            substByVar[varNbr] = substMapEntry;
         }
 
         // 2) now! go back through hypArray applying the generated
         // substitutions to the non-VarHyp formulas -- which are
-        // then compared to the corresponding entries on pStack
+        // then compared to the corresponding entries on the stack
         // to make sure the substitutions "work"...and that the
         // proofstep is therefore "legal".
         for (int i = 0; i < substCnt; i++) {
-            final Hyp hyp = stepFrame.hypArray[i];
+            final Hyp hyp = hypArray[i];
             if (hyp instanceof VarHyp)
                 continue;
-            final Formula workFormula = applySubstMapping(hyp.getFormula());
-            if (!workFormula.equals(stackTop[i]))
+            if (!substEquals(hyp.getFormula(), base + i))
                 raiseVerifyException(Integer.toString(stepNbr + 1),
                     ProofConstants.ERRMSG_STEP_LOG_HYP_SUBST_UNEQUAL, stepLabel,
-                    stackTop[i], workFormula);
+                    getPStackFormula(base + i),
+                    applySubstMapping(hyp.getFormula()));
+        }
+    }
 
+    /**
+     * Return the substitution for a symbol of the current step, or null if
+     * the symbol is not substituted.
+     *
+     * @param fSym the symbol
+     * @return the SubstMapEntry or null
+     */
+    private SubstMapEntry getSubst(final Sym fSym) {
+        if (!(fSym instanceof Var))
+            return null;
+        final int varNbr = ((Var)fSym).getVarNbr();
+        if (varNbr >= substByVar.length)
+            return null;
+        final SubstMapEntry substMapEntry = substByVar[varNbr];
+        if (substMapEntry == null || substMapEntry.substFrom != fSym)
+            return null;
+        return substMapEntry;
+    }
+
+    /**
+     * Compare the substituted formula f with a proof stack entry without
+     * building the substituted formula.
+     *
+     * @param f the formula to substitute into
+     * @param k the proof stack index
+     * @return true if the substituted formula equals the stack entry
+     */
+    private boolean substEquals(final Formula f, final int k) {
+        final int fCnt = f.getCnt();
+        final Sym[] fSymArray = f.getSym();
+        final Sym[] s = pStackSym[k];
+        int pos = pStackStart[k];
+        final int end = pStackEnd[k];
+        if (s[pos++] != fSymArray[0])
+            return false;
+        for (int i = 1; i < fCnt; i++) {
+            final Sym fSym = fSymArray[i];
+            final SubstMapEntry substMapEntry = getSubst(fSym);
+            if (substMapEntry == null) {
+                if (pos >= end || s[pos++] != fSym)
+                    return false;
+                continue;
+            }
+            final Sym[] to = substMapEntry.substTo;
+            final int toEnd = substMapEntry.substToEnd;
+            if (end - pos < toEnd - substMapEntry.substToStart)
+                return false;
+            for (int j = substMapEntry.substToStart; j < toEnd; j++)
+                if (s[pos++] != to[j])
+                    return false;
         }
+        return pos == end;
+    }
+
+    /**
+     * Clear the substByVar entries set by findUniqueSubstMapping().
+     */
+    private void clearSubstByVar() {
+        if (subst == null)
+            return;
+        for (int i = 0; i < substCnt; i++) {
+            final Sym substFrom = subst[i].substFrom;
+            if (substFrom != null
+                && ((Var)substFrom).getVarNbr() < substByVar.length)
+                substByVar[((Var)substFrom).getVarNbr()] = null;
+        }
+    }
+
+    /**
+     * Apply the current substitutions to the step formula, pop the step's
+     * 'n' hypothesis entries off the proof stack and push the result.
+     * <p>
+     * The result is first built at the top of eStack -- above the popped
+     * entries, whose symbols it copies -- and then moved down to the space
+     * the popped entries occupied. No objects are allocated.
+     * <p>
+     * NOTE: DO NOT substitute for the Type constant at the beginning of the
+     * formula.
+     *
+     * @param f the formula
+     */
+    private void pushSubstMapping(final Formula f) {
+        final int fCnt = f.getCnt();
+        final Sym[] fSymArray = f.getSym();
+        final int buildStart = eStackCnt;
+        eStack[eStackCnt++] = fSymArray[0];
+
+        for (int i = 1; i < fCnt; i++) {
+            final Sym fSym = fSymArray[i];
+            final SubstMapEntry substMapEntry = getSubst(fSym);
+            if (substMapEntry == null) {
+                eStack[eStackCnt++] = fSym; // no subst, use orig sym!
+                continue;
+            }
+            final Sym[] to = substMapEntry.substTo;
+            final int toEnd = substMapEntry.substToEnd;
+            for (int j = substMapEntry.substToStart; j < toEnd; j++)
+                eStack[eStackCnt++] = to[j];
+        }
+
+        clearSubstByVar();
+
+        final int len = eStackCnt - buildStart;
+        final int base = pStackCnt - substCnt;
+        final int mark = pStackMark[base];
+        System.arraycopy(eStack, buildStart, eStack, mark, len);
+        eStackCnt = mark + len;
+        if (buildStart + len > eStackHighwater)
+            eStackHighwater = buildStart + len;
+
+        pStackSym[base] = eStack;
+        pStackStart[base] = mark;
+        pStackEnd[base] = eStackCnt;
+        pStackMark[base] = mark;
+        pStackCnt = base + 1;
     }
 
     /**
@@ -967,6 +1432,8 @@ public class VerifyProofs implements ProofVerifier {
      * <p>
      * output: a new Formula
      * <p>
+     * Only used to build error messages now; see pushSubstMapping().
+     * <p>
      * NOTE: DO NOT substitute for the Type constant at the beginning of the
      * formula.
      *
@@ -980,20 +1447,17 @@ public class VerifyProofs implements ProofVerifier {
         wExpr[0] = fSymArray[0];
         wExprCnt = 1;
 
-        nextFSym: for (int i = 1; i < fCnt; i++) {
+        for (int i = 1; i < fCnt; i++) {
             final Sym fSym = fSymArray[i];
-            for (int j = 0; j < substCnt; j++) {
-                final SubstMapEntry substMapEntry = subst[j];
-                if (substMapEntry == null)
-                    // this wasn't a VarHyp subst entry
-                    continue;
-                if (fSym == substMapEntry.substFrom) {
-                    for (final Sym element : substMapEntry.substTo)
-                        wExpr[wExprCnt++] = element;
-                    continue nextFSym;
-                }
+            final SubstMapEntry substMapEntry = getSubst(fSym);
+            if (substMapEntry == null) {
+                wExpr[wExprCnt++] = fSym; // no subst, use orig sym!
+                continue;
             }
-            wExpr[wExprCnt++] = fSym; // no subst, use orig sym!
+            final Sym[] to = substMapEntry.substTo;
+            final int toEnd = substMapEntry.substToEnd;
+            for (int j = substMapEntry.substToStart; j < toEnd; j++)
+                wExpr[wExprCnt++] = to[j];
         }
 
         return new Formula(wExprCnt, wExpr);
@@ -1031,10 +1495,10 @@ public class VerifyProofs implements ProofVerifier {
         final int yMax = xMax + 1;
 
         for (int fromX = 0; fromX < xMax; fromX++)
-            if (subst[fromX] != null)
+            if (subst[fromX].substFrom != null)
                 for (int fromY = fromX + 1; fromY < yMax; fromY++)
-                    if (subst[fromY] != null)
-                        if (ScopeFrame.isVarPairInDjArray(stepFrame,
+                    if (subst[fromY].substFrom != null)
+                        if (stepFrame.isDjVarsPair(
                             (Var)subst[fromX].substFrom,
                             (Var)subst[fromY].substFrom))
                             checkSubstToVars(fromX, fromY);
@@ -1083,10 +1547,14 @@ public class VerifyProofs implements ProofVerifier {
     private void checkSubstToVars(final int x, final int y)
         throws VerifyException
     {
-        for (final Sym symI : subst[x].substTo) {
+        final SubstMapEntry substX = subst[x];
+        final SubstMapEntry substY = subst[y];
+        for (int i = substX.substToStart; i < substX.substToEnd; i++) {
+            final Sym symI = substX.substTo[i];
             if (!(symI instanceof Var))
                 continue;
-            for (final Sym symJ : subst[y].substTo) {
+            for (int j = substY.substToStart; j < substY.substToEnd; j++) {
+                final Sym symJ = substY.substTo[j];
                 if (!(symJ instanceof Var))
                     continue;
                 if (symI == symJ)
@@ -1098,10 +1566,8 @@ public class VerifyProofs implements ProofVerifier {
                 if (proofDjVarsSoftErrorsIgnore)
                     continue;
 
-                if (!ScopeFrame.isVarPairInDjArray(proofStmtFrame, (Var)symI,
-                    (Var)symJ)
-                    && !ScopeFrame.isVarPairInDjArray(proofStmtOptFrame,
-                        (Var)symI, (Var)symJ)
+                if (!proofStmtFrame.isDjVarsPair((Var)symI, (Var)symJ)
+                    && !proofStmtOptFrame.isDjVarsPair((Var)symI, (Var)symJ)
                     &&
                 // don't report "soft" Dj WorkVar errors
                     !(symI instanceof WorkVar || symJ instanceof WorkVar)) {
@@ -1122,6 +1588,7 @@ public class VerifyProofs implements ProofVerifier {
     public void raiseVerifyException(final String stepLabel,
         final ErrorCode code, final Object... args) throws VerifyException
     {
+        clearSubstByVar();
         throw TheoremContext.addTheoremContext(proofStmtLabel, StepContext
             .addStepContext(stepLabel, new VerifyException(code, args)));
     }
@@ -1139,32 +1606,63 @@ public class VerifyProofs implements ProofVerifier {
     public int getSubstHighwater() {
         return substHighwater;
     }
+    public int getEStackHighwater() {
+        return eStackHighwater;
+    }
 
     private void reInitArrays(final int retry) throws VerifyException {
         if (retryCnt == -1) {
             initArrays();
             return;
         }
+        if (retry > 0)
+            Metrics.VERIFY_RETRIES.inc();
         retryCnt = retry;
 
-        if (pStack.size() > pStackHighwater)
-            pStackHighwater = pStack.size();
+        if (pStackCnt > pStackHighwater)
+            pStackHighwater = pStackCnt;
         if (wExprCnt > wExprHighwater)
             wExprHighwater = wExprCnt;
+        if (eStackCnt > eStackHighwater)
+            eStackHighwater = eStackCnt;
         if (substCnt > wExprHighwater)
             substHighwater = substCnt;
 
         if (retry == 0) {
-            pStack.clear();
+            pStackCnt = 0;
             wExprCnt = 0;
+            eStackCnt = 0;
             substCnt = 0;
             return;
         }
 
+        Arrays.fill(substByVar, null);
+
         if (pStackHighwater >= ProofConstants.PROOF_PSTACK_HARD_FAILURE_LEN)
             raiseVerifyException(null,
                 ProofConstants.ERRMSG_PSTACK_ARRAY_OVERFLOW, pStackHighwater);
 
+        if (pStackMax < pStackCnt + 10) {
+            pStackMax *= 2;
+            if (pStackMax > ProofConstants.PROOF_PSTACK_HARD_FAILURE_LEN)
+                pStackMax = ProofConstants.PROOF_PSTACK_HARD_FAILURE_LEN;
+            allocPStack();
+        }
+        pStackCnt = 0;
+
+        if (eStackMax < ProofConstants.PROOF_ESTACK_HARD_FAILURE_LEN) {
+            if (eStackMax < eStackCnt + 10) {
+                eStackMax *= 2;
+                if (eStackMax > ProofConstants.PROOF_ESTACK_HARD_FAILURE_LEN)
+                    eStackMax = ProofConstants.PROOF_ESTACK_HARD_FAILURE_LEN;
+                eStack = new Sym[eStackMax];
+            }
+            eStackCnt = 0;
+        }
+        else
+            raiseVerifyException(null,
+                ProofConstants.ERRMSG_ESTACK_ARRAY_OVERFLOW, eStackMax);
+
         if (wExprMax < ProofConstants.PROOF_WEXPR_HARD_FAILURE_LEN) {
             if (wExprMax < wExprCnt + 10) {
                 wExprMax *= 2;
@@ -1201,15 +1699,21 @@ public class VerifyProofs implements ProofVerifier {
     private void initArrays() {
         retryCnt = 0;
 
+        pStackCnt = 0;
         pStackMax = ProofConstants.PROOF_PSTACK_INIT_LEN;
         pStackHighwater = 0;
-        pStack = new ArrayDeque<>(pStackMax);
+        allocPStack();
 
         wExprCnt = 0;
         wExprMax = ProofConstants.PROOF_WEXPR_INIT_LEN;
         wExprHighwater = 0;
         wExpr = new Sym[wExprMax];
 
+        eStackCnt = 0;
+        eStackMax = ProofConstants.PROOF_ESTACK_INIT_LEN;
+        eStackHighwater = 0;
+        eStack = new Sym[eStackMax];
+
         substCnt = 0;
         substMax = ProofConstants.PROOF_SUBST_INIT_LEN;
         substHighwater = 0;
@@ -1218,6 +1722,13 @@ public class VerifyProofs implements ProofVerifier {
             subst[i] = new SubstMapEntry();
     }
 
+    private void allocPStack() {
+        pStackSym = new Sym[pStackMax][];
+        pStackStart = new int[pStackMax];
+        pStackEnd = new int[pStackMax];
+        pStackMark = new int[pStackMax];
+    }
+
     /**
      * Generate Formula from RPN.
      *
@@ -1276,7 +1787,7 @@ public class VerifyProofs implements ProofVerifier {
                 if (index >= backrefs.size())
                     raiseVerifyException(Integer.toString(stepNbr + 1),
                         ProofConstants.ERRMSG_PROOF_STEP_RANGE);
-                pStack.push(backrefs.get(index));
+                pushFormula(backrefs.get(index));
                 continue;
             }
 
@@ -1284,7 +1795,7 @@ public class VerifyProofs implements ProofVerifier {
             if (proof[stepNbr].stmt instanceof Hyp) {
                 if (proof[stepNbr].backRef < 0)
                     backrefs.add(stepFormula);
-                pStack.push(stepFormula);
+                pushFormula(stepFormula);
                 continue;
             }
 
@@ -1293,7 +1804,7 @@ public class VerifyProofs implements ProofVerifier {
             if (stepFrame.hypArray.length == 0) {
                 if (proof[stepNbr].backRef < 0)
                     backrefs.add(stepFormula);
-                pStack.push(stepFormula);
+                pushFormula(stepFormula);
                 continue;
             }
 
@@ -1301,14 +1812,13 @@ public class VerifyProofs implements ProofVerifier {
 
             findUniqueSubstMapping();
 
-            stepSubstFormula = applySubstMapping(stepFormula);
+            pushSubstMapping(stepFormula);
             if (proof[stepNbr].backRef < 0)
-                backrefs.add(stepSubstFormula);
-            pStack.push(stepSubstFormula);
+                backrefs.add(getPStackFormula(pStackCnt - 1));
 
         }
 
-        if (pStack.size() != 1)
+        if (pStackCnt != 1)
             if (proof.length == 0)
                 raiseVerifyException(Integer.toString(stepNbr),
                     ProofConstants.ERRMSG_PROOF_HAS_ZERO_STEPS);
@@ -1316,7 +1826,7 @@ public class VerifyProofs implements ProofVerifier {
                 raiseVerifyException(Integer.toString(stepNbr),
                     ProofConstants.ERRMSG_PROOF_STACK_GT_1_AT_END);
 
-        return new Formula(pStack.peek().getCnt(), pStack.peek().getSym());
+        return getPStackFormula(0);
     }
 
 }